@@ -0,0 +1,110 @@
+package org.cubexmc.metro.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares two JMH JSON result files and fails when any benchmark got slower than the threshold.
+ * <p>
+ * Usage: {@code BaselineComparator <baseline.json> <current.json> [maxRegressionPercent]}
+ */
+public final class BaselineComparator {
+
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+    private static final Pattern SCORE = Pattern.compile(
+            "\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([-0-9.eE+]+|\"NaN\")");
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <current.json> [maxRegressionPercent]");
+            System.exit(2);
+            return;
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Path baselineFile = Path.of(args[0]);
+        Path currentFile = Path.of(args[1]);
+        if (!Files.isRegularFile(baselineFile)) {
+            System.err.println("No baseline at " + baselineFile + "; record one on the reference machine with"
+                    + " -Djmh.result=" + baselineFile + " (see docs/benchmarks.md)");
+            System.exit(2);
+            return;
+        }
+        if (!Files.isRegularFile(currentFile)) {
+            System.err.println("No benchmark result at " + currentFile + "; run exec:exec@jmh first");
+            System.exit(2);
+            return;
+        }
+        Map<String, Double> baseline = parse(Files.readString(baselineFile));
+        Map<String, Double> current = parse(Files.readString(currentFile));
+        if (baseline.isEmpty()) {
+            System.err.println("Baseline " + baselineFile + " contains no benchmark results");
+            System.exit(2);
+            return;
+        }
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null || before <= 0.0 || entry.getValue().isNaN()) {
+                System.out.printf(Locale.ROOT, "  NEW  %-70s %12.3f%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+            double changePercent = (entry.getValue() - before) / before * 100.0;
+            boolean regressed = changePercent > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%s %-70s %12.3f -> %12.3f (%+.1f%%)%n",
+                    regressed ? "SLOW " : "  ok ", entry.getKey(), before, entry.getValue(), changePercent);
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf(Locale.ROOT, "  GONE %-70s%n", name);
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf(Locale.ROOT, "%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Extracts benchmark name (plus parameters) to primary score. All Railway benchmarks use
+     * {@code AverageTime}, so a larger score is a regression.
+     */
+    static Map<String, Double> parse(String json) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Matcher benchmark = BENCHMARK.matcher(json);
+        int from = 0;
+        while (benchmark.find(from)) {
+            int next = benchmark.end();
+            Matcher following = BENCHMARK.matcher(json);
+            int end = following.find(next) ? following.start() : json.length();
+            String entry = json.substring(benchmark.start(), end);
+
+            String key = benchmark.group(1);
+            Matcher params = PARAMS.matcher(entry);
+            if (params.find()) {
+                key += "{" + params.group(1).replaceAll("[\\s\"]", "") + "}";
+            }
+            Matcher score = SCORE.matcher(entry);
+            if (score.find()) {
+                String raw = score.group(1);
+                scores.put(key, raw.startsWith("\"") ? Double.NaN : Double.parseDouble(raw));
+            }
+            from = end;
+        }
+        return scores;
+    }
+}
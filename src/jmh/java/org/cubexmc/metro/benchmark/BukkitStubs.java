@@ -0,0 +1,136 @@
+package org.cubexmc.metro.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Rail;
+
+/**
+ * Minimal proxy-backed Bukkit worlds for benchmarks. Only the calls made by Railway's hot paths
+ * are answered; everything else returns the type's default value. Proxies are used instead of
+ * Mockito mocks so that stub overhead stays small and stable next to the measured code.
+ */
+public final class BukkitStubs {
+
+    private static final Map<Rail.Shape, Rail> RAIL_DATA = new EnumMap<>(Rail.Shape.class);
+    private static final BlockData AIR_DATA = proxy(BlockData.class, (proxy, method, args) -> switch (method.getName()) {
+        case "getMaterial" -> Material.AIR;
+        case "clone" -> proxy;
+        default -> defaultValue(proxy, method, args);
+    });
+
+    private BukkitStubs() {
+    }
+
+    /**
+     * Rail shape at a block position, or null for air.
+     */
+    @FunctionalInterface
+    public interface RailLayout {
+        Rail.Shape shapeAt(int x, int y, int z);
+    }
+
+    /**
+     * Straight east-west track at the given height and z, unbounded in x.
+     */
+    public static RailLayout straightEastWest(int railY, int railZ) {
+        return (x, y, z) -> y == railY && z == railZ ? Rail.Shape.EAST_WEST : null;
+    }
+
+    public static World world(String name, RailLayout layout) {
+        UUID uid = UUID.nameUUIDFromBytes(name.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        World[] self = new World[1];
+        self[0] = proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "getUID" -> uid;
+            case "getMinHeight" -> 0;
+            case "getMaxHeight" -> 256;
+            case "getBlockAt" -> args.length == 1
+                    ? block(self[0], layout, ((Location) args[0]).getBlockX(), ((Location) args[0]).getBlockY(),
+                            ((Location) args[0]).getBlockZ())
+                    : block(self[0], layout, (Integer) args[0], (Integer) args[1], (Integer) args[2]);
+            default -> defaultValue(proxy, method, args);
+        });
+        return self[0];
+    }
+
+    static Block block(World world, RailLayout layout, int x, int y, int z) {
+        Rail.Shape shape = layout.shapeAt(x, y, z);
+        return proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getX" -> x;
+            case "getY" -> y;
+            case "getZ" -> z;
+            case "getWorld" -> world;
+            case "getType" -> shape == null ? Material.AIR : Material.RAIL;
+            case "getBlockData" -> shape == null ? AIR_DATA : railData(shape);
+            case "getLocation" -> args == null || args.length == 0 ? new Location(world, x, y, z) : null;
+            case "getRelative" -> args[0] instanceof BlockFace face
+                    ? block(world, layout, x + face.getModX(), y + face.getModY(), z + face.getModZ())
+                    : block(world, layout, x + (Integer) args[0], y + (Integer) args[1], z + (Integer) args[2]);
+            default -> defaultValue(proxy, method, args);
+        });
+    }
+
+    private static synchronized Rail railData(Rail.Shape shape) {
+        return RAIL_DATA.computeIfAbsent(shape, key -> proxy(Rail.class, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "getShape" -> key;
+                    case "getMaterial" -> Material.RAIL;
+                    case "clone" -> proxy;
+                    default -> defaultValue(proxy, method, args);
+                }));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BukkitStubs.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Stub" + method.getDeclaringClass().getSimpleName();
+            default:
+                break;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (!returnType.isPrimitive() || returnType == void.class) {
+            return null;
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == double.class) {
+            return 0.0;
+        }
+        if (returnType == float.class) {
+            return 0.0f;
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        if (returnType == char.class) {
+            return '\0';
+        }
+        if (returnType == byte.class) {
+            return (byte) 0;
+        }
+        if (returnType == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package org.cubexmc.metro.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.manager.LanguageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message lookup and placeholder formatting used by titles, action bars and scoreboards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LanguageBenchmark {
+
+    private static final String[] BUNDLED = {"zh_CN", "zh_TW", "en_US", "de_DE", "es_ES", "nl_NL", "tr_TR"};
+
+    private LanguageManager languageManager;
+    private Map<String, Object> namedArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dataFolder = Files.createTempDirectory("railway-bench-lang");
+        Path langDir = Files.createDirectories(dataFolder.resolve("lang"));
+        for (String lang : BUNDLED) {
+            try (InputStream in = LanguageBenchmark.class.getClassLoader().getResourceAsStream("lang/" + lang + ".yml")) {
+                if (in != null) {
+                    Files.copy(in, langDir.resolve(lang + ".yml"), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("settings.default_language", "en_US");
+
+        Metro plugin = mock(Metro.class);
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        when(plugin.getConfig()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("LanguageBenchmark"));
+        languageManager = new LanguageManager(plugin);
+
+        namedArgs = LanguageManager.args();
+        LanguageManager.put(namedArgs, "name", "heartbeat");
+        LanguageManager.put(namedArgs, "count", 1200);
+        LanguageManager.put(namedArgs, "p50", "0.12");
+        LanguageManager.put(namedArgs, "p99", "0.87");
+        LanguageManager.put(namedArgs, "max", "3.40");
+    }
+
+    @Benchmark
+    public String plainMessage() {
+        return languageManager.getMessage("plugin.reload");
+    }
+
+    @Benchmark
+    public String namedPlaceholders() {
+        return languageManager.getMessage("profile.section", namedArgs);
+    }
+}
@@ -0,0 +1,63 @@
+package org.cubexmc.metro.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.cubexmc.metro.persistence.SaveCoordinator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Atomic snapshot writes through {@link SaveCoordinator}; dominated by the file system, so
+ * compare baselines from the same machine only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"4096", "262144"})
+    int snapshotBytes;
+
+    private SaveCoordinator coordinator;
+    private Path target;
+    private String snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        coordinator = new SaveCoordinator(Logger.getLogger("PersistenceBenchmark"), Runnable::run);
+        target = Files.createTempDirectory("railway-bench-save").resolve("lines.yml");
+        StringBuilder builder = new StringBuilder(snapshotBytes);
+        int index = 0;
+        while (builder.length() < snapshotBytes) {
+            builder.append("line_").append(index++).append(":\n  name: Bench\n  stops: [a, b, c]\n");
+        }
+        snapshot = builder.substring(0, snapshotBytes);
+    }
+
+    @Benchmark
+    public long submitSnapshot() {
+        return coordinator.submitSnapshot(target, snapshot);
+    }
+
+    @Benchmark
+    public void saveNow() {
+        coordinator.saveNow(target, snapshot);
+    }
+}
@@ -0,0 +1,101 @@
+package org.cubexmc.metro.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+import org.cubexmc.metro.estimation.TravelTimeEstimator;
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Travel time estimates and virtual train simulation, both evaluated every heartbeat per line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final int STOPS = 24;
+
+    private TravelTimeEstimator estimator;
+    private VirtualTrainPool pool;
+    private String[] stopIds;
+    private int cursor;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        estimator = new TravelTimeEstimator(new FixedSettings(),
+                Files.createTempDirectory("railway-bench-estimator").toFile(), Clock.systemUTC());
+        Line line = new Line("bench", "Bench Line");
+        stopIds = new String[STOPS];
+        for (int index = 0; index < STOPS; index++) {
+            stopIds[index] = "s" + index;
+            line.addStop(stopIds[index], index);
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int index = 0; index < STOPS - 1; index++) {
+                estimator.record("bench", stopIds[index], stopIds[index + 1], 25.0 + (index % 5) + round * 0.1, 1.0);
+            }
+        }
+        pool = new VirtualTrainPool("bench", 100);
+        pool.initialize(line, 60, estimator, 0L);
+        tick = 0L;
+    }
+
+    @Benchmark
+    public double estimateSeconds() {
+        cursor = (cursor + 1) % (STOPS - 1);
+        return estimator.estimateSeconds("bench", stopIds[cursor], stopIds[cursor + 1]);
+    }
+
+    @Benchmark
+    public VirtualTrainPool virtualPoolTick() {
+        tick += 20L;
+        pool.tick(tick, estimator);
+        return pool;
+    }
+
+    private static final class FixedSettings implements TravelTimeEstimator.Settings {
+        @Override
+        public boolean enabled() {
+            return true;
+        }
+
+        @Override
+        public double defaultSectionSeconds() {
+            return 30.0;
+        }
+
+        @Override
+        public double priorStrength() {
+            return 3.0;
+        }
+
+        @Override
+        public double outlierSigma() {
+            return 4.0;
+        }
+
+        @Override
+        public double decayPerDay() {
+            return 0.05;
+        }
+    }
+}
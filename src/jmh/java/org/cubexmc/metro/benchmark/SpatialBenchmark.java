@@ -0,0 +1,109 @@
+package org.cubexmc.metro.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.spatial.Octree;
+import org.cubexmc.metro.spatial.Point3D;
+import org.cubexmc.metro.spatial.Range3D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stop containment lookups, the query behind every player move and vehicle move event.
+ * Stops are 8x4x8 boxes on a grid with 32-block pitch; half of the probes hit a stop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialBenchmark {
+
+    private static final int PITCH = 32;
+    private static final int PROBES = 1024;
+
+    @Param({"100", "2000"})
+    int stopCount;
+
+    private Octree<String> octree;
+    private StopManager stopManager;
+    private Point3D[] points;
+    private Location[] locations;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(stopCount));
+        double extent = side * (double) PITCH;
+        octree = new Octree<>(new Range3D(-16, 0, -16, extent + 16, 256, extent + 16), 8, 8);
+
+        Path dataFolder = Files.createTempDirectory("railway-bench-stops");
+        Files.writeString(dataFolder.resolve("stops.yml"), "");
+        Metro plugin = mock(Metro.class);
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("SpatialBenchmark"));
+        stopManager = new StopManager(plugin);
+
+        World world = BukkitStubs.world("world", (x, y, z) -> null);
+        UUID owner = UUID.randomUUID();
+        for (int index = 0; index < stopCount; index++) {
+            int x = (index % side) * PITCH;
+            int z = (index / side) * PITCH;
+            octree.insert(new Range3D(x, 64, z, x + 8, 68, z + 8), "stop_" + index);
+            stopManager.createStop("stop_" + index, "Stop " + index,
+                    new Location(world, x, 64, z), new Location(world, x + 8, 68, z + 8), owner);
+        }
+
+        SplittableRandom random = new SplittableRandom(42L);
+        points = new Point3D[PROBES];
+        locations = new Location[PROBES];
+        for (int index = 0; index < PROBES; index++) {
+            int cell = random.nextInt(stopCount);
+            double offset = index % 2 == 0 ? 4.0 : 20.0;
+            double x = (cell % side) * PITCH + offset;
+            double z = (cell / side) * PITCH + offset;
+            points[index] = new Point3D(x, 65, z);
+            locations[index] = new Location(world, x, 65, z);
+        }
+    }
+
+    @Benchmark
+    public String octreeFirstRange() {
+        return octree.firstRange(points[next()]);
+    }
+
+    @Benchmark
+    public Stop stopManagerContaining() {
+        return stopManager.getStopContainingLocation(locations[next()]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (PROBES - 1);
+        return cursor;
+    }
+}
@@ -0,0 +1,88 @@
+package org.cubexmc.metro.physics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.cubexmc.metro.benchmark.BukkitStubs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-tick kinematic work for one consist: rail projection, lead planning and trail sampling.
+ * Lives in the physics package because these helpers are package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+
+    private static final int RAIL_Y = 64;
+    private static final int CARS = 4;
+    private static final double SPACING = 1.6;
+
+    private World world;
+    private Location onRail;
+    private Vector east;
+    private Vector zero;
+    private KinematicTrailBuffer trail;
+    private KinematicTrailBuffer appendTrail;
+    private final KinematicTrailBuffer.TrailSample sample = new KinematicTrailBuffer.TrailSample();
+    private double appendX;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BukkitStubs.world("world", BukkitStubs.straightEastWest(RAIL_Y, 0));
+        onRail = new Location(world, 100.3, RAIL_Y + 0.0625, 0.5);
+        east = new Vector(1, 0, 0);
+        zero = new Vector();
+        trail = new KinematicTrailBuffer();
+        for (int index = 0; index < 400; index++) {
+            trail.addPoint(index * 0.1, RAIL_Y, 0.5, 0.4, 0, 0);
+        }
+        appendTrail = new KinematicTrailBuffer();
+        appendX = 0.0;
+    }
+
+    @Benchmark
+    public Location project() {
+        return RailPathUtil.project(onRail);
+    }
+
+    @Benchmark
+    public Vector computeDirection() {
+        return RailPathUtil.computeDirection(onRail, east);
+    }
+
+    @Benchmark
+    public Object planLead() {
+        return KinematicLeadMotionPlanner.plan(onRail, east, east, 0.4, 0.4, true, 8, 0.8, zero, 1.0);
+    }
+
+    @Benchmark
+    public Object trailSample() {
+        trail.sampleInto(CARS * SPACING, east, sample);
+        return sample;
+    }
+
+    @Benchmark
+    public int trailAppend() {
+        appendX += 0.4;
+        appendTrail.addPoint(appendX, RAIL_Y, 0.5, 0.4, 0, 0);
+        appendTrail.maintain(CARS, SPACING);
+        return appendTrail.size();
+    }
+}
@@ -23,13 +23,20 @@ import net.megavex.scoreboardlibrary.api.exception.NoPacketAdapterAvailableExcep
 import net.megavex.scoreboardlibrary.api.noop.NoopScoreboardLibrary;
 import org.cubexmc.metro.manager.LanguageManager;
 import org.cubexmc.metro.listener.PlayerInteractListener;
-import org.cubexmc.metro.listener.PlayerMoveListener;
+import org.cubexmc.metro.listener.StopPresenceTracker;
 import org.cubexmc.metro.listener.VehicleListener;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.manager.RailProtectionManager;
 import org.cubexmc.metro.manager.SelectionManager;
 import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.metrics.MetricsExporter;
+import org.cubexmc.metro.metrics.RailwayMetrics;
 import org.cubexmc.metro.persistence.SaveCoordinator;
+import org.cubexmc.metro.profiling.LoadGovernor;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
+import org.cubexmc.metro.profiling.TickTimeSampler;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
 import org.cubexmc.metro.train.ScoreboardManager;
 import org.cubexmc.metro.train.TrainDisplayController;
 import org.cubexmc.metro.train.TrainMovementTask;
@@ -40,6 +47,8 @@ import org.cubexmc.metro.util.MetroConstants;
 import org.cubexmc.metro.util.SchedulerUtil;
 import org.cubexmc.metro.util.VersionUtil;
 import org.cubexmc.metro.model.EntityModelController;
+import org.cubexmc.metro.physics.FakeEntityPackets;
+import org.cubexmc.metro.physics.FakeEntityRegistry;
 import org.cubexmc.metro.service.LineServiceManager;
 
 public final class Metro extends JavaPlugin {
@@ -55,7 +64,7 @@ public final class Metro extends JavaPlugin {
     private ConfigFacade configFacade;
     private PlayerInteractListener playerInteractListener;
     private VehicleListener vehicleListener;
-    private PlayerMoveListener playerMoveListener;
+    private StopPresenceTracker stopPresenceTracker;
     private GuiListener guiListener;
     private TrainDisplayController trainDisplayController;
     private org.incendo.cloud.CommandManager<CommandSender> commandManager;
@@ -69,6 +78,14 @@ public final class Metro extends JavaPlugin {
     private org.cubexmc.metro.service.PriceService priceService;
     private org.cubexmc.metro.service.LineStatusService lineStatusService;
     private SaveCoordinator saveCoordinator;
+    private TickProfiler tickProfiler;
+    private volatile LoadGovernor loadGovernor;
+    private TickTimeSampler tickTimeSampler;
+    private RailwayMetrics railwayMetrics;
+    private TrainTelemetryHub telemetryHub;
+    private FakeEntityPackets fakeEntityPackets;
+    private FakeEntityRegistry fakeEntityRegistry;
+    private MetricsExporter metricsExporter;
     private TravelTimeEstimator travelTimeEstimator;
     private MapIntegrationLifecycle mapIntegrationLifecycle;
     private ScheduledTaskLifecycle scheduledTaskLifecycle;
@@ -96,8 +113,15 @@ public final class Metro extends JavaPlugin {
 
         // 初始化语言管理器（内部会自动更新语言文件）
         this.languageManager = new LanguageManager(this);
+        this.tickProfiler = new TickProfiler(configFacade.isProfilingEnabled(),
+                configFacade.getProfilingSliceSeconds(), configFacade.getProfilingSlices());
         this.saveCoordinator = new SaveCoordinator(getLogger(),
                 command -> org.cubexmc.metro.util.SchedulerUtil.asyncRun(this, command, 0L));
+        this.railwayMetrics = new RailwayMetrics(this, configFacade.isMetricsEnabled());
+        this.saveCoordinator.setWriteTimingListener(nanos -> {
+            tickProfiler.record(ProfilerSection.PERSISTENCE, nanos);
+            railwayMetrics.recordSave(nanos);
+        });
 
         // 初始化管理器
         this.lineManager = new LineManager(this);
@@ -111,6 +135,7 @@ public final class Metro extends JavaPlugin {
         this.routeRecorder = new org.cubexmc.metro.manager.RouteRecorder(this);
         Bukkit.getPluginManager().registerEvents(this.chatInputManager, this);
 
+        this.telemetryHub = new TrainTelemetryHub(this);
         this.lineServiceManager = new org.cubexmc.metro.service.LineServiceManager(this);
 
         // 初始化传送门管理器
@@ -156,7 +181,7 @@ public final class Metro extends JavaPlugin {
                 new ListenerRegistration(this, railProtectionManager).register();
         this.playerInteractListener = listenerRegistration.playerInteractListener();
         this.vehicleListener = listenerRegistration.vehicleListener();
-        this.playerMoveListener = listenerRegistration.playerMoveListener();
+        this.stopPresenceTracker = listenerRegistration.stopPresenceTracker();
         this.guiListener = listenerRegistration.guiListener();
         this.trainDisplayController = listenerRegistration.trainDisplayController();
 
@@ -166,6 +191,23 @@ public final class Metro extends JavaPlugin {
             getLogger().info("Entity model mode enabled: " + getEntityTypeOverride());
         }
 
+        if (Bukkit.getPluginManager().getPlugin("ProtocolLib") != null) {
+            try {
+                this.fakeEntityPackets = new org.cubexmc.metro.integration.ProtocolLibFakeEntityPackets(this);
+                this.fakeEntityRegistry = new FakeEntityRegistry();
+                this.fakeEntityPackets.setInteractHandler(fakeEntityRegistry::handleInteract);
+                Bukkit.getPluginManager().registerEvents(fakeEntityRegistry, this);
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    // 重载时补录已在线玩家的位置
+                    SchedulerUtil.entityRun(this, player,
+                            () -> fakeEntityRegistry.updatePosition(player, player.getLocation()), 0L, -1L);
+                }
+                getLogger().info("ProtocolLib detected, leash couplers and virtual follower cars use client-side entities");
+            } catch (Throwable t) {
+                getLogger().warning("Failed to hook ProtocolLib for client-side entities: " + t.getMessage());
+            }
+        }
+
         // 注册bstats
         int pluginId = 25825; // <-- Replace with the id of your plugin!
         new Metrics(this, pluginId);
@@ -176,6 +218,23 @@ public final class Metro extends JavaPlugin {
         this.scheduledTaskLifecycle = new ScheduledTaskLifecycle(this, lineManager, stopManager, portalManager);
         this.scheduledTaskLifecycle.start();
 
+        // 指标文件单独用一个 SaveCoordinator，避免计入数据文件的保存耗时
+        this.metricsExporter = new MetricsExporter(getLogger(), railwayMetrics.getRegistry(),
+                new SaveCoordinator(getLogger(), command -> SchedulerUtil.asyncRun(this, command, 0L)),
+                new MetricsExporter.TaskScheduler() {
+                    @Override
+                    public Object schedule(Runnable task, long delay, long period) {
+                        return SchedulerUtil.globalRun(Metro.this, task, delay, period);
+                    }
+
+                    @Override
+                    public void cancel(Object taskId) {
+                        SchedulerUtil.cancelTask(taskId);
+                    }
+                });
+        refreshMetricsExporter();
+        refreshLoadGovernor();
+
         this.mapIntegrationLifecycle = new MapIntegrationLifecycle(this);
         this.mapIntegrationLifecycle.enable();
 
@@ -202,8 +261,11 @@ public final class Metro extends JavaPlugin {
         }
 
         // 主动清理任务与显示，避免 reload 残留状态
-        if (playerMoveListener != null) {
-            playerMoveListener.shutdown();
+        if (stopPresenceTracker != null) {
+            stopPresenceTracker.shutdown();
+        }
+        if (vehicleListener != null) {
+            vehicleListener.shutdown();
         }
         if (playerInteractListener != null) {
             playerInteractListener.shutdown();
@@ -221,6 +283,11 @@ public final class Metro extends JavaPlugin {
                 scoreboardManager.clearPlayerDisplay(player);
             }
         }
+        if (lineServiceManager != null) {
+            // 在列车被清理前保存运行状态，下次启动从这里继续
+            lineServiceManager.saveCheckpoint();
+            lineServiceManager.getConsistPool().drain();
+        }
         int activeTrainCount = TrainMovementTask.shutdownActiveTasks(this, VersionUtil.isFolia());
         if (activeTrainCount > 0) {
             getLogger().info("Cleaned up " + activeTrainCount + " active Metro train(s).");
@@ -246,8 +313,20 @@ public final class Metro extends JavaPlugin {
         if (scheduledTaskLifecycle != null) {
             scheduledTaskLifecycle.shutdown();
         }
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (tickTimeSampler != null) {
+            tickTimeSampler.stop();
+        }
         if (routeRecorder != null) {
-            routeRecorder.cancelAll();
+            routeRecorder.shutdown();
+        }
+        if (fakeEntityPackets != null) {
+            fakeEntityPackets.shutdown();
+        }
+        if (fakeEntityRegistry != null) {
+            fakeEntityRegistry.clear();
         }
         flushPersistentData();
 
@@ -330,6 +409,10 @@ public final class Metro extends JavaPlugin {
         return scoreboardManager;
     }
 
+    public StopPresenceTracker getStopPresenceTracker() {
+        return stopPresenceTracker;
+    }
+
     /**
      * 获取选区管理器
      * 
@@ -382,6 +465,48 @@ public final class Metro extends JavaPlugin {
         getLogger().info("[DEBUG][" + category + "] " + message);
     }
 
+    /**
+     * Apply the metrics section of the config: toggle recording and restart the exporter.
+     */
+    public void refreshMetricsExporter() {
+        if (railwayMetrics == null || metricsExporter == null) {
+            return;
+        }
+        boolean enabled = configFacade.isMetricsEnabled();
+        railwayMetrics.getRegistry().setEnabled(enabled);
+        if (!enabled) {
+            metricsExporter.stop();
+            return;
+        }
+        java.nio.file.Path file = configFacade.isMetricsFileEnabled()
+                ? getDataFolder().toPath().resolve(configFacade.getMetricsFilePath())
+                : null;
+        metricsExporter.start(new MetricsExporter.Settings(
+                configFacade.getMetricsIntervalSeconds() * 20L, file,
+                configFacade.isMetricsHttpEnabled(), configFacade.getMetricsHttpHost(),
+                configFacade.getMetricsHttpPort()));
+    }
+
+    /**
+     * Apply the load_governor section of the config. Restarting resets the governor to tier 0.
+     */
+    public void refreshLoadGovernor() {
+        if (tickTimeSampler != null) {
+            tickTimeSampler.stop();
+            tickTimeSampler = null;
+        }
+        if (!configFacade.isLoadGovernorEnabled() || configFacade.getLoadGovernorTiers().isEmpty()) {
+            loadGovernor = null;
+            return;
+        }
+        LoadGovernor governor = new LoadGovernor(configFacade.getLoadGovernorTiers(),
+                configFacade.getLoadGovernorRecoverMarginMs(),
+                configFacade.getLoadGovernorRecoverSeconds() * 1000L, getLogger()::info);
+        loadGovernor = governor;
+        tickTimeSampler = new TickTimeSampler(this, governor, configFacade.getLoadGovernorSampleIntervalTicks());
+        tickTimeSampler.start();
+    }
+
     public void refreshMapIntegrations() {
         if (this.mapIntegrationLifecycle != null) {
             this.mapIntegrationLifecycle.refresh();
@@ -430,6 +555,36 @@ public final class Metro extends JavaPlugin {
         return saveCoordinator;
     }
 
+    public TickProfiler getTickProfiler() {
+        return tickProfiler;
+    }
+
+    /**
+     * Active load governor, or null when it is disabled.
+     */
+    public LoadGovernor getLoadGovernor() {
+        return loadGovernor;
+    }
+
+    public RailwayMetrics getRailwayMetrics() {
+        return railwayMetrics;
+    }
+
+    public TrainTelemetryHub getTelemetryHub() {
+        return telemetryHub;
+    }
+
+    /**
+     * Packet backend for client-side leashes and follower cars, or null when ProtocolLib is absent.
+     */
+    public FakeEntityPackets getFakeEntityPackets() {
+        return fakeEntityPackets;
+    }
+
+    public FakeEntityRegistry getFakeEntityRegistry() {
+        return fakeEntityRegistry;
+    }
+
     public TravelTimeEstimator getTravelTimeEstimator() {
         return travelTimeEstimator;
     }
@@ -453,6 +608,10 @@ public final class Metro extends JavaPlugin {
         return playerInteractListener;
     }
 
+    public VehicleListener getVehicleListener() {
+        return vehicleListener;
+    }
+
     // ===== Railway service config methods =====
 
     public Metro config() { return this; }
@@ -463,6 +622,11 @@ public final class Metro extends JavaPlugin {
     public int getPhysicsLookaheadBlocks() { return getConfig().getInt("train.physics-lookahead-blocks", 8); }
     public double getLeashOffsetY() { return getConfig().getDouble("train.leash-offset-y", 1.5); }
     public String getLeashMobTypeRaw() { return getConfig().getString("train.leash-mob-type", "PIG"); }
+    public String getLeashRenderModeRaw() { return getConfig().getString("train.leash-render-mode", "auto"); }
+    public double getLeashViewDistance() { return getConfig().getDouble("train.leash-view-distance", 64.0); }
+    public boolean isVirtualFollowersEnabled() { return getConfig().getBoolean("train.virtual-followers", false); }
+    public boolean isAdaptiveSubStepsEnabled() { return getConfig().getBoolean("train.adaptive-sub-steps", false); }
+    public double getVirtualFollowersViewDistance() { return getConfig().getDouble("train.virtual-followers-view-distance", 80.0); }
 
     public int getServiceDefaultHeadwaySeconds() { return getConfig().getInt("service.default-headway-seconds", 120); }
     public int getServiceMetricsLogIntervalTicks() { return getConfig().getInt("service.metrics-log-interval-ticks", 1200); }
@@ -479,6 +643,15 @@ public final class Metro extends JavaPlugin {
     public int getLocalVirtualIdleTicks() { return getConfig().getInt("service.local.virtual-idle-ticks", 200); }
     public int getLocalVirtualLookaheadStops() { return getConfig().getInt("service.local.virtual-lookahead-stops", 3); }
     public boolean isLocalVirtualizationEnabled() { return getConfig().getBoolean("service.local.virtualization-enabled", false); }
+    public boolean isConsistPoolEnabled() { return getConfig().getBoolean("service.consist-pool.enabled", true); }
+    public int getConsistPoolMaxPerWorld() { return getConfig().getInt("service.consist-pool.max-per-world", 32); }
+    public int getConsistPoolIdleSeconds() { return getConfig().getInt("service.consist-pool.idle-seconds", 300); }
+    public int getConsistPoolDepotOffsetX() { return getConfig().getInt("service.consist-pool.depot.offset-x", 0); }
+    public int getConsistPoolDepotOffsetZ() { return getConfig().getInt("service.consist-pool.depot.offset-z", 0); }
+    public Integer getConsistPoolDepotY() { return getConfig().isInt("service.consist-pool.depot.y") ? getConfig().getInt("service.consist-pool.depot.y") : null; }
+    public boolean isServiceCheckpointEnabled() { return getConfig().getBoolean("service.checkpoint.enabled", true); }
+    public int getServiceCheckpointIntervalSeconds() { return getConfig().getInt("service.checkpoint.interval-seconds", 30); }
+    public int getServiceCheckpointMaxAgeMinutes() { return getConfig().getInt("service.checkpoint.max-age-minutes", 60); }
 
     public String getTrainName() { return getConfig().getString("train.name", ""); }
     public boolean isTrainNameVisible() { return getConfig().getBoolean("train.name-visible", true); }
@@ -532,6 +705,9 @@ public final class Metro extends JavaPlugin {
     public String getServiceModeRaw() { return getConfig().getString("service.mode", "local"); }
     public double getCartSpeed() { return getConfig().getDouble("cart-speed", 0.4); }
     public double getTrainSpacing() { return getConfig().getDouble("train-spacing", 3.0); }
+    public double getServiceTickBudgetMillis() { return getConfig().getDouble("service.tick-budget-ms", 0.0); }
+    public int getServiceTickBudgetMaxDeferTicks() { return getConfig().getInt("service.tick-budget-max-defer-ticks", 20); }
+    public boolean isServiceRegionShardingEnabled() { return getConfig().getBoolean("service.region-sharding", true); }
     public int getServiceHeartbeatIntervalTicks() { return getConfig().getInt("service-heartbeat-interval-ticks", 2); }
 
     public org.cubexmc.metro.service.LineServiceManager getLineServiceManager() { return lineServiceManager; }
@@ -1,14 +1,22 @@
 package org.cubexmc.metro.api;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.config.ConfigFacade;
+import org.cubexmc.metro.manager.ChangeJournal;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.manager.PortalManager;
 import org.cubexmc.metro.manager.StopManager;
@@ -22,7 +30,10 @@ import org.cubexmc.metro.service.LineStatusService;
 import org.cubexmc.metro.service.PortalCommandService;
 import org.cubexmc.metro.service.PriceService;
 import org.cubexmc.metro.service.TicketService;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
+import org.cubexmc.metro.telemetry.TrainTelemetrySnapshot;
 import org.cubexmc.metro.util.OwnershipUtil;
+import org.cubexmc.metro.util.SchedulerUtil;
 import org.cubexmc.metro.util.VersionUtil;
 
 /**
@@ -43,9 +54,23 @@ public final class MetroAPI {
 
     private static MetroAPI instance;
     private final Metro plugin;
+    private final SnapshotCache<LineSnapshot> lineSnapshots;
+    private final SnapshotCache<StopSnapshot> stopSnapshots;
+    private final SnapshotCache<PortalSnapshot> portalSnapshots;
+    private final Executor snapshotExecutor;
 
     private MetroAPI(Metro plugin) {
         this.plugin = plugin;
+        this.lineSnapshots = new SnapshotCache<>(this::lineJournal,
+                () -> getAllLines().stream().map(LineSnapshot::from).toList(),
+                this::getLineSnapshot, LineSnapshot::id);
+        this.stopSnapshots = new SnapshotCache<>(this::stopJournal,
+                () -> getAllStops().stream().map(StopSnapshot::from).toList(),
+                this::getStopSnapshot, StopSnapshot::id);
+        this.portalSnapshots = new SnapshotCache<>(this::portalJournal,
+                () -> getAllPortals().stream().map(PortalSnapshot::from).toList(),
+                this::getPortalSnapshot, PortalSnapshot::id);
+        this.snapshotExecutor = command -> SchedulerUtil.asyncRun(plugin, command, 0L);
     }
 
     // =============================================================
@@ -236,6 +261,19 @@ public final class MetroAPI {
         }
     }
 
+    /**
+     * Entities changed since a version. When {@code complete} is false the requested version was
+     * too old (or predates a reload), {@code changed} holds every entity and the reader should
+     * replace its copy instead of patching it.
+     *
+     * <p>Pass {@code version} to the next call. A change made while the delta is being built may be
+     * reported twice, but never skipped.
+     *
+     * @since 1.1.7
+     */
+    public record Changes<T>(long version, boolean complete, List<T> changed, Set<String> removedIds) {
+    }
+
     // =============================================================
     // Lifecycle
     // =============================================================
@@ -318,10 +356,41 @@ public final class MetroAPI {
         return LineSnapshot.from(getLine(lineId));
     }
 
+    /**
+     * Snapshots of every line. The list is cached and only lines changed since the previous call
+     * are copied again.
+     */
     public List<LineSnapshot> getLineSnapshots() {
-        return getAllLines().stream()
-                .map(LineSnapshot::from)
-                .toList();
+        return lineSnapshots.get();
+    }
+
+    /**
+     * Same as {@link #getLineSnapshots()}, with the list assembled off the calling thread. Completes
+     * immediately when nothing changed since the previous call.
+     *
+     * @since 1.1.7
+     */
+    public CompletableFuture<List<LineSnapshot>> getLineSnapshotsAsync() {
+        return lineSnapshots.getAsync(snapshotExecutor);
+    }
+
+    /**
+     * Current version of the line set; it increases with every line change or reload.
+     *
+     * @since 1.1.7
+     */
+    public long getLineVersion() {
+        ChangeJournal journal = lineJournal();
+        return journal != null ? journal.version() : 0L;
+    }
+
+    /**
+     * Lines created, changed or removed after {@code version}; pass 0 for a full load.
+     *
+     * @since 1.1.7
+     */
+    public Changes<LineSnapshot> getLineChangesSince(long version) {
+        return changesSince(lineJournal(), version, this::getLineSnapshots, this::getLineSnapshot);
     }
 
     // =============================================================
@@ -340,10 +409,38 @@ public final class MetroAPI {
         return StopSnapshot.from(getStop(stopId));
     }
 
+    /**
+     * Snapshots of every stop. The list is cached and only stops changed since the previous call
+     * are copied again.
+     */
     public List<StopSnapshot> getStopSnapshots() {
-        return getAllStops().stream()
-                .map(StopSnapshot::from)
-                .toList();
+        return stopSnapshots.get();
+    }
+
+    /**
+     * Same as {@link #getStopSnapshots()}, with the list assembled off the calling thread.
+     *
+     * @since 1.1.7
+     */
+    public CompletableFuture<List<StopSnapshot>> getStopSnapshotsAsync() {
+        return stopSnapshots.getAsync(snapshotExecutor);
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public long getStopVersion() {
+        ChangeJournal journal = stopJournal();
+        return journal != null ? journal.version() : 0L;
+    }
+
+    /**
+     * Stops created, changed or removed after {@code version}; pass 0 for a full load.
+     *
+     * @since 1.1.7
+     */
+    public Changes<StopSnapshot> getStopChangesSince(long version) {
+        return changesSince(stopJournal(), version, this::getStopSnapshots, this::getStopSnapshot);
     }
 
     // =============================================================
@@ -369,10 +466,38 @@ public final class MetroAPI {
         return PortalSnapshot.from(getPortal(portalId));
     }
 
+    /**
+     * Snapshots of every portal. The list is cached and only portals changed since the previous
+     * call are copied again.
+     */
     public List<PortalSnapshot> getPortalSnapshots() {
-        return getAllPortals().stream()
-                .map(PortalSnapshot::from)
-                .toList();
+        return portalSnapshots.get();
+    }
+
+    /**
+     * Same as {@link #getPortalSnapshots()}, with the list assembled off the calling thread.
+     *
+     * @since 1.1.7
+     */
+    public CompletableFuture<List<PortalSnapshot>> getPortalSnapshotsAsync() {
+        return portalSnapshots.getAsync(snapshotExecutor);
+    }
+
+    /**
+     * @since 1.1.7
+     */
+    public long getPortalVersion() {
+        ChangeJournal journal = portalJournal();
+        return journal != null ? journal.version() : 0L;
+    }
+
+    /**
+     * Portals created, changed or removed after {@code version}; pass 0 for a full load.
+     *
+     * @since 1.1.7
+     */
+    public Changes<PortalSnapshot> getPortalChangesSince(long version) {
+        return changesSince(portalJournal(), version, this::getPortalSnapshots, this::getPortalSnapshot);
     }
 
     public PortalWriteResult createPortal(String portalId, Location entrance, UUID ownerId) {
@@ -440,10 +565,28 @@ public final class MetroAPI {
         Line line = getLine(lineId);
         if (line != null) {
             line.setSuspensionMessage(message);
-            plugin.getLineManager().saveConfig();
+            plugin.getLineManager().saveConfig(lineId);
         }
     }
 
+    // =============================================================
+    // Telemetry
+    // =============================================================
+
+    /**
+     * Receive one {@link TrainTelemetrySnapshot} per service heartbeat with the position, state and
+     * stop transitions of every train, instead of listening to per-cart events. Snapshots are
+     * delivered on the heartbeat thread and are immutable, so they may be handed to another thread.
+     *
+     * @param consumer called with each snapshot until the subscription is closed
+     * @return the subscription, or null when the plugin is not enabled
+     * @since 1.1.7
+     */
+    public TrainTelemetryHub.Subscription subscribeTelemetry(Consumer<? super TrainTelemetrySnapshot> consumer) {
+        TrainTelemetryHub hub = plugin.getTelemetryHub();
+        return hub == null ? null : hub.subscribe(consumer);
+    }
+
     // =============================================================
     // Pricing
     // =============================================================
@@ -457,7 +600,7 @@ public final class MetroAPI {
         Line line = getLine(lineId);
         if (line != null) {
             line.setPriceRule(rule);
-            plugin.getLineManager().saveConfig();
+            plugin.getLineManager().saveConfig(lineId);
         }
     }
 
@@ -762,6 +905,43 @@ public final class MetroAPI {
         return plugin.getConfigFacade();
     }
 
+    private ChangeJournal lineJournal() {
+        LineManager lineManager = plugin.getLineManager();
+        return lineManager != null ? lineManager.getChangeJournal() : null;
+    }
+
+    private ChangeJournal stopJournal() {
+        StopManager stopManager = plugin.getStopManager();
+        return stopManager != null ? stopManager.getChangeJournal() : null;
+    }
+
+    private ChangeJournal portalJournal() {
+        PortalManager portalManager = plugin.getPortalManager();
+        return portalManager != null ? portalManager.getChangeJournal() : null;
+    }
+
+    private static <T> Changes<T> changesSince(ChangeJournal journal, long version,
+                                               Supplier<List<T>> all, Function<String, T> lookup) {
+        if (journal == null) {
+            return new Changes<>(0L, false, all.get(), Set.of());
+        }
+        ChangeJournal.Delta delta = journal.since(version);
+        if (!delta.complete()) {
+            return new Changes<>(delta.version(), false, all.get(), Set.of());
+        }
+        List<T> changed = new ArrayList<>();
+        Set<String> removed = new HashSet<>(delta.removedIds());
+        for (String id : delta.changedIds()) {
+            T snapshot = lookup.apply(id);
+            if (snapshot != null) {
+                changed.add(snapshot);
+            } else {
+                removed.add(id);
+            }
+        }
+        return new Changes<>(delta.version(), true, List.copyOf(changed), Set.copyOf(removed));
+    }
+
     private PortalCommandService portalService() {
         PortalManager portalManager = plugin.getPortalManager();
         return portalManager != null ? new PortalCommandService(portalManager) : null;
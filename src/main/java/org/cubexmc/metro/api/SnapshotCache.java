@@ -0,0 +1,116 @@
+package org.cubexmc.metro.api;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.cubexmc.metro.manager.ChangeJournal;
+
+/**
+ * Immutable snapshot list of one manager's entities, kept current through the manager's
+ * {@link ChangeJournal} so that only entities changed since the last read are copied again.
+ *
+ * <p>Live model objects are only read by the thread that asks for the list, the same thread that
+ * may call any other read query. The bulk part, merging the fresh records into the previous ones
+ * and building the list, runs on the supplied executor for the async variant.
+ *
+ * @param <S> snapshot record type
+ */
+final class SnapshotCache<S> {
+
+    private record State<S>(long version, Map<String, S> byId, List<S> list) {
+    }
+
+    /**
+     * Either the current state ({@code ready}) or records read from the live model, waiting to be
+     * merged into {@code base}.
+     */
+    private record Capture<S>(State<S> ready, long version, State<S> base, List<S> all, Map<String, S> changed) {
+    }
+
+    private final Supplier<ChangeJournal> journal;
+    private final Supplier<List<S>> loadAll;
+    private final Function<String, S> loadOne;
+    private final Function<S, String> idOf;
+    private volatile State<S> state;
+
+    SnapshotCache(Supplier<ChangeJournal> journal, Supplier<List<S>> loadAll,
+                  Function<String, S> loadOne, Function<S, String> idOf) {
+        this.journal = journal;
+        this.loadAll = loadAll;
+        this.loadOne = loadOne;
+        this.idOf = idOf;
+    }
+
+    List<S> get() {
+        Capture<S> capture = capture();
+        return capture.ready() != null ? capture.ready().list() : merge(capture).list();
+    }
+
+    CompletableFuture<List<S>> getAsync(Executor executor) {
+        Capture<S> capture = capture();
+        if (capture.ready() != null) {
+            return CompletableFuture.completedFuture(capture.ready().list());
+        }
+        return CompletableFuture.supplyAsync(() -> merge(capture).list(), executor);
+    }
+
+    private Capture<S> capture() {
+        ChangeJournal changes = journal.get();
+        if (changes == null) {
+            // 没有变更日志时每次都全量构建
+            return new Capture<>(null, -1L, null, loadAll.get(), null);
+        }
+        State<S> current = state;
+        ChangeJournal.Delta delta = changes.since(current == null ? 0L : current.version());
+        if (current != null && delta.version() == current.version()) {
+            return new Capture<>(current, current.version(), null, null, null);
+        }
+        if (current == null || !delta.complete()) {
+            return new Capture<>(null, delta.version(), null, loadAll.get(), null);
+        }
+        Map<String, S> changed = new HashMap<>();
+        for (String id : delta.changedIds()) {
+            changed.put(id, loadOne.apply(id));
+        }
+        for (String id : delta.removedIds()) {
+            changed.put(id, null);
+        }
+        return new Capture<>(null, delta.version(), current, null, changed);
+    }
+
+    private State<S> merge(Capture<S> capture) {
+        Map<String, S> byId = new LinkedHashMap<>();
+        if (capture.all() != null) {
+            for (S snapshot : capture.all()) {
+                byId.put(idOf.apply(snapshot), snapshot);
+            }
+        } else {
+            byId.putAll(capture.base().byId());
+            for (Map.Entry<String, S> entry : capture.changed().entrySet()) {
+                if (entry.getValue() == null) {
+                    byId.remove(entry.getKey());
+                } else {
+                    byId.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        State<S> merged = new State<>(capture.version(), byId, List.copyOf(byId.values()));
+        if (capture.version() >= 0L) {
+            publish(merged);
+        }
+        return merged;
+    }
+
+    private synchronized void publish(State<S> merged) {
+        State<S> current = state;
+        if (current == null || merged.version() > current.version()) {
+            state = merged;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.cubexmc.metro.model.Stop;
 import org.cubexmc.metro.service.CommandDisplayService;
 import org.cubexmc.metro.service.LineCommandService;
 import org.cubexmc.metro.util.OwnershipUtil;
+import org.cubexmc.metro.util.SchedulerUtil;
 
 public class LineCommand {
 
@@ -400,6 +401,26 @@ public class LineCommand {
         }
     }
 
+    @Command("rw|railway line|l normalizeroute <lineId>")
+    @CommandDescription("Snap a line's saved route points to the current rails again")
+    public void normalizeRoute(Player player, @Argument(value = "lineId", suggestions = "lineIds") String id) {
+        Line line = guard.requireManageableLine(player, id);
+        if (line == null) {
+            return;
+        }
+
+        player.sendMessage(msg("line.normalizeroute_started", "line_id", id));
+        plugin.getRouteRecorder().renormalize(id, result -> SchedulerUtil.entityRun(plugin, player, () -> {
+            switch (result.status()) {
+                case SAVED -> player.sendMessage(msg("line.normalizeroute_success",
+                        "line_id", id,
+                        "point_count", result.pointCount()));
+                case TOO_FEW_POINTS -> player.sendMessage(msg("line.normalizeroute_no_route", "line_id", id));
+                default -> player.sendMessage(msg("line.normalizeroute_fail", "line_id", id));
+            }
+        }, 0L, -1L));
+    }
+
     @Command("rw|railway line|l routeinfo <lineId>")
     @CommandDescription("Show recorded route point status for a line")
     public void routeInfo(Player player, @Argument(value = "lineId", suggestions = "lineIds") String id) {
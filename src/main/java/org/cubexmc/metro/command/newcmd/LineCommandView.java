@@ -59,6 +59,7 @@ final class LineCommandView {
             "line.help_setstatus",
             "line.help_recordroute",
             "line.help_clearroute",
+            "line.help_normalizeroute",
             "line.help_routeinfo",
             "line.help_protect"
     );
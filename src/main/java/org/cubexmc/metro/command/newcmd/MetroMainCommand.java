@@ -1,19 +1,33 @@
 package org.cubexmc.metro.command.newcmd;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.incendo.cloud.annotations.Argument;
 import org.incendo.cloud.annotations.CommandDescription;
 import org.incendo.cloud.annotations.Command;
 import org.incendo.cloud.annotations.Permission;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.manager.LanguageManager;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.profiling.LatencySummary;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
 import org.cubexmc.metro.update.ConfigUpdater;
 import org.cubexmc.metro.update.DataFileUpdater;
 import org.cubexmc.metro.util.OwnershipUtil;
 
 public class MetroMainCommand {
 
+    private static final long DEFAULT_PROFILE_WINDOW_SECONDS = 60L;
+    private static final int PROFILE_LINE_LIMIT = 10;
+
     private final Metro plugin;
     private final LineManager lineManager;
     private final StopManager stopManager;
@@ -37,6 +51,7 @@ public class MetroMainCommand {
         sender.sendMessage(lang.getMessage("command.help_header"));
         sender.sendMessage(lang.getMessage("command.help_gui"));
         sender.sendMessage(lang.getMessage("command.help_reload"));
+        sender.sendMessage(lang.getMessage("command.help_profile"));
         sender.sendMessage(lang.getMessage("command.help_line"));
         sender.sendMessage(lang.getMessage("command.help_stop"));
         sender.sendMessage(lang.getMessage("command.help_portal"));
@@ -65,6 +80,9 @@ public class MetroMainCommand {
         plugin.reloadConfig();
         ConfigUpdater.applyDefaults(plugin, "config.yml");
         plugin.getConfigFacade().reload();
+        if (plugin.getTickProfiler() != null) {
+            plugin.getTickProfiler().setEnabled(plugin.getConfigFacade().isProfilingEnabled());
+        }
         DataFileUpdater.migrateAll(plugin);
         lineManager.reload();
         stopManager.reload();
@@ -83,8 +101,108 @@ public class MetroMainCommand {
             plugin.getEntityModelController().reload();
         }
 
+        if (plugin.getStopPresenceTracker() != null) {
+            plugin.getStopPresenceTracker().start();
+        }
+
         plugin.refreshMapIntegrations();
+        plugin.refreshMetricsExporter();
+        plugin.refreshLoadGovernor();
 
         sender.sendMessage(plugin.getLanguageManager().getMessage("plugin.reload"));
     }
+
+    @Command("rw|railway profile [window]")
+    @CommandDescription("Show per-subsystem tick timings")
+    @Permission("railway.admin")
+    public void profile(CommandSender sender,
+            @Argument(value = "window", suggestions = "profileWindows") String window) {
+        if (sender instanceof Player player) {
+            if (!OwnershipUtil.hasAdminBypass(player)) {
+                sender.sendMessage(plugin.getLanguageManager().getMessage("plugin.no_permission"));
+                return;
+            }
+        }
+
+        LanguageManager lang = plugin.getLanguageManager();
+        TickProfiler profiler = plugin.getTickProfiler();
+        if (profiler == null || !profiler.isEnabled()) {
+            sender.sendMessage(lang.getMessage("profile.disabled"));
+            return;
+        }
+        if (window != null && window.equalsIgnoreCase("reset")) {
+            profiler.reset();
+            sender.sendMessage(lang.getMessage("profile.reset"));
+            return;
+        }
+
+        long windowSeconds = window == null ? DEFAULT_PROFILE_WINDOW_SECONDS : parseWindowSeconds(window);
+        if (windowSeconds <= 0L) {
+            sender.sendMessage(lang.getMessage("profile.usage",
+                    LanguageManager.put(LanguageManager.args(), "max", profiler.getMaxWindowSeconds())));
+            return;
+        }
+        windowSeconds = Math.min(windowSeconds, profiler.getMaxWindowSeconds());
+
+        sender.sendMessage(lang.getMessage("profile.header",
+                LanguageManager.put(LanguageManager.args(), "window", windowSeconds + "s")));
+        boolean any = false;
+        for (Map.Entry<ProfilerSection, LatencySummary> entry : profiler.summarizeSections(windowSeconds).entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            any = true;
+            sender.sendMessage(lang.getMessage("profile.section", summaryArgs(entry.getKey().getKey(), entry.getValue())));
+        }
+        if (!any) {
+            sender.sendMessage(lang.getMessage("profile.empty"));
+            return;
+        }
+
+        List<Map.Entry<String, LatencySummary>> lines = new ArrayList<>(profiler.summarizeLines(windowSeconds).entrySet());
+        if (lines.isEmpty()) {
+            return;
+        }
+        lines.sort(Comparator.comparingLong((Map.Entry<String, LatencySummary> entry) -> entry.getValue().p99Nanos())
+                .reversed());
+        sender.sendMessage(lang.getMessage("profile.lines_header",
+                LanguageManager.put(LanguageManager.args(), "count", Math.min(PROFILE_LINE_LIMIT, lines.size()))));
+        for (Map.Entry<String, LatencySummary> entry : lines.subList(0, Math.min(PROFILE_LINE_LIMIT, lines.size()))) {
+            sender.sendMessage(lang.getMessage("profile.line", summaryArgs(entry.getKey(), entry.getValue())));
+        }
+    }
+
+    /**
+     * Parse "30", "30s" or "5m" into seconds; returns -1 for anything else.
+     */
+    static long parseWindowSeconds(String raw) {
+        String value = raw.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1L;
+        if (value.endsWith("m")) {
+            multiplier = 60L;
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            long amount = Long.parseLong(value);
+            return amount > 0L ? amount * multiplier : -1L;
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static Map<String, Object> summaryArgs(String name, LatencySummary summary) {
+        Map<String, Object> args = LanguageManager.args();
+        LanguageManager.put(args, "name", name);
+        LanguageManager.put(args, "count", summary.count());
+        LanguageManager.put(args, "p50", formatMillis(summary.p50Nanos()));
+        LanguageManager.put(args, "p99", formatMillis(summary.p99Nanos()));
+        LanguageManager.put(args, "max", formatMillis(summary.maxNanos()));
+        return args;
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
 }
@@ -1,10 +1,13 @@
 package org.cubexmc.metro.config;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.profiling.LoadGovernor;
 import org.cubexmc.metro.util.ColorUtil;
 
 /**
@@ -20,6 +23,7 @@ public class ConfigFacade {
     // Stop continuous titles. titles.enter_stop is kept only as a legacy fallback.
     private boolean stopContinuousTitleEnabled;
     private int stopContinuousInterval;
+    private int stopPresenceSampleIntervalTicks;
     private boolean stopContinuousAlways;
     private String stopContinuousTitle;
     private String stopContinuousSubtitle;
@@ -100,6 +104,17 @@ public class ConfigFacade {
     private boolean mapShowStopMarkers;
     private boolean mapShowTransferInfo;
     private long mapRefreshDelayTicks;
+    private boolean mapLiveTrainsEnabled;
+    private String mapLiveTrainsLayerLabel;
+    private long mapLiveTrainsSampleIntervalTicks;
+    private boolean mapLiveTrainsShowVirtual;
+    private int mapLiveTrainsMaxMarkers;
+    private double mapLiveTrainsMinMoveBlocks;
+    private java.util.Map<String, Long> mapLiveTrainsMinUpdateIntervalTicks;
+    private java.util.List<Double> mapRouteLodTolerances;
+    private java.util.List<Double> mapRouteLodBlueMapMinDistances;
+    private java.util.List<Integer> mapRouteLodDynmapMinZooms;
+    private int mapRouteLodSquaremapLevel;
 
     // Route Recording
     private double routeRecordingMinSampleDistanceBlocks;
@@ -137,6 +152,21 @@ public class ConfigFacade {
     private double safeModeMinCruiseSpeed;
     private long safeModeStallRecoveryTicks;
     private boolean economyEnabled;
+    private boolean profilingEnabled;
+    private int profilingSliceSeconds;
+    private int profilingSlices;
+    private boolean metricsEnabled;
+    private int metricsIntervalSeconds;
+    private boolean metricsFileEnabled;
+    private String metricsFilePath;
+    private boolean metricsHttpEnabled;
+    private String metricsHttpHost;
+    private int metricsHttpPort;
+    private boolean loadGovernorEnabled;
+    private int loadGovernorSampleIntervalTicks;
+    private double loadGovernorRecoverMarginMs;
+    private int loadGovernorRecoverSeconds;
+    private List<LoadGovernor.Tier> loadGovernorTiers = List.of();
 
     private Material selectionTool;
     private String selectionToolName;
@@ -150,6 +180,7 @@ public class ConfigFacade {
         // remains readable so upgraded servers keep their previous station prompts.
         stopContinuousTitleEnabled = getStopContinuousBoolean("enabled", true);
         stopContinuousInterval = getStopContinuousInt("interval", 40);
+        stopPresenceSampleIntervalTicks = Math.max(1, getStopContinuousInt("sample_interval_ticks", 5));
         stopContinuousAlways = getStopContinuousBoolean("always", true);
         stopContinuousTitle = colorize(getStopContinuousString("title", "&b{stop_name}"));
         stopContinuousSubtitle = colorize(getStopContinuousString("subtitle",
@@ -254,6 +285,32 @@ public class ConfigFacade {
         mapShowStopMarkers = plugin.getConfig().getBoolean("map_integration.show_stop_markers", true);
         mapShowTransferInfo = plugin.getConfig().getBoolean("map_integration.show_transfer_info", true);
         mapRefreshDelayTicks = Math.max(1L, plugin.getConfig().getLong("map_integration.refresh_delay_ticks", 20L));
+        mapLiveTrainsEnabled = plugin.getConfig().getBoolean("map_integration.live_trains.enabled", false);
+        mapLiveTrainsLayerLabel = plugin.getConfig().getString("map_integration.live_trains.layer_label", "Metro Trains");
+        mapLiveTrainsSampleIntervalTicks = Math.max(1L,
+                plugin.getConfig().getLong("map_integration.live_trains.sample_interval_ticks", 20L));
+        mapLiveTrainsShowVirtual = plugin.getConfig().getBoolean("map_integration.live_trains.show_virtual_trains", true);
+        mapLiveTrainsMaxMarkers = Math.max(1, plugin.getConfig().getInt("map_integration.live_trains.max_markers", 256));
+        mapLiveTrainsMinMoveBlocks = Math.max(0.0,
+                plugin.getConfig().getDouble("map_integration.live_trains.min_move_blocks", 1.0));
+        mapRouteLodTolerances = plugin.getConfig().isList("map_integration.route_lod.tolerances")
+                ? plugin.getConfig().getDoubleList("map_integration.route_lod.tolerances")
+                : java.util.List.of(0.25, 4.0, 16.0);
+        mapRouteLodBlueMapMinDistances = plugin.getConfig().isList("map_integration.route_lod.bluemap_min_distances")
+                ? plugin.getConfig().getDoubleList("map_integration.route_lod.bluemap_min_distances")
+                : java.util.List.of(0.0, 800.0, 3000.0);
+        mapRouteLodDynmapMinZooms = plugin.getConfig().isList("map_integration.route_lod.dynmap_min_zooms")
+                ? plugin.getConfig().getIntegerList("map_integration.route_lod.dynmap_min_zooms")
+                : java.util.List.of(3, 1, 0);
+        mapRouteLodSquaremapLevel = Math.max(0, plugin.getConfig().getInt("map_integration.route_lod.squaremap_level", 1));
+        mapLiveTrainsMinUpdateIntervalTicks = new java.util.HashMap<>();
+        if (plugin.getConfig().isConfigurationSection("map_integration.live_trains.min_update_interval_ticks")) {
+            for (String provider : plugin.getConfig()
+                    .getConfigurationSection("map_integration.live_trains.min_update_interval_ticks").getKeys(false)) {
+                mapLiveTrainsMinUpdateIntervalTicks.put(provider.toUpperCase(), Math.max(1L, plugin.getConfig()
+                        .getLong("map_integration.live_trains.min_update_interval_ticks." + provider)));
+            }
+        }
 
         // Route Recording
         routeRecordingMinSampleDistanceBlocks = Math.max(0.1D,
@@ -294,6 +351,21 @@ public class ConfigFacade {
         safeModeMinCruiseSpeed = plugin.getConfig().getDouble("settings.safe_mode.min_cruise_speed", 0.08);
         safeModeStallRecoveryTicks = plugin.getConfig().getLong("settings.safe_mode.stall_recovery_ticks", 8L);
         economyEnabled = plugin.getConfig().getBoolean("economy.enabled", true);
+        profilingEnabled = plugin.getConfig().getBoolean("profiling.enabled", true);
+        profilingSliceSeconds = Math.max(1, plugin.getConfig().getInt("profiling.slice_seconds", 10));
+        profilingSlices = Math.max(1, plugin.getConfig().getInt("profiling.slices", 30));
+        metricsEnabled = plugin.getConfig().getBoolean("metrics.enabled", false);
+        metricsIntervalSeconds = Math.max(1, plugin.getConfig().getInt("metrics.interval_seconds", 15));
+        metricsFileEnabled = plugin.getConfig().getBoolean("metrics.file.enabled", true);
+        metricsFilePath = plugin.getConfig().getString("metrics.file.path", "metrics/railway.prom");
+        metricsHttpEnabled = plugin.getConfig().getBoolean("metrics.http.enabled", false);
+        metricsHttpHost = plugin.getConfig().getString("metrics.http.host", "127.0.0.1");
+        metricsHttpPort = plugin.getConfig().getInt("metrics.http.port", 9464);
+        loadGovernorEnabled = plugin.getConfig().getBoolean("load_governor.enabled", true);
+        loadGovernorSampleIntervalTicks = Math.max(1, plugin.getConfig().getInt("load_governor.sample_interval_ticks", 20));
+        loadGovernorRecoverMarginMs = Math.max(0.0, plugin.getConfig().getDouble("load_governor.recover_margin_ms", 5.0));
+        loadGovernorRecoverSeconds = Math.max(0, plugin.getConfig().getInt("load_governor.recover_seconds", 30));
+        loadGovernorTiers = readLoadGovernorTiers();
 
         String toolName = plugin.getConfig().getString("settings.selection_tool", "GOLDEN_SHOVEL");
         try {
@@ -348,6 +420,10 @@ public class ConfigFacade {
         return stopContinuousInterval;
     }
 
+    public int getStopPresenceSampleIntervalTicks() {
+        return stopPresenceSampleIntervalTicks;
+    }
+
     public boolean isStopContinuousAlways() {
         return stopContinuousAlways;
     }
@@ -620,6 +696,66 @@ public class ConfigFacade {
         return economyEnabled;
     }
 
+    public boolean isProfilingEnabled() {
+        return profilingEnabled;
+    }
+
+    public int getProfilingSliceSeconds() {
+        return profilingSliceSeconds;
+    }
+
+    public int getProfilingSlices() {
+        return profilingSlices;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public int getMetricsIntervalSeconds() {
+        return metricsIntervalSeconds;
+    }
+
+    public boolean isMetricsFileEnabled() {
+        return metricsFileEnabled;
+    }
+
+    public String getMetricsFilePath() {
+        return metricsFilePath;
+    }
+
+    public boolean isMetricsHttpEnabled() {
+        return metricsHttpEnabled;
+    }
+
+    public String getMetricsHttpHost() {
+        return metricsHttpHost;
+    }
+
+    public int getMetricsHttpPort() {
+        return metricsHttpPort;
+    }
+
+    public boolean isLoadGovernorEnabled() {
+        return loadGovernorEnabled;
+    }
+
+    public int getLoadGovernorSampleIntervalTicks() {
+        return loadGovernorSampleIntervalTicks;
+    }
+
+    public double getLoadGovernorRecoverMarginMs() {
+        return loadGovernorRecoverMarginMs;
+    }
+
+    public int getLoadGovernorRecoverSeconds() {
+        return loadGovernorRecoverSeconds;
+    }
+
+    public List<LoadGovernor.Tier> getLoadGovernorTiers() {
+        return loadGovernorTiers;
+    }
+
     public boolean isDebugCategoryEnabled(String category) {
         if (!isDebugEnabled() || category == null || category.isEmpty()) {
             return false;
@@ -639,6 +775,29 @@ public class ConfigFacade {
         return ColorUtil.colorize(text);
     }
 
+    private List<LoadGovernor.Tier> readLoadGovernorTiers() {
+        List<LoadGovernor.Tier> tiers = new ArrayList<>();
+        for (Map<?, ?> raw : plugin.getConfig().getMapList("load_governor.tiers")) {
+            Object threshold = raw.get("mspt");
+            if (!(threshold instanceof Number)) {
+                plugin.getLogger().warning("Ignoring load_governor tier without a numeric mspt: " + raw);
+                continue;
+            }
+            tiers.add(new LoadGovernor.Tier(((Number) threshold).doubleValue(),
+                    tierNumber(raw, "max_sub_steps", 12).intValue(),
+                    tierNumber(raw, "ui_interval_multiplier", 1.0).doubleValue(),
+                    tierNumber(raw, "virtual_idle_multiplier", 1.0).doubleValue(),
+                    tierNumber(raw, "placeholder_cache_ticks", 0).intValue(),
+                    Boolean.TRUE.equals(raw.get("pause_map_live"))));
+        }
+        return List.copyOf(tiers);
+    }
+
+    private static Number tierNumber(Map<?, ?> tier, String key, Number defaultValue) {
+        Object value = tier.get(key);
+        return value instanceof Number ? (Number) value : defaultValue;
+    }
+
     private boolean getStopContinuousBoolean(String key, boolean defaultValue) {
         FileConfiguration config = plugin.getConfig();
         String newPath = STOP_CONTINUOUS_PATH + "." + key;
@@ -675,6 +834,20 @@ public class ConfigFacade {
     public boolean isMapShowStopMarkers() { return mapShowStopMarkers; }
     public boolean isMapShowTransferInfo() { return mapShowTransferInfo; }
     public long getMapRefreshDelayTicks() { return mapRefreshDelayTicks; }
+    public boolean isMapLiveTrainsEnabled() { return mapLiveTrainsEnabled; }
+    public String getMapLiveTrainsLayerLabel() { return mapLiveTrainsLayerLabel; }
+    public long getMapLiveTrainsSampleIntervalTicks() { return mapLiveTrainsSampleIntervalTicks; }
+    public boolean isMapLiveTrainsShowVirtual() { return mapLiveTrainsShowVirtual; }
+    public int getMapLiveTrainsMaxMarkers() { return mapLiveTrainsMaxMarkers; }
+    public double getMapLiveTrainsMinMoveBlocks() { return mapLiveTrainsMinMoveBlocks; }
+    public java.util.List<Double> getMapRouteLodTolerances() { return mapRouteLodTolerances; }
+    public java.util.List<Double> getMapRouteLodBlueMapMinDistances() { return mapRouteLodBlueMapMinDistances; }
+    public java.util.List<Integer> getMapRouteLodDynmapMinZooms() { return mapRouteLodDynmapMinZooms; }
+    public int getMapRouteLodSquaremapLevel() { return mapRouteLodSquaremapLevel; }
+    public long getMapLiveTrainsMinUpdateIntervalTicks(String provider) {
+        Long interval = provider == null ? null : mapLiveTrainsMinUpdateIntervalTicks.get(provider.toUpperCase());
+        return interval != null ? interval : mapLiveTrainsSampleIntervalTicks;
+    }
 
     // Route Recording Getters
     public double getRouteRecordingMinSampleDistanceBlocks() { return routeRecordingMinSampleDistanceBlocks; }
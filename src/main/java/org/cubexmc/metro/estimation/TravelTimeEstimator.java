@@ -8,6 +8,7 @@ import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import org.bukkit.configuration.ConfigurationSection;
@@ -34,6 +35,8 @@ public class TravelTimeEstimator {
     private final Clock clock;
     private final Consumer<String> warningSink;
     private final Map<String, SectionStats> statsByKey = new HashMap<>();
+    private final LongAdder acceptedSamples = new LongAdder();
+    private final LongAdder rejectedSamples = new LongAdder();
 
     public TravelTimeEstimator(Metro plugin) {
         this(plugin,
@@ -66,7 +69,7 @@ public class TravelTimeEstimator {
         return plugin;
     }
 
-    public void load() {
+    public synchronized void load() {
         statsByKey.clear();
         if (!storeFile.exists()) {
             return;
@@ -86,7 +89,7 @@ public class TravelTimeEstimator {
         }
     }
 
-    public void save() {
+    public synchronized void save() {
         YamlConfiguration yaml = new YamlConfiguration();
         ConfigurationSection root = yaml.createSection("sections");
         for (Map.Entry<String, SectionStats> e : statsByKey.entrySet()) {
@@ -102,7 +105,7 @@ public class TravelTimeEstimator {
         }
     }
 
-    public double estimateSeconds(String lineId, String fromStopId, String toStopId) {
+    public synchronized double estimateSeconds(String lineId, String fromStopId, String toStopId) {
         if (!settings.enabled()) {
             return settings.defaultSectionSeconds();
         }
@@ -111,7 +114,7 @@ public class TravelTimeEstimator {
         return s.posteriorEstimate(settings.priorStrength());
     }
 
-    public void record(String lineId, String fromStopId, String toStopId, double durationSeconds, double sampleWeight) {
+    public synchronized void record(String lineId, String fromStopId, String toStopId, double durationSeconds, double sampleWeight) {
         if (!settings.enabled())
             return;
         if (durationSeconds <= 0.01 || durationSeconds > 600.0)
@@ -123,10 +126,27 @@ public class TravelTimeEstimator {
         s.applyDecay(currentEpochDay(), settings.decayPerDay());
 
         if (s.shouldReject(durationSeconds, settings.outlierSigma())) {
+            rejectedSamples.increment();
             return;
         }
 
         s.record(durationSeconds, sampleWeight);
+        acceptedSamples.increment();
+    }
+
+    public synchronized int getTrackedSectionCount() {
+        return statsByKey.size();
+    }
+
+    /**
+     * Samples accepted since startup; load() does not reset it.
+     */
+    public long getAcceptedSampleCount() {
+        return acceptedSamples.sum();
+    }
+
+    public long getRejectedSampleCount() {
+        return rejectedSamples.sum();
     }
 
     private SectionStats getOrCreate(String lineId, String fromStopId, String toStopId) {
@@ -0,0 +1,35 @@
+package org.cubexmc.metro.event;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.cubexmc.metro.telemetry.TrainTelemetrySnapshot;
+
+/**
+ * Fired once per service heartbeat with the positions and states of every train, instead of one
+ * event per cart. Only fired while at least one listener is registered.
+ *
+ * @since 1.1.7
+ */
+public class TrainTelemetryEvent extends Event {
+    private static final HandlerList handlers = new HandlerList();
+
+    private final TrainTelemetrySnapshot snapshot;
+
+    public TrainTelemetryEvent(TrainTelemetrySnapshot snapshot) {
+        super(false); // Synchronous event - fired from the service heartbeat
+        this.snapshot = snapshot;
+    }
+
+    public TrainTelemetrySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
@@ -22,6 +22,8 @@ import org.cubexmc.metro.model.Stop;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
@@ -32,15 +34,25 @@ import java.util.function.Consumer;
 public class BlueMapIntegration implements MapIntegration {
 
     private static final String MARKER_SET_ID = "metro_network";
+    private static final String LIVE_MARKER_SET_ID = "metro_live_trains";
 
     private final Metro plugin;
     private final Consumer<BlueMapAPI> enableListener = this::handleBlueMapEnabled;
     private final Consumer<BlueMapAPI> disableListener = this::handleBlueMapDisabled;
     private boolean enabled = false;
     private boolean listenersRegistered = false;
+    // 世界名 -> 地图，在主线程渲染时解析，供异步的实时列车推送使用
+    private final Map<String, Collection<BlueMapMap>> liveMapsByWorld = new ConcurrentHashMap<>();
+
+    private final RouteGeometryCache routeGeometryCache;
 
     public BlueMapIntegration(Metro plugin) {
+        this(plugin, new RouteGeometryCache(Runnable::run));
+    }
+
+    public BlueMapIntegration(Metro plugin, RouteGeometryCache routeGeometryCache) {
         this.plugin = plugin;
+        this.routeGeometryCache = routeGeometryCache;
     }
 
     @Override
@@ -113,6 +125,7 @@ public class BlueMapIntegration implements MapIntegration {
         BlueMapAPI.getInstance().ifPresent(api -> {
             for (BlueMapMap map : api.getMaps()) {
                 map.getMarkerSets().remove(MARKER_SET_ID);
+                map.getMarkerSets().remove(LIVE_MARKER_SET_ID);
             }
         });
         if (listenersRegistered) {
@@ -129,6 +142,68 @@ public class BlueMapIntegration implements MapIntegration {
         return enabled;
     }
 
+    @Override
+    public boolean supportsLiveTrains() {
+        return true;
+    }
+
+    @Override
+    public boolean isLiveTrainUpdateThreadSafe() {
+        // BlueMap 的 MarkerSet 基于并发 Map，可在异步线程更新
+        return true;
+    }
+
+    /**
+     * 增量更新实时列车图层。使用渲染时缓存的世界映射，不访问 Bukkit 世界对象，可在异步线程调用。
+     */
+    @Override
+    public void applyLiveTrains(LiveTrainBatch batch) {
+        BlueMapAPI.getInstance().ifPresent(api -> {
+            for (BlueMapMap map : api.getMaps()) {
+                MarkerSet liveSet = map.getMarkerSets().get(LIVE_MARKER_SET_ID);
+                if (liveSet == null) {
+                    continue;
+                }
+                for (String markerId : batch.removals()) {
+                    liveSet.remove(markerId);
+                }
+            }
+            for (LiveTrainMarker train : batch.upserts()) {
+                Collection<BlueMapMap> targets = liveMapsByWorld.computeIfAbsent(
+                        train.worldName(), worldName -> getMapsByWorldName(api, worldName));
+                for (BlueMapMap map : api.getMaps()) {
+                    if (!targets.contains(map)) {
+                        // 列车可能经传送门换了世界，清掉其他地图上的旧标记
+                        MarkerSet liveSet = map.getMarkerSets().get(LIVE_MARKER_SET_ID);
+                        if (liveSet != null) {
+                            liveSet.remove(train.id());
+                        }
+                        continue;
+                    }
+                    MarkerSet liveSet = getLiveMarkerSet(map);
+                    if (liveSet.get(train.id()) instanceof POIMarker existing) {
+                        existing.setLabel(train.label());
+                        existing.setPosition(train.x(), train.y(), train.z());
+                    } else {
+                        liveSet.put(train.id(), POIMarker.builder()
+                                .label(train.label())
+                                .position(train.x(), train.y(), train.z())
+                                .build());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void clearLiveTrains() {
+        BlueMapAPI.getInstance().ifPresent(api -> {
+            for (BlueMapMap map : api.getMaps()) {
+                map.getMarkerSets().remove(LIVE_MARKER_SET_ID);
+            }
+        });
+    }
+
     private boolean matchesProvider() {
         String provider = plugin.getConfigFacade().getMapProvider();
         return "BLUEMAP".equalsIgnoreCase(provider) || "AUTO".equalsIgnoreCase(provider);
@@ -156,6 +231,13 @@ public class BlueMapIntegration implements MapIntegration {
             map.getMarkerSets().remove(MARKER_SET_ID);
         }
 
+        liveMapsByWorld.clear();
+        if (plugin.getConfigFacade().isMapLiveTrainsEnabled()) {
+            for (World world : Bukkit.getWorlds()) {
+                liveMapsByWorld.put(world.getName(), List.copyOf(getMapsForWorld(api, world.getName())));
+            }
+        }
+
         for (org.cubexmc.metro.model.Line line : lineManager.getAllLines()) {
             renderRoute(api, line);
         }
@@ -172,37 +254,49 @@ public class BlueMapIntegration implements MapIntegration {
     }
 
     private void renderRoute(BlueMapAPI api, org.cubexmc.metro.model.Line line) {
-        List<RoutePoint> routePoints = line.getRoutePoints();
-        if (routePoints.size() < 2) {
-            return;
-        }
-
-        String worldName = routePoints.get(0).worldName();
-        if (worldName == null || worldName.isBlank()) {
+        RouteGeometry geometry = routeGeometryCache.get(line, plugin.getConfigFacade().getMapRouteLodTolerances());
+        String worldName = geometry.worldName();
+        if (worldName == null || worldName.isBlank() || geometry.level(0).size() < 2) {
             return;
         }
+        // 按相机距离切换简化级别：近处用精细折线，远处用简化折线
+        List<Double> minDistances = plugin.getConfigFacade().getMapRouteLodBlueMapMinDistances();
+        boolean distanceBands = minDistances != null && !minDistances.isEmpty();
+        List<RouteGeometry.LevelSpan> spans = geometry.distinctLevels(distanceBands ? minDistances.size() : 1);
         for (BlueMapMap map : getMapsForWorld(api, worldName)) {
             MarkerSet markerSet = getMarkerSet(map);
-            List<RoutePoint> displayPoints = MapGeometry.orthogonalRoutePoints(routePoints, worldName);
-            if (displayPoints.size() < 2) {
-                return;
+            for (RouteGeometry.LevelSpan span : spans) {
+                List<RoutePoint> displayPoints = geometry.level(span.level());
+                if (displayPoints.size() < 2) {
+                    continue;
+                }
+                de.bluecolored.bluemap.api.math.Line.Builder lineBuilder =
+                        de.bluecolored.bluemap.api.math.Line.builder();
+                for (RoutePoint point : displayPoints) {
+                    lineBuilder.addPoint(new com.flowpowered.math.vector.Vector3d(point.x(), point.y(), point.z()));
+                }
+
+                LineMarker lineMarker = LineMarker.builder()
+                        .label(line.getName() + " (" + line.getId() + ")")
+                        .line(lineBuilder.build())
+                        .lineColor(toBlueMapColor(MapLineColor.fromLineColor(line.getColor())))
+                        .lineWidth(plugin.getConfigFacade().getMapLineWidth())
+                        .build();
+                if (distanceBands) {
+                    lineMarker.setMinDistance(minDistances.get(span.level()));
+                    if (span.lastBand() + 1 < minDistances.size()) {
+                        lineMarker.setMaxDistance(minDistances.get(span.lastBand() + 1));
+                    }
+                }
+                markerSet.put(routeMarkerId(line, span.level()), lineMarker);
             }
-            de.bluecolored.bluemap.api.math.Line.Builder lineBuilder =
-                    de.bluecolored.bluemap.api.math.Line.builder();
-            for (RoutePoint point : displayPoints) {
-                lineBuilder.addPoint(new com.flowpowered.math.vector.Vector3d(point.x(), point.y(), point.z()));
-            }
-
-            LineMarker lineMarker = LineMarker.builder()
-                    .label(line.getName() + " (" + line.getId() + ")")
-                    .line(lineBuilder.build())
-                    .lineColor(toBlueMapColor(MapLineColor.fromLineColor(line.getColor())))
-                    .lineWidth(plugin.getConfigFacade().getMapLineWidth())
-                    .build();
-            markerSet.put("route_" + line.getId(), lineMarker);
         }
     }
 
+    private String routeMarkerId(org.cubexmc.metro.model.Line line, int level) {
+        return level == 0 ? "route_" + line.getId() : "route_" + line.getId() + "_lod" + level;
+    }
+
     private void renderStop(BlueMapAPI api, Stop stop) {
         if (stop == null) return;
 
@@ -297,6 +391,18 @@ public class BlueMapIntegration implements MapIntegration {
         );
     }
 
+    private MarkerSet getLiveMarkerSet(BlueMapMap map) {
+        String markerLabel = plugin.getConfigFacade().getMapLiveTrainsLayerLabel();
+        boolean defaultVisible = plugin.getConfigFacade().isMapDefaultVisible();
+        return map.getMarkerSets().computeIfAbsent(
+                LIVE_MARKER_SET_ID,
+                id -> MarkerSet.builder()
+                        .label(markerLabel)
+                        .defaultHidden(!defaultVisible)
+                        .build()
+        );
+    }
+
     private String buildStopDetail(Stop stop) {
         List<String> detail = new ArrayList<>();
         detail.add("<b>" + stopLabel(stop) + "</b>");
@@ -28,14 +28,23 @@ import java.util.logging.Level;
 public class DynmapIntegration implements MapIntegration {
 
     private static final String MARKER_SET_ID = "metro_network";
+    private static final String LIVE_MARKER_SET_ID = "metro_live_trains";
+    private static final String LIVE_TRAIN_ICON = "minecart";
 
     private final Metro plugin;
     private DynmapCommonAPI dynmapApi;
     private MarkerAPI markerApi;
     private boolean enabled = false;
 
+    private final RouteGeometryCache routeGeometryCache;
+
     public DynmapIntegration(Metro plugin) {
+        this(plugin, new RouteGeometryCache(Runnable::run));
+    }
+
+    public DynmapIntegration(Metro plugin, RouteGeometryCache routeGeometryCache) {
         this.plugin = plugin;
+        this.routeGeometryCache = routeGeometryCache;
     }
 
     @Override
@@ -115,6 +124,7 @@ public class DynmapIntegration implements MapIntegration {
             if (markerSet != null) {
                 markerSet.deleteMarkerSet();
             }
+            clearLiveTrains();
         }
         enabled = false;
         plugin.getLogger().info("[Dynmap] Metro markers removed.");
@@ -125,6 +135,63 @@ public class DynmapIntegration implements MapIntegration {
         return enabled;
     }
 
+    @Override
+    public boolean supportsLiveTrains() {
+        return true;
+    }
+
+    /**
+     * 增量更新实时列车图层。Dynmap 的 MarkerAPI 不是线程安全的，调用方会在全局调度线程上执行。
+     */
+    @Override
+    public void applyLiveTrains(LiveTrainBatch batch) {
+        if (markerApi == null) {
+            return;
+        }
+        MarkerSet liveSet = markerApi.getMarkerSet(LIVE_MARKER_SET_ID);
+        if (liveSet == null) {
+            liveSet = markerApi.createMarkerSet(LIVE_MARKER_SET_ID,
+                    plugin.getConfigFacade().getMapLiveTrainsLayerLabel(), null, false);
+            if (liveSet == null) {
+                return;
+            }
+            liveSet.setHideByDefault(!plugin.getConfigFacade().isMapDefaultVisible());
+        }
+
+        for (String markerId : batch.removals()) {
+            Marker marker = liveSet.findMarker(markerId);
+            if (marker != null) {
+                marker.deleteMarker();
+            }
+        }
+
+        MarkerIcon icon = markerApi.getMarkerIcon(LIVE_TRAIN_ICON);
+        if (icon == null) {
+            icon = markerApi.getMarkerIcon(MarkerIcon.DEFAULT);
+        }
+        for (LiveTrainMarker train : batch.upserts()) {
+            Marker marker = liveSet.findMarker(train.id());
+            if (marker != null) {
+                marker.setLocation(train.worldName(), train.x(), train.y(), train.z());
+                marker.setLabel(train.label());
+            } else {
+                liveSet.createMarker(train.id(), train.label(), train.worldName(),
+                        train.x(), train.y(), train.z(), icon, false);
+            }
+        }
+    }
+
+    @Override
+    public void clearLiveTrains() {
+        if (markerApi == null) {
+            return;
+        }
+        MarkerSet liveSet = markerApi.getMarkerSet(LIVE_MARKER_SET_ID);
+        if (liveSet != null) {
+            liveSet.deleteMarkerSet();
+        }
+    }
+
     private boolean matchesProvider() {
         String provider = plugin.getConfigFacade().getMapProvider();
         return "DYNMAP".equalsIgnoreCase(provider) || "AUTO".equalsIgnoreCase(provider);
@@ -168,48 +235,52 @@ public class DynmapIntegration implements MapIntegration {
     }
 
     private void renderRoute(MarkerSet markerSet, org.cubexmc.metro.model.Line line) {
-        List<RoutePoint> routePoints = line.getRoutePoints();
-        if (routePoints.size() < 2) {
-            return;
-        }
-
-        String worldName = routePoints.get(0).worldName();
-        if (worldName == null || worldName.isBlank()) {
-            return;
-        }
-        List<RoutePoint> displayPoints = MapGeometry.orthogonalRoutePoints(routePoints, worldName);
-        if (displayPoints.size() < 2) {
-            return;
-        }
-
-        List<Double> xList = new ArrayList<>();
-        List<Double> yList = new ArrayList<>();
-        List<Double> zList = new ArrayList<>();
-        for (RoutePoint point : displayPoints) {
-            xList.add(point.x());
-            yList.add(point.y());
-            zList.add(point.z());
-        }
-        if (xList.size() < 2) {
+        RouteGeometry geometry = routeGeometryCache.get(line, plugin.getConfigFacade().getMapRouteLodTolerances());
+        String worldName = geometry.worldName();
+        if (worldName == null || worldName.isBlank() || geometry.level(0).size() < 2) {
             return;
         }
 
-        double[] x = xList.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] y = yList.stream().mapToDouble(Double::doubleValue).toArray();
-        double[] z = zList.stream().mapToDouble(Double::doubleValue).toArray();
-
-        PolyLineMarker polyLine = markerSet.createPolyLineMarker(
-                "route_" + line.getId(),
-                line.getName() + " (" + line.getId() + ")",
-                false,
-                worldName,
-                x, y, z,
-                false
-        );
+        // 按缩放等级切换简化级别：放大时用精细折线，缩小时用简化折线
+        List<Integer> minZooms = plugin.getConfigFacade().getMapRouteLodDynmapMinZooms();
+        boolean zoomBands = minZooms != null && !minZooms.isEmpty();
+        for (RouteGeometry.LevelSpan span : geometry.distinctLevels(zoomBands ? minZooms.size() : 1)) {
+            List<RoutePoint> displayPoints = geometry.level(span.level());
+            if (displayPoints.size() < 2) {
+                continue;
+            }
+            double[] x = new double[displayPoints.size()];
+            double[] y = new double[displayPoints.size()];
+            double[] z = new double[displayPoints.size()];
+            for (int index = 0; index < displayPoints.size(); index++) {
+                RoutePoint point = displayPoints.get(index);
+                x[index] = point.x();
+                y[index] = point.y();
+                z[index] = point.z();
+            }
 
-        if (polyLine != null) {
-            polyLine.setLineStyle(plugin.getConfigFacade().getMapLineWidth(), 0.8,
-                    MapLineColor.fromLineColor(line.getColor()).asRgbInt());
+            String markerId = span.level() == 0
+                    ? "route_" + line.getId()
+                    : "route_" + line.getId() + "_lod" + span.level();
+            PolyLineMarker polyLine = markerSet.createPolyLineMarker(
+                    markerId,
+                    line.getName() + " (" + line.getId() + ")",
+                    false,
+                    worldName,
+                    x, y, z,
+                    false
+            );
+
+            if (polyLine != null) {
+                polyLine.setLineStyle(plugin.getConfigFacade().getMapLineWidth(), 0.8,
+                        MapLineColor.fromLineColor(line.getColor()).asRgbInt());
+                if (zoomBands) {
+                    polyLine.setMinZoom(minZooms.get(span.lastBand()));
+                    if (span.level() > 0) {
+                        polyLine.setMaxZoom(minZooms.get(span.level() - 1) - 1);
+                    }
+                }
+            }
         }
     }
 
@@ -0,0 +1,19 @@
+package org.cubexmc.metro.integration;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental live layer update: markers to create or move, and marker ids to delete.
+ */
+public record LiveTrainBatch(List<LiveTrainMarker> upserts, Set<String> removals) {
+
+    public LiveTrainBatch {
+        upserts = List.copyOf(upserts);
+        removals = Set.copyOf(removals);
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && removals.isEmpty();
+    }
+}
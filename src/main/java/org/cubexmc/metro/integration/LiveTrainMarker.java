@@ -0,0 +1,30 @@
+package org.cubexmc.metro.integration;
+
+/**
+ * Position of one train on the web map live layer.
+ *
+ * @param id        stable marker id (physical trains use their train id, virtual trains their virtual id)
+ * @param lineId    owning line id
+ * @param label     display label shown on hover
+ * @param worldName Bukkit world name
+ * @param virtual   true when the position is an estimate for a virtual (non-materialised) train
+ */
+public record LiveTrainMarker(String id, String lineId, String label, String worldName,
+        double x, double y, double z, MapLineColor color, boolean virtual) {
+
+    /**
+     * Whether the marker moved or changed enough since {@code previous} to be worth re-sending.
+     */
+    public boolean differsFrom(LiveTrainMarker previous, double minMoveBlocks) {
+        if (previous == null) {
+            return true;
+        }
+        if (virtual != previous.virtual || !worldName.equals(previous.worldName) || !label.equals(previous.label)) {
+            return true;
+        }
+        double dx = x - previous.x;
+        double dy = y - previous.y;
+        double dz = z - previous.z;
+        return dx * dx + dy * dy + dz * dz >= minMoveBlocks * minMoveBlocks;
+    }
+}
@@ -0,0 +1,84 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns live train snapshots into rate-limited incremental batches for one map provider.
+ * Not thread-safe: {@link #poll} is only called from the sampling task.
+ */
+public class LiveTrainPublisher {
+
+    private final long minIntervalTicks;
+    private final double minMoveBlocks;
+    private final int maxMarkers;
+    private final Map<String, LiveTrainMarker> published = new HashMap<>();
+    private long lastPublishTick = Long.MIN_VALUE;
+    private long lastVersion = -1L;
+
+    public LiveTrainPublisher(long minIntervalTicks, double minMoveBlocks, int maxMarkers) {
+        this.minIntervalTicks = Math.max(1L, minIntervalTicks);
+        this.minMoveBlocks = Math.max(0.0, minMoveBlocks);
+        this.maxMarkers = Math.max(1, maxMarkers);
+    }
+
+    /**
+     * Diff the snapshot against what this provider already shows.
+     *
+     * @return the batch to push, or null when rate-limited, already published, or nothing changed
+     */
+    public LiveTrainBatch poll(LiveTrainSnapshot snapshot, long nowTick) {
+        if (snapshot == null || snapshot.version() == lastVersion) {
+            return null;
+        }
+        if (lastPublishTick != Long.MIN_VALUE && nowTick - lastPublishTick < minIntervalTicks) {
+            return null;
+        }
+        lastVersion = snapshot.version();
+
+        List<LiveTrainMarker> upserts = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (LiveTrainMarker marker : snapshot.markers()) {
+            if (seen.size() >= maxMarkers) {
+                break;
+            }
+            if (!seen.add(marker.id())) {
+                continue;
+            }
+            LiveTrainMarker previous = published.get(marker.id());
+            if (marker.differsFrom(previous, minMoveBlocks)) {
+                upserts.add(marker);
+                published.put(marker.id(), marker);
+            }
+        }
+
+        Set<String> removals = new HashSet<>(published.keySet());
+        removals.removeAll(seen);
+        published.keySet().removeAll(removals);
+
+        if (upserts.isEmpty() && removals.isEmpty()) {
+            return null;
+        }
+        lastPublishTick = nowTick;
+        return new LiveTrainBatch(upserts, removals);
+    }
+
+    /**
+     * Forget everything published so far and return the removals needed to clear the layer.
+     */
+    public LiveTrainBatch reset() {
+        LiveTrainBatch batch = new LiveTrainBatch(List.of(), published.keySet());
+        published.clear();
+        lastPublishTick = Long.MIN_VALUE;
+        lastVersion = -1L;
+        return batch;
+    }
+
+    public int getPublishedCount() {
+        return published.size();
+    }
+}
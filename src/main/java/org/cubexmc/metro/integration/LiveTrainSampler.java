@@ -0,0 +1,84 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.LineServiceManager;
+import org.cubexmc.metro.service.virtual.VirtualTrain;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
+import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.train.TrainSnapshot;
+
+/**
+ * 采集当前所有列车（实体列车与虚拟列车）的位置，供网页地图实时图层使用。
+ * 实体列车只读取各自 tick 线程发布的 {@link TrainSnapshot}，不访问矿车实体，Folia 下可在任意线程调用。
+ */
+public final class LiveTrainSampler {
+
+    private LiveTrainSampler() {
+    }
+
+    public static List<LiveTrainMarker> sample(Metro plugin, boolean includeVirtual, int maxMarkers) {
+        LineServiceManager serviceManager = plugin.getLineServiceManager();
+        if (serviceManager == null) {
+            return List.of();
+        }
+        StopManager stopManager = plugin.getStopManager();
+        List<LiveTrainMarker> markers = new ArrayList<>();
+        for (LineService service : serviceManager.getServices()) {
+            Line line = service.getLine();
+            if (line == null) {
+                continue;
+            }
+            MapLineColor color = MapLineColor.fromLineColor(line.getColor());
+            for (TrainInstance train : service.getActiveTrains()) {
+                if (markers.size() >= maxMarkers) {
+                    return markers;
+                }
+                TrainSnapshot snapshot = train.getSnapshot();
+                if (snapshot == null || snapshot.state() == TrainInstance.TrainState.FINISHED) {
+                    continue;
+                }
+                markers.add(new LiveTrainMarker("train_" + train.getId(), line.getId(), line.getName(),
+                        snapshot.worldName(), snapshot.x(), snapshot.y(), snapshot.z(), color, false));
+            }
+
+            VirtualTrainPool pool = includeVirtual ? service.getVirtualTrainPool() : null;
+            if (pool == null || stopManager == null) {
+                continue;
+            }
+            List<String> stopIds = line.getOrderedStopIds();
+            if (stopIds.isEmpty()) {
+                continue;
+            }
+            for (VirtualTrain virtualTrain : pool.getVirtualTrains()) {
+                if (markers.size() >= maxMarkers) {
+                    return markers;
+                }
+                // 已实体化的虚拟列车由上面的实体列车表示，避免重复标记
+                if (pool.isMaterialized(virtualTrain.getId())
+                        || !isValidIndex(virtualTrain.getCurrentStopIndex(), stopIds)
+                        || !isValidIndex(virtualTrain.getTargetStopIndex(), stopIds)) {
+                    continue;
+                }
+                Location location = virtualTrain.estimateCurrentLocation(stopManager, stopIds);
+                if (location == null || location.getWorld() == null) {
+                    continue;
+                }
+                markers.add(new LiveTrainMarker("vtrain_" + virtualTrain.getId(), line.getId(),
+                        line.getName() + " (virtual)", location.getWorld().getName(),
+                        location.getX(), location.getY(), location.getZ(), color, true));
+            }
+        }
+        return markers;
+    }
+
+    private static boolean isValidIndex(int index, List<String> stopIds) {
+        return index >= 0 && index < stopIds.size();
+    }
+}
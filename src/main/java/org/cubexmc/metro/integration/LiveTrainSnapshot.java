@@ -0,0 +1,16 @@
+package org.cubexmc.metro.integration;
+
+import java.util.List;
+
+/**
+ * Immutable set of train positions captured in one sampling pass.
+ * Published through an {@code AtomicReference}, so readers never see a partially built list.
+ */
+public record LiveTrainSnapshot(long version, long tick, List<LiveTrainMarker> markers) {
+
+    public static final LiveTrainSnapshot EMPTY = new LiveTrainSnapshot(0L, 0L, List.of());
+
+    public LiveTrainSnapshot {
+        markers = List.copyOf(markers);
+    }
+}
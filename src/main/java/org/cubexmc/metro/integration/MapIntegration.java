@@ -12,4 +12,31 @@ public interface MapIntegration {
     void refresh();
 
     boolean isEnabled();
+
+    /**
+     * Whether this provider can render the live train layer.
+     */
+    default boolean supportsLiveTrains() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #applyLiveTrains} may be called off the server thread.
+     * Providers whose marker API is not thread-safe get their batches on the global scheduler instead.
+     */
+    default boolean isLiveTrainUpdateThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Apply one incremental live train update.
+     */
+    default void applyLiveTrains(LiveTrainBatch batch) {
+    }
+
+    /**
+     * Remove every live train marker.
+     */
+    default void clearLiveTrains() {
+    }
 }
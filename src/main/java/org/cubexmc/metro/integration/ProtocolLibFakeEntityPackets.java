@@ -0,0 +1,175 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.cubexmc.metro.physics.FakeEntityPackets;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.WrappedDataValue;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher;
+import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+
+/**
+ * ProtocolLib backend for client-only entities. Only load this class after checking that
+ * ProtocolLib is installed.
+ */
+public final class ProtocolLibFakeEntityPackets implements FakeEntityPackets {
+
+    private static final byte INVISIBLE_FLAG = 0x20;
+    private static final int FLAGS_INDEX = 0;
+    private static final int SILENT_INDEX = 4;
+    private static final int NO_GRAVITY_INDEX = 5;
+
+    private final Plugin plugin;
+    private final ProtocolManager manager;
+    private final Logger logger;
+    private final boolean supported;
+    private final boolean dataValues;
+    private volatile BiPredicate<Player, Integer> interactHandler;
+    private PacketAdapter interactListener;
+    private boolean failureLogged;
+
+    public ProtocolLibFakeEntityPackets(Plugin plugin) {
+        this.plugin = plugin;
+        this.manager = ProtocolLibrary.getProtocolManager();
+        this.logger = plugin.getLogger();
+        // 1.19 起活体也走 SPAWN_ENTITY；1.19.3 起元数据改为 DataValue 列表
+        this.supported = MinecraftVersion.WILD_UPDATE.atOrAbove();
+        this.dataValues = MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove();
+    }
+
+    @Override
+    public boolean isSupported() {
+        return supported;
+    }
+
+    @Override
+    public void spawn(Player viewer, int entityId, UUID uniqueId, EntityType type, double x, double y, double z,
+            float yaw, boolean invisible) {
+        PacketContainer spawn = manager.createPacket(PacketType.Play.Server.SPAWN_ENTITY);
+        spawn.getIntegers().write(0, entityId);
+        spawn.getUUIDs().write(0, uniqueId);
+        spawn.getEntityTypeModifier().write(0, type);
+        spawn.getDoubles().write(0, x).write(1, y).write(2, z);
+        spawn.getBytes().write(1, angle(yaw));
+        send(viewer, spawn);
+
+        byte flags = invisible ? INVISIBLE_FLAG : 0;
+        PacketContainer metadata = manager.createPacket(PacketType.Play.Server.ENTITY_METADATA);
+        metadata.getIntegers().write(0, entityId);
+        if (dataValues) {
+            List<WrappedDataValue> values = new ArrayList<>();
+            values.add(new WrappedDataValue(FLAGS_INDEX, WrappedDataWatcher.Registry.get(Byte.class), flags));
+            values.add(new WrappedDataValue(SILENT_INDEX, WrappedDataWatcher.Registry.get(Boolean.class), true));
+            values.add(new WrappedDataValue(NO_GRAVITY_INDEX, WrappedDataWatcher.Registry.get(Boolean.class), true));
+            metadata.getDataValueCollectionModifier().write(0, values);
+        } else {
+            WrappedDataWatcher watcher = new WrappedDataWatcher();
+            watcher.setObject(new WrappedDataWatcher.WrappedDataWatcherObject(FLAGS_INDEX,
+                    WrappedDataWatcher.Registry.get(Byte.class)), flags);
+            watcher.setObject(new WrappedDataWatcher.WrappedDataWatcherObject(SILENT_INDEX,
+                    WrappedDataWatcher.Registry.get(Boolean.class)), true);
+            watcher.setObject(new WrappedDataWatcher.WrappedDataWatcherObject(NO_GRAVITY_INDEX,
+                    WrappedDataWatcher.Registry.get(Boolean.class)), true);
+            List<WrappedWatchableObject> objects = watcher.getWatchableObjects();
+            metadata.getWatchableCollectionModifier().write(0, objects);
+        }
+        send(viewer, metadata);
+    }
+
+    @Override
+    public void attach(Player viewer, int entityId, int holderEntityId) {
+        PacketContainer attach = manager.createPacket(PacketType.Play.Server.ATTACH_ENTITY);
+        attach.getIntegers().write(0, entityId).write(1, holderEntityId);
+        send(viewer, attach);
+    }
+
+    @Override
+    public void move(Player viewer, int entityId, double dx, double dy, double dz, float yaw) {
+        PacketContainer move = manager.createPacket(PacketType.Play.Server.REL_ENTITY_MOVE_LOOK);
+        move.getIntegers().write(0, entityId);
+        move.getShorts()
+                .write(0, (short) Math.round(dx * 4096.0))
+                .write(1, (short) Math.round(dy * 4096.0))
+                .write(2, (short) Math.round(dz * 4096.0));
+        move.getBytes().write(0, angle(yaw)).write(1, (byte) 0);
+        move.getBooleans().write(0, false);
+        send(viewer, move);
+    }
+
+    @Override
+    public void destroy(Player viewer, int[] entityIds) {
+        PacketContainer destroy = manager.createPacket(PacketType.Play.Server.ENTITY_DESTROY);
+        List<Integer> ids = new ArrayList<>(entityIds.length);
+        for (int id : entityIds) {
+            ids.add(id);
+        }
+        destroy.getIntLists().write(0, ids);
+        send(viewer, destroy);
+    }
+
+    @Override
+    public void setInteractHandler(BiPredicate<Player, Integer> handler) {
+        interactHandler = handler;
+        if (handler == null || interactListener != null) {
+            return;
+        }
+        interactListener = new PacketAdapter(plugin, ListenerPriority.NORMAL,
+                PacketType.Play.Client.USE_ENTITY) {
+            @Override
+            public void onPacketReceiving(PacketEvent event) {
+                BiPredicate<Player, Integer> current = interactHandler;
+                if (current == null) {
+                    return;
+                }
+                int entityId = event.getPacket().getIntegers().read(0);
+                // 真实实体 ID 均为正数，只拦截假实体
+                if (entityId < 0 && current.test(event.getPlayer(), entityId)) {
+                    event.setCancelled(true);
+                }
+            }
+        };
+        manager.addPacketListener(interactListener);
+    }
+
+    @Override
+    public void shutdown() {
+        interactHandler = null;
+        if (interactListener != null) {
+            // 重载后 ProtocolLib 仍持有旧监听器会回调已停用的插件
+            manager.removePacketListener(interactListener);
+            interactListener = null;
+        }
+    }
+
+    private void send(Player viewer, PacketContainer packet) {
+        try {
+            manager.sendServerPacket(viewer, packet);
+        } catch (RuntimeException e) {
+            // 只记录一次，避免每 tick 刷屏
+            if (!failureLogged) {
+                failureLogged = true;
+                logger.log(Level.WARNING, "[Packets] Failed to send " + packet.getType() + " packet", e);
+            }
+        }
+    }
+
+    private static byte angle(float degrees) {
+        return (byte) Math.floorMod(Math.round(degrees * 256.0f / 360.0f), 256);
+    }
+}
@@ -0,0 +1,63 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cubexmc.metro.model.RoutePoint;
+
+/**
+ * Prepared map geometry of one line: the orthogonal display route at several levels of detail.
+ * Level 0 is the finest; each following level uses a larger simplification tolerance.
+ *
+ * @param version route version the levels were built from, see {@link RouteGeometryCache#versionOf}
+ */
+public record RouteGeometry(String lineId, String worldName, RouteGeometryCache.RouteVersion version,
+        List<Double> tolerances, List<List<RoutePoint>> levels) {
+
+    public RouteGeometry {
+        tolerances = List.copyOf(tolerances);
+        List<List<RoutePoint>> copies = new ArrayList<>(levels.size());
+        for (List<RoutePoint> level : levels) {
+            copies.add(List.copyOf(level));
+        }
+        levels = List.copyOf(copies);
+    }
+
+    public int levelCount() {
+        return levels.size();
+    }
+
+    /**
+     * Points of the given level, clamped to the available range.
+     */
+    public List<RoutePoint> level(int index) {
+        if (levels.isEmpty()) {
+            return List.of();
+        }
+        return levels.get(Math.max(0, Math.min(levels.size() - 1, index)));
+    }
+
+    /**
+     * Levels to draw when a provider can switch geometry by {@code selectorCount} zoom/distance bands.
+     * Consecutive levels that simplified to the same point count are merged into one span,
+     * so the provider does not emit duplicate markers.
+     */
+    public List<LevelSpan> distinctLevels(int selectorCount) {
+        int count = Math.max(1, Math.min(selectorCount, levels.size()));
+        List<LevelSpan> spans = new ArrayList<>();
+        int first = 0;
+        for (int index = 1; index <= count; index++) {
+            if (index == count || level(index).size() != level(first).size()) {
+                spans.add(new LevelSpan(first, index - 1));
+                first = index;
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Level {@code level} drawn for the selector bands {@code level..lastBand}.
+     */
+    public record LevelSpan(int level, int lastBand) {
+    }
+}
@@ -0,0 +1,124 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.model.RoutePoint;
+
+/**
+ * 线路地图几何缓存：在工作线程上生成多级简化（LOD）的路线折线，按线路路线版本缓存。
+ * 主线程只负责拷贝路线点，简化计算不占用 tick。
+ */
+public class RouteGeometryCache {
+
+    private final Executor worker;
+    private final Map<String, RouteGeometry> geometries = new ConcurrentHashMap<>();
+
+    public RouteGeometryCache(Executor worker) {
+        this.worker = worker;
+    }
+
+    /**
+     * Rebuild stale or missing geometries for the given lines on the worker.
+     * Route points are copied on the calling thread; entries for lines not in {@code lines} are dropped.
+     */
+    public CompletableFuture<Void> prepare(Collection<Line> lines, List<Double> tolerances) {
+        List<RouteSource> sources = new ArrayList<>();
+        Set<String> lineIds = new HashSet<>();
+        for (Line line : lines) {
+            if (line == null) {
+                continue;
+            }
+            lineIds.add(line.getId());
+            RouteGeometry cached = geometries.get(line.getId());
+            if (cached == null || !cached.version().equals(versionOf(line))
+                    || !cached.tolerances().equals(normalizeTolerances(tolerances))) {
+                // 只有过期的线路才复制路线点
+                sources.add(RouteSource.of(line));
+            }
+        }
+        geometries.keySet().retainAll(lineIds);
+        if (sources.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            for (RouteSource source : sources) {
+                geometries.put(source.lineId(), build(source, tolerances));
+            }
+        }, worker);
+    }
+
+    /**
+     * Cached geometry of the line, or a synchronously built one when the worker has not caught up yet.
+     */
+    public RouteGeometry get(Line line, List<Double> tolerances) {
+        RouteGeometry cached = geometries.get(line.getId());
+        if (cached != null && cached.version().equals(versionOf(line))
+                && cached.tolerances().equals(normalizeTolerances(tolerances))) {
+            return cached;
+        }
+        RouteGeometry built = build(RouteSource.of(line), tolerances);
+        geometries.put(line.getId(), built);
+        return built;
+    }
+
+    public void clear() {
+        geometries.clear();
+    }
+
+    int size() {
+        return geometries.size();
+    }
+
+    public static RouteVersion versionOf(Line line) {
+        return new RouteVersion(line.getRouteRecordedAtEpochMillis(), line.getRouteRevision());
+    }
+
+    static RouteGeometry build(RouteSource source, List<Double> tolerances) {
+        List<Double> levelTolerances = normalizeTolerances(tolerances);
+        List<RoutePoint> points = source.points();
+        String worldName = points.isEmpty() ? null : points.get(0).worldName();
+        List<List<RoutePoint>> levels = new ArrayList<>();
+        if (worldName != null && !worldName.isBlank()) {
+            List<RoutePoint> display = MapGeometry.orthogonalRoutePoints(points, worldName);
+            for (double tolerance : levelTolerances) {
+                levels.add(RouteSimplifier.douglasPeucker(display, tolerance));
+            }
+        }
+        return new RouteGeometry(source.lineId(), worldName, source.version(), levelTolerances, levels);
+    }
+
+    private static List<Double> normalizeTolerances(List<Double> tolerances) {
+        if (tolerances == null || tolerances.isEmpty()) {
+            return List.of(0.0);
+        }
+        List<Double> result = new ArrayList<>(tolerances.size());
+        for (Double tolerance : tolerances) {
+            result.add(tolerance == null ? 0.0 : Math.max(0.0, tolerance));
+        }
+        return result;
+    }
+
+    /**
+     * 路线版本：录制时间戳 + 路线修订号。未重新录制但被规整/改写的路线修订号也会变化，
+     * 判断是否过期时不必复制或哈希路线点。
+     */
+    public record RouteVersion(Long recordedAtEpochMillis, int routeRevision) {
+    }
+
+    record RouteSource(String lineId, RouteVersion version, List<RoutePoint> points) {
+        static RouteSource of(Line line) {
+            // 先读版本再复制点：并发改写时宁可多重建一次，也不会把新点记成旧版本
+            RouteVersion version = versionOf(line);
+            return new RouteSource(line.getId(), version, line.getRoutePoints());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.cubexmc.metro.integration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.cubexmc.metro.model.RoutePoint;
+
+/**
+ * Douglas–Peucker polyline simplification on the map plane (X/Z).
+ * Y is carried along from the kept input points but ignored for the distance test,
+ * since every web map draws routes top-down.
+ */
+final class RouteSimplifier {
+
+    private RouteSimplifier() {
+    }
+
+    /**
+     * Keep the endpoints and every point further than {@code tolerance} blocks from the simplified line.
+     * A tolerance of 0 only drops exactly collinear points.
+     */
+    static List<RoutePoint> douglasPeucker(List<RoutePoint> points, double tolerance) {
+        int size = points.size();
+        if (size < 3) {
+            return new ArrayList<>(points);
+        }
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+        double toleranceSquared = tolerance * tolerance;
+
+        // 显式栈代替递归，长线路不会栈溢出
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[] {0, size - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int start = range[0];
+            int end = range[1];
+            if (end - start < 2) {
+                continue;
+            }
+            RoutePoint a = points.get(start);
+            RoutePoint b = points.get(end);
+            double maxDistance = -1.0;
+            int maxIndex = -1;
+            for (int index = start + 1; index < end; index++) {
+                double distance = segmentDistanceSquared(points.get(index), a, b);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    maxIndex = index;
+                }
+            }
+            if (maxIndex >= 0 && maxDistance > toleranceSquared) {
+                keep[maxIndex] = true;
+                ranges.push(new int[] {start, maxIndex});
+                ranges.push(new int[] {maxIndex, end});
+            }
+        }
+
+        List<RoutePoint> result = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            if (keep[index]) {
+                result.add(points.get(index));
+            }
+        }
+        return result;
+    }
+
+    private static double segmentDistanceSquared(RoutePoint point, RoutePoint a, RoutePoint b) {
+        double dx = b.x() - a.x();
+        double dz = b.z() - a.z();
+        double lengthSquared = dx * dx + dz * dz;
+        double t = lengthSquared <= 0.0 ? 0.0
+                : ((point.x() - a.x()) * dx + (point.z() - a.z()) * dz) / lengthSquared;
+        t = Math.max(0.0, Math.min(1.0, t));
+        double px = a.x() + t * dx - point.x();
+        double pz = a.z() + t * dz - point.z();
+        return px * px + pz * pz;
+    }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -30,13 +31,24 @@ import java.util.logging.Level;
 public class SquaremapIntegration implements MapIntegration {
 
     private static final String LAYER_ID = "metro_network";
+    private static final String LIVE_LAYER_ID = "metro_live_trains";
+    private static final double LIVE_TRAIN_RADIUS = 4.0;
 
     private final Metro plugin;
     private boolean enabled = false;
     private final Map<String, SimpleLayerProvider> layerProviders = new HashMap<>();
+    // 实时列车图层会被异步批次读取，使用并发 Map
+    private final Map<String, SimpleLayerProvider> liveLayerProviders = new ConcurrentHashMap<>();
+
+    private final RouteGeometryCache routeGeometryCache;
 
     public SquaremapIntegration(Metro plugin) {
+        this(plugin, new RouteGeometryCache(Runnable::run));
+    }
+
+    public SquaremapIntegration(Metro plugin, RouteGeometryCache routeGeometryCache) {
         this.plugin = plugin;
+        this.routeGeometryCache = routeGeometryCache;
     }
 
     @Override
@@ -98,10 +110,19 @@ public class SquaremapIntegration implements MapIntegration {
                     });
                 }
             }
+            for (String worldName : liveLayerProviders.keySet()) {
+                org.bukkit.World bukkitWorld = Bukkit.getWorld(worldName);
+                if (bukkitWorld != null) {
+                    api.getWorldIfEnabled(xyz.jpenilla.squaremap.api.BukkitAdapter.worldIdentifier(bukkitWorld)).ifPresent(world -> {
+                        world.layerRegistry().unregister(Key.of(LIVE_LAYER_ID));
+                    });
+                }
+            }
         } catch (Exception e) {
             // Ignore
         }
         layerProviders.clear();
+        liveLayerProviders.clear();
         enabled = false;
         plugin.getLogger().info("[Squaremap] Metro markers removed.");
     }
@@ -111,6 +132,56 @@ public class SquaremapIntegration implements MapIntegration {
         return enabled;
     }
 
+    @Override
+    public boolean supportsLiveTrains() {
+        return true;
+    }
+
+    @Override
+    public boolean isLiveTrainUpdateThreadSafe() {
+        // SimpleLayerProvider 内部为并发 Map；图层注册只在 renderMetroNetwork（主线程）中进行
+        return true;
+    }
+
+    @Override
+    public void applyLiveTrains(LiveTrainBatch batch) {
+        for (String markerId : batch.removals()) {
+            Key key = Key.of(markerId.toLowerCase());
+            for (SimpleLayerProvider provider : liveLayerProviders.values()) {
+                provider.removeMarker(key);
+            }
+        }
+        for (LiveTrainMarker train : batch.upserts()) {
+            Key key = Key.of(train.id().toLowerCase());
+            for (Map.Entry<String, SimpleLayerProvider> entry : liveLayerProviders.entrySet()) {
+                if (!entry.getKey().equals(train.worldName())) {
+                    entry.getValue().removeMarker(key);
+                }
+            }
+            SimpleLayerProvider provider = liveLayerProviders.get(train.worldName());
+            if (provider == null) {
+                continue;
+            }
+            Marker marker = Marker.circle(Point.of(train.x(), train.z()), LIVE_TRAIN_RADIUS);
+            marker.markerOptions(MarkerOptions.builder()
+                    .hoverTooltip(train.label())
+                    .fill(true)
+                    .fillColor(toAwtColor(train.color()))
+                    .fillOpacity(train.virtual() ? 0.4 : 0.9)
+                    .strokeColor(Color.BLACK)
+                    .strokeWeight(1)
+                    .build());
+            provider.addMarker(key, marker);
+        }
+    }
+
+    @Override
+    public void clearLiveTrains() {
+        for (SimpleLayerProvider provider : liveLayerProviders.values()) {
+            provider.clearMarkers();
+        }
+    }
+
     private boolean matchesProvider() {
         String provider = plugin.getConfigFacade().getMapProvider();
         return "SQUAREMAP".equalsIgnoreCase(provider) || "AUTO".equalsIgnoreCase(provider);
@@ -130,6 +201,10 @@ public class SquaremapIntegration implements MapIntegration {
             String layerLabel = plugin.getConfigFacade().getMapMarkerSetLabel();
             boolean defaultVisible = plugin.getConfigFacade().isMapDefaultVisible();
 
+            if (plugin.getConfigFacade().isMapLiveTrainsEnabled()) {
+                registerLiveLayers(api, defaultVisible);
+            }
+
             for (org.cubexmc.metro.model.Line line : lineManager.getAllLines()) {
                 renderRoute(api, layerLabel, defaultVisible, line);
             }
@@ -177,16 +252,30 @@ public class SquaremapIntegration implements MapIntegration {
         }
     }
 
-    private void renderRoute(Squaremap api, String layerLabel, boolean defaultVisible, org.cubexmc.metro.model.Line line) {
-        List<RoutePoint> routePoints = line.getRoutePoints();
-        if (routePoints.size() < 2) {
-            return;
+    private void registerLiveLayers(Squaremap api, boolean defaultVisible) {
+        String liveLabel = plugin.getConfigFacade().getMapLiveTrainsLayerLabel();
+        for (org.bukkit.World bukkitWorld : Bukkit.getWorlds()) {
+            if (liveLayerProviders.containsKey(bukkitWorld.getName())) {
+                continue;
+            }
+            api.getWorldIfEnabled(xyz.jpenilla.squaremap.api.BukkitAdapter.worldIdentifier(bukkitWorld)).ifPresent(world -> {
+                SimpleLayerProvider provider = SimpleLayerProvider.builder(liveLabel)
+                        .defaultHidden(!defaultVisible)
+                        .build();
+                world.layerRegistry().register(Key.of(LIVE_LAYER_ID), provider);
+                liveLayerProviders.put(bukkitWorld.getName(), provider);
+            });
         }
+    }
 
-        String worldName = routePoints.get(0).worldName();
+    private void renderRoute(Squaremap api, String layerLabel, boolean defaultVisible, org.cubexmc.metro.model.Line line) {
+        RouteGeometry geometry = routeGeometryCache.get(line, plugin.getConfigFacade().getMapRouteLodTolerances());
+        String worldName = geometry.worldName();
         if (worldName == null || worldName.isBlank()) {
             return;
         }
+        // squaremap 无法按缩放切换标记，使用配置的固定级别
+        List<RoutePoint> displayPoints = geometry.level(plugin.getConfigFacade().getMapRouteLodSquaremapLevel());
         org.bukkit.World bukkitWorld = Bukkit.getWorld(worldName);
         if (bukkitWorld == null) {
             return;
@@ -202,7 +291,7 @@ public class SquaremapIntegration implements MapIntegration {
             });
 
             List<Point> points = new ArrayList<>();
-            for (RoutePoint routePoint : MapGeometry.orthogonalRoutePoints(routePoints, worldName)) {
+            for (RoutePoint routePoint : displayPoints) {
                 points.add(Point.of(routePoint.x(), routePoint.z()));
             }
             if (points.size() < 2) {
@@ -345,6 +345,7 @@ final class BukkitFallbackCommandRegistration {
                 case "titleKey" -> StopCommandServiceValues.TITLE_KEYS;
                 case "action" -> List.of("allow", "deny");
                 case "index" -> List.of("0", "1", "2", "3", "4", "5", "10");
+                case "window" -> List.of("10s", "1m", "5m", "reset");
                 case "yaw" -> List.of("0", "90", "180", "-90");
                 case "speed" -> List.of("0.4", "0.8", "1.0", "1.2");
                 case "price" -> List.of("0", "1", "2", "5", "10");
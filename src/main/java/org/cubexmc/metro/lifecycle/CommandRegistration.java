@@ -210,6 +210,8 @@ public class CommandRegistration {
                 (context, input) -> toSuggestionsFuture(List.of("allow", "deny")));
         commandManager.parserRegistry().registerSuggestionProvider("pageNumbers",
                 (context, input) -> toSuggestionsFuture(List.of("1", "2", "3", "4", "5", "6", "7", "8", "9", "10")));
+        commandManager.parserRegistry().registerSuggestionProvider("profileWindows",
+                (context, input) -> toSuggestionsFuture(List.of("10s", "1m", "5m", "reset")));
         commandManager.parserRegistry().registerSuggestionProvider("stopIndexes",
                 (context, input) -> toSuggestionsFuture(List.of("0", "1", "2", "3", "4", "5", "10")));
         commandManager.parserRegistry().registerSuggestionProvider("yawValues",
@@ -4,7 +4,7 @@ import org.bukkit.Bukkit;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.gui.GuiListener;
 import org.cubexmc.metro.listener.PlayerInteractListener;
-import org.cubexmc.metro.listener.PlayerMoveListener;
+import org.cubexmc.metro.listener.StopPresenceTracker;
 import org.cubexmc.metro.listener.VehicleListener;
 import org.cubexmc.metro.manager.RailProtectionManager;
 import org.cubexmc.metro.train.TrainDisplayController;
@@ -25,24 +25,27 @@ public class ListenerRegistration {
     public Result register() {
         PlayerInteractListener playerInteractListener = new PlayerInteractListener(plugin);
         VehicleListener vehicleListener = new VehicleListener(plugin);
-        PlayerMoveListener playerMoveListener = new PlayerMoveListener(plugin);
+        StopPresenceTracker stopPresenceTracker = new StopPresenceTracker(plugin);
         GuiListener guiListener = new GuiListener(plugin);
         TrainDisplayController trainDisplayController = new TrainDisplayController(plugin);
 
         Bukkit.getPluginManager().registerEvents(playerInteractListener, plugin);
         Bukkit.getPluginManager().registerEvents(vehicleListener, plugin);
-        Bukkit.getPluginManager().registerEvents(playerMoveListener, plugin);
+        Bukkit.getPluginManager().registerEvents(stopPresenceTracker, plugin);
         Bukkit.getPluginManager().registerEvents(guiListener, plugin);
         Bukkit.getPluginManager().registerEvents(trainDisplayController, plugin);
         Bukkit.getPluginManager().registerEvents(railProtectionManager, plugin);
 
-        return new Result(playerInteractListener, vehicleListener, playerMoveListener,
+        stopPresenceTracker.start();
+        vehicleListener.start();
+
+        return new Result(playerInteractListener, vehicleListener, stopPresenceTracker,
                 guiListener, trainDisplayController);
     }
 
     public record Result(PlayerInteractListener playerInteractListener,
                          VehicleListener vehicleListener,
-                         PlayerMoveListener playerMoveListener,
+                         StopPresenceTracker stopPresenceTracker,
                          GuiListener guiListener,
                          TrainDisplayController trainDisplayController) {
     }
@@ -0,0 +1,136 @@
+package org.cubexmc.metro.lifecycle;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.config.ConfigFacade;
+import org.cubexmc.metro.integration.LiveTrainBatch;
+import org.cubexmc.metro.integration.LiveTrainMarker;
+import org.cubexmc.metro.integration.LiveTrainPublisher;
+import org.cubexmc.metro.integration.LiveTrainSnapshot;
+import org.cubexmc.metro.integration.MapIntegration;
+import org.cubexmc.metro.profiling.LoadGovernor;
+
+/**
+ * Samples train positions on a fixed cadence and pushes incremental batches to the active web map.
+ * Sampling runs on the global scheduler; pushes run on the async executor unless the provider's
+ * marker API requires the server thread.
+ */
+class LiveTrainLayer {
+
+    private final Metro plugin;
+    private final MapIntegrationLifecycle.RefreshScheduler scheduler;
+    private final Executor pushExecutor;
+    private final Supplier<List<LiveTrainMarker>> sampler;
+    private final AtomicReference<LiveTrainSnapshot> latestSnapshot = new AtomicReference<>(LiveTrainSnapshot.EMPTY);
+    private final AtomicBoolean pushInFlight = new AtomicBoolean();
+    private MapIntegration integration;
+    private LiveTrainPublisher publisher;
+    private Object sampleTaskId;
+    private long sampleIntervalTicks;
+    private long elapsedTicks;
+    private long version;
+
+    LiveTrainLayer(Metro plugin, MapIntegrationLifecycle.RefreshScheduler scheduler, Executor pushExecutor,
+            Supplier<List<LiveTrainMarker>> sampler) {
+        this.plugin = plugin;
+        this.scheduler = scheduler;
+        this.pushExecutor = pushExecutor;
+        this.sampler = sampler;
+    }
+
+    void start(MapIntegration integration, String provider) {
+        stop();
+        ConfigFacade config = plugin.getConfigFacade();
+        if (integration == null || config == null || !config.isMapLiveTrainsEnabled()
+                || !integration.supportsLiveTrains()) {
+            return;
+        }
+        this.integration = integration;
+        this.publisher = new LiveTrainPublisher(
+                config.getMapLiveTrainsMinUpdateIntervalTicks(provider),
+                config.getMapLiveTrainsMinMoveBlocks(),
+                config.getMapLiveTrainsMaxMarkers());
+        this.sampleIntervalTicks = config.getMapLiveTrainsSampleIntervalTicks();
+        this.elapsedTicks = 0L;
+        this.sampleTaskId = scheduler.schedule(plugin, this::sampleAndPush, sampleIntervalTicks, sampleIntervalTicks);
+    }
+
+    void stop() {
+        if (sampleTaskId != null) {
+            scheduler.cancel(sampleTaskId);
+            sampleTaskId = null;
+        }
+        if (integration != null) {
+            try {
+                integration.clearLiveTrains();
+            } catch (Throwable e) {
+                plugin.getLogger().log(Level.FINE, "[Map] Failed to clear live train markers", e);
+            }
+        }
+        integration = null;
+        publisher = null;
+        latestSnapshot.set(LiveTrainSnapshot.EMPTY);
+    }
+
+    boolean isRunning() {
+        return sampleTaskId != null;
+    }
+
+    /**
+     * Latest published snapshot; safe to read from any thread.
+     */
+    LiveTrainSnapshot getLatestSnapshot() {
+        return latestSnapshot.get();
+    }
+
+    void sampleAndPush() {
+        MapIntegration target = integration;
+        LiveTrainPublisher targetPublisher = publisher;
+        if (target == null || targetPublisher == null) {
+            return;
+        }
+        elapsedTicks += sampleIntervalTicks;
+        // 负载调节器降级时冻结实时图层，标记停在最后一次推送的位置
+        LoadGovernor governor = plugin.getLoadGovernor();
+        if (governor != null && governor.isMapLivePaused()) {
+            return;
+        }
+        LiveTrainSnapshot snapshot = new LiveTrainSnapshot(++version, elapsedTicks, sampler.get());
+        latestSnapshot.set(snapshot);
+
+        // 上一批还没推送完时跳过本次，避免地图插件变慢时任务堆积
+        if (pushInFlight.get()) {
+            return;
+        }
+        LiveTrainBatch batch = targetPublisher.poll(snapshot, elapsedTicks);
+        if (batch == null) {
+            return;
+        }
+        pushInFlight.set(true);
+        Runnable push = () -> {
+            try {
+                target.applyLiveTrains(batch);
+            } catch (Throwable e) {
+                plugin.getLogger().warning("[Map] Failed to push live train markers: " + e.getMessage());
+            } finally {
+                pushInFlight.set(false);
+            }
+        };
+        try {
+            if (target.isLiveTrainUpdateThreadSafe()) {
+                pushExecutor.execute(push);
+            } else {
+                scheduler.schedule(plugin, push, 1L, -1L);
+            }
+        } catch (RuntimeException e) {
+            pushInFlight.set(false);
+            throw e;
+        }
+    }
+}
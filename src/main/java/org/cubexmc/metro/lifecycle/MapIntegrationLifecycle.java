@@ -2,12 +2,18 @@ package org.cubexmc.metro.lifecycle;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.integration.BlueMapIntegration;
 import org.cubexmc.metro.integration.DynmapIntegration;
+import org.cubexmc.metro.integration.LiveTrainSampler;
+import org.cubexmc.metro.integration.LiveTrainSnapshot;
 import org.cubexmc.metro.integration.MapIntegration;
+import org.cubexmc.metro.integration.RouteGeometryCache;
 import org.cubexmc.metro.integration.SquaremapIntegration;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
 import org.cubexmc.metro.util.SchedulerUtil;
 
 /**
@@ -21,19 +27,37 @@ public class MapIntegrationLifecycle {
     private final Metro plugin;
     private final IntegrationFactory integrationFactory;
     private final RefreshScheduler refreshScheduler;
+    private final LiveTrainLayer liveTrainLayer;
+    private final RouteGeometryCache routeGeometryCache;
     private MapIntegration activeIntegration;
     private String activeProvider;
     private boolean refreshQueued;
     private Object refreshTaskId;
 
     public MapIntegrationLifecycle(Metro plugin) {
-        this(plugin, provider -> createDefaultIntegration(plugin, provider), new SchedulerUtilRefreshScheduler());
+        this(plugin, new RouteGeometryCache(command -> SchedulerUtil.asyncRun(plugin, command, 0L)));
+    }
+
+    private MapIntegrationLifecycle(Metro plugin, RouteGeometryCache routeGeometryCache) {
+        this(plugin, provider -> createDefaultIntegration(plugin, provider, routeGeometryCache),
+                new SchedulerUtilRefreshScheduler(), routeGeometryCache);
     }
 
     MapIntegrationLifecycle(Metro plugin, IntegrationFactory integrationFactory, RefreshScheduler refreshScheduler) {
+        this(plugin, integrationFactory, refreshScheduler, new RouteGeometryCache(Runnable::run));
+    }
+
+    MapIntegrationLifecycle(Metro plugin, IntegrationFactory integrationFactory, RefreshScheduler refreshScheduler,
+            RouteGeometryCache routeGeometryCache) {
         this.plugin = plugin;
         this.integrationFactory = integrationFactory;
         this.refreshScheduler = refreshScheduler;
+        this.routeGeometryCache = routeGeometryCache;
+        this.liveTrainLayer = new LiveTrainLayer(plugin, refreshScheduler,
+                command -> SchedulerUtil.asyncRun(plugin, command, 0L),
+                () -> LiveTrainSampler.sample(plugin,
+                        plugin.getConfigFacade().isMapLiveTrainsShowVirtual(),
+                        plugin.getConfigFacade().getMapLiveTrainsMaxMarkers()));
     }
 
     public void enable() {
@@ -42,6 +66,7 @@ public class MapIntegrationLifecycle {
 
     public void disable() {
         cancelQueuedRefresh();
+        liveTrainLayer.stop();
         if (activeIntegration != null) {
             activeIntegration.disable();
         }
@@ -49,16 +74,59 @@ public class MapIntegrationLifecycle {
         activeProvider = null;
     }
 
+    /**
+     * Rebuild stale route geometry on the worker, then re-render the active provider on the server thread.
+     * When nothing is stale the provider is refreshed immediately.
+     */
     public void refresh() {
         try {
             if (!activateConfiguredProvider()) {
                 return;
             }
-            activeIntegration.refresh();
+            MapIntegration integration = activeIntegration;
+            CompletableFuture<Void> prepared = prepareRouteGeometry();
+            if (prepared.isDone()) {
+                refreshIntegration(integration);
+                return;
+            }
+            prepared.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    plugin.getLogger().warning("[Map] Failed to prepare route geometry: " + error.getMessage());
+                }
+                refreshScheduler.schedule(plugin, () -> {
+                    if (integration == activeIntegration) {
+                        refreshIntegration(integration);
+                    }
+                }, 1L, -1L);
+            });
+        } catch (Throwable e) {
+            plugin.getLogger().warning("[Map] Failed to refresh " + activeProvider
+                    + " integration: " + e.getMessage());
+        }
+    }
+
+    private void refreshIntegration(MapIntegration integration) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        long startNanos = profiler == null ? 0L : profiler.start();
+        try {
+            integration.refresh();
+            syncLiveTrainLayer();
         } catch (Throwable e) {
             plugin.getLogger().warning("[Map] Failed to refresh " + activeProvider
                     + " integration: " + e.getMessage());
+        } finally {
+            if (profiler != null) {
+                profiler.stop(ProfilerSection.MAP_REFRESH, startNanos);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> prepareRouteGeometry() {
+        if (plugin.getLineManager() == null || plugin.getConfigFacade() == null) {
+            return CompletableFuture.completedFuture(null);
         }
+        return routeGeometryCache.prepare(plugin.getLineManager().getAllLines(),
+                plugin.getConfigFacade().getMapRouteLodTolerances());
     }
 
     public void requestRefresh() {
@@ -74,6 +142,24 @@ public class MapIntegrationLifecycle {
         }, delay, -1L);
     }
 
+    /**
+     * Latest live train positions sampled for the web map, or an empty snapshot when the layer is off.
+     */
+    public LiveTrainSnapshot getLiveTrainSnapshot() {
+        return liveTrainLayer.getLatestSnapshot();
+    }
+
+    private void syncLiveTrainLayer() {
+        boolean wanted = activeIntegration != null && plugin.getConfigFacade().isMapLiveTrainsEnabled();
+        if (wanted != liveTrainLayer.isRunning()) {
+            if (wanted) {
+                liveTrainLayer.start(activeIntegration, activeProvider);
+            } else {
+                liveTrainLayer.stop();
+            }
+        }
+    }
+
     private void cancelQueuedRefresh() {
         if (refreshTaskId != null) {
             refreshScheduler.cancel(refreshTaskId);
@@ -118,6 +204,7 @@ public class MapIntegrationLifecycle {
             }
             activeProvider = provider;
             activeIntegration.enable();
+            liveTrainLayer.start(activeIntegration, activeProvider);
             return true;
         } catch (Throwable e) {
             plugin.getLogger().info("[Map] " + provider + " API not found, skipping map integration.");
@@ -143,6 +230,7 @@ public class MapIntegrationLifecycle {
                 activeProvider = provider;
                 plugin.getLogger().info("[Map] AUTO selected " + provider + " map provider.");
                 activeIntegration.enable();
+                liveTrainLayer.start(activeIntegration, activeProvider);
                 return true;
             } catch (Throwable e) {
                 plugin.getLogger().info("[Map] " + provider + " API not found, skipping map integration.");
@@ -156,11 +244,12 @@ public class MapIntegrationLifecycle {
         return provider == null ? null : provider.trim().toUpperCase(Locale.ROOT);
     }
 
-    private static MapIntegration createDefaultIntegration(Metro plugin, String provider) {
+    private static MapIntegration createDefaultIntegration(Metro plugin, String provider,
+            RouteGeometryCache routeGeometryCache) {
         return switch (provider) {
-            case "BLUEMAP" -> new BlueMapIntegration(plugin);
-            case "DYNMAP" -> new DynmapIntegration(plugin);
-            case "SQUAREMAP" -> new SquaremapIntegration(plugin);
+            case "BLUEMAP" -> new BlueMapIntegration(plugin, routeGeometryCache);
+            case "DYNMAP" -> new DynmapIntegration(plugin, routeGeometryCache);
+            case "SQUAREMAP" -> new SquaremapIntegration(plugin, routeGeometryCache);
             default -> null;
         };
     }
@@ -1,26 +1,33 @@
 package org.cubexmc.metro.listener;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.metadata.FixedMetadataValue;
-import org.bukkit.metadata.MetadataValue;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.config.ConfigFacade;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.manager.StopManager;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
 import org.cubexmc.metro.util.MetroConstants;
 import org.cubexmc.metro.util.SchedulerUtil;
 import org.cubexmc.metro.util.TextUtil;
@@ -29,107 +36,231 @@ import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.TextComponent;
 
 /**
- * 监听玩家移动事件，用于检测玩家进入停靠区
+ * 按固定间隔采样在线玩家，检测玩家进入或离开停靠区并显示站台信息。
+ *
+ * <p>Stop lookups are bounded by the sample rate rather than by movement volume. Paper and Spigot
+ * sample every online player in one global pass; Folia gives each player a repeating task on the
+ * entity scheduler, so every sample runs on the region that owns the player. The
+ * {@code railway.use} check is cached per player and invalidated when the server resends the
+ * command tree (which follows op and permission changes), on world changes, and periodically.
  */
-public class PlayerMoveListener implements Listener {
+public class StopPresenceTracker implements Listener {
+
+    /** 权限缓存的兜底有效期，单位 tick */
+    private static final int PERMISSION_RECHECK_TICKS = 100;
 
     private final Metro plugin;
-    private final Map<UUID, String> playerInStopMap = new ConcurrentHashMap<>(); // 记录玩家当前所在的停靠区ID
+    private final Map<UUID, PresenceState> states = new ConcurrentHashMap<>();
     private final Map<UUID, Object> continuousInfoTasks = new ConcurrentHashMap<>(); // 记录持续显示信息的任务ID
     private final Map<UUID, Object> actionBarTasks = new ConcurrentHashMap<>(); // 记录专门的ActionBar显示任务ID
+    private final Map<UUID, Object> playerSampleTasks = new ConcurrentHashMap<>(); // Folia 下每个玩家的采样任务
+    private Object sampleTask;
+    private volatile boolean running;
+    private volatile int sampleIntervalTicks = 1;
+
+    /**
+     * 单个玩家的采样状态，只在拥有该玩家的线程上读写。
+     */
+    private static final class PresenceState {
+        String stopId; // 当前所在的停靠区ID
+        boolean permissionKnown;
+        boolean canUse;
+        int samplesUntilPermissionCheck;
+        World lastWorld; // 上次查询停靠区时的方块，未移动则跳过查询
+        int lastX;
+        int lastY;
+        int lastZ;
+        final Set<String> firstRunShown = new HashSet<>(); // 仅进入时显示一次的停靠区
+    }
 
-    public PlayerMoveListener(Metro plugin) {
+    public StopPresenceTracker(Metro plugin) {
         this.plugin = plugin;
     }
 
-    @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
-    public void onPlayerMove(PlayerMoveEvent event) {
-        // 只有玩家从一个方块移动到另一个方块时才检查，优化性能
-        if (isSameBlock(event.getFrom(), event.getTo())) {
-            return;
+    /**
+     * 按当前配置的采样间隔（重新）开始采样。
+     */
+    public void start() {
+        stopSampling();
+        sampleIntervalTicks = Math.max(1, plugin.getConfigFacade().getStopPresenceSampleIntervalTicks());
+        running = true;
+        if (SchedulerUtil.isFolia()) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                startPlayerSampling(player);
+            }
+        } else {
+            sampleTask = SchedulerUtil.globalRun(plugin, this::sampleOnlinePlayers,
+                    sampleIntervalTicks, sampleIntervalTicks);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (running && SchedulerUtil.isFolia()) {
+            startPlayerSampling(event.getPlayer());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        Object task = playerSampleTasks.remove(playerId);
+        if (task != null) {
+            SchedulerUtil.cancelTask(task);
+        }
+        cancelContinuousInfoTask(playerId);
+        cancelActionBarTask(playerId);
+        states.remove(playerId);
+    }
+
+    /**
+     * 权限变更（包括 op 变更与权限插件重算）后服务器会重新发送命令树。
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerCommandSend(PlayerCommandSendEvent event) {
+        invalidatePermission(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        invalidatePermission(event.getPlayer());
+    }
+
+    private void invalidatePermission(Player player) {
+        PresenceState state = states.get(player.getUniqueId());
+        if (state != null) {
+            state.permissionKnown = false;
         }
+    }
+
+    private void sampleOnlinePlayers() {
+        TickProfiler profiler = plugin.getTickProfiler();
+        long startNanos = profiler == null ? 0L : profiler.start();
+        try {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                sample(player);
+            }
+        } finally {
+            if (profiler != null) {
+                profiler.stop(ProfilerSection.STOP_PRESENCE, startNanos);
+            }
+        }
+    }
 
-        Player player = event.getPlayer();
-        if (!player.hasPermission("railway.use")) {
+    private void startPlayerSampling(Player player) {
+        UUID playerId = player.getUniqueId();
+        Object previous = playerSampleTasks.remove(playerId);
+        if (previous != null) {
+            SchedulerUtil.cancelTask(previous);
+        }
+        Object task = SchedulerUtil.entityRun(plugin, player, () -> {
+            TickProfiler profiler = plugin.getTickProfiler();
+            long startNanos = profiler == null ? 0L : profiler.start();
+            try {
+                sample(player);
+            } finally {
+                if (profiler != null) {
+                    profiler.stop(ProfilerSection.STOP_PRESENCE, startNanos);
+                }
+            }
+        }, () -> playerSampleTasks.remove(playerId), sampleIntervalTicks, sampleIntervalTicks);
+        playerSampleTasks.put(playerId, task);
+    }
+
+    void sample(Player player) {
+        if (!player.isOnline()) {
+            return;
+        }
+        UUID playerId = player.getUniqueId();
+        PresenceState state = states.computeIfAbsent(playerId, id -> new PresenceState());
+        if (!canUse(player, state)) {
+            // 忘记上次查询的方块，重新获得权限后原地不动也能再次进入停靠区
+            state.lastWorld = null;
+            if (state.stopId != null) {
+                leaveStop(player, state);
+            }
             return;
         }
 
         // 检查玩家是否在矿车内，如果在矿车内则不显示站台信息
-        if (player.isInsideVehicle() && player.getVehicle() instanceof org.bukkit.entity.Minecart) {
-            org.bukkit.entity.Minecart minecart = (org.bukkit.entity.Minecart) player.getVehicle();
-            // 检查是否是Metro的矿车
-            if (minecart.getPersistentDataContainer().has(MetroConstants.getMinecartKey(),
-                    org.bukkit.persistence.PersistentDataType.BYTE)) {
-                // 如果玩家在Metro矿车内，取消站台信息显示
-                UUID playerId = player.getUniqueId();
-                String currentStopId = playerInStopMap.remove(playerId);
-                if (currentStopId != null) {
-                    cancelContinuousInfoTask(playerId);
-                    cancelActionBarTask(playerId);
-                }
-                return;
+        if (isInMetroMinecart(player)) {
+            // 如果玩家在Metro矿车内，取消站台信息显示
+            state.lastWorld = null;
+            if (state.stopId != null) {
+                state.stopId = null;
+                cancelContinuousInfoTask(playerId);
+                cancelActionBarTask(playerId);
             }
+            return;
         }
 
-        // 玩家不在矿车内，正常处理站台信息
+        // 只有玩家换了方块才重新查询停靠区
         Location location = player.getLocation();
-        StopManager stopManager = plugin.getStopManager();
-        Stop stop = stopManager.getStopContainingLocation(location);
-
-        UUID playerId = player.getUniqueId();
-        String currentStopId = playerInStopMap.get(playerId);
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        if (world != null && world == state.lastWorld && x == state.lastX && y == state.lastY && z == state.lastZ) {
+            return;
+        }
+        state.lastWorld = world;
+        state.lastX = x;
+        state.lastY = y;
+        state.lastZ = z;
 
-        // 检查玩家是否进入了新的停靠区
+        // 玩家不在矿车内，正常处理站台信息
+        Stop stop = plugin.getStopManager().getStopContainingLocation(location);
         if (stop != null) {
             String stopId = stop.getId();
-            if (!stopId.equals(currentStopId)) {
+            if (!stopId.equals(state.stopId)) {
                 // 玩家进入了新的停靠区
-                playerInStopMap.put(playerId, stopId);
+                state.stopId = stopId;
 
                 // 取消原来的持续显示任务
                 cancelContinuousInfoTask(playerId);
 
                 // 启动新的持续显示任务
                 if (plugin.getConfigFacade().isStopContinuousTitleEnabled()) {
-                    startContinuousInfoTask(player, stop);
+                    startContinuousInfoTask(player, stop, state);
                 }
             }
-        } else if (currentStopId != null) {
-            // 玩家离开了停靠区
-            playerInStopMap.remove(playerId);
-            cancelContinuousInfoTask(playerId);
-            cancelActionBarTask(playerId); // 取消ActionBar任务
-
-            // 立即清除title和actionbar显示
-            player.resetTitle();
-            // 发送空的ActionBar来清除显示
-            player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(""));
-
-            // 清除首次运行标记
-            String lastStopId = currentStopId;
-            if (lastStopId != null) {
-                player.removeMetadata("metro_first_run_" + lastStopId, plugin);
-            }
+        } else if (state.stopId != null) {
+            leaveStop(player, state);
         }
     }
 
     /**
-     * 检查两个位置是否在同一方块内
+     * 玩家离开了停靠区
      */
-    private boolean isSameBlock(Location from, Location to) {
-        if (from == null || to == null) {
-            return true;
-        }
+    private void leaveStop(Player player, PresenceState state) {
+        UUID playerId = player.getUniqueId();
+        String lastStopId = state.stopId;
+        state.stopId = null;
+        cancelContinuousInfoTask(playerId);
+        cancelActionBarTask(playerId); // 取消ActionBar任务
+
+        // 立即清除title和actionbar显示
+        player.resetTitle();
+        // 发送空的ActionBar来清除显示
+        player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(""));
+
+        // 清除首次运行标记
+        state.firstRunShown.remove(lastStopId);
+    }
 
-        return from.getBlockX() == to.getBlockX()
-                && from.getBlockY() == to.getBlockY()
-                && from.getBlockZ() == to.getBlockZ();
+    private boolean canUse(Player player, PresenceState state) {
+        if (!state.permissionKnown || --state.samplesUntilPermissionCheck < 0) {
+            state.canUse = player.hasPermission("railway.use");
+            state.permissionKnown = true;
+            state.samplesUntilPermissionCheck = Math.max(1, PERMISSION_RECHECK_TICKS / sampleIntervalTicks);
+        }
+        return state.canUse;
     }
 
     /**
      * 启动持续显示停靠区信息的任务
      */
-    private void startContinuousInfoTask(Player player, Stop stop) {
+    private void startContinuousInfoTask(Player player, Stop stop, PresenceState state) {
         UUID playerId = player.getUniqueId();
 
         // 取消已有的ActionBar任务
@@ -146,7 +277,7 @@ public class PlayerMoveListener implements Listener {
             }
             singleLine = terminalLines.get(0);
         } else if (boardableLines.size() > 1) {
-            startMultiLineInfoTask(player, stop, boardableLines);
+            startMultiLineInfoTask(player, stop, boardableLines, state);
             return;
         } else {
             singleLine = boardableLines.get(0);
@@ -239,7 +370,7 @@ public class PlayerMoveListener implements Listener {
                     }
 
                     if (!player.isOnline() || !stop.isInStop(player.getLocation())) {
-                        // 不要在这里取消任务，让外部的PlayerMoveEvent来处理
+                        // 不要在这里取消任务，由采样检测到离开后处理
                         // cancelActionBarTask(playerId);
                         return;
                     }
@@ -266,7 +397,7 @@ public class PlayerMoveListener implements Listener {
                     }
 
                     if (!player.isOnline() || !stop.isInStop(player.getLocation())) {
-                        // 不要在这里取消任务，让外部的PlayerMoveEvent来处理
+                        // 不要在这里取消任务，由采样检测到离开后处理
                         // cancelContinuousInfoTask(playerId);
                         return;
                     }
@@ -291,12 +422,7 @@ public class PlayerMoveListener implements Listener {
             }, 0L, interval);
             continuousInfoTasks.put(playerId, titleTaskId);
         } else {
-            String metaKey = "metro_first_run_" + stop.getId();
-            List<MetadataValue> metaList = player.getMetadata(metaKey);
-
-            if (metaList.isEmpty()) {
-                player.setMetadata(metaKey, new FixedMetadataValue(plugin, true));
-
+            if (state.firstRunShown.add(stop.getId())) {
                 boolean inMetroMinecart = false;
                 if (player.isInsideVehicle() && player.getVehicle() instanceof org.bukkit.entity.Minecart) {
                     org.bukkit.entity.Minecart mc_vehicle = (org.bukkit.entity.Minecart) player.getVehicle();
@@ -343,7 +469,7 @@ public class PlayerMoveListener implements Listener {
         }
     }
 
-    private void startMultiLineInfoTask(Player player, Stop stop, List<Line> boardableLines) {
+    private void startMultiLineInfoTask(Player player, Stop stop, List<Line> boardableLines, PresenceState state) {
         UUID playerId = player.getUniqueId();
         ConfigFacade config = plugin.getConfigFacade();
         int interval = config.getStopContinuousInterval();
@@ -410,12 +536,7 @@ public class PlayerMoveListener implements Listener {
             }, 0L, interval);
             continuousInfoTasks.put(playerId, titleTaskId);
         } else {
-            String metaKey = "metro_first_run_" + stop.getId();
-            List<MetadataValue> metaList = player.getMetadata(metaKey);
-
-            if (metaList.isEmpty()) {
-                player.setMetadata(metaKey, new FixedMetadataValue(plugin, true));
-
+            if (state.firstRunShown.add(stop.getId())) {
                 if (!isInMetroMinecart(player)) {
                     player.sendTitle(translatedTitle, translatedSubtitle, singleFadeIn, singleStay, singleFadeOut);
 
@@ -482,10 +603,23 @@ public class PlayerMoveListener implements Listener {
         }
     }
 
+    private void stopSampling() {
+        running = false;
+        if (sampleTask != null) {
+            SchedulerUtil.cancelTask(sampleTask);
+            sampleTask = null;
+        }
+        for (Object taskId : playerSampleTasks.values()) {
+            SchedulerUtil.cancelTask(taskId);
+        }
+        playerSampleTasks.clear();
+    }
+
     /**
      * 插件关闭时主动清理所有显示任务和缓存状态
      */
     public void shutdown() {
+        stopSampling();
         for (Object taskId : continuousInfoTasks.values()) {
             SchedulerUtil.cancelTask(taskId);
         }
@@ -494,6 +628,6 @@ public class PlayerMoveListener implements Listener {
         }
         continuousInfoTasks.clear();
         actionBarTasks.clear();
-        playerInStopMap.clear();
+        states.clear();
     }
 }
@@ -1,6 +1,12 @@
 package org.cubexmc.metro.listener;
 
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Minecart;
 import org.bukkit.entity.Player;
@@ -14,14 +20,19 @@ import org.bukkit.event.vehicle.VehicleDestroyEvent;
 import org.bukkit.event.vehicle.VehicleEntityCollisionEvent;
 import org.bukkit.event.vehicle.VehicleExitEvent;
 import org.bukkit.event.vehicle.VehicleMoveEvent;
-import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.event.world.EntitiesUnloadEvent;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.Vector;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.config.ConfigFacade;
 import org.cubexmc.metro.event.TrainEnterStopEvent;
 import org.cubexmc.metro.event.TrainExitStopEvent;
 import org.cubexmc.metro.manager.StopManager;
 import org.cubexmc.metro.model.Portal;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
+import org.cubexmc.metro.telemetry.TrainTelemetrySnapshot.StopTransition;
 import org.cubexmc.metro.train.TrainMovementTask;
 import org.cubexmc.metro.util.LocationUtil;
 import org.cubexmc.metro.util.MetroConstants;
@@ -32,14 +43,40 @@ import org.cubexmc.metro.util.SchedulerUtil;
  */
 public class VehicleListener implements Listener {
 
+    /** 清理空闲矿车状态的间隔；两次清理之间一次都没移动过的矿车状态会被丢弃 */
+    private static final long STATE_SWEEP_INTERVAL_TICKS = 20L * 60L;
+
     private final Metro plugin;
     private final org.bukkit.NamespacedKey CURRENT_STOP_KEY;
+    // 按 UUID 缓存，不持有实体引用；区块卸载、矿车摧毁或移除时丢弃，重新加载后从 PDC 恢复
+    private final java.util.Map<UUID, CartMoveState> cartStates = new ConcurrentHashMap<>();
+    private final AtomicLong moveSequence = new AtomicLong();
+    private volatile long lastSweepSequence = -1L;
+    private Object sweepTask;
+    private volatile VehicleMoveRules rules = VehicleMoveRules.EMPTY;
 
     public VehicleListener(Metro plugin) {
         this.plugin = plugin;
         this.CURRENT_STOP_KEY = new org.bukkit.NamespacedKey(plugin, "current_stop_id");
     }
 
+    /**
+     * 开始定时清理空闲矿车状态。
+     */
+    public void start() {
+        shutdown();
+        sweepTask = SchedulerUtil.globalRun(plugin, this::sweepIdleStates,
+                STATE_SWEEP_INTERVAL_TICKS, STATE_SWEEP_INTERVAL_TICKS);
+    }
+
+    public void shutdown() {
+        if (sweepTask != null) {
+            SchedulerUtil.cancelTask(sweepTask);
+            sweepTask = null;
+        }
+        cartStates.clear();
+    }
+
     /**
      * 监听玩家离开矿车事件
      */
@@ -63,6 +100,7 @@ public class VehicleListener implements Listener {
 
         // 玩家下车，清除其界面显示
         plugin.getScoreboardManager().clearPlayerDisplay(player);
+        cartStates.remove(minecart.getUniqueId());
 
         // 获取当前位置
         Location location = minecart.getLocation();
@@ -95,6 +133,18 @@ public class VehicleListener implements Listener {
      */
     @EventHandler(priority = EventPriority.NORMAL)
     public void onVehicleMove(VehicleMoveEvent event) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        long startNanos = profiler == null ? 0L : profiler.start();
+        try {
+            handleVehicleMove(event);
+        } finally {
+            if (profiler != null) {
+                profiler.stop(ProfilerSection.VEHICLE_LISTENER, startNanos);
+            }
+        }
+    }
+
+    private void handleVehicleMove(VehicleMoveEvent event) {
         Vehicle vehicle = event.getVehicle();
 
         // 只处理地铁矿车
@@ -103,119 +153,217 @@ public class VehicleListener implements Listener {
         }
 
         Minecart minecart = (Minecart) vehicle;
-        PersistentDataContainer pdc = minecart.getPersistentDataContainer();
-
-        // 检查是否是Metro的矿车
-        if (!isMetroMinecart(minecart)) {
+        CartMoveState state = stateFor(minecart);
+        if (state == null) {
             return;
         }
 
         Location from = event.getFrom();
         Location to = event.getTo();
-        
+
+        // 仍在同一方块内：站台、轨道与传送门判定都不会变化，只保留速度保护
+        if (state.enterBlock(to, moveSequence.incrementAndGet())) {
+            if (!handleBlockChange(minecart, state, to)) {
+                return;
+            }
+        } else if (minecart.getMaxSpeed() == 0.0) {
+            minecart.setVelocity(new Vector(0, 0, 0));
+            return;
+        }
+
+        // 限制上坡速度为0.4，防止到达坡顶后倒退
+        if (minecart.getMaxSpeed() > 0.0 && to.getY() > from.getY()) {
+            Vector direction = LocationUtil.getDirectionVector(from, to);
+            minecart.setVelocity(direction.multiply(0.4));
+        }
+    }
+
+    /**
+     * 矿车进入新方块时的处理：站台进出、脱轨、方块限速与传送门。
+     *
+     * @return false 表示矿车已被冻结、移除或传送，不再做上坡限速
+     */
+    private boolean handleBlockChange(Minecart minecart, CartMoveState state, Location to) {
         // --- 区域事件 (Event-Driven Architecture) 火力侦测 ---
         StopManager stopManager = plugin.getStopManager();
         org.cubexmc.metro.model.Stop currentStop = stopManager.getStopContainingLocation(to);
         String currentStopId = currentStop != null ? currentStop.getId() : null;
-        String previousStopId = pdc.get(CURRENT_STOP_KEY, PersistentDataType.STRING);
-        
+        String previousStopId = state.currentStopId;
+
         if (currentStopId != null && !currentStopId.equals(previousStopId)) {
             // 进入了新站
-            pdc.set(CURRENT_STOP_KEY, PersistentDataType.STRING, currentStopId);
+            state.currentStopId = currentStopId;
+            minecart.getPersistentDataContainer().set(CURRENT_STOP_KEY, PersistentDataType.STRING, currentStopId);
             TrainEnterStopEvent enterEvent = new TrainEnterStopEvent(minecart, currentStop);
             org.bukkit.Bukkit.getPluginManager().callEvent(enterEvent);
+            recordTransition(minecart, currentStopId, StopTransition.ENTER);
         } else if (currentStopId == null && previousStopId != null) {
             // 离开了老站
             org.cubexmc.metro.model.Stop previousStop = stopManager.getStop(previousStopId);
-            pdc.remove(CURRENT_STOP_KEY);
+            state.currentStopId = null;
+            minecart.getPersistentDataContainer().remove(CURRENT_STOP_KEY);
             if (previousStop != null) {
                 TrainExitStopEvent exitEvent = new TrainExitStopEvent(minecart, previousStop);
                 org.bukkit.Bukkit.getPluginManager().callEvent(exitEvent);
             }
+            recordTransition(minecart, previousStopId, StopTransition.EXIT);
         }
 
-        if (LocationUtil.isOnRail(to)) {
-            if (minecart.getMaxSpeed() == 0.0) {
-                // 如果被 TrainMovementTask 冻结，强制停止所有的微小位移
-                minecart.setVelocity(new Vector(0, 0, 0));
-                return;
+        // 每个方块只读一次所在列：轨道方块、其下的支撑方块，必要时再往下一格
+        org.bukkit.block.Block block = to.getBlock();
+        Material blockType = block == null ? null : block.getType();
+        org.bukkit.block.Block blockBelow = block == null ? null : block.getRelative(org.bukkit.block.BlockFace.DOWN);
+        Material belowType = blockBelow == null ? null : blockBelow.getType();
+
+        if (!VehicleMoveRules.isRail(blockType) && !VehicleMoveRules.isRail(belowType)) {
+            // 矿车已脱轨，强制乘客下车并移除矿车
+            cartStates.remove(minecart.getUniqueId());
+            minecart.eject();
+            minecart.remove();
+            return false;
+        }
+
+        if (minecart.getMaxSpeed() == 0.0) {
+            // 如果被 TrainMovementTask 冻结，强制停止所有的微小位移
+            minecart.setVelocity(new Vector(0, 0, 0));
+            return false;
+        }
+
+        ConfigFacade config = plugin.getConfigFacade();
+        VehicleMoveRules moveRules = rules(config);
+
+        // BLOCK_BASED 控制逻辑
+        // 忽略已经被 TrainMovementTask 设置为停站状态 (maxSpeed == 0) 的矿车
+        if ("BLOCK_BASED".equalsIgnoreCase(config.getSpeedControlMode())) {
+            minecart.setMaxSpeed(0.4 * moveRules.speedFactor(to.getWorld().getName(), belowType));
+        }
+
+        // ---- 传送门检测 ----
+        if (config.isPortalsEnabled() && plugin.getPortalManager() != null && moveRules.hasTriggers()) {
+            // 矿车的坐标可能飘忽不定，如果 to.getBlock() 正好是铁轨，则 blockBelow 是支撑方块；
+            // 如果 to.getBlock() 是铁轨上方的空气方块，则 blockBelow 是铁轨，再往下一格才是支撑方块；
+            // 防呆：有时候玩家直接把铁轨铺在非常特殊的高度上，触发方块就在当前方块。
+            boolean isTriggered = moveRules.isTrigger(belowType) || moveRules.isTrigger(blockType);
+            if (!isTriggered && blockBelow != null) {
+                org.bukkit.block.Block blockBelow2 = blockBelow.getRelative(org.bukkit.block.BlockFace.DOWN);
+                isTriggered = blockBelow2 != null && moveRules.isTrigger(blockBelow2.getType());
             }
 
-            // BLOCK_BASED 控制逻辑
-            // 忽略已经被 TrainMovementTask 设置为停站状态 (maxSpeed == 0) 的矿车
-            if ("BLOCK_BASED".equalsIgnoreCase(plugin.getConfigFacade().getSpeedControlMode())) {
-                org.bukkit.block.Block blockBelow = to.getBlock().getRelative(org.bukkit.block.BlockFace.DOWN);
-                String blockTypeName = blockBelow.getType().name();
-                java.util.Map<String, java.util.Map<String, Double>> allWorldsMap = plugin.getConfigFacade().getBlockSpeedMap();
-                
-                String worldName = to.getWorld().getName();
-                java.util.Map<String, Double> speedMap = allWorldsMap.get(worldName);
-                if (speedMap == null || speedMap.isEmpty()) {
-                    speedMap = allWorldsMap.get("default");
+            if (isTriggered) {
+                Portal portal = plugin.getPortalManager().getPortalAt(to);
+                if (portal == null) {
+                    // 尝试往下偏移一格检测（有时玩家脚踩位置低于/高于实际判定中心）
+                    portal = plugin.getPortalManager().getPortalAt(to.clone().subtract(0, 1, 0));
                 }
-                
-                if (speedMap != null) {
-                    if (speedMap.containsKey(blockTypeName)) {
-                        minecart.setMaxSpeed(0.4 * speedMap.get(blockTypeName));
-                    } else if (speedMap.containsKey("DEFAULT")) {
-                        minecart.setMaxSpeed(0.4 * speedMap.get("DEFAULT"));
-                    } else {
-                        minecart.setMaxSpeed(0.4);
+                if (portal != null) {
+                    if (isPortalEnabledForCurrentLine(minecart, portal)) {
+                        plugin.getPortalManager().teleportMinecart(minecart, portal);
+                        return false; // 传送后不再处理后续逻辑
                     }
                 } else {
-                    minecart.setMaxSpeed(0.4);
+                    plugin.getLogger().warning("[Debug-Portal] 矿车经过了触发方块 (" + config.getPortalTriggerBlock() + ")，但该坐标 " + to.getBlockX() + " " + to.getBlockY() + " " + to.getBlockZ() + " 并没有绑定任何传送门入口！请重新站在上面执行 /metro portal create");
                 }
             }
+        }
+        return true;
+    }
 
-            // ---- 传送门检测 ----
-            if (plugin.getConfigFacade().isPortalsEnabled() && plugin.getPortalManager() != null) {
-                String triggerBlockType = plugin.getConfigFacade().getPortalTriggerBlock();
-                org.bukkit.block.Block blockBelow = to.getBlock().getRelative(org.bukkit.block.BlockFace.DOWN);
-                org.bukkit.block.Block blockBelow2 = blockBelow.getRelative(org.bukkit.block.BlockFace.DOWN);
-                
-                boolean isTriggered = false;
-                org.bukkit.block.Block matchedBlock = null;
-
-                // 矿车的坐标可能飘忽不定，如果 to.getBlock() 正好是铁轨，则 blockBelow 是支撑方块。
-                if (blockBelow.getType().name().equals(triggerBlockType)) {
-                    isTriggered = true;
-                } else if (blockBelow2.getType().name().equals(triggerBlockType)) {
-                    // 如果 to.getBlock() 是铁轨上方的空气方块，则 blockBelow 是铁轨，blockBelow2 是支撑方块。
-                    isTriggered = true;
-                } else if (to.getBlock().getType().name().equals(triggerBlockType)) {
-                    // 防呆：有时候玩家直接把铁轨铺在非常特殊的高度上。
-                    isTriggered = true;
-                }
+    /**
+     * 取得矿车的内存状态；首次见到时读取一次 PDC，之后的移动不再访问 PDC。
+     * 只缓存地铁矿车的状态；普通矿车每次移动都重新检查 PDC 标记，以便之后被打上标记的矿车
+     * （例如从停车池取出的传送门目标矿车）立即生效。
+     *
+     * @return 地铁矿车的状态，普通矿车返回 null
+     */
+    private CartMoveState stateFor(Minecart minecart) {
+        UUID cartId = minecart.getUniqueId();
+        CartMoveState state = cartStates.get(cartId);
+        if (state != null) {
+            return state;
+        }
+        if (!isMetroMinecart(minecart)) {
+            return null;
+        }
+        state = new CartMoveState(moveSequence.get());
+        state.currentStopId = minecart.getPersistentDataContainer().get(CURRENT_STOP_KEY, PersistentDataType.STRING);
+        CartMoveState existing = cartStates.putIfAbsent(cartId, state);
+        return existing != null ? existing : state;
+    }
 
-                if (isTriggered) {
-                    Portal portal = plugin.getPortalManager().getPortalAt(to);
-                    if (portal == null) {
-                        // 尝试往下偏移一格检测（有时玩家脚踩位置低于/高于实际判定中心）
-                        portal = plugin.getPortalManager().getPortalAt(to.clone().subtract(0, 1, 0));
-                    }
-                    if (portal != null) {
-                        if (isPortalEnabledForCurrentLine(minecart, portal)) {
-                            plugin.getPortalManager().teleportMinecart(minecart, portal);
-                            return; // 传送后不再处理后续逻辑
-                        }
-                    } else {
-                        plugin.getLogger().warning("[Debug-Portal] 矿车经过了触发方块 (" + triggerBlockType + ")，但该坐标 " + to.getBlockX() + " " + to.getBlockY() + " " + to.getBlockZ() + " 并没有绑定任何传送门入口！请重新站在上面执行 /metro portal create");
-                    }
-                }
-            }
+    /**
+     * 把进站/出站记入遥测的下一份快照；没有订阅者时直接跳过。
+     */
+    private void recordTransition(Minecart minecart, String stopId, StopTransition type) {
+        TrainTelemetryHub hub = plugin.getTelemetryHub();
+        if (hub == null || !hub.isActive()) {
+            return;
+        }
+        TrainMovementTask task = TrainMovementTask.getTaskFor(minecart);
+        org.cubexmc.metro.model.Line line = task == null ? null : task.getLine();
+        hub.recordTransition(minecart.getUniqueId(), line == null ? null : line.getId(), stopId, type);
+    }
+
+    /**
+     * 丢弃矿车的缓存状态。矿车被打上或去掉地铁标记、停入停车池或移除时调用，
+     * 下次移动会重新从 PDC 读取。
+     */
+    public void forgetCart(Minecart minecart) {
+        if (minecart != null) {
+            cartStates.remove(minecart.getUniqueId());
+        }
+    }
 
-            // 限制上坡速度为0.4，防止到达坡顶后倒退
-            if (minecart.getMaxSpeed() > 0.0 && to.getY() > from.getY()) {
-                Vector direction = LocationUtil.getDirectionVector(from, to);
-                minecart.setVelocity(direction.multiply(0.4));
+    /**
+     * 矿车被摧毁后立即丢弃其状态，不等待空闲清理。
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onVehicleDestroy(VehicleDestroyEvent event) {
+        if (event.getVehicle() instanceof Minecart) {
+            cartStates.remove(event.getVehicle().getUniqueId());
+        }
+    }
+
+    /**
+     * 区块卸载时丢弃其中矿车的状态；实体重新加载后从 PDC 恢复。
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        if (cartStates.isEmpty()) {
+            return;
+        }
+        for (Entity entity : event.getEntities()) {
+            if (entity instanceof Minecart) {
+                cartStates.remove(entity.getUniqueId());
             }
-        } else {
-            // 矿车已脱轨，强制乘客下车并移除矿车
-            minecart.eject();
-            minecart.remove();
         }
     }
 
+    /**
+     * 清理自上次清理以来没有移动过的矿车状态；被清理的矿车下次移动时会重新从 PDC 恢复。
+     * 只访问并发表和 volatile 字段，可在全局线程上运行。
+     */
+    void sweepIdleStates() {
+        long previous = lastSweepSequence;
+        lastSweepSequence = moveSequence.get();
+        cartStates.values().removeIf(state -> state.lastMove <= previous);
+    }
+
+    int getCachedCartCount() {
+        return cartStates.size();
+    }
+
+    private VehicleMoveRules rules(ConfigFacade config) {
+        VehicleMoveRules current = rules;
+        java.util.Map<String, java.util.Map<String, Double>> speedMap = config.getBlockSpeedMap();
+        String triggerBlock = config.getPortalTriggerBlock();
+        if (!current.isCompiledFrom(speedMap, triggerBlock)) {
+            // 配置重载后 ConfigFacade 会生成新的速度表，按引用判断是否需要重新编译
+            current = VehicleMoveRules.compile(speedMap, triggerBlock);
+            rules = current;
+        }
+        return current;
+    }
+
     /**
      * safe_mode.damage_protection：阻止其他实体攻击/破坏地铁矿车
      */
@@ -308,6 +456,43 @@ public class VehicleListener implements Listener {
         return minecart.getPersistentDataContainer().has(MetroConstants.getMinecartKey(), PersistentDataType.BYTE);
     }
 
+    /**
+     * 每辆矿车在内存中的移动状态，只由矿车所在的区域线程访问
+     */
+    private static final class CartMoveState {
+        private World world;
+        private int blockX;
+        private int blockY;
+        private int blockZ;
+        private boolean positioned;
+        private String currentStopId;
+        private volatile long lastMove;
+
+        private CartMoveState(long lastMove) {
+            this.lastMove = lastMove;
+        }
+
+        /**
+         * @return true 表示矿车进入了新的方块（或第一次移动）
+         */
+        private boolean enterBlock(Location to, long sequence) {
+            lastMove = sequence;
+            World toWorld = to.getWorld();
+            int x = to.getBlockX();
+            int y = to.getBlockY();
+            int z = to.getBlockZ();
+            if (positioned && toWorld == world && x == blockX && y == blockY && z == blockZ) {
+                return false;
+            }
+            positioned = true;
+            world = toWorld;
+            blockX = x;
+            blockY = y;
+            blockZ = z;
+            return true;
+        }
+    }
+
     private boolean isPortalEnabledForCurrentLine(Minecart minecart, Portal portal) {
         if (portal == null) {
             return false;
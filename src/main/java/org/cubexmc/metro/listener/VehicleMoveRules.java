@@ -0,0 +1,132 @@
+package org.cubexmc.metro.listener;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bukkit.Material;
+
+/**
+ * Speed and portal rules for metro minecart moves, compiled from {@link org.cubexmc.metro.config.ConfigFacade}
+ * so the move handler compares enum constants instead of material names.
+ */
+final class VehicleMoveRules {
+
+    static final VehicleMoveRules EMPTY = new VehicleMoveRules(null, null, Map.of(), null, EnumSet.noneOf(Material.class));
+
+    /** Same rule as {@code LocationUtil.isOnRail}: any material whose name contains RAIL. */
+    private static final Set<Material> RAIL_MATERIALS = railMaterials();
+
+    private final Map<String, Map<String, Double>> speedSource;
+    private final String triggerSource;
+    private final Map<String, SpeedTable> worldTables;
+    private final SpeedTable defaultTable;
+    /** Portal trigger materials, held as an enum bitset. */
+    private final Set<Material> triggers;
+
+    private VehicleMoveRules(Map<String, Map<String, Double>> speedSource, String triggerSource,
+                             Map<String, SpeedTable> worldTables, SpeedTable defaultTable, Set<Material> triggers) {
+        this.speedSource = speedSource;
+        this.triggerSource = triggerSource;
+        this.worldTables = worldTables;
+        this.defaultTable = defaultTable;
+        this.triggers = triggers;
+    }
+
+    static VehicleMoveRules compile(Map<String, Map<String, Double>> blockSpeedMap, String triggerBlock) {
+        Map<String, SpeedTable> worldTables = new HashMap<>();
+        SpeedTable defaultTable = null;
+        if (blockSpeedMap != null) {
+            for (Map.Entry<String, Map<String, Double>> entry : blockSpeedMap.entrySet()) {
+                // 空表与未配置相同，回退到 default
+                if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                SpeedTable table = SpeedTable.compile(entry.getValue());
+                if ("default".equals(entry.getKey())) {
+                    defaultTable = table;
+                }
+                worldTables.put(entry.getKey(), table);
+            }
+        }
+        Set<Material> triggers = EnumSet.noneOf(Material.class);
+        Material trigger = triggerBlock == null ? null : Material.getMaterial(triggerBlock);
+        if (trigger != null) {
+            triggers.add(trigger);
+        }
+        return new VehicleMoveRules(blockSpeedMap, triggerBlock, worldTables, defaultTable, triggers);
+    }
+
+    boolean isCompiledFrom(Map<String, Map<String, Double>> blockSpeedMap, String triggerBlock) {
+        return speedSource == blockSpeedMap && Objects.equals(triggerSource, triggerBlock);
+    }
+
+    static boolean isRail(Material material) {
+        return material != null && RAIL_MATERIALS.contains(material);
+    }
+
+    /**
+     * Max speed multiplier for a cart whose rail rests on {@code support}.
+     */
+    double speedFactor(String worldName, Material support) {
+        SpeedTable table = worldTables.get(worldName);
+        if (table == null) {
+            table = defaultTable;
+        }
+        if (table == null) {
+            return 1.0;
+        }
+        Double factor = support == null ? null : table.factors.get(support);
+        return factor != null ? factor : table.fallbackFactor;
+    }
+
+    boolean hasTriggers() {
+        return !triggers.isEmpty();
+    }
+
+    boolean isTrigger(Material material) {
+        return material != null && triggers.contains(material);
+    }
+
+    private static Set<Material> railMaterials() {
+        Set<Material> rails = EnumSet.noneOf(Material.class);
+        for (Material material : Material.values()) {
+            if (material.name().contains("RAIL")) {
+                rails.add(material);
+            }
+        }
+        return rails;
+    }
+
+    private static final class SpeedTable {
+        private final EnumMap<Material, Double> factors;
+        private final double fallbackFactor;
+
+        private SpeedTable(EnumMap<Material, Double> factors, double fallbackFactor) {
+            this.factors = factors;
+            this.fallbackFactor = fallbackFactor;
+        }
+
+        private static SpeedTable compile(Map<String, Double> source) {
+            EnumMap<Material, Double> factors = new EnumMap<>(Material.class);
+            double fallbackFactor = 1.0;
+            for (Map.Entry<String, Double> entry : source.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if ("DEFAULT".equals(entry.getKey())) {
+                    fallbackFactor = entry.getValue();
+                    continue;
+                }
+                Material material = Material.getMaterial(entry.getKey());
+                if (material != null) {
+                    factors.put(material, entry.getValue());
+                }
+            }
+            return new SpeedTable(factors, fallbackFactor);
+        }
+    }
+}
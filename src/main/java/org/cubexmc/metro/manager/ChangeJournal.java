@@ -0,0 +1,100 @@
+package org.cubexmc.metro.manager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Monotonic version counter of one manager plus a bounded log of which ids changed at which
+ * version, so readers can ask what changed since a version they already hold.
+ *
+ * <p>Every mutation bumps the version. A mutation whose scope is unknown (a reload, or a save
+ * request that does not name the entity) records a reset, after which older versions can no longer
+ * be answered incrementally; neither can versions that have fallen out of the log.
+ */
+public final class ChangeJournal {
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Ids changed and removed after a version. When {@code complete} is false the journal cannot
+     * tell and the reader has to reload everything.
+     */
+    public record Delta(long version, boolean complete, Set<String> changedIds, Set<String> removedIds) {
+    }
+
+    private record Entry(long version, String id, boolean removed) {
+    }
+
+    private final int capacity;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    // 版本 1 即初始加载；从 0 开始同步的读者总是得到全量
+    private long version = 1L;
+    /** 不早于此版本的读者才能增量同步 */
+    private long horizon = 1L;
+
+    public ChangeJournal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ChangeJournal(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized long recordChanged(String id) {
+        return append(id, false);
+    }
+
+    public synchronized long recordRemoved(String id) {
+        return append(id, true);
+    }
+
+    public synchronized long recordReset() {
+        entries.clear();
+        version++;
+        horizon = version;
+        return version;
+    }
+
+    public synchronized Delta since(long sinceVersion) {
+        if (sinceVersion == version) {
+            return new Delta(version, true, Set.of(), Set.of());
+        }
+        if (sinceVersion < horizon || sinceVersion > version) {
+            return new Delta(version, false, Set.of(), Set.of());
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        Set<String> removed = new LinkedHashSet<>();
+        Iterator<Entry> newestFirst = entries.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Entry entry = newestFirst.next();
+            if (entry.version() <= sinceVersion) {
+                break;
+            }
+            // 只保留每个 id 最新的一次变化
+            if (changed.contains(entry.id()) || removed.contains(entry.id())) {
+                continue;
+            }
+            (entry.removed() ? removed : changed).add(entry.id());
+        }
+        return new Delta(version, true, Set.copyOf(changed), Set.copyOf(removed));
+    }
+
+    private long append(String id, boolean removed) {
+        if (id == null) {
+            return recordReset();
+        }
+        version++;
+        entries.addLast(new Entry(version, id, removed));
+        if (entries.size() > capacity) {
+            horizon = entries.removeFirst().version();
+        }
+        return version;
+    }
+}
@@ -0,0 +1,68 @@
+package org.cubexmc.metro.manager;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.util.ChunkLoadUtil;
+import org.cubexmc.metro.util.SchedulerUtil;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Captures {@link ChunkSnapshot}s for the rail protection worker.
+ *
+ * <p>Each capture is scheduled on the thread owning the chunk. Loaded chunks are snapshotted
+ * immediately; unloaded ones are loaded through Paper's {@code getChunkAtAsync} when available and
+ * otherwise synchronously, one chunk per scheduled task so a large rebuild is spread across ticks.
+ */
+final class ChunkSnapshotSource implements RailProtectionManager.ChunkSource {
+
+    private final Metro plugin;
+
+    ChunkSnapshotSource(Metro plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public CompletableFuture<RailProtectionManager.BlockTypes> capture(World world, int chunkX, int chunkZ) {
+        CompletableFuture<RailProtectionManager.BlockTypes> result = new CompletableFuture<>();
+        Location anchor = new Location(world, (chunkX << 4) + 8, 64, (chunkZ << 4) + 8);
+        SchedulerUtil.regionRun(plugin, anchor, () -> {
+            try {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    result.complete(wrap(world, world.getChunkAt(chunkX, chunkZ)));
+                    return;
+                }
+                CompletableFuture<Chunk> load = ChunkLoadUtil.loadChunkAsync(world, chunkX, chunkZ);
+                if (load == null) {
+                    result.complete(wrap(world, world.getChunkAt(chunkX, chunkZ)));
+                    return;
+                }
+                // Paper 在拥有该区块的线程上回调
+                load.whenComplete((chunk, error) -> {
+                    if (error != null || chunk == null) {
+                        result.complete(null);
+                    } else {
+                        result.complete(wrap(world, chunk));
+                    }
+                });
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.FINE, "[RailProtection] Failed to snapshot chunk "
+                        + chunkX + "," + chunkZ + " in " + world.getName(), e);
+                result.complete(null);
+            }
+        }, 0L, -1L);
+        return result;
+    }
+
+    private static RailProtectionManager.BlockTypes wrap(World world, Chunk chunk) {
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+        return (x, y, z) -> y < minY || y >= maxY ? Material.AIR : snapshot.getBlockType(x & 15, y, z & 15);
+    }
+}
@@ -0,0 +1,99 @@
+package org.cubexmc.metro.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.cubexmc.metro.model.RoutePoint;
+
+/**
+ * Streaming form of the collinear-point simplification: points are fed one at a time and only the
+ * points that survive are kept, plus the single point still waiting for its successor.
+ *
+ * <p>A point is dropped when it lies within {@code epsilon} of the segment from the last kept point
+ * to the next point. That decision needs one point of lookahead and nothing else, so feeding a list
+ * through this class gives exactly the result of simplifying the whole list at once.
+ *
+ * <p>This edits the stored route itself; the Douglas-Peucker levels drawn on web maps come from
+ * {@link org.cubexmc.metro.integration.RouteSimplifier}.
+ */
+final class CollinearRouteSimplifier {
+
+    private final double epsilonSquared;
+    private final boolean enabled;
+    private final List<RoutePoint> kept = new ArrayList<>();
+    private RoutePoint pending;
+
+    /**
+     * @param epsilon maximum distance from the segment for a point to be dropped; 0 keeps every point
+     */
+    CollinearRouteSimplifier(double epsilon) {
+        this.enabled = epsilon > 0;
+        this.epsilonSquared = epsilon * epsilon;
+    }
+
+    void add(RoutePoint point) {
+        if (kept.isEmpty()) {
+            kept.add(point);
+            return;
+        }
+        if (pending != null
+                && (!enabled || !isRedundantCollinear(kept.get(kept.size() - 1), pending, point, epsilonSquared))) {
+            kept.add(pending);
+        }
+        pending = point;
+    }
+
+    int size() {
+        return kept.size() + (pending == null ? 0 : 1);
+    }
+
+    /**
+     * @return the simplified route; the simplifier must not be fed afterwards
+     */
+    List<RoutePoint> finish() {
+        if (pending != null) {
+            kept.add(pending);
+            pending = null;
+        }
+        return Collections.unmodifiableList(kept);
+    }
+
+    static List<RoutePoint> simplify(List<RoutePoint> points, double epsilon) {
+        CollinearRouteSimplifier simplifier = new CollinearRouteSimplifier(epsilon);
+        for (RoutePoint point : points) {
+            simplifier.add(point);
+        }
+        return new ArrayList<>(simplifier.finish());
+    }
+
+    static boolean isRedundantCollinear(RoutePoint a, RoutePoint b, RoutePoint c, double epsSq) {
+        if (!a.worldName().equals(b.worldName()) || !b.worldName().equals(c.worldName())) {
+            return false;
+        }
+
+        double abx = b.x() - a.x();
+        double aby = b.y() - a.y();
+        double abz = b.z() - a.z();
+        double acx = c.x() - a.x();
+        double acy = c.y() - a.y();
+        double acz = c.z() - a.z();
+
+        double abLenSq = abx * abx + aby * aby + abz * abz;
+        if (abLenSq < 1e-12) return true;
+
+        double acLenSq = acx * acx + acy * acy + acz * acz;
+        if (acLenSq < 1e-12) return false;
+
+        double dot = abx * acx + aby * acy + abz * acz;
+        if (dot < 0) return false;
+        if (dot * dot > abLenSq * acLenSq) return false;
+
+        double crossX = aby * acz - abz * acy;
+        double crossY = abz * acx - abx * acz;
+        double crossZ = abx * acy - aby * acx;
+        double distSq = (crossX * crossX + crossY * crossY + crossZ * crossZ) / acLenSq;
+
+        return distSq <= epsSq;
+    }
+}
@@ -35,6 +35,7 @@ public class LineManager {
     private final Map<String, Set<String>> stopToLinesIndex;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private volatile boolean isDirty = false;
+    private final ChangeJournal changes = new ChangeJournal();
 
     public LineManager(Metro plugin) {
         this.plugin = plugin;
@@ -57,6 +58,7 @@ public class LineManager {
         lock.writeLock().lock();
         try {
             lines.clear();
+            changes.recordReset();
             stopToLinesIndex.clear();
             ConfigurationSection linesSection = config.getConfigurationSection("");
 
@@ -209,7 +211,30 @@ public class LineManager {
         }
     }
 
+    /**
+     * 标记配置已修改但不指明是哪个线路，读取变更的一方需要全量同步
+     */
     public void saveConfig() {
+        changes.recordReset();
+        markDirty();
+    }
+
+    /**
+     * 标记某个线路已修改
+     */
+    public void saveConfig(String lineId) {
+        changes.recordChanged(lineId);
+        markDirty();
+    }
+
+    /**
+     * Version counter and change log of this manager's lines.
+     */
+    public ChangeJournal getChangeJournal() {
+        return changes;
+    }
+
+    private void markDirty() {
         this.isDirty = true;
         plugin.requestMapIntegrationRefresh();
     }
@@ -270,7 +295,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         rebuildRailProtection(lineId);
         return true;
     }
@@ -290,7 +315,8 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        changes.recordRemoved(lineId);
+        markDirty();
         rebuildRailProtection(lineId);
         return true;
     }
@@ -316,7 +342,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -338,7 +364,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -362,7 +388,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -379,12 +405,13 @@ public class LineManager {
                     deindexLineStops(line);
                     line.delStop(stopId);
                     indexLineStops(line);
+                    changes.recordChanged(line.getId());
                 }
             }
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        markDirty();
     }
 
     /**
@@ -452,7 +479,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -474,7 +501,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -496,7 +523,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -518,7 +545,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -540,7 +567,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -557,7 +584,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(lineId);
         }
         return changed;
     }
@@ -575,7 +602,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(lineId);
         }
         return changed;
     }
@@ -586,6 +613,7 @@ public class LineManager {
         try {
             for (Line line : lines.values()) {
                 if (line.delPortal(portalId)) {
+                    changes.recordChanged(line.getId());
                     changed = true;
                 }
             }
@@ -593,7 +621,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            markDirty();
         }
     }
 
@@ -616,7 +644,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         rebuildRailProtection(lineId);
         return true;
     }
@@ -632,7 +660,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         rebuildRailProtection(lineId);
         return true;
     }
@@ -648,7 +676,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         rebuildRailProtection(lineId);
         return true;
     }
@@ -664,7 +692,7 @@ public class LineManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(lineId);
         return true;
     }
 
@@ -681,7 +709,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(lineId);
         }
         return changed;
     }
@@ -699,7 +727,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(lineId);
         }
         return changed;
     }
@@ -904,7 +932,7 @@ public class LineManager {
             lock.writeLock().unlock();
         }
         
-        saveConfig();
+        saveConfig(newLineId);
         return true;
     }
 
@@ -0,0 +1,130 @@
+package org.cubexmc.metro.manager;
+
+/**
+ * Open-addressing map from packed block coordinates to a non-negative int, for one world.
+ *
+ * <p>Keys and values live in two parallel primitive arrays with linear probing, so lookups neither
+ * box nor allocate. Coordinates are packed as 26 bits of x, 26 bits of z and 12 bits of y, which
+ * covers the whole vanilla world border and build height.
+ */
+final class PackedBlockMap {
+
+    static final int MISSING = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    /** Stored value + 1, so a zeroed slot is free. */
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    PackedBlockMap() {
+        this(MIN_CAPACITY);
+    }
+
+    PackedBlockMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            int stored = values[slot];
+            if (stored == 0) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return stored - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    boolean contains(long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @return the previous value, or {@link #MISSING}
+     */
+    int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be non-negative: " + value);
+        }
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot] - 1;
+                values[slot] = value + 1;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the keys in slot order
+     */
+    long[] keys() {
+        long[] result = new long[size];
+        int index = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != 0) {
+                result[index++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] == 0) {
+                continue;
+            }
+            int target = mix(oldKeys[slot]) & mask;
+            while (values[target] != 0) {
+                target = (target + 1) & mask;
+            }
+            keys[target] = oldKeys[slot];
+            values[target] = oldValues[slot];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, needed - 1)) << 1;
+        return Math.max(MIN_CAPACITY, capacity);
+    }
+
+    private static int mix(long key) {
+        // 相邻方块只在低位不同，混合后再取模避免聚簇
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,77 @@
+package org.cubexmc.metro.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cubexmc.metro.model.Portal;
+
+/**
+ * Immutable lookup of portal entrances by block, rebuilt whenever the set of entrances changes.
+ *
+ * <p>Each world maps packed block coordinates to the portal there, covering the ±1 Y tolerance of
+ * {@link Portal#matchesLocation}. In front of the per-world maps sits a bitset over hashed chunk
+ * coordinates, so a block in a chunk without any entrance (the usual case for a trigger block that
+ * is not a portal) is rejected by one bit test without touching a map.
+ */
+final class PortalBlockIndex {
+
+    private static final int CHUNK_FILTER_BITS = 1 << 14;
+
+    static final PortalBlockIndex EMPTY = new PortalBlockIndex(Map.of(), new long[CHUNK_FILTER_BITS / 64], new Portal[0]);
+
+    private final Map<String, PackedBlockMap> worlds;
+    private final long[] chunkFilter;
+    private final Portal[] portals;
+
+    private PortalBlockIndex(Map<String, PackedBlockMap> worlds, long[] chunkFilter, Portal[] portals) {
+        this.worlds = worlds;
+        this.chunkFilter = chunkFilter;
+        this.portals = portals;
+    }
+
+    static PortalBlockIndex build(Collection<Portal> entrances) {
+        if (entrances.isEmpty()) {
+            return EMPTY;
+        }
+        List<Portal> ordered = new ArrayList<>(entrances);
+        // 按 id 排序，重叠的 ±1 范围在每次重建后都指向同一个传送门
+        ordered.sort((a, b) -> a.getId().compareTo(b.getId()));
+        Map<String, PackedBlockMap> worlds = new HashMap<>();
+        long[] chunkFilter = new long[CHUNK_FILTER_BITS / 64];
+        for (int dy : new int[] {1, -1, 0}) {
+            for (int ordinal = ordered.size() - 1; ordinal >= 0; ordinal--) {
+                Portal portal = ordered.get(ordinal);
+                if (portal.getWorldName() == null) {
+                    continue;
+                }
+                // 精确高度最后写入，覆盖相邻传送门的 ±1 容差
+                worlds.computeIfAbsent(portal.getWorldName(), name -> new PackedBlockMap())
+                        .put(PackedBlockMap.pack(portal.getX(), portal.getY() + dy, portal.getZ()), ordinal);
+                int bit = chunkBit(portal.getX() >> 4, portal.getZ() >> 4);
+                chunkFilter[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new PortalBlockIndex(worlds, chunkFilter, ordered.toArray(new Portal[0]));
+    }
+
+    Portal get(String worldName, int x, int y, int z) {
+        int bit = chunkBit(x >> 4, z >> 4);
+        if ((chunkFilter[bit >>> 6] & (1L << bit)) == 0L) {
+            return null;
+        }
+        PackedBlockMap world = worlds.get(worldName);
+        if (world == null) {
+            return null;
+        }
+        int ordinal = world.get(PackedBlockMap.pack(x, y, z));
+        return ordinal == PackedBlockMap.MISSING ? null : portals[ordinal];
+    }
+
+    private static int chunkBit(int chunkX, int chunkZ) {
+        int h = chunkX * 0x9E3779B1 + chunkZ * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & (CHUNK_FILTER_BITS - 1);
+    }
+}
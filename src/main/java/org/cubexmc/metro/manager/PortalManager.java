@@ -1,6 +1,7 @@
 package org.cubexmc.metro.manager;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Particle;
@@ -15,7 +16,12 @@ import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.Vector;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.listener.VehicleListener;
+import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Portal;
+import org.cubexmc.metro.service.ConsistPool;
+import org.cubexmc.metro.service.LineServiceManager;
+import org.cubexmc.metro.util.ChunkLoadUtil;
 import org.cubexmc.metro.util.MetroConstants;
 import org.cubexmc.metro.util.MountAwareTeleportUtil;
 
@@ -26,6 +32,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -35,15 +42,23 @@ import java.util.logging.Level;
  */
 public class PortalManager {
 
+    /** 原版矿车的默认最大速度 */
+    private static final double DEFAULT_MINECART_MAX_SPEED = 0.4;
+
     private final Metro plugin;
     private final File portalFile;
     private YamlConfiguration portalConfig;
     private final Map<String, Portal> portals = new HashMap<>();
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 入口方块索引，在写锁内随入口增删重建，查询时无需加锁 */
+    private volatile PortalBlockIndex entranceIndex = PortalBlockIndex.EMPTY;
     private volatile boolean isDirty = false;
+    private final ChangeJournal changes = new ChangeJournal();
+    private final PortalPrewarmer prewarmer;
 
     public PortalManager(Metro plugin) {
         this.plugin = plugin;
+        this.prewarmer = new PortalPrewarmer(plugin);
         this.portalFile = new File(plugin.getDataFolder(), "portals.yml");
         load();
     }
@@ -54,6 +69,8 @@ public class PortalManager {
         lock.writeLock().lock();
         try {
             portals.clear();
+            entranceIndex = PortalBlockIndex.EMPTY;
+            changes.recordReset();
             if (!portalFile.exists()) {
                 portalConfig = new YamlConfiguration();
                 return;
@@ -68,6 +85,7 @@ public class PortalManager {
                     portals.put(id, Portal.fromConfig(id, portalSection));
                 }
             }
+            entranceIndex = PortalBlockIndex.build(portals.values());
             plugin.getLogger().info("[Portal] Loaded " + portals.size() + " portals.");
         } finally {
             lock.writeLock().unlock();
@@ -75,9 +93,22 @@ public class PortalManager {
     }
 
     public void save() {
+        changes.recordReset();
+        this.isDirty = true;
+    }
+
+    private void save(String id) {
+        changes.recordChanged(id);
         this.isDirty = true;
     }
 
+    /**
+     * Version counter and change log of the portals.
+     */
+    public ChangeJournal getChangeJournal() {
+        return changes;
+    }
+
     public void processAsyncSave() {
         if (!isDirty) {
             return;
@@ -117,10 +148,11 @@ public class PortalManager {
         lock.writeLock().lock();
         try {
             portals.put(id, portal);
+            entranceIndex = PortalBlockIndex.build(portals.values());
         } finally {
             lock.writeLock().unlock();
         }
-        save();
+        save(id);
         return portal;
     }
 
@@ -133,7 +165,7 @@ public class PortalManager {
         } finally {
             lock.writeLock().unlock();
         }
-        save();
+        save(id);
         return true;
     }
 
@@ -148,7 +180,7 @@ public class PortalManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            save();
+            save(id);
         }
         return changed;
     }
@@ -164,7 +196,7 @@ public class PortalManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            save();
+            save(id);
         }
         return changed;
     }
@@ -175,10 +207,14 @@ public class PortalManager {
         try {
             Portal removed = portals.remove(id);
             removedPortal = removed != null;
+            if (removedPortal) {
+                entranceIndex = PortalBlockIndex.build(portals.values());
+            }
             if (removed != null && removed.getLinkedPortalId() != null) {
                 Portal linked = portals.get(removed.getLinkedPortalId());
                 if (linked != null) {
                     linked.setLinkedPortalId(null);
+                    changes.recordChanged(linked.getId());
                 }
             }
         } finally {
@@ -190,7 +226,8 @@ public class PortalManager {
         if (plugin.getLineManager() != null) {
             plugin.getLineManager().delPortalFromAllLines(id);
         }
-        save();
+        changes.recordRemoved(id);
+        this.isDirty = true;
         return true;
     }
 
@@ -203,7 +240,7 @@ public class PortalManager {
         } finally {
             lock.writeLock().unlock();
         }
-        save();
+        save(id);
         return true;
     }
 
@@ -218,7 +255,8 @@ public class PortalManager {
         } finally {
             lock.writeLock().unlock();
         }
-        save();
+        changes.recordChanged(id1);
+        save(id2);
         return true;
     }
 
@@ -244,24 +282,52 @@ public class PortalManager {
 
     /**
      * 根据铁轨方块坐标查找传送门。
-     * 匹配的是铁轨所在位置的 blockX/Y/Z。
+     * 匹配的是铁轨所在位置的 blockX/Y/Z，Y 轴允许 ±1 误差。
      */
     public Portal getPortalAt(Location railLocation) {
-        lock.readLock().lock();
-        try {
-            for (Portal portal : portals.values()) {
-                if (portal.matchesLocation(railLocation)) {
-                    return portal;
-                }
-            }
+        if (railLocation == null || railLocation.getWorld() == null) {
             return null;
-        } finally {
-            lock.readLock().unlock();
         }
+        return entranceIndex.get(railLocation.getWorld().getName(),
+                railLocation.getBlockX(), railLocation.getBlockY(), railLocation.getBlockZ());
     }
 
     // =============== 传送逻辑 ===============
 
+    /**
+     * 预热线路上即将到达的传送门的目标区块，使传送时区块已加载。
+     * 由列车移动任务按行驶距离节流调用。
+     *
+     * @param direction 当前行驶方向，可为 null
+     */
+    public void prewarmAhead(Line line, Location cartLocation, Vector direction) {
+        if (line == null || cartLocation == null || cartLocation.getWorld() == null) {
+            return;
+        }
+        List<String> portalIds = line.getPortalIds();
+        if (portalIds.isEmpty()) {
+            return;
+        }
+        String worldName = cartLocation.getWorld().getName();
+        PortalPrewarmer.RouteTrack track = null;
+        PortalPrewarmer.CartPosition cart = null;
+        for (String portalId : portalIds) {
+            Portal portal = getPortal(portalId);
+            if (portal == null || portal.getDestWorldName() == null || !worldName.equals(portal.getWorldName())) {
+                continue;
+            }
+            if (track == null) {
+                // 每次采样只定位一次矿车，传送门在路线上的位置按路线修订号缓存
+                track = prewarmer.trackFor(line);
+                cart = track.locate(worldName, cartLocation.getX(), cartLocation.getY(), cartLocation.getZ(),
+                        direction);
+            }
+            if (PortalPrewarmer.isAhead(track, cart, portal)) {
+                prewarmer.prewarm(portal);
+            }
+        }
+    }
+
     /**
      * 传送矿车和乘客到目标位置。
      * 流程：
@@ -322,68 +388,27 @@ public class PortalManager {
         org.cubexmc.metro.util.SchedulerUtil.regionRun(plugin, destination, () -> {
             World destWorld = worldOf(destination);
             if (destWorld == null) return;
-            if (!destWorld.isChunkLoaded(destination.getBlockX() >> 4, destination.getBlockZ() >> 4)) {
-                plugin.getLogger().warning("[Portal] Destination chunk is not loaded for portal: " + portal.getId());
+            int chunkX = destination.getBlockX() >> 4;
+            int chunkZ = destination.getBlockZ() >> 4;
+            if (destWorld.isChunkLoaded(chunkX, chunkZ)) {
+                arriveAtDestination(portal, destination, destWorld, isMetroCart, finalPassenger, oldTask);
                 return;
             }
-
-            Minecart newCart = destWorld.spawn(destination, Minecart.class);
-
-            // 复制 Metro 标记
-            if (isMetroCart) {
-                newCart.getPersistentDataContainer().set(
-                        MetroConstants.getMinecartKey(),
-                        PersistentDataType.BYTE,
-                        (byte) 1
-                );
-                newCart.setCustomName(MetroConstants.METRO_MINECART_NAME);
-                newCart.setCustomNameVisible(false);
+            // 未被预热的目标区块：异步加载，不在此处同步加载
+            CompletableFuture<Chunk> load = ChunkLoadUtil.loadChunkAsync(destWorld, chunkX, chunkZ);
+            if (load == null) {
+                plugin.getLogger().warning("[Portal] Destination chunk is not loaded for portal: " + portal.getId());
+                return;
             }
-
-            // 传送乘客（如果有）
-            if (finalPassenger != null && finalPassenger.isOnline()) {
-                MountAwareTeleportUtil.teleportAndMountPassenger(plugin, finalPassenger, destination, newCart)
-                        .thenAccept(success -> {
-                    org.cubexmc.metro.util.SchedulerUtil.regionRun(plugin, destination, () -> {
-                        if (!success) {
-                            plugin.getLogger().warning("[Portal] Failed to teleport or remount passenger for portal: " + portal.getId());
-                            if (newCart.isValid()) {
-                                newCart.remove();
-                            }
-                            if (oldTask != null) {
-                                oldTask.setTeleporting(false);
-                            }
-                            return;
-                        }
-                        if (finalPassenger.isOnline() && newCart.isValid()) {
-                            // 转移 TrainMovementTask (接管新矿车)
-                            if (oldTask != null) {
-                                oldTask.transferMinecart(newCart);
-                            }
-
-                            // 给矿车一个初始速度
-                            float yaw = destination.getYaw();
-                            double rad = Math.toRadians(yaw);
-                            Vector direction = new Vector(-Math.sin(rad), 0, Math.cos(rad)).normalize();
-                            newCart.setVelocity(direction.multiply(plugin.getConfigFacade().getCartSpeed()));
-                        }
-                    }, 2L, -1L);
-                });
-            } else {
-                // 如果没有乘客，也要给空车一个初始速度
-                // 转移 TrainMovementTask (接管新矿车)
-                if (oldTask != null) {
-                    oldTask.transferMinecart(newCart);
+            load.whenComplete((chunk, error) -> {
+                if (error != null || chunk == null) {
+                    plugin.getLogger().warning("[Portal] Failed to load destination chunk for portal: " + portal.getId());
+                    return;
                 }
-                float yaw = destination.getYaw();
-                double rad = Math.toRadians(yaw);
-                Vector direction = new Vector(-Math.sin(rad), 0, Math.cos(rad)).normalize();
-                newCart.setVelocity(direction.multiply(plugin.getConfigFacade().getCartSpeed()));
-            }
-
-            // 出口特效
-            playEffects(destination);
-
+                org.cubexmc.metro.util.SchedulerUtil.regionRun(plugin, destination,
+                        () -> arriveAtDestination(portal, destination, destWorld, isMetroCart, finalPassenger, oldTask),
+                        0L, -1L);
+            });
         }, teleportDelay, -1L);
 
         // 冻结乘客（如果有延迟且有乘客）
@@ -399,6 +424,91 @@ public class PortalManager {
         }
     }
 
+    private void arriveAtDestination(Portal portal, Location destination, World destWorld, boolean isMetroCart,
+                                     Player finalPassenger, org.cubexmc.metro.train.TrainMovementTask oldTask) {
+        Minecart newCart = obtainDestinationCart(destWorld, destination, isMetroCart);
+
+        // 传送乘客（如果有）
+        if (finalPassenger != null && finalPassenger.isOnline()) {
+            MountAwareTeleportUtil.teleportAndMountPassenger(plugin, finalPassenger, destination, newCart)
+                    .thenAccept(success -> {
+                org.cubexmc.metro.util.SchedulerUtil.regionRun(plugin, destination, () -> {
+                    if (!success) {
+                        plugin.getLogger().warning("[Portal] Failed to teleport or remount passenger for portal: " + portal.getId());
+                        if (newCart.isValid()) {
+                            newCart.remove();
+                        }
+                        if (oldTask != null) {
+                            oldTask.setTeleporting(false);
+                        }
+                        return;
+                    }
+                    if (finalPassenger.isOnline() && newCart.isValid()) {
+                        // 转移 TrainMovementTask (接管新矿车)
+                        if (oldTask != null) {
+                            oldTask.transferMinecart(newCart);
+                        }
+
+                        // 给矿车一个初始速度
+                        float yaw = destination.getYaw();
+                        double rad = Math.toRadians(yaw);
+                        Vector direction = new Vector(-Math.sin(rad), 0, Math.cos(rad)).normalize();
+                        newCart.setVelocity(direction.multiply(plugin.getConfigFacade().getCartSpeed()));
+                    }
+                }, 2L, -1L);
+            });
+        } else {
+            // 如果没有乘客，也要给空车一个初始速度
+            // 转移 TrainMovementTask (接管新矿车)
+            if (oldTask != null) {
+                oldTask.transferMinecart(newCart);
+            }
+            float yaw = destination.getYaw();
+            double rad = Math.toRadians(yaw);
+            Vector direction = new Vector(-Math.sin(rad), 0, Math.cos(rad)).normalize();
+            newCart.setVelocity(direction.multiply(plugin.getConfigFacade().getCartSpeed()));
+        }
+
+        // 出口特效
+        playEffects(destination);
+    }
+
+    /**
+     * 目标矿车优先取自停车池，池中无车时再生成。
+     */
+    private Minecart obtainDestinationCart(World destWorld, Location destination, boolean isMetroCart) {
+        LineServiceManager services = plugin.getLineServiceManager();
+        ConsistPool pool = services == null ? null : services.getConsistPool();
+        Minecart newCart = pool == null ? null : pool.acquire(destination);
+        if (newCart != null) {
+            // 池中矿车保留着列车的设置，恢复为普通矿车
+            newCart.setGravity(true);
+            newCart.setSlowWhenEmpty(true);
+            newCart.setMaxSpeed(DEFAULT_MINECART_MAX_SPEED);
+            newCart.setCustomName(null);
+            newCart.getPersistentDataContainer().remove(MetroConstants.getMinecartKey());
+        } else {
+            newCart = destWorld.spawn(destination, Minecart.class);
+        }
+
+        // 复制 Metro 标记
+        if (isMetroCart) {
+            newCart.getPersistentDataContainer().set(
+                    MetroConstants.getMinecartKey(),
+                    PersistentDataType.BYTE,
+                    (byte) 1
+            );
+            newCart.setCustomName(MetroConstants.METRO_MINECART_NAME);
+            newCart.setCustomNameVisible(false);
+        }
+        // 池中矿车可能留有旧的移动状态，标记变化后需重新读取
+        VehicleListener vehicleListener = plugin.getVehicleListener();
+        if (vehicleListener != null) {
+            vehicleListener.forgetCart(newCart);
+        }
+        return newCart;
+    }
+
     /**
      * 播放传送门特效（粒子 + 音效）
      */
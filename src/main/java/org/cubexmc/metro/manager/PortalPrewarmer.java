@@ -0,0 +1,242 @@
+package org.cubexmc.metro.manager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.model.Portal;
+import org.cubexmc.metro.model.RoutePoint;
+import org.cubexmc.metro.util.ChunkLoadUtil;
+import org.cubexmc.metro.util.SchedulerUtil;
+
+/**
+ * Loads and tickets the destination chunks of portals a cart is about to reach, so the teleport
+ * finds them resident instead of loading them on the spot.
+ *
+ * <p>Each warmed chunk holds a plugin chunk ticket until {@link #TICKET_TTL_TICKS} after the last
+ * request for it. Loads go through Paper's async chunk API when present; on Spigot the chunk is
+ * loaded by the ticket itself, inside a scheduled task rather than on the cart's move event.
+ * Bukkit drops every plugin ticket when the plugin is disabled.
+ */
+final class PortalPrewarmer {
+
+    /** Route distance ahead of the cart within which a portal is warmed. */
+    static final double LOOKAHEAD_BLOCKS = 96.0;
+    static final long TICKET_TTL_TICKS = 600L;
+
+    private record ChunkRef(String worldName, int x, int z) {
+    }
+
+    private final Metro plugin;
+    /** 已持有票据的区块 -> 票据到期 tick */
+    private final Map<ChunkRef, Long> tickets = new ConcurrentHashMap<>();
+    /** 线路 ID -> 按路线修订号缓存的路线几何 */
+    private final Map<String, RouteTrack> tracks = new ConcurrentHashMap<>();
+
+    PortalPrewarmer(Metro plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Route geometry of the line, measured once per route revision.
+     */
+    RouteTrack trackFor(Line line) {
+        RouteTrack track = tracks.get(line.getId());
+        if (track != null && track.line == line && track.revision == line.getRouteRevision()) {
+            return track;
+        }
+        // 先读修订号再拷贝路线点：并发修改时宁可多算一次，也不把旧路线记成新修订
+        int revision = line.getRouteRevision();
+        track = new RouteTrack(line, revision, line.getRoutePoints());
+        tracks.put(line.getId(), track);
+        return track;
+    }
+
+    /**
+     * Whether the located cart reaches the portal's entrance within {@link #LOOKAHEAD_BLOCKS}.
+     * With recorded route geometry the distance is measured along the route; otherwise the
+     * entrance only has to be close and in front.
+     */
+    static boolean isAhead(RouteTrack track, CartPosition cart, Portal portal) {
+        if (cart.worldName() == null || !cart.worldName().equals(portal.getWorldName())) {
+            return false;
+        }
+        double px = portal.getX() + 0.5;
+        double py = portal.getY() + 0.5;
+        double pz = portal.getZ() + 0.5;
+        double chord = distanceSquared(cart.x(), cart.y(), cart.z(), px, py, pz);
+        // 路线距离不小于直线距离，先用直线距离排除远处的传送门
+        if (chord > LOOKAHEAD_BLOCKS * LOOKAHEAD_BLOCKS) {
+            return false;
+        }
+        int portalIndex = cart.index() < 0 ? -1 : track.portalIndex(portal, px, py, pz);
+        if (portalIndex < 0) {
+            Vector direction = cart.direction();
+            return direction != null && direction.getX() * (px - cart.x()) + direction.getY() * (py - cart.y())
+                    + direction.getZ() * (pz - cart.z()) > 0;
+        }
+        double ahead = (track.arcLength(portalIndex) - track.arcLength(cart.index())) * cart.step();
+        return ahead >= 0 && ahead <= LOOKAHEAD_BLOCKS;
+    }
+
+    /**
+     * Ticket the portal's destination chunk, or push back the release of a ticket already held.
+     */
+    void prewarm(Portal portal) {
+        Location destination = portal.getDestination();
+        World world = destination == null ? null : destination.getWorld();
+        if (world == null) {
+            return;
+        }
+        ChunkRef ref = new ChunkRef(world.getName(), destination.getBlockX() >> 4, destination.getBlockZ() >> 4);
+        long expiresAt = SchedulerUtil.getCurrentTick() + TICKET_TTL_TICKS;
+        if (tickets.put(ref, expiresAt) != null) {
+            return;
+        }
+        SchedulerUtil.regionRun(plugin, destination, () -> acquire(world, ref, destination), 0L, -1L);
+    }
+
+    private void acquire(World world, ChunkRef ref, Location anchor) {
+        try {
+            if (world.isChunkLoaded(ref.x(), ref.z())) {
+                ticket(world, ref, anchor);
+                return;
+            }
+            CompletableFuture<Chunk> load = ChunkLoadUtil.loadChunkAsync(world, ref.x(), ref.z());
+            if (load == null) {
+                // Spigot: 票据本身会同步加载区块，但这里已在调度任务中，不在矿车移动事件里
+                ticket(world, ref, anchor);
+                return;
+            }
+            load.whenComplete((chunk, error) -> {
+                if (error != null || chunk == null) {
+                    tickets.remove(ref);
+                    return;
+                }
+                ticket(world, ref, anchor);
+            });
+        } catch (RuntimeException e) {
+            tickets.remove(ref);
+            plugin.getLogger().log(Level.FINE, "[Portal] Failed to prewarm chunk "
+                    + ref.x() + "," + ref.z() + " in " + ref.worldName(), e);
+        }
+    }
+
+    private void ticket(World world, ChunkRef ref, Location anchor) {
+        world.addPluginChunkTicket(ref.x(), ref.z(), plugin);
+        scheduleRelease(world, ref, anchor, TICKET_TTL_TICKS);
+    }
+
+    private void scheduleRelease(World world, ChunkRef ref, Location anchor, long delay) {
+        SchedulerUtil.regionRun(plugin, anchor, () -> {
+            Long expiresAt = tickets.get(ref);
+            long now = SchedulerUtil.getCurrentTick();
+            if (expiresAt != null && expiresAt > now) {
+                // 期间又有矿车接近，顺延释放
+                scheduleRelease(world, ref, anchor, expiresAt - now);
+                return;
+            }
+            tickets.remove(ref);
+            world.removePluginChunkTicket(ref.x(), ref.z(), plugin);
+        }, Math.max(1L, delay), -1L);
+    }
+
+    private static int nearestIndex(List<RoutePoint> route, String worldName, double x, double y, double z) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < route.size(); i++) {
+            RoutePoint point = route.get(i);
+            if (!worldName.equals(point.worldName())) {
+                continue;
+            }
+            double distance = distanceSquared(x, y, z, point.x(), point.y(), point.z());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double distanceSquared(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Where a cart is on a route, located once per sample and shared by every portal check.
+     *
+     * @param index nearest route point, -1 when the route has no geometry in the cart's world
+     * @param step  +1 when travelling towards higher route indices, -1 otherwise
+     */
+    record CartPosition(String worldName, double x, double y, double z, Vector direction, int index, int step) {
+    }
+
+    /**
+     * Route points with cumulative arc lengths and the route index of each portal entrance.
+     */
+    static final class RouteTrack {
+
+        private record PortalKey(String portalId, String worldName, int x, int y, int z) {
+        }
+
+        private final Line line;
+        private final int revision;
+        private final List<RoutePoint> points;
+        private final double[] arc;
+        private final Map<PortalKey, Integer> portalIndices = new ConcurrentHashMap<>();
+
+        RouteTrack(Line line, int revision, List<RoutePoint> points) {
+            this.line = line;
+            this.revision = revision;
+            this.points = points;
+            this.arc = new double[points.size()];
+            for (int i = 1; i < points.size(); i++) {
+                RoutePoint a = points.get(i - 1);
+                RoutePoint b = points.get(i);
+                arc[i] = arc[i - 1] + Math.sqrt(distanceSquared(a.x(), a.y(), a.z(), b.x(), b.y(), b.z()));
+            }
+        }
+
+        static RouteTrack of(List<RoutePoint> points) {
+            return new RouteTrack(null, 0, points);
+        }
+
+        CartPosition locate(String worldName, double x, double y, double z, Vector direction) {
+            int index = points.size() < 2 || worldName == null ? -1 : nearestIndex(points, worldName, x, y, z);
+            int step = index >= 0 && !travelsForward(index, direction) ? -1 : 1;
+            return new CartPosition(worldName, x, y, z, direction, index, step);
+        }
+
+        double arcLength(int index) {
+            return arc[index];
+        }
+
+        private int portalIndex(Portal portal, double px, double py, double pz) {
+            // 入口移动后键随之变化，旧条目不会再被命中
+            PortalKey key = new PortalKey(portal.getId(), portal.getWorldName(),
+                    portal.getX(), portal.getY(), portal.getZ());
+            return portalIndices.computeIfAbsent(key, k -> nearestIndex(points, k.worldName(), px, py, pz));
+        }
+
+        private boolean travelsForward(int index, Vector direction) {
+            if (direction == null) {
+                return true;
+            }
+            RoutePoint a = points.get(Math.min(index, points.size() - 2));
+            RoutePoint b = points.get(Math.min(index, points.size() - 2) + 1);
+            return direction.getX() * (b.x() - a.x()) + direction.getY() * (b.y() - a.y())
+                    + direction.getZ() * (b.z() - a.z()) >= 0;
+        }
+    }
+}
@@ -17,22 +17,41 @@ import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.RoutePoint;
 import org.cubexmc.metro.util.MetroConstants;
 import org.cubexmc.metro.util.OwnershipUtil;
+import org.cubexmc.metro.util.SchedulerUtil;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 
 /**
  * Builds an in-memory rail protection index from recorded route points.
+ *
+ * <p>Rebuilds run on an async worker, one request at a time in the order they were made. Route
+ * samples are resolved against chunk snapshots captured on the thread owning each chunk, so no
+ * chunk is loaded synchronously by the worker, and the finished index replaces the previous one in
+ * a single volatile write. Break checks only read the current index and never wait for a rebuild.
  */
 public class RailProtectionManager implements Listener {
 
     private static final double INTERPOLATION_STEP = 0.5;
+    /** Route samples resolved per batch; their chunks are captured together before resolving. */
+    private static final int SAMPLES_PER_BATCH = 256;
+    /** Chunk snapshots kept between batches; routes are walked in order so neighbours are reused. */
+    private static final int MAX_CACHED_CHUNKS = 128;
+    private static final long CHUNK_TIMEOUT_SECONDS = 30L;
     private static final Set<Material> RAIL_MATERIALS = EnumSet.of(
             Material.RAIL,
             Material.POWERED_RAIL,
@@ -40,92 +59,130 @@ public class RailProtectionManager implements Listener {
             Material.ACTIVATOR_RAIL
     );
 
+    /**
+     * Block types of one captured chunk, addressed by world coordinates. Must be safe to read from
+     * the rebuild worker.
+     */
+    @FunctionalInterface
+    interface BlockTypes {
+        Material getType(int x, int y, int z);
+    }
+
+    /**
+     * Captures chunks for the rebuild worker. Completes with null when the chunk is unavailable.
+     */
+    @FunctionalInterface
+    interface ChunkSource {
+        CompletableFuture<BlockTypes> capture(World world, int chunkX, int chunkZ);
+    }
+
     private final Metro plugin;
-    private final Map<String, Set<BlockKey>> lineToBlocks = new HashMap<>();
-    private final Map<BlockKey, Set<String>> blockToLines = new HashMap<>();
-    private final Map<String, ProtectionIndexStats> lineToStats = new HashMap<>();
+    private final Executor worker;
+    private final ChunkSource chunkSource;
+    private final Object queueLock = new Object();
+    private CompletableFuture<Void> queueTail = CompletableFuture.completedFuture(null);
+    private volatile ProtectionIndex index = ProtectionIndex.EMPTY;
 
     public RailProtectionManager(Metro plugin) {
+        this(plugin, command -> SchedulerUtil.asyncRun(plugin, command, 0L), new ChunkSnapshotSource(plugin));
+    }
+
+    RailProtectionManager(Metro plugin, Executor worker, ChunkSource chunkSource) {
         this.plugin = plugin;
+        this.worker = worker;
+        this.chunkSource = chunkSource;
     }
 
-    public synchronized void rebuildAll() {
-        lineToBlocks.clear();
-        blockToLines.clear();
-        lineToStats.clear();
+    /**
+     * Rebuild the whole index in the background.
+     *
+     * @return completes once the new index is in place
+     */
+    public CompletableFuture<Void> rebuildAll() {
+        List<LineRoute> routes = new ArrayList<>();
         for (Line line : plugin.getLineManager().getAllLines()) {
-            rebuildLineLocked(line);
+            routes.add(LineRoute.capture(line));
         }
+        return enqueue(() -> {
+            Map<String, LineResult> results = new HashMap<>();
+            ChunkCache chunks = new ChunkCache();
+            for (LineRoute route : routes) {
+                results.put(route.lineId(), computeLine(route, chunks));
+            }
+            chunks.logUnavailable();
+            index = ProtectionIndex.EMPTY.with(results);
+        });
     }
 
-    public synchronized void rebuildLine(String lineId) {
-        removeLineLocked(lineId);
+    /**
+     * Rebuild one line in the background.
+     *
+     * @return completes once the line's entries are replaced
+     */
+    public CompletableFuture<Void> rebuildLine(String lineId) {
         Line line = plugin.getLineManager().getLine(lineId);
-        rebuildLineLocked(line);
-    }
-
-    public synchronized int getProtectedBlockCount(String lineId) {
-        Set<BlockKey> blocks = lineToBlocks.get(lineId);
-        return blocks == null ? 0 : blocks.size();
+        LineRoute route = line == null ? LineRoute.removed(lineId) : LineRoute.capture(line);
+        return enqueue(() -> {
+            ChunkCache chunks = new ChunkCache();
+            Map<String, LineResult> results = new HashMap<>();
+            results.put(lineId, computeLine(route, chunks));
+            chunks.logUnavailable();
+            index = index.with(results);
+        });
     }
 
-    public synchronized ProtectionIndexStats getProtectionIndexStats(String lineId) {
-        ProtectionIndexStats stats = lineToStats.get(lineId);
-        return stats == null ? ProtectionIndexStats.empty() : stats;
+    private CompletableFuture<Void> enqueue(Runnable rebuild) {
+        synchronized (queueLock) {
+            queueTail = queueTail.handle((ignored, error) -> null).thenRunAsync(() -> {
+                try {
+                    rebuild.run();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.WARNING, "[RailProtection] Index rebuild failed", e);
+                    throw e;
+                }
+            }, worker);
+            return queueTail;
+        }
     }
 
-    private void rebuildLineLocked(Line line) {
-        if (line == null || !line.isRailProtected()) {
-            return;
-        }
-        ProtectionIndexBuilder builder = new ProtectionIndexBuilder(line.getWorldName());
-        Set<BlockKey> blocks = collectRailBlocks(line.getRoutePoints(), builder);
-        ProtectionIndexStats stats = builder.build(blocks.size());
-        lineToStats.put(line.getId(), stats);
-        if (blocks.isEmpty()) {
-            return;
-        }
-        lineToBlocks.put(line.getId(), blocks);
-        for (BlockKey block : blocks) {
-            blockToLines.computeIfAbsent(block, key -> new HashSet<>()).add(line.getId());
-        }
+    public int getProtectedBlockCount(String lineId) {
+        LineResult line = index.lines.get(lineId);
+        return line == null ? 0 : line.blockCount();
     }
 
-    private void removeLineLocked(String lineId) {
-        lineToStats.remove(lineId);
-        Set<BlockKey> oldBlocks = lineToBlocks.remove(lineId);
-        if (oldBlocks == null) {
-            return;
-        }
-        for (BlockKey block : oldBlocks) {
-            Set<String> lineIds = blockToLines.get(block);
-            if (lineIds == null) {
-                continue;
-            }
-            lineIds.remove(lineId);
-            if (lineIds.isEmpty()) {
-                blockToLines.remove(block);
-            }
-        }
+    public ProtectionIndexStats getProtectionIndexStats(String lineId) {
+        LineResult line = index.lines.get(lineId);
+        return line == null ? ProtectionIndexStats.empty() : line.stats();
     }
 
-    private Set<BlockKey> collectRailBlocks(List<RoutePoint> routePoints, ProtectionIndexBuilder builder) {
-        if (routePoints == null || routePoints.isEmpty()) {
-            return Collections.emptySet();
+    /**
+     * @return null when the line is not protected and must be dropped from the index
+     */
+    private LineResult computeLine(LineRoute route, ChunkCache chunks) {
+        if (!route.railProtected()) {
+            return null;
         }
-        Set<BlockKey> blocks = new HashSet<>();
-        List<RoutePoint> points = new ArrayList<>(routePoints);
+        ProtectionIndexBuilder builder = new ProtectionIndexBuilder(route.worldName());
+        Map<String, PackedBlockMap> blocks = new HashMap<>();
+        SampleBatch batch = new SampleBatch(route, blocks, builder, chunks);
+        List<RoutePoint> points = route.points();
         for (int i = 0; i < points.size(); i++) {
-            addNearestRail(blocks, points.get(i), builder);
+            batch.add(points.get(i));
             if (i + 1 < points.size()) {
-                interpolateSegment(blocks, points.get(i), points.get(i + 1), builder);
+                interpolateSegment(batch, points.get(i), points.get(i + 1));
             }
         }
-        return blocks;
+        batch.flush();
+        Map<String, long[]> packed = new HashMap<>();
+        int blockCount = 0;
+        for (Map.Entry<String, PackedBlockMap> entry : blocks.entrySet()) {
+            packed.put(entry.getKey(), entry.getValue().keys());
+            blockCount += entry.getValue().size();
+        }
+        return new LineResult(packed, blockCount, builder.build(blockCount));
     }
 
-    private void interpolateSegment(Set<BlockKey> blocks, RoutePoint from, RoutePoint to,
-                                    ProtectionIndexBuilder builder) {
+    private void interpolateSegment(SampleBatch batch, RoutePoint from, RoutePoint to) {
         if (from == null || to == null || !from.worldName().equals(to.worldName())) {
             return;
         }
@@ -136,68 +193,169 @@ public class RailProtectionManager implements Listener {
         int samples = Math.max(1, (int) Math.ceil(distance / INTERPOLATION_STEP));
         for (int i = 1; i < samples; i++) {
             double ratio = (double) i / samples;
-            addNearestRail(blocks, new RoutePoint(
+            batch.add(new RoutePoint(
                     from.worldName(),
                     from.x() + dx * ratio,
                     from.y() + dy * ratio,
                     from.z() + dz * ratio
-            ), builder);
+            ));
         }
     }
 
-    private void addNearestRail(Set<BlockKey> blocks, RoutePoint point, ProtectionIndexBuilder builder) {
-        builder.sample(point);
-        if (point == null) {
-            return;
-        }
-        if (builder.isWorldMismatch(point)) {
-            builder.skippedWorldMismatch();
-            return;
+    /**
+     * Route samples waiting for their chunks. Chunks of a whole batch are requested together so
+     * the owning threads capture them in parallel, then each sample is resolved.
+     */
+    private final class SampleBatch {
+        private final LineRoute route;
+        private final Map<String, PackedBlockMap> blocks;
+        private final ProtectionIndexBuilder builder;
+        private final ChunkCache chunks;
+        private final List<RoutePoint> pending = new ArrayList<>(SAMPLES_PER_BATCH);
+
+        private SampleBatch(LineRoute route, Map<String, PackedBlockMap> blocks, ProtectionIndexBuilder builder,
+                ChunkCache chunks) {
+            this.route = route;
+            this.blocks = blocks;
+            this.builder = builder;
+            this.chunks = chunks;
+        }
+
+        private void add(RoutePoint point) {
+            pending.add(point);
+            if (pending.size() >= SAMPLES_PER_BATCH) {
+                flush();
+            }
         }
-        World world = Bukkit.getWorld(point.worldName());
-        if (world == null) {
-            builder.skippedMissingWorld();
-            return;
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (RoutePoint point : pending) {
+                World world = resolveWorld(point);
+                if (world == null) {
+                    continue;
+                }
+                int baseX = (int) Math.floor(point.x());
+                int baseZ = (int) Math.floor(point.z());
+                for (int cx = (baseX - 1) >> 4; cx <= (baseX + 1) >> 4; cx++) {
+                    for (int cz = (baseZ - 1) >> 4; cz <= (baseZ + 1) >> 4; cz++) {
+                        chunks.request(world, cx, cz);
+                    }
+                }
+            }
+            for (RoutePoint point : pending) {
+                addNearestRail(point);
+            }
+            pending.clear();
         }
-        BlockKey nearestRail = findNearestRail(point);
-        if (nearestRail != null) {
-            blocks.add(nearestRail);
-        } else {
-            builder.skippedNoRail();
+
+        private World resolveWorld(RoutePoint point) {
+            if (point == null || builder.isWorldMismatch(point)) {
+                return null;
+            }
+            return route.worlds().get(point.worldName());
         }
-    }
 
-    private BlockKey findNearestRail(RoutePoint point) {
-        World world = Bukkit.getWorld(point.worldName());
-        if (world == null) {
-            return null;
+        private void addNearestRail(RoutePoint point) {
+            builder.sample(point);
+            if (point == null) {
+                return;
+            }
+            if (builder.isWorldMismatch(point)) {
+                builder.skippedWorldMismatch();
+                return;
+            }
+            World world = route.worlds().get(point.worldName());
+            if (world == null) {
+                builder.skippedMissingWorld();
+                return;
+            }
+            if (!addNearestRail(world, point)) {
+                builder.skippedNoRail();
+            }
         }
 
-        int baseX = (int) Math.floor(point.x());
-        int baseY = (int) Math.floor(point.y());
-        int baseZ = (int) Math.floor(point.z());
-        BlockKey best = null;
-        double bestDistance = Double.MAX_VALUE;
-
-        for (int dy : new int[] {0, -1}) {
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dz = -1; dz <= 1; dz++) {
-                    int x = baseX + dx;
-                    int y = baseY + dy;
-                    int z = baseZ + dz;
-                    Block block = world.getBlockAt(x, y, z);
-                    if (!isRail(block)) {
-                        continue;
+        private boolean addNearestRail(World world, RoutePoint point) {
+            int baseX = (int) Math.floor(point.x());
+            int baseY = (int) Math.floor(point.y());
+            int baseZ = (int) Math.floor(point.z());
+            boolean found = false;
+            long best = 0L;
+            double bestDistance = Double.MAX_VALUE;
+
+            for (int dy : new int[] {0, -1}) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        int x = baseX + dx;
+                        int y = baseY + dy;
+                        int z = baseZ + dz;
+                        BlockTypes chunk = chunks.get(world, x >> 4, z >> 4);
+                        if (chunk == null || !RAIL_MATERIALS.contains(chunk.getType(x, y, z))) {
+                            continue;
+                        }
+                        double distance = distanceSquaredToBlockCenter(point, x, y, z);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = PackedBlockMap.pack(x, y, z);
+                            found = true;
+                        }
                     }
-                    double distance = distanceSquaredToBlockCenter(point, x, y, z);
-                    if (distance < bestDistance) {
-                        bestDistance = distance;
-                        best = new BlockKey(world.getName(), x, y, z);
+                }
+            }
+            if (found) {
+                blocks.computeIfAbsent(world.getName(), name -> new PackedBlockMap()).put(best, 0);
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Chunk captures for one rebuild, least recently used first out.
+     */
+    private final class ChunkCache {
+        private final Map<ChunkKey, CompletableFuture<BlockTypes>> captures =
+                new LinkedHashMap<>(MAX_CACHED_CHUNKS * 2, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<ChunkKey, CompletableFuture<BlockTypes>> eldest) {
+                        return size() > MAX_CACHED_CHUNKS;
                     }
+                };
+        private int unavailable;
+
+        private void request(World world, int chunkX, int chunkZ) {
+            captures.computeIfAbsent(new ChunkKey(world.getName(), chunkX, chunkZ),
+                    key -> chunkSource.capture(world, chunkX, chunkZ));
+        }
+
+        private BlockTypes get(World world, int chunkX, int chunkZ) {
+            ChunkKey key = new ChunkKey(world.getName(), chunkX, chunkZ);
+            CompletableFuture<BlockTypes> capture = captures.computeIfAbsent(key,
+                    ignored -> chunkSource.capture(world, chunkX, chunkZ));
+            try {
+                BlockTypes types = capture.get(CHUNK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (types == null) {
+                    unavailable++;
+                    captures.put(key, CompletableFuture.completedFuture(null));
                 }
+                return types;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                plugin.getLogger().log(Level.FINE, "[RailProtection] Chunk capture failed", e);
+            }
+            unavailable++;
+            captures.put(key, CompletableFuture.completedFuture(null));
+            return null;
+        }
+
+        private void logUnavailable() {
+            if (unavailable > 0) {
+                plugin.getLogger().warning("[RailProtection] " + unavailable
+                        + " chunk lookups were unavailable during the index rebuild; rails there are not protected");
             }
         }
-        return best;
     }
 
     private double distanceSquaredToBlockCenter(RoutePoint point, int x, int y, int z) {
@@ -241,12 +399,11 @@ public class RailProtectionManager implements Listener {
         return minecart.getPersistentDataContainer().has(MetroConstants.getMinecartKey(), PersistentDataType.BYTE);
     }
 
-    private synchronized Set<String> getProtectedLines(Block block) {
+    private Set<String> getProtectedLines(Block block) {
         if (!isRail(block)) {
             return Collections.emptySet();
         }
-        Set<String> lineIds = blockToLines.get(BlockKey.fromBlock(block));
-        return lineIds == null ? Collections.emptySet() : new HashSet<>(lineIds);
+        return index.linesAt(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
     }
 
     private boolean canBreakProtectedRail(Player player, Set<String> protectedLineIds) {
@@ -323,9 +480,158 @@ public class RailProtectionManager implements Listener {
         }
     }
 
-    private record BlockKey(String worldName, int x, int y, int z) {
-        private static BlockKey fromBlock(Block block) {
-            return new BlockKey(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+    /**
+     * Route data copied on the requesting thread so the worker never reads live line state.
+     */
+    private record LineRoute(String lineId, String worldName, boolean railProtected, List<RoutePoint> points,
+                             Map<String, World> worlds) {
+        private static LineRoute capture(Line line) {
+            if (!line.isRailProtected()) {
+                return removed(line.getId());
+            }
+            List<RoutePoint> points = line.getRoutePoints() == null
+                    ? List.of()
+                    : new ArrayList<>(line.getRoutePoints());
+            ProtectionIndexBuilder mismatch = new ProtectionIndexBuilder(line.getWorldName());
+            Map<String, World> worlds = new HashMap<>();
+            for (RoutePoint point : points) {
+                if (point == null || mismatch.isWorldMismatch(point) || worlds.containsKey(point.worldName())) {
+                    continue;
+                }
+                worlds.put(point.worldName(), Bukkit.getWorld(point.worldName()));
+            }
+            return new LineRoute(line.getId(), line.getWorldName(), true, points, worlds);
+        }
+
+        private static LineRoute removed(String lineId) {
+            return new LineRoute(lineId, null, false, List.of(), Map.of());
+        }
+    }
+
+    /**
+     * @param blocks packed coordinates of the protected rails per world name
+     */
+    private record LineResult(Map<String, long[]> blocks, int blockCount, ProtectionIndexStats stats) {
+    }
+
+    /**
+     * Immutable index published through a volatile field. Each world maps packed block coordinates
+     * to an interned set of line ids, so a break check is one primitive probe and a shared set.
+     */
+    private static final class ProtectionIndex {
+        private static final ProtectionIndex EMPTY = new ProtectionIndex(Map.of(), Map.of());
+
+        private final Map<String, LineResult> lines;
+        private final Map<String, WorldIndex> worlds;
+
+        private ProtectionIndex(Map<String, LineResult> lines, Map<String, WorldIndex> worlds) {
+            this.lines = lines;
+            this.worlds = worlds;
+        }
+
+        private Set<String> linesAt(String worldName, int x, int y, int z) {
+            WorldIndex world = worlds.get(worldName);
+            return world == null ? Collections.emptySet() : world.linesAt(PackedBlockMap.pack(x, y, z));
+        }
+
+        /**
+         * Copy with the given lines replaced; a null result removes the line.
+         */
+        private ProtectionIndex with(Map<String, LineResult> results) {
+            Map<String, LineResult> updated = new HashMap<>(lines);
+            for (Map.Entry<String, LineResult> entry : results.entrySet()) {
+                if (entry.getValue() == null) {
+                    updated.remove(entry.getKey());
+                } else {
+                    updated.put(entry.getKey(), entry.getValue());
+                }
+            }
+            // 线路按 id 排序编号，保证同一网络重建出相同的位集
+            List<String> lineIds = new ArrayList<>(updated.keySet());
+            Collections.sort(lineIds);
+            Map<String, WorldIndex.Builder> builders = new HashMap<>();
+            for (int ordinal = 0; ordinal < lineIds.size(); ordinal++) {
+                for (Map.Entry<String, long[]> entry : updated.get(lineIds.get(ordinal)).blocks().entrySet()) {
+                    builders.computeIfAbsent(entry.getKey(), name -> new WorldIndex.Builder(lineIds))
+                            .add(ordinal, entry.getValue());
+                }
+            }
+            Map<String, WorldIndex> worlds = new HashMap<>();
+            builders.forEach((worldName, builder) -> worlds.put(worldName, builder.build()));
+            return new ProtectionIndex(updated, worlds);
+        }
+    }
+
+    private static final class WorldIndex {
+        private final PackedBlockMap blockToLineSet;
+        private final List<Set<String>> lineSets;
+
+        private WorldIndex(PackedBlockMap blockToLineSet, List<Set<String>> lineSets) {
+            this.blockToLineSet = blockToLineSet;
+            this.lineSets = lineSets;
+        }
+
+        private Set<String> linesAt(long packed) {
+            int lineSet = blockToLineSet.get(packed);
+            return lineSet == PackedBlockMap.MISSING ? Collections.emptySet() : lineSets.get(lineSet);
+        }
+
+        /**
+         * Builds the block map with line sets interned as bitsets over line ordinals; almost every
+         * block belongs to one line, so only a handful of distinct sets exist per world.
+         */
+        private static final class Builder {
+            private final List<String> lineIds;
+            private final PackedBlockMap blockToLineSet = new PackedBlockMap();
+            private final List<BitSet> lineSets = new ArrayList<>();
+            private final Map<BitSet, Integer> internedSets = new HashMap<>();
+            /** (previous set + 1) << 32 | line ordinal → resulting set. */
+            private final Map<Long, Integer> transitions = new HashMap<>();
+
+            private Builder(List<String> lineIds) {
+                this.lineIds = lineIds;
+            }
+
+            private void add(int ordinal, long[] blocks) {
+                for (long packed : blocks) {
+                    int previous = blockToLineSet.get(packed);
+                    long transition = ((long) (previous + 1) << 32) | ordinal;
+                    Integer next = transitions.get(transition);
+                    if (next == null) {
+                        BitSet members = previous == PackedBlockMap.MISSING
+                                ? new BitSet()
+                                : (BitSet) lineSets.get(previous).clone();
+                        members.set(ordinal);
+                        next = intern(members);
+                        transitions.put(transition, next);
+                    }
+                    blockToLineSet.put(packed, next);
+                }
+            }
+
+            private int intern(BitSet members) {
+                Integer existing = internedSets.get(members);
+                if (existing != null) {
+                    return existing;
+                }
+                int id = lineSets.size();
+                lineSets.add(members);
+                internedSets.put(members, id);
+                return id;
+            }
+
+            private WorldIndex build() {
+                List<Set<String>> sets = new ArrayList<>(lineSets.size());
+                for (BitSet members : lineSets) {
+                    Set<String> ids = new HashSet<>();
+                    members.stream().forEach(ordinal -> ids.add(lineIds.get(ordinal)));
+                    sets.add(Set.copyOf(ids));
+                }
+                return new WorldIndex(blockToLineSet, List.copyOf(sets));
+            }
         }
     }
+
+    private record ChunkKey(String worldName, int chunkX, int chunkZ) {
+    }
 }
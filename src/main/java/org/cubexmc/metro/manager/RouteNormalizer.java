@@ -4,31 +4,99 @@ import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.model.RoutePoint;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Normalizes raw minecart route recordings by snapping float-point positions
  * to nearest rail block centers and retaining direction / world / Y change points.
+ *
+ * <p>{@link #normalize} reads the live world on the calling thread. {@link #normalizeAsync}
+ * walks the route in batches, capturing at most {@link #MAX_BATCH_CHUNKS} chunks at a time and
+ * snapping each batch against those snapshots in parallel on a dedicated pool, with the same result
+ * for every point whose chunks could be captured.
  */
 public final class RouteNormalizer {
 
     private static final Logger LOGGER = Logger.getGlobal();
     private static final double MAX_SNAP_DISTANCE = 3.0;
+    /** 吸附搜索范围：水平 ±2 格，垂直 ±1 格 */
+    private static final int SEARCH_RADIUS_XZ = 2;
+    private static final int SEARCH_RADIUS_Y = 1;
+    /** 每批最多持有的区块快照数，与铁轨保护索引的区块缓存上限一致 */
+    static final int MAX_BATCH_CHUNKS = 128;
+    /** 每个并行吸附任务处理的点数 */
+    static final int SNAP_SLICE_POINTS = 64;
+
+    private record ChunkKey(String worldName, int chunkX, int chunkZ) {
+    }
 
     private final Material[] railMaterials;
+    private final RailProtectionManager.ChunkSource chunkSource;
+    private final Executor worker;
+    /** 插件实例自己创建的吸附线程池，停用时关闭；测试注入的执行器不归本类管理 */
+    private final ForkJoinPool ownedPool;
+    private final Object queueLock = new Object();
+    private CompletableFuture<?> queueTail = CompletableFuture.completedFuture(null);
 
     public RouteNormalizer() {
+        this(null, null, null);
+    }
+
+    public RouteNormalizer(Metro plugin) {
+        this(new ChunkSnapshotSource(plugin), newSnapPool());
+    }
+
+    RouteNormalizer(RailProtectionManager.ChunkSource chunkSource, Executor worker) {
+        this(chunkSource, worker, null);
+    }
+
+    private RouteNormalizer(RailProtectionManager.ChunkSource chunkSource, ForkJoinPool pool) {
+        this(chunkSource, pool, pool);
+    }
+
+    private RouteNormalizer(RailProtectionManager.ChunkSource chunkSource, Executor worker, ForkJoinPool ownedPool) {
+        this.ownedPool = ownedPool;
         this.railMaterials = new Material[] {
                 Material.RAIL,
                 Material.POWERED_RAIL,
                 Material.DETECTOR_RAIL,
                 Material.ACTIVATOR_RAIL
         };
+        this.chunkSource = chunkSource;
+        this.worker = worker;
+    }
+
+    private static ForkJoinPool newSnapPool() {
+        // 吸附只读区块快照，留一个核心给服务器主线程
+        int parallelism = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Metro-RouteNormalizer-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Stop the snapping pool created for the plugin, abandoning any normalization still running.
+     * Does nothing for a normalizer built with an injected executor.
+     */
+    public void shutdown() {
+        if (ownedPool != null) {
+            ownedPool.shutdownNow();
+        }
     }
 
     /**
@@ -46,11 +114,183 @@ public final class RouteNormalizer {
 
         List<RoutePoint> snapped = snapToRailCenters(points);
         if (simplifyEpsilon > 0 && snapped.size() >= 3) {
-            snapped = simplifyCollinearPoints(snapped, simplifyEpsilon);
+            snapped = CollinearRouteSimplifier.simplify(snapped, simplifyEpsilon);
+        }
+        return snapped;
+    }
+
+    /**
+     * Same as {@link #normalize}, but without scanning blocks on the calling thread: the route is
+     * walked in order, the chunks covering the next points' search areas are captured in batches of
+     * at most {@link #MAX_BATCH_CHUNKS}, and each batch is snapped in slices of
+     * {@link #SNAP_SLICE_POINTS} points in parallel on the worker before the next one is captured.
+     * Normalizations run one at a time. Worlds are resolved on the calling thread.
+     *
+     * <p>A point whose chunks could not be captured is kept as recorded. Without a chunk source
+     * (the no-argument constructor) this runs {@link #normalize} synchronously.
+     *
+     * @return future completed with the cleaned list, on the worker
+     */
+    public CompletableFuture<List<RoutePoint>> normalizeAsync(List<RoutePoint> points, double simplifyEpsilon) {
+        if (points == null || points.isEmpty() || chunkSource == null) {
+            return CompletableFuture.completedFuture(normalize(points, simplifyEpsilon));
+        }
+
+        List<RoutePoint> input = new ArrayList<>(points.size());
+        Map<String, World> worlds = new HashMap<>();
+        int missed = 0;
+        for (RoutePoint point : points) {
+            if (point == null) {
+                missed++;
+                continue;
+            }
+            input.add(point);
+            worlds.computeIfAbsent(point.worldName(), RouteNormalizer::lookupWorld);
+        }
+        if (missed > 0) {
+            logMissed(missed, points.size());
+        }
+
+        CompletableFuture<List<RoutePoint>> result;
+        synchronized (queueLock) {
+            // 上一次规整结束（无论成败）后才开始，同一时间只持有一批区块快照
+            result = queueTail.handle((ignored, error) -> null)
+                    .<List<RoutePoint>>thenComposeAsync(ignored -> snapBatches(input, worlds, 0, new ArrayList<>()), worker)
+                    .thenApply(snapped -> simplify(snapped, simplifyEpsilon));
+            queueTail = result;
+        }
+        return result;
+    }
+
+    private static List<RoutePoint> simplify(List<RoutePoint> snapped, double simplifyEpsilon) {
+        if (simplifyEpsilon > 0 && snapped.size() >= 3) {
+            return CollinearRouteSimplifier.simplify(snapped, simplifyEpsilon);
+        }
+        return snapped;
+    }
+
+    /**
+     * Capture the chunks for the points from {@code from} on, up to the batch limit, snap those
+     * points into {@code out} in parallel slices once the captures complete, then continue with the
+     * rest.
+     */
+    private CompletableFuture<List<RoutePoint>> snapBatches(List<RoutePoint> input, Map<String, World> worlds,
+                                                            int from, List<RoutePoint> out) {
+        Map<ChunkKey, CompletableFuture<RailProtectionManager.BlockTypes>> captures = new LinkedHashMap<>();
+        List<ChunkKey> needed = new ArrayList<>(4);
+        int end = from;
+        while (end < input.size()) {
+            RoutePoint point = input.get(end);
+            World world = worlds.get(point.worldName());
+            if (world != null) {
+                needed.clear();
+                forEachChunk(point, (chunkX, chunkZ) -> {
+                    ChunkKey key = new ChunkKey(point.worldName(), chunkX, chunkZ);
+                    if (!captures.containsKey(key)) {
+                        needed.add(key);
+                    }
+                });
+                // 一个点最多跨 4 个区块，批次至少包含一个点
+                if (end > from && captures.size() + needed.size() > MAX_BATCH_CHUNKS) {
+                    break;
+                }
+                for (ChunkKey key : needed) {
+                    captures.put(key, chunkSource.capture(world, key.chunkX(), key.chunkZ()));
+                }
+            }
+            end++;
+        }
+
+        int batchEnd = end;
+        return CompletableFuture.allOf(captures.values().toArray(new CompletableFuture<?>[0]))
+                .thenComposeAsync(ignored -> {
+                    Map<ChunkKey, RailProtectionManager.BlockTypes> chunks = new HashMap<>(captures.size());
+                    captures.forEach((key, capture) -> {
+                        RailProtectionManager.BlockTypes types = capture.join();
+                        if (types != null) {
+                            chunks.put(key, types);
+                        }
+                    });
+                    // 快照只读，各切片互不依赖；按切片顺序拼回，结果与顺序吸附一致
+                    List<CompletableFuture<List<RoutePoint>>> slices = new ArrayList<>();
+                    for (int start = from; start < batchEnd; start += SNAP_SLICE_POINTS) {
+                        int sliceStart = start;
+                        int sliceEnd = Math.min(batchEnd, start + SNAP_SLICE_POINTS);
+                        slices.add(CompletableFuture.supplyAsync(
+                                () -> snapSlice(input, sliceStart, sliceEnd, worlds, chunks), worker));
+                    }
+                    return CompletableFuture.allOf(slices.toArray(new CompletableFuture<?>[0]))
+                            .<List<RoutePoint>>thenComposeAsync(done -> {
+                                for (CompletableFuture<List<RoutePoint>> slice : slices) {
+                                    out.addAll(slice.join());
+                                }
+                                return batchEnd < input.size()
+                                        ? snapBatches(input, worlds, batchEnd, out)
+                                        : CompletableFuture.completedFuture(out);
+                            }, worker);
+                }, worker);
+    }
+
+    private List<RoutePoint> snapSlice(List<RoutePoint> input, int from, int to, Map<String, World> worlds,
+                                       Map<ChunkKey, RailProtectionManager.BlockTypes> chunks) {
+        List<RoutePoint> snapped = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            snapped.add(snapFromChunks(input.get(i), worlds, chunks));
         }
         return snapped;
     }
 
+    private RoutePoint snapFromChunks(RoutePoint point, Map<String, World> worlds,
+                                      Map<ChunkKey, RailProtectionManager.BlockTypes> chunks) {
+        if (worlds.get(point.worldName()) == null) {
+            return point;
+        }
+        boolean[] complete = { true };
+        forEachChunk(point, (chunkX, chunkZ) -> {
+            if (!chunks.containsKey(new ChunkKey(point.worldName(), chunkX, chunkZ))) {
+                complete[0] = false;
+            }
+        });
+        if (!complete[0]) {
+            return point;
+        }
+        try {
+            return snapToNearestRail(point, (x, y, z) ->
+                    chunks.get(new ChunkKey(point.worldName(), x >> 4, z >> 4)).getType(x, y, z));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "[RouteNormalizer] Failed to snap point", e);
+            return point;
+        }
+    }
+
+    private interface ChunkVisitor {
+        void accept(int chunkX, int chunkZ);
+    }
+
+    private static void forEachChunk(RoutePoint point, ChunkVisitor visitor) {
+        int baseX = (int) Math.floor(point.x());
+        int baseZ = (int) Math.floor(point.z());
+        for (int chunkX = (baseX - SEARCH_RADIUS_XZ) >> 4; chunkX <= (baseX + SEARCH_RADIUS_XZ) >> 4; chunkX++) {
+            for (int chunkZ = (baseZ - SEARCH_RADIUS_XZ) >> 4; chunkZ <= (baseZ + SEARCH_RADIUS_XZ) >> 4; chunkZ++) {
+                visitor.accept(chunkX, chunkZ);
+            }
+        }
+    }
+
+    private static World lookupWorld(String worldName) {
+        try {
+            return Bukkit.getWorld(worldName);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void logMissed(int missed, int total) {
+        LOGGER.log(Level.INFO,
+                "[RouteNormalizer] {0}/{1} points could not be snapped to a rail block",
+                new Object[] { missed, total });
+    }
+
     private List<RoutePoint> snapToRailCenters(List<RoutePoint> points) {
         List<RoutePoint> result = new ArrayList<>(points.size());
         int missed = 0;
@@ -65,9 +305,7 @@ public final class RouteNormalizer {
         }
 
         if (missed > 0) {
-            LOGGER.log(Level.INFO,
-                    "[RouteNormalizer] {0}/{1} points could not be snapped to a rail block",
-                    new Object[] { missed, points.size() });
+            logMissed(missed, points.size());
         }
         return result;
     }
@@ -80,17 +318,31 @@ public final class RouteNormalizer {
         } catch (Exception e) {
             return point;
         }
-        if (world == null) return point;
+        return snap(point, world);
+    }
 
+    /**
+     * Snap one point against a world the caller already holds, e.g. while sampling a cart whose
+     * chunk is loaded.
+     *
+     * @return the snapped point, or the point itself when no rail is in range or the read fails
+     */
+    public RoutePoint snap(RoutePoint point, World world) {
+        if (point == null || world == null) {
+            return point;
+        }
         try {
-            return snapPointInWorld(point, world);
+            return snapToNearestRail(point, (x, y, z) -> {
+                Block block = world.getBlockAt(x, y, z);
+                return block == null ? null : block.getType();
+            });
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "[RouteNormalizer] Failed to snap point", e);
             return point;
         }
     }
 
-    private RoutePoint snapPointInWorld(RoutePoint point, World world) {
+    private RoutePoint snapToNearestRail(RoutePoint point, RailProtectionManager.BlockTypes blocks) {
 
         int baseX = (int) Math.floor(point.x());
         int baseY = (int) Math.floor(point.y());
@@ -100,14 +352,13 @@ public final class RouteNormalizer {
         boolean found = false;
         double bestDistance = MAX_SNAP_DISTANCE * MAX_SNAP_DISTANCE;
 
-        for (int dy = -1; dy <= 1; dy++) {
-            for (int dx = -2; dx <= 2; dx++) {
-                for (int dz = -2; dz <= 2; dz++) {
+        for (int dy = -SEARCH_RADIUS_Y; dy <= SEARCH_RADIUS_Y; dy++) {
+            for (int dx = -SEARCH_RADIUS_XZ; dx <= SEARCH_RADIUS_XZ; dx++) {
+                for (int dz = -SEARCH_RADIUS_XZ; dz <= SEARCH_RADIUS_XZ; dz++) {
                     int x = baseX + dx;
                     int y = baseY + dy;
                     int z = baseZ + dz;
-                    Block block = world.getBlockAt(x, y, z);
-                    if (!isRail(block)) continue;
+                    if (!isRail(blocks.getType(x, y, z))) continue;
                     double dist = distanceSquaredToBlockCenter(point, x, y, z);
                     if (dist < bestDistance) {
                         bestDistance = dist;
@@ -126,8 +377,8 @@ public final class RouteNormalizer {
         return point;
     }
 
-    private boolean isRail(Block block) {
-        Material type = block.getType();
+    private boolean isRail(Material type) {
+        if (type == null) return false;
         for (Material rail : railMaterials) {
             if (type == rail) return true;
         }
@@ -140,52 +391,4 @@ public final class RouteNormalizer {
         double dz = point.z() - (z + 0.5);
         return dx * dx + dy * dy + dz * dz;
     }
-
-    private List<RoutePoint> simplifyCollinearPoints(List<RoutePoint> points, double epsilon) {
-        List<RoutePoint> result = new ArrayList<>();
-        result.add(points.get(0));
-        double epsSq = epsilon * epsilon;
-
-        for (int i = 1; i < points.size() - 1; i++) {
-            RoutePoint prev = result.get(result.size() - 1);
-            RoutePoint curr = points.get(i);
-            RoutePoint next = points.get(i + 1);
-
-            if (!isRedundantCollinear(prev, curr, next, epsSq)) {
-                result.add(curr);
-            }
-        }
-        result.add(points.get(points.size() - 1));
-        return result;
-    }
-
-    private boolean isRedundantCollinear(RoutePoint a, RoutePoint b, RoutePoint c, double epsSq) {
-        if (!a.worldName().equals(b.worldName()) || !b.worldName().equals(c.worldName())) {
-            return false;
-        }
-
-        double abx = b.x() - a.x();
-        double aby = b.y() - a.y();
-        double abz = b.z() - a.z();
-        double acx = c.x() - a.x();
-        double acy = c.y() - a.y();
-        double acz = c.z() - a.z();
-
-        double abLenSq = abx * abx + aby * aby + abz * abz;
-        if (abLenSq < 1e-12) return true;
-
-        double acLenSq = acx * acx + acy * acy + acz * acz;
-        if (acLenSq < 1e-12) return false;
-
-        double dot = abx * acx + aby * acy + abz * acz;
-        if (dot < 0) return false;
-        if (dot * dot > abLenSq * acLenSq) return false;
-
-        double crossX = aby * acz - abz * acy;
-        double crossY = abz * acx - abx * acz;
-        double crossZ = abx * acy - aby * acx;
-        double distSq = (crossX * crossX + crossY * crossY + crossZ * crossZ) / acLenSq;
-
-        return distSq <= epsSq;
-    }
 }
@@ -1,16 +1,27 @@
 package org.cubexmc.metro.manager;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Minecart;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.RoutePoint;
+import org.cubexmc.metro.util.SchedulerUtil;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Records a line's route from a sampled minecart ride.
+ *
+ * <p>Each sample is snapped to the nearest rail while the cart's chunk is loaded and fed straight
+ * into the collinear simplification, so a session only holds the points that will be saved and
+ * finishing a recording does no further world reads.
+ */
 public class RouteRecorder {
 
     private static final double DEFAULT_MIN_SAMPLE_DISTANCE_BLOCKS = 1.0;
@@ -22,8 +33,12 @@ public class RouteRecorder {
     private final RouteNormalizer routeNormalizer;
 
     public RouteRecorder(Metro plugin) {
+        this(plugin, new RouteNormalizer(plugin));
+    }
+
+    RouteRecorder(Metro plugin, RouteNormalizer routeNormalizer) {
         this.plugin = plugin;
-        this.routeNormalizer = new RouteNormalizer();
+        this.routeNormalizer = routeNormalizer;
     }
 
     public boolean start(String lineId) {
@@ -31,7 +46,7 @@ public class RouteRecorder {
     }
 
     public boolean start(String lineId, UUID recorderId) {
-        return sessions.putIfAbsent(lineId, new RecordingSession(lineId, recorderId)) == null;
+        return sessions.putIfAbsent(lineId, new RecordingSession(lineId, recorderId, effectiveEpsilonBlocks())) == null;
     }
 
     public FinishResult stopAndSave(String lineId) {
@@ -82,7 +97,8 @@ public class RouteRecorder {
         if (routePoint == null) {
             return;
         }
-        session.sample(minecart.getUniqueId(), routePoint, minSampleDistanceSquared());
+        session.sample(minecart.getUniqueId(), routePoint, location.getWorld(), minSampleDistanceSquared(),
+                routeNormalizer);
     }
 
     public FinishResult finishIfRecording(String lineId, Minecart minecart) {
@@ -98,11 +114,58 @@ public class RouteRecorder {
         sessions.clear();
     }
 
+    /**
+     * Drop all sessions and stop the route normalizer's worker pool; called on plugin disable.
+     */
+    public void shutdown() {
+        cancelAll();
+        routeNormalizer.shutdown();
+    }
+
+    /**
+     * Snap and simplify a line's saved route again, e.g. after the rails were edited. Chunks are
+     * captured and scanned off the main thread; the result is saved on the global thread, keeping
+     * the recording metadata, and then handed to {@code callback} there. If the route was replaced
+     * while normalizing, nothing is saved and the result is {@code FAILED}.
+     */
+    public void renormalize(String lineId, Consumer<FinishResult> callback) {
+        Line line = plugin.getLineManager().getLine(lineId);
+        if (line == null) {
+            callback.accept(FinishResult.failed(lineId, 0, null, null));
+            return;
+        }
+        List<RoutePoint> saved = line.getRoutePoints();
+        if (saved.size() < MIN_SAVE_POINTS) {
+            callback.accept(FinishResult.tooFewPoints(lineId, saved.size(), null, null));
+            return;
+        }
+        int revision = line.getRouteRevision();
+        routeNormalizer.normalizeAsync(saved, effectiveEpsilonBlocks()).whenComplete((points, error) ->
+                SchedulerUtil.globalRun(plugin, () -> {
+                    Line current = plugin.getLineManager().getLine(lineId);
+                    if (current == null || current.getRouteRevision() != revision) {
+                        // 规整期间路线被重新录制或清除，不能用旧路线的结果覆盖
+                        plugin.getLogger().info("[RouteRecorder] Route of line " + lineId
+                                + " changed while normalizing; result discarded.");
+                        callback.accept(FinishResult.failed(lineId, saved.size(), null, null));
+                    } else if (error != null) {
+                        plugin.getLogger().log(Level.WARNING,
+                                "[RouteRecorder] Failed to normalize route of line " + lineId, error);
+                        callback.accept(FinishResult.failed(lineId, saved.size(), null, null));
+                    } else if (points.size() < MIN_SAVE_POINTS) {
+                        callback.accept(FinishResult.tooFewPoints(lineId, points.size(), null, null));
+                    } else if (!plugin.getLineManager().setLineRoutePoints(lineId, points)) {
+                        callback.accept(FinishResult.failed(lineId, points.size(), null, null));
+                    } else {
+                        plugin.getLogger().info("[RouteRecorder] Normalized route of line " + lineId + ": "
+                                + saved.size() + " -> " + points.size() + " points.");
+                        callback.accept(FinishResult.saved(lineId, points.size(), null, null));
+                    }
+                }, 0L, -1L));
+    }
+
     private FinishResult saveSession(RecordingSession session) {
-        List<RoutePoint> normalized = routeNormalizer.normalize(session.snapshot(), simplifyEpsilonBlocks());
-        List<RoutePoint> points = normalized.size() >= MIN_SAVE_POINTS
-                ? normalized
-                : simplifyRoutePoints(session.snapshot());
+        List<RoutePoint> points = session.finish();
         if (points.size() < MIN_SAVE_POINTS) {
             return FinishResult.tooFewPoints(session.lineId, points.size(), session.recorderId, session.cartId);
         }
@@ -114,24 +177,8 @@ public class RouteRecorder {
         return FinishResult.saved(session.lineId, points.size(), session.recorderId, session.cartId);
     }
 
-    private List<RoutePoint> simplifyRoutePoints(List<RoutePoint> points) {
-        if (points == null || points.size() < 3 || !shouldSimplifyCollinearPoints()) {
-            return points == null ? List.of() : points;
-        }
-
-        List<RoutePoint> simplified = new ArrayList<>();
-        simplified.add(points.get(0));
-        double epsilon = simplifyEpsilonBlocks();
-        for (int i = 1; i < points.size() - 1; i++) {
-            RoutePoint previous = simplified.get(simplified.size() - 1);
-            RoutePoint current = points.get(i);
-            RoutePoint next = points.get(i + 1);
-            if (!isRedundantCollinearPoint(previous, current, next, epsilon)) {
-                simplified.add(current);
-            }
-        }
-        simplified.add(points.get(points.size() - 1));
-        return simplified;
+    private double effectiveEpsilonBlocks() {
+        return shouldSimplifyCollinearPoints() ? simplifyEpsilonBlocks() : 0.0D;
     }
 
     private boolean shouldSimplifyCollinearPoints() {
@@ -151,51 +198,26 @@ public class RouteRecorder {
                 : plugin.getConfigFacade().getRouteRecordingSimplifyEpsilonBlocks();
     }
 
-    private static boolean isRedundantCollinearPoint(RoutePoint previous, RoutePoint current, RoutePoint next,
-                                                    double epsilon) {
-        if (previous == null || current == null || next == null
-                || !previous.worldName().equals(current.worldName())
-                || !previous.worldName().equals(next.worldName())) {
-            return false;
-        }
-
-        double acX = next.x() - previous.x();
-        double acY = next.y() - previous.y();
-        double acZ = next.z() - previous.z();
-        double abX = current.x() - previous.x();
-        double abY = current.y() - previous.y();
-        double abZ = current.z() - previous.z();
-        double acLengthSquared = acX * acX + acY * acY + acZ * acZ;
-        if (acLengthSquared <= 0.000001D) {
-            return current.distanceSquared(previous) <= epsilon * epsilon;
-        }
-
-        double projection = abX * acX + abY * acY + abZ * acZ;
-        double tolerance = Math.max(epsilon, 0.000001D);
-        if (projection < -tolerance || projection > acLengthSquared + tolerance) {
-            return false;
-        }
-
-        double crossX = abY * acZ - abZ * acY;
-        double crossY = abZ * acX - abX * acZ;
-        double crossZ = abX * acY - abY * acX;
-        double distanceSquared = (crossX * crossX + crossY * crossY + crossZ * crossZ) / acLengthSquared;
-        return distanceSquared <= epsilon * epsilon;
-    }
-
     private static class RecordingSession {
         private final String lineId;
         private final UUID recorderId;
-        private final List<RoutePoint> points = new ArrayList<>();
+        private final CollinearRouteSimplifier simplifier;
         private UUID cartId;
+        /** 上一个采样点（吸附前），用于最小采样间距判断 */
         private RoutePoint lastPoint;
+        private boolean finished;
 
-        private RecordingSession(String lineId, UUID recorderId) {
+        private RecordingSession(String lineId, UUID recorderId, double simplifyEpsilon) {
             this.lineId = lineId;
             this.recorderId = recorderId;
+            this.simplifier = new CollinearRouteSimplifier(simplifyEpsilon);
         }
 
-        private synchronized void sample(UUID candidateCartId, RoutePoint routePoint, double minSampleDistanceSquared) {
+        private synchronized void sample(UUID candidateCartId, RoutePoint routePoint, World world,
+                                         double minSampleDistanceSquared, RouteNormalizer normalizer) {
+            if (finished) {
+                return;
+            }
             if (cartId == null) {
                 cartId = candidateCartId;
             }
@@ -205,7 +227,8 @@ public class RouteRecorder {
             if (lastPoint != null && lastPoint.distanceSquared(routePoint) < minSampleDistanceSquared) {
                 return;
             }
-            points.add(routePoint);
+            // 在矿车所在区块已加载时吸附到铁轨中心
+            simplifier.add(normalizer.snap(routePoint, world));
             lastPoint = routePoint;
         }
 
@@ -232,11 +255,12 @@ public class RouteRecorder {
         }
 
         private synchronized int pointCount() {
-            return points.size();
+            return simplifier.size();
         }
 
-        private synchronized List<RoutePoint> snapshot() {
-            return new ArrayList<>(points);
+        private synchronized List<RoutePoint> finish() {
+            finished = true;
+            return simplifier.finish();
         }
     }
 
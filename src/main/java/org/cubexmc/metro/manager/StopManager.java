@@ -42,6 +42,7 @@ public class StopManager {
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private volatile boolean isDirty = false;
+    private final ChangeJournal changes = new ChangeJournal();
 
     /**
      * 创建停靠区管理器
@@ -66,6 +67,7 @@ public class StopManager {
         lock.writeLock().lock();
         try {
             stops.clear();
+            changes.recordReset();
             worldStopIndex.clear();
 
             // 加载所有停靠区
@@ -96,7 +98,30 @@ public class StopManager {
         plugin.getLogger().info("Loaded " + stops.size() + " stops");
     }
 
+    /**
+     * 标记配置已修改但不指明是哪个停靠区，读取变更的一方需要全量同步
+     */
     public void saveConfig() {
+        changes.recordReset();
+        markDirty();
+    }
+
+    /**
+     * 标记某个停靠区已修改
+     */
+    public void saveConfig(String stopId) {
+        changes.recordChanged(stopId);
+        markDirty();
+    }
+
+    /**
+     * Version counter and change log of this manager's stops.
+     */
+    public ChangeJournal getChangeJournal() {
+        return changes;
+    }
+
+    private void markDirty() {
         this.isDirty = true;
         plugin.requestMapIntegrationRefresh();
     }
@@ -153,7 +178,7 @@ public class StopManager {
             }
             stops.put(stopId, stop);
             indexStop(stop);
-            saveConfig();
+            saveConfig(stopId);
             return stop;
         } finally {
             lock.writeLock().unlock();
@@ -183,7 +208,7 @@ public class StopManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(stopId);
         return true;
     }
 
@@ -213,7 +238,8 @@ public class StopManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        changes.recordRemoved(stopId);
+        markDirty();
 
         return true;
     }
@@ -244,7 +270,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
 
-        saveConfig();
+        saveConfig(stopId);
         return true;
     }
 
@@ -259,7 +285,7 @@ public class StopManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(stopId);
         return true;
     }
 
@@ -276,7 +302,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return changed;
     }
@@ -294,7 +320,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return changed;
     }
@@ -312,7 +338,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return changed;
     }
@@ -330,7 +356,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (changed) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return changed;
     }
@@ -354,7 +380,7 @@ public class StopManager {
         } finally {
             lock.writeLock().unlock();
         }
-        saveConfig();
+        saveConfig(stopId);
         return true;
     }
 
@@ -504,7 +530,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (added) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return added;
     }
@@ -530,7 +556,7 @@ public class StopManager {
             lock.writeLock().unlock();
         }
         if (removed) {
-            saveConfig();
+            saveConfig(stopId);
         }
         return removed;
     }
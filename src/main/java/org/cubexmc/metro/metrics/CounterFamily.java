@@ -0,0 +1,63 @@
+package org.cubexmc.metro.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter with at most one label. Increments are dropped while the registry is disabled.
+ */
+public final class CounterFamily {
+
+    private static final String UNLABELED = "";
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final String help;
+    private final String labelName;
+    private final Map<String, LongAdder> values = new ConcurrentHashMap<>();
+
+    CounterFamily(MetricsRegistry registry, String name, String help, String labelName) {
+        this.registry = registry;
+        this.name = name;
+        this.help = help;
+        this.labelName = labelName;
+    }
+
+    public void increment() {
+        add(UNLABELED, 1L);
+    }
+
+    public void increment(String labelValue) {
+        add(labelValue, 1L);
+    }
+
+    public void add(String labelValue, long amount) {
+        if (!registry.isEnabled() || amount <= 0L) {
+            return;
+        }
+        String key = labelValue == null ? UNLABELED : labelValue;
+        values.computeIfAbsent(key, ignored -> new LongAdder()).add(amount);
+    }
+
+    public long get(String labelValue) {
+        LongAdder adder = values.get(labelValue == null ? UNLABELED : labelValue);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void writeTo(PrometheusTextWriter writer) {
+        writer.family(name, MetricType.COUNTER, help);
+        if (labelName == null) {
+            writer.sample(get(UNLABELED));
+            return;
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(values).entrySet()) {
+            writer.sample(labelName, entry.getKey(), entry.getValue().sum());
+        }
+    }
+}
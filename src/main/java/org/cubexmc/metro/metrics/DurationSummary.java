@@ -0,0 +1,52 @@
+package org.cubexmc.metro.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prometheus summary without quantiles: count, sum and max of recorded durations, exported in seconds.
+ */
+public final class DurationSummary {
+
+    private final MetricsRegistry registry;
+    private final String name;
+    private final String help;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    DurationSummary(MetricsRegistry registry, String name, String help) {
+        this.registry = registry;
+        this.name = name;
+        this.help = help;
+    }
+
+    public void record(long nanos) {
+        if (!registry.isEnabled()) {
+            return;
+        }
+        long value = Math.max(0L, nanos);
+        count.increment();
+        sumNanos.add(value);
+        long currentMax = maxNanos.get();
+        while (value > currentMax && !maxNanos.compareAndSet(currentMax, value)) {
+            currentMax = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void writeTo(PrometheusTextWriter writer) {
+        writer.family(name, MetricType.SUMMARY, help);
+        writer.sample("_sum", sumNanos.sum() / 1.0e9);
+        writer.sample("_count", count.sum());
+        writer.family(name + "_max", MetricType.GAUGE, "Largest value observed for " + name);
+        writer.sample(maxNanos.get() / 1.0e9);
+    }
+}
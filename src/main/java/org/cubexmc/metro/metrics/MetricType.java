@@ -0,0 +1,17 @@
+package org.cubexmc.metro.metrics;
+
+public enum MetricType {
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    SUMMARY("summary");
+
+    private final String key;
+
+    MetricType(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
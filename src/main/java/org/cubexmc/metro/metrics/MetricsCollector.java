@@ -0,0 +1,10 @@
+package org.cubexmc.metro.metrics;
+
+/**
+ * Emits gauges computed from live state at scrape time.
+ * Collectors run on the thread that calls {@link MetricsRegistry#scrape()}.
+ */
+@FunctionalInterface
+public interface MetricsCollector {
+    void collect(PrometheusTextWriter writer);
+}
@@ -0,0 +1,133 @@
+package org.cubexmc.metro.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.cubexmc.metro.persistence.SaveCoordinator;
+
+/**
+ * Periodically renders the registry and publishes it to a Prometheus text file and/or a small
+ * HTTP endpoint. Rendering happens on the scheduler thread because collectors read live state;
+ * the file is written through a {@link SaveCoordinator} on its async executor and the HTTP handler
+ * only serves the last rendered document.
+ */
+public class MetricsExporter {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    static final String HTTP_PATH = "/metrics";
+
+    private final Logger logger;
+    private final MetricsRegistry registry;
+    private final SaveCoordinator fileWriter;
+    private final TaskScheduler scheduler;
+    private volatile String latest = "";
+    private Settings settings;
+    private Object taskId;
+    private HttpServer httpServer;
+
+    public MetricsExporter(Logger logger, MetricsRegistry registry, SaveCoordinator fileWriter,
+            TaskScheduler scheduler) {
+        this.logger = logger;
+        this.registry = registry;
+        this.fileWriter = fileWriter;
+        this.scheduler = scheduler;
+    }
+
+    public void start(Settings settings) {
+        stop();
+        if (settings == null || (settings.file() == null && !settings.httpEnabled())) {
+            return;
+        }
+        this.settings = settings;
+        if (settings.httpEnabled()) {
+            startHttp(settings.httpHost(), settings.httpPort());
+        }
+        long period = Math.max(20L, settings.intervalTicks());
+        this.taskId = scheduler.schedule(this::export, period, period);
+    }
+
+    public void stop() {
+        if (taskId != null) {
+            scheduler.cancel(taskId);
+            taskId = null;
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        settings = null;
+    }
+
+    public boolean isRunning() {
+        return taskId != null;
+    }
+
+    /**
+     * Last rendered exposition document, empty before the first export.
+     */
+    public String getLatest() {
+        return latest;
+    }
+
+    void export() {
+        Settings current = settings;
+        if (current == null) {
+            return;
+        }
+        String document = registry.scrape();
+        latest = document;
+        if (current.file() != null) {
+            fileWriter.submitSnapshot(current.file(), document);
+        }
+    }
+
+    private void startHttp(String host, int port) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.createContext(HTTP_PATH, this::handle);
+            server.start();
+            this.httpServer = server;
+            logger.info("[Metrics] Serving Prometheus metrics on http://" + host + ":" + port + HTTP_PATH);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "[Metrics] Failed to bind metrics endpoint " + host + ":" + port, e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = latest.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file      target file, or null to skip file output
+     * @param httpHost  bind address of the optional endpoint
+     */
+    public record Settings(long intervalTicks, Path file, boolean httpEnabled, String httpHost, int httpPort) {
+    }
+
+    public interface TaskScheduler {
+        Object schedule(Runnable task, long delay, long period);
+
+        void cancel(Object taskId);
+    }
+}
@@ -0,0 +1,91 @@
+package org.cubexmc.metro.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local metrics registry rendered in the Prometheus text format.
+ * Counters and summaries are LongAdder based and safe to update from any thread; while disabled
+ * every update returns after one volatile read. Gauges come from {@link MetricsCollector}s at scrape time.
+ */
+public final class MetricsRegistry {
+
+    private final Logger logger;
+    private final Map<String, Object> byName = new ConcurrentHashMap<>();
+    private final List<Object> metrics = new CopyOnWriteArrayList<>();
+    private final List<MetricsCollector> collectors = new CopyOnWriteArrayList<>();
+    private volatile boolean enabled;
+
+    public MetricsRegistry(boolean enabled, Logger logger) {
+        this.enabled = enabled;
+        this.logger = logger;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public CounterFamily counter(String name, String help) {
+        return counter(name, help, null);
+    }
+
+    public CounterFamily counter(String name, String help, String labelName) {
+        return register(name, CounterFamily.class, new CounterFamily(this, name, help, labelName));
+    }
+
+    public DurationSummary summary(String name, String help) {
+        return register(name, DurationSummary.class, new DurationSummary(this, name, help));
+    }
+
+    public void registerCollector(MetricsCollector collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * Render every metric. Collectors read live plugin state, so call this on the server thread.
+     */
+    public String scrape() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        for (Object metric : metrics) {
+            if (metric instanceof CounterFamily counter) {
+                counter.writeTo(writer);
+            } else if (metric instanceof DurationSummary summary) {
+                summary.writeTo(writer);
+            }
+        }
+        for (MetricsCollector collector : collectors) {
+            // 每个 collector 写到独立的缓冲区，失败时不会留下半个指标族
+            PrometheusTextWriter collected = new PrometheusTextWriter();
+            try {
+                collector.collect(collected);
+                writer.append(collected);
+            } catch (RuntimeException e) {
+                if (logger != null) {
+                    logger.log(Level.FINE, "[Metrics] Collector failed", e);
+                }
+            }
+        }
+        return writer.toString();
+    }
+
+    private <T> T register(String name, Class<T> type, T created) {
+        Object existing = byName.putIfAbsent(name, created);
+        if (existing == null) {
+            metrics.add(created);
+            return created;
+        }
+        if (!type.isInstance(existing)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as "
+                    + existing.getClass().getSimpleName());
+        }
+        return type.cast(existing);
+    }
+}
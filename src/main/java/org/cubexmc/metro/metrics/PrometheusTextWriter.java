@@ -0,0 +1,91 @@
+package org.cubexmc.metro.metrics;
+
+import java.util.Locale;
+
+/**
+ * Builds a Prometheus text exposition (format 0.0.4) document.
+ * Samples must be written right after their {@link #family} declaration.
+ */
+public final class PrometheusTextWriter {
+
+    private final StringBuilder out = new StringBuilder(4096);
+    private String currentFamily;
+
+    public PrometheusTextWriter family(String name, MetricType type, String help) {
+        currentFamily = name;
+        out.append("# HELP ").append(name).append(' ').append(escapeHelp(help)).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type.getKey()).append('\n');
+        return this;
+    }
+
+    public PrometheusTextWriter sample(double value) {
+        return sample("", value);
+    }
+
+    public PrometheusTextWriter sample(String labelName, String labelValue, double value) {
+        return sample("", value, labelName, labelValue);
+    }
+
+    /**
+     * Write one sample of the current family.
+     *
+     * @param suffix      appended to the family name, e.g. {@code "_count"}; empty for the plain sample
+     * @param labelPairs  alternating label names and values
+     */
+    public PrometheusTextWriter sample(String suffix, double value, String... labelPairs) {
+        if (currentFamily == null) {
+            throw new IllegalStateException("sample written before family declaration");
+        }
+        if (labelPairs.length % 2 != 0) {
+            throw new IllegalArgumentException("labelPairs must contain name/value pairs");
+        }
+        out.append(currentFamily).append(suffix);
+        if (labelPairs.length > 0) {
+            out.append('{');
+            for (int index = 0; index < labelPairs.length; index += 2) {
+                if (index > 0) {
+                    out.append(',');
+                }
+                out.append(labelPairs[index]).append("=\"").append(escapeLabel(labelPairs[index + 1])).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+        return this;
+    }
+
+    PrometheusTextWriter append(PrometheusTextWriter other) {
+        out.append(other.out);
+        currentFamily = null;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1.0e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.9g", value).replaceFirst("\\.?0+(e|$)", "$1");
+    }
+
+    private static String escapeLabel(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,46 @@
+package org.cubexmc.metro.metrics;
+
+import org.cubexmc.metro.Metro;
+
+/**
+ * Railway's metric handles. Event counters are pushed from the code paths that cause them;
+ * everything derived from current state is read by {@link RailwayStateCollector} at scrape time.
+ */
+public final class RailwayMetrics {
+
+    private final MetricsRegistry registry;
+    private final CounterFamily materialisations;
+    private final CounterFamily virtualisations;
+    private final DurationSummary saveDuration;
+
+    public RailwayMetrics(Metro plugin, boolean enabled) {
+        this(new MetricsRegistry(enabled, plugin.getLogger()));
+        registry.registerCollector(new RailwayStateCollector(plugin));
+    }
+
+    RailwayMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.materialisations = registry.counter("railway_train_materialisations_total",
+                "Virtual trains turned into physical trains", "line");
+        this.virtualisations = registry.counter("railway_train_virtualisations_total",
+                "Physical trains returned to the virtual pool", "line");
+        this.saveDuration = registry.summary("railway_save_duration_seconds",
+                "Time spent writing data files through the save coordinator");
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public void recordMaterialisation(String lineId) {
+        materialisations.increment(lineId);
+    }
+
+    public void recordVirtualisation(String lineId) {
+        virtualisations.increment(lineId);
+    }
+
+    public void recordSave(long nanos) {
+        saveDuration.record(nanos);
+    }
+}
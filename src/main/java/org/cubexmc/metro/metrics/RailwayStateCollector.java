@@ -0,0 +1,213 @@
+package org.cubexmc.metro.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.estimation.TravelTimeEstimator;
+import org.cubexmc.metro.profiling.LatencySummary;
+import org.cubexmc.metro.profiling.LoadGovernor;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
+import org.cubexmc.metro.service.BlockSectionManager;
+import org.cubexmc.metro.service.ConsistPool;
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.LineServiceManager;
+import org.cubexmc.metro.service.TickBudgetScheduler;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
+import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.train.TrainSnapshot;
+
+/**
+ * Gauges read from line services, the travel time estimator and the tick profiler.
+ * Must run on the server (global) thread; per-train values come from each train's published
+ * {@link TrainSnapshot}, never from the minecarts or chunk tickets owned by region threads.
+ */
+class RailwayStateCollector implements MetricsCollector {
+
+    /** Window used for the profiler-backed timing gauges. */
+    static final long TIMING_WINDOW_SECONDS = 60L;
+
+    private final Metro plugin;
+
+    RailwayStateCollector(Metro plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void collect(PrometheusTextWriter writer) {
+        collectServices(writer);
+        collectEstimator(writer);
+        collectTimings(writer);
+        collectLoadGovernor(writer);
+    }
+
+    private void collectLoadGovernor(PrometheusTextWriter writer) {
+        LoadGovernor governor = plugin.getLoadGovernor();
+        if (governor == null) {
+            return;
+        }
+        writer.family("railway_load_tier", MetricType.GAUGE, "Current load governor degradation tier, 0 when normal");
+        writer.sample(governor.getLevel());
+        writer.family("railway_load_mspt_seconds", MetricType.GAUGE,
+                "Rolling server tick time last seen by the load governor");
+        writer.sample(governor.getLastMspt() / 1000.0);
+        writer.family("railway_load_tier_transitions_total", MetricType.COUNTER,
+                "Load governor tier changes");
+        writer.sample(governor.getTransitionCount());
+    }
+
+    private void collectServices(PrometheusTextWriter writer) {
+        LineServiceManager manager = plugin.getLineServiceManager();
+        if (manager == null) {
+            return;
+        }
+        List<LineService> services = new ArrayList<>(manager.getServices());
+        services.sort(Comparator.comparing(LineService::getLineId));
+
+        writer.family("railway_line_services", MetricType.GAUGE, "Line services currently running");
+        writer.sample(services.size());
+
+        writer.family("railway_active_trains", MetricType.GAUGE, "Physical trains per line");
+        for (LineService service : services) {
+            writer.sample("line", service.getLineId(), service.getActiveTrainCount());
+        }
+
+        writer.family("railway_virtual_trains", MetricType.GAUGE,
+                "Virtual trains per line that are not currently materialised");
+        for (LineService service : services) {
+            VirtualTrainPool pool = service.getVirtualTrainPool();
+            if (pool != null) {
+                writer.sample("line", service.getLineId(),
+                        Math.max(0, pool.getVirtualTrainCount() - pool.getMaterializedCount()));
+            }
+        }
+
+        writer.family("railway_train_spawns_total", MetricType.COUNTER, "Physical trains spawned per line");
+        for (LineService service : services) {
+            writer.sample("line", service.getLineId(), service.getTotalSpawns());
+        }
+
+        writer.family("railway_forced_chunks", MetricType.GAUGE, "Chunks force-loaded by the trains of each line");
+        for (LineService service : services) {
+            int forced = 0;
+            for (TrainInstance train : service.getActiveTrains()) {
+                TrainSnapshot snapshot = train.getSnapshot();
+                if (snapshot != null) {
+                    forced += snapshot.forcedChunks();
+                }
+            }
+            writer.sample("line", service.getLineId(), forced);
+        }
+
+        collectConsistPool(writer, manager.getConsistPool());
+        collectTickBudget(writer, manager.getTickBudget());
+
+        BlockSectionManager sections = manager.getBlockSectionManager();
+        if (sections != null) {
+            writer.family("railway_occupied_sections", MetricType.GAUGE, "Occupied block sections per line");
+            for (LineService service : services) {
+                writer.sample("line", service.getLineId(), sections.getOccupiedCount(service.getLineId()));
+            }
+        }
+    }
+
+    private void collectConsistPool(PrometheusTextWriter writer, ConsistPool pool) {
+        if (pool == null || !pool.isEnabled()) {
+            return;
+        }
+        writer.family("railway_consist_pool_parked", MetricType.GAUGE,
+                "Minecarts parked in the consist pool per world");
+        List<Map.Entry<UUID, Integer>> worlds = new ArrayList<>(pool.getParkedCounts().entrySet());
+        worlds.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<UUID, Integer> entry : worlds) {
+            World world = Bukkit.getWorld(entry.getKey());
+            writer.sample("world", world != null ? world.getName() : entry.getKey().toString(), entry.getValue());
+        }
+        writer.family("railway_consist_pool_requests_total", MetricType.COUNTER,
+                "Minecarts requested from the consist pool; hits are spawns avoided");
+        writer.sample("result", "hit", pool.getHitCount());
+        writer.sample("result", "miss", pool.getMissCount());
+        writer.family("railway_consist_pool_returns_total", MetricType.COUNTER,
+                "Minecarts offered to the consist pool instead of being removed");
+        writer.sample("result", "parked", pool.getParkedTotal());
+        writer.sample("result", "rejected", pool.getRejectedCount());
+        writer.family("railway_consist_pool_evictions_total", MetricType.COUNTER,
+                "Parked minecarts removed after idling or becoming invalid");
+        writer.sample(pool.getEvictedCount());
+    }
+
+    private void collectTickBudget(PrometheusTextWriter writer, TickBudgetScheduler budget) {
+        if (budget == null || !budget.isEnabled()) {
+            return;
+        }
+        writer.family("railway_tick_budget_seconds", MetricType.GAUGE, "Configured service heartbeat budget");
+        writer.sample(budget.getBudgetNanos() / 1.0e9);
+        writer.family("railway_tick_budget_last_duration_seconds", MetricType.GAUGE,
+                "Time spent by the most recent budgeted heartbeat");
+        writer.sample(budget.getLastElapsedNanos() / 1.0e9);
+        writer.family("railway_tick_budget_deadline_misses_total", MetricType.COUNTER,
+                "Heartbeats that exceeded the tick budget");
+        writer.sample(budget.getDeadlineMisses());
+        writer.family("railway_tick_budget_deferred_total", MetricType.COUNTER,
+                "Background tasks postponed to a later heartbeat");
+        writer.sample(budget.getDeferredRuns());
+        writer.family("railway_tick_budget_forced_total", MetricType.COUNTER,
+                "Background tasks run over budget by starvation protection");
+        writer.sample(budget.getForcedRuns());
+        writer.family("railway_tick_budget_backlog", MetricType.GAUGE,
+                "Background tasks left over by the most recent heartbeat");
+        writer.sample(budget.getLastBacklog());
+    }
+
+    private void collectEstimator(PrometheusTextWriter writer) {
+        TravelTimeEstimator estimator = plugin.getTravelTimeEstimator();
+        if (estimator == null) {
+            return;
+        }
+        writer.family("railway_travel_time_sections", MetricType.GAUGE,
+                "Stop-to-stop sections tracked by the travel time estimator");
+        writer.sample(estimator.getTrackedSectionCount());
+        writer.family("railway_travel_time_samples_total", MetricType.COUNTER,
+                "Travel time samples offered to the estimator");
+        writer.sample("result", "accepted", estimator.getAcceptedSampleCount());
+        writer.sample("result", "rejected", estimator.getRejectedSampleCount());
+    }
+
+    private void collectTimings(PrometheusTextWriter writer) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        if (profiler == null || !profiler.isEnabled()) {
+            return;
+        }
+        Map<ProfilerSection, LatencySummary> sections = profiler.summarizeSections(TIMING_WINDOW_SECONDS);
+        writer.family("railway_tick_duration_seconds", MetricType.SUMMARY,
+                "Per-subsystem timings over the last minute, including event handlers");
+        for (Map.Entry<ProfilerSection, LatencySummary> entry : sections.entrySet()) {
+            writeQuantiles(writer, "section", entry.getKey().getKey(), entry.getValue());
+        }
+        writer.family("railway_tick_samples", MetricType.GAUGE, "Timing samples per subsystem over the last minute");
+        for (Map.Entry<ProfilerSection, LatencySummary> entry : sections.entrySet()) {
+            writer.sample("section", entry.getKey().getKey(), entry.getValue().count());
+        }
+
+        Map<String, LatencySummary> lines = profiler.summarizeLines(TIMING_WINDOW_SECONDS);
+        writer.family("railway_line_tick_duration_seconds", MetricType.SUMMARY,
+                "Per-line service tick timings over the last minute");
+        for (Map.Entry<String, LatencySummary> entry : lines.entrySet()) {
+            writeQuantiles(writer, "line", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void writeQuantiles(PrometheusTextWriter writer, String labelName, String labelValue,
+            LatencySummary summary) {
+        writer.sample("", summary.p50Nanos() / 1.0e9, labelName, labelValue, "quantile", "0.5");
+        writer.sample("", summary.p99Nanos() / 1.0e9, labelName, labelValue, "quantile", "0.99");
+        writer.sample("", summary.maxNanos() / 1.0e9, labelName, labelValue, "quantile", "1");
+        writer.sample("_count", summary.count(), labelName, labelValue);
+    }
+}
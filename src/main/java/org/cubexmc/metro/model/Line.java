@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 代表地铁系统中的一条线路
@@ -16,6 +17,10 @@ public class Line {
     private final List<String> orderedStopIds;
     private final List<String> portalIds;
     private List<RoutePoint> routePoints;
+    // 所有线路共用一个计数器，重载后新建的 Line 也不会与旧实例的修订号重复
+    private static final AtomicInteger ROUTE_REVISIONS = new AtomicInteger();
+
+    private volatile int routeRevision; // 路线点每次变更时更新，供按路线缓存的计算判断是否过期
     private String color; // 线路颜色
     private String terminusName; // 终点站方向名称
     private Double maxSpeed; // 线路最大速度
@@ -193,21 +198,31 @@ public class Line {
     }
 
     public void setRoutePoints(Collection<RoutePoint> routePoints) {
-        this.routePoints = new ArrayList<>();
+        List<RoutePoint> points = new ArrayList<>();
         if (routePoints != null) {
             for (RoutePoint point : routePoints) {
                 if (point != null) {
-                    this.routePoints.add(point);
+                    points.add(point);
                 }
             }
         }
+        this.routePoints = points;
+        routeRevision = ROUTE_REVISIONS.incrementAndGet();
     }
 
     public void clearRoutePoints() {
-        routePoints.clear();
+        routePoints = new ArrayList<>();
+        routeRevision = ROUTE_REVISIONS.incrementAndGet();
         clearRouteRecordingMetadata();
     }
 
+    /**
+     * 路线点的修订号，每次设置或清空路线点后变化；不同 Line 实例之间也不会重复。
+     */
+    public int getRouteRevision() {
+        return routeRevision;
+    }
+
     public Long getRouteRecordedAtEpochMillis() {
         return routeRecordedAtEpochMillis;
     }
@@ -12,6 +12,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,12 +29,20 @@ public class SaveCoordinator {
     private final Executor executor;
     private final Map<Path, AtomicLong> latestVersions = new ConcurrentHashMap<>();
     private final Map<Path, CompletableFuture<Void>> writeChains = new ConcurrentHashMap<>();
+    private volatile LongConsumer writeTimingListener;
 
     public SaveCoordinator(Logger logger, Executor executor) {
         this.logger = Objects.requireNonNull(logger, "logger");
         this.executor = Objects.requireNonNull(executor, "executor");
     }
 
+    /**
+     * Receives the duration in nanoseconds of every successful file write, on the writing thread.
+     */
+    public void setWriteTimingListener(LongConsumer writeTimingListener) {
+        this.writeTimingListener = writeTimingListener;
+    }
+
     public long submit(Path targetFile, Supplier<String> snapshotSupplier) {
         Objects.requireNonNull(snapshotSupplier, "snapshotSupplier");
         String snapshot = snapshotSupplier.get();
@@ -103,7 +112,12 @@ public class SaveCoordinator {
         IOException lastError = null;
         for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
             try {
+                long startNanos = System.nanoTime();
                 writeAtomically(targetFile, version, snapshot);
+                LongConsumer listener = writeTimingListener;
+                if (listener != null) {
+                    listener.accept(System.nanoTime() - startNanos);
+                }
                 return;
             } catch (IOException ex) {
                 lastError = ex;
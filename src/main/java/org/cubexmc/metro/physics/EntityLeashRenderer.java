@@ -0,0 +1,90 @@
+package org.cubexmc.metro.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Minecart;
+import org.bukkit.entity.Mob;
+import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.util.SchedulerUtil;
+
+/**
+ * Fallback renderer that spawns real invisible, AI-less mobs between cars.
+ * Used when no packet backend is available.
+ */
+final class EntityLeashRenderer implements LeashRenderer {
+
+    private final TrainInstance train;
+    private final EntityType type;
+    private final double offsetY;
+    private final List<LivingEntity> dummies = new ArrayList<>();
+
+    EntityLeashRenderer(TrainInstance train, EntityType type, double offsetY) {
+        this.train = train;
+        this.type = type;
+        this.offsetY = offsetY;
+    }
+
+    @Override
+    public void start() {
+        cleanup();
+        List<Minecart> cars = train.getConsist().getCars();
+        if (cars.size() < 2) return;
+
+        for (int i = 1; i < cars.size(); i++) {
+            Minecart prev = cars.get(i - 1);
+            Minecart cur = cars.get(i);
+            if (prev == null || cur == null || prev.isDead() || cur.isDead()) continue;
+
+            Location base = LeashCoupler.midpoint(prev.getLocation(), cur.getLocation()).add(0, offsetY, 0);
+            LivingEntity dummy = base.getWorld().spawn(base, type.getEntityClass().asSubclass(LivingEntity.class), ent -> {
+                ent.setInvisible(true);
+                ent.setSilent(true);
+                ent.setInvulnerable(true);
+                ent.setGravity(false);
+                ent.setCollidable(false);
+                if (ent instanceof Mob) {
+                    ((Mob) ent).setAI(false);
+                }
+            });
+            // Set leash holder to previous cart (visual rope between prev and dummy)
+            try {
+                dummy.setLeashHolder(prev);
+            } catch (Throwable ignored) {}
+            dummies.add(dummy);
+        }
+    }
+
+    @Override
+    public void update() {
+        List<Minecart> cars = train.getConsist().getCars();
+        if (dummies.isEmpty() || cars.size() < 2) return;
+        int count = Math.min(dummies.size(), Math.max(0, cars.size() - 1));
+        for (int i = 0; i < count; i++) {
+            LivingEntity dummy = dummies.get(i);
+            Minecart prev = cars.get(i);
+            Minecart cur = cars.get(i + 1);
+            if (dummy == null || dummy.isDead() || prev == null || cur == null || prev.isDead() || cur.isDead()) continue;
+            Location target = LeashCoupler.midpoint(prev.getLocation(), cur.getLocation()).add(0, offsetY, 0);
+            SchedulerUtil.teleportEntity(dummy, target);
+            // Ensure leash still tied to prev
+            if (!dummy.isLeashed() || dummy.getLeashHolder() != prev) {
+                try { dummy.setLeashHolder(prev); } catch (Throwable ignored) {}
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        for (LivingEntity le : new ArrayList<>(dummies)) {
+            if (le != null && !le.isDead()) {
+                try { le.setLeashHolder(null); } catch (Throwable ignored) {}
+                le.remove();
+            }
+        }
+        dummies.clear();
+    }
+}
@@ -0,0 +1,219 @@
+package org.cubexmc.metro.physics;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+/**
+ * A set of client-only fake entities shown to the players near one train.
+ * Positions are kept on the 1/4096 block grid used by relative move packets, so repeated
+ * moves never drift from what the client displays. Viewers are chosen from the player positions
+ * kept by the {@link FakeEntityRegistry}, never from the world's player list, so a group can be
+ * ticked from any region thread.
+ */
+final class FakeEntityGroup {
+
+    static final int VIEWER_REFRESH_TICKS = 10;
+    private static final double GRID = 4096.0;
+    private static final long MAX_STEP = 8L * 4096L - 1L;
+    // 负数实体 ID 不会与服务端分配的 ID 冲突
+    private static final AtomicInteger NEXT_ENTITY_ID = new AtomicInteger(-0x4000_0000);
+
+    private final FakeEntityPackets packets;
+    private final FakeEntityRegistry registry;
+    private final double viewDistanceSquared;
+    private final Map<Integer, FakeEntity> entities = new LinkedHashMap<>();
+    private final Map<UUID, Player> viewers = new HashMap<>();
+    private int ticksUntilViewerRefresh;
+
+    FakeEntityGroup(FakeEntityPackets packets, FakeEntityRegistry registry, double viewDistance) {
+        this.packets = packets;
+        this.registry = registry;
+        this.viewDistanceSquared = viewDistance * viewDistance;
+    }
+
+    /**
+     * Add a fake entity and show it to the current viewers.
+     *
+     * @return the client-side entity ID
+     */
+    int add(EntityType type, boolean invisible, Location location, float yaw) {
+        FakeEntity entity = new FakeEntity(NEXT_ENTITY_ID.getAndDecrement(), UUID.randomUUID(), type, invisible);
+        entity.qx = Math.round(location.getX() * GRID);
+        entity.qy = Math.round(location.getY() * GRID);
+        entity.qz = Math.round(location.getZ() * GRID);
+        entity.yaw = yaw;
+        entities.put(entity.entityId, entity);
+        for (Player viewer : viewers.values()) {
+            show(viewer, entity);
+        }
+        return entity.entityId;
+    }
+
+    void remove(int entityId) {
+        if (entities.remove(entityId) == null) {
+            return;
+        }
+        int[] ids = {entityId};
+        for (Player viewer : viewers.values()) {
+            packets.destroy(viewer, ids);
+        }
+    }
+
+    void attach(int entityId, int holderEntityId) {
+        FakeEntity entity = entities.get(entityId);
+        if (entity == null || entity.holderId == holderEntityId) {
+            return;
+        }
+        entity.holderId = holderEntityId;
+        for (Player viewer : viewers.values()) {
+            packets.attach(viewer, entityId, holderEntityId);
+        }
+    }
+
+    void moveTo(int entityId, Location target, float yaw) {
+        FakeEntity entity = entities.get(entityId);
+        if (entity == null) {
+            return;
+        }
+        long qx = Math.round(target.getX() * GRID);
+        long qy = Math.round(target.getY() * GRID);
+        long qz = Math.round(target.getZ() * GRID);
+        long dx = qx - entity.qx;
+        long dy = qy - entity.qy;
+        long dz = qz - entity.qz;
+        if (dx == 0 && dy == 0 && dz == 0 && Float.compare(yaw, entity.yaw) == 0) {
+            return;
+        }
+        entity.qx = qx;
+        entity.qy = qy;
+        entity.qz = qz;
+        entity.yaw = yaw;
+        boolean jump = Math.abs(dx) > MAX_STEP || Math.abs(dy) > MAX_STEP || Math.abs(dz) > MAX_STEP;
+        for (Player viewer : viewers.values()) {
+            if (jump) {
+                packets.destroy(viewer, new int[] {entityId});
+                show(viewer, entity);
+            } else {
+                packets.move(viewer, entityId, dx / GRID, dy / GRID, dz / GRID, yaw);
+            }
+        }
+    }
+
+    /**
+     * Refresh viewers around {@code center} every {@link #VIEWER_REFRESH_TICKS} calls.
+     */
+    void tick(Location center) {
+        if (--ticksUntilViewerRefresh <= 0) {
+            refreshViewers(center);
+        }
+    }
+
+    void refreshViewers(Location center) {
+        ticksUntilViewerRefresh = VIEWER_REFRESH_TICKS;
+        World world = center == null ? null : center.getWorld();
+
+        Iterator<Map.Entry<UUID, Player>> iterator = viewers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Player> entry = iterator.next();
+            FakeEntityRegistry.ViewerPosition position = registry.getPosition(entry.getKey());
+            if (position == null) {
+                // 已下线
+                iterator.remove();
+            } else if (!inRange(position, world, center)) {
+                if (!entities.isEmpty()) {
+                    packets.destroy(entry.getValue(), entityIds());
+                }
+                iterator.remove();
+            }
+        }
+        if (world == null || entities.isEmpty()) {
+            return;
+        }
+        for (FakeEntityRegistry.ViewerPosition position : registry.getPositions()) {
+            Player player = position.player();
+            if (!viewers.containsKey(player.getUniqueId()) && inRange(position, world, center)) {
+                viewers.put(player.getUniqueId(), player);
+                for (FakeEntity entity : entities.values()) {
+                    show(player, entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Destroy every fake entity for every viewer; the next refresh starts from scratch.
+     */
+    void clear() {
+        if (!entities.isEmpty()) {
+            int[] ids = entityIds();
+            for (Map.Entry<UUID, Player> viewer : viewers.entrySet()) {
+                if (registry.getPosition(viewer.getKey()) != null) {
+                    packets.destroy(viewer.getValue(), ids);
+                }
+            }
+        }
+        entities.clear();
+        viewers.clear();
+        ticksUntilViewerRefresh = 0;
+    }
+
+    int size() {
+        return entities.size();
+    }
+
+    int getViewerCount() {
+        return viewers.size();
+    }
+
+    private boolean inRange(FakeEntityRegistry.ViewerPosition position, World world, Location center) {
+        if (world == null || position.world() != world) {
+            return false;
+        }
+        return position.distanceSquared(center) <= viewDistanceSquared;
+    }
+
+    private void show(Player viewer, FakeEntity entity) {
+        packets.spawn(viewer, entity.entityId, entity.uniqueId, entity.type,
+                entity.qx / GRID, entity.qy / GRID, entity.qz / GRID, entity.yaw, entity.invisible);
+        if (entity.holderId != 0) {
+            packets.attach(viewer, entity.entityId, entity.holderId);
+        }
+    }
+
+    private int[] entityIds() {
+        int[] ids = new int[entities.size()];
+        int index = 0;
+        for (Integer id : entities.keySet()) {
+            ids[index++] = id;
+        }
+        return ids;
+    }
+
+    private static final class FakeEntity {
+        private final int entityId;
+        private final UUID uniqueId;
+        private final EntityType type;
+        private final boolean invisible;
+        private int holderId;
+        private long qx;
+        private long qy;
+        private long qz;
+        private float yaw;
+
+        private FakeEntity(int entityId, UUID uniqueId, EntityType type, boolean invisible) {
+            this.entityId = entityId;
+            this.uniqueId = uniqueId;
+            this.type = type;
+            this.invisible = invisible;
+        }
+    }
+}
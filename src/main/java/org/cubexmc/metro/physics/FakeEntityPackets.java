@@ -0,0 +1,49 @@
+package org.cubexmc.metro.physics;
+
+import java.util.UUID;
+import java.util.function.BiPredicate;
+
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+/**
+ * Client-only entity packets used for packet leashes and virtual follower cars.
+ * Implementations must be safe to call from region threads.
+ */
+public interface FakeEntityPackets {
+
+    /**
+     * Whether the running server version can receive these packets.
+     */
+    boolean isSupported();
+
+    /**
+     * Spawn a silent, gravity-less fake entity for one viewer.
+     */
+    void spawn(Player viewer, int entityId, UUID uniqueId, EntityType type, double x, double y, double z,
+            float yaw, boolean invisible);
+
+    /**
+     * Tie the fake entity's leash to a real entity the viewer already tracks.
+     */
+    void attach(Player viewer, int entityId, int holderEntityId);
+
+    /**
+     * Relative move and absolute yaw; every component is a multiple of 1/4096 block and within ±8 blocks.
+     */
+    void move(Player viewer, int entityId, double dx, double dy, double dz, float yaw);
+
+    void destroy(Player viewer, int[] entityIds);
+
+    /**
+     * Receives clicks on fake entities from the network thread. The handler returns true when
+     * the entity ID belongs to a fake, in which case the packet is not passed to the server.
+     */
+    void setInteractHandler(BiPredicate<Player, Integer> handler);
+
+    /**
+     * Unregister anything hooked into the packet library; called on plugin disable.
+     */
+    default void shutdown() {
+    }
+}
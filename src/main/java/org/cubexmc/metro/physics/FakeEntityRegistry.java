@@ -0,0 +1,129 @@
+package org.cubexmc.metro.physics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+/**
+ * Per-plugin state shared by the fake entity groups: the last block position of every online
+ * player and the virtual follower renderer that owns each fake entity ID.
+ *
+ * <p>Positions are written by player events on the thread that owns the player, so a train
+ * ticking on another Folia region picks its viewers from this map instead of iterating the
+ * world's player list or reading player locations.
+ */
+public final class FakeEntityRegistry implements Listener {
+
+    /**
+     * Where a player was last seen, on block precision.
+     */
+    record ViewerPosition(Player player, World world, double x, double y, double z) {
+
+        double distanceSquared(Location center) {
+            double dx = x - center.getX();
+            double dy = y - center.getY();
+            double dz = z - center.getZ();
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private final Map<UUID, ViewerPosition> positions = new ConcurrentHashMap<>();
+    private final Map<Integer, VirtualFollowerRenderer> followersByEntityId = new ConcurrentHashMap<>();
+
+    /**
+     * Record where a player is; call on the player's owning thread.
+     */
+    public void updatePosition(Player player, Location location) {
+        if (player == null || location == null || location.getWorld() == null) {
+            return;
+        }
+        positions.put(player.getUniqueId(), new ViewerPosition(player, location.getWorld(),
+                location.getBlockX() + 0.5, location.getBlockY(), location.getBlockZ() + 0.5));
+    }
+
+    public void forgetPlayer(UUID playerId) {
+        positions.remove(playerId);
+    }
+
+    ViewerPosition getPosition(UUID playerId) {
+        return positions.get(playerId);
+    }
+
+    Collection<ViewerPosition> getPositions() {
+        return positions.values();
+    }
+
+    void registerFollower(int entityId, VirtualFollowerRenderer renderer) {
+        followersByEntityId.put(entityId, renderer);
+    }
+
+    void unregisterFollower(int entityId) {
+        followersByEntityId.remove(entityId);
+    }
+
+    /**
+     * Route a click from the network thread to the renderer that owns the fake entity.
+     *
+     * @return true when the entity ID is a virtual follower car
+     */
+    public boolean handleInteract(Player player, int entityId) {
+        VirtualFollowerRenderer renderer = followersByEntityId.get(entityId);
+        if (renderer == null) {
+            return false;
+        }
+        renderer.queuePromotion(player, entityId);
+        return true;
+    }
+
+    /**
+     * Drop every position and follower mapping; called on plugin disable.
+     */
+    public void clear() {
+        positions.clear();
+        followersByEntityId.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        updatePosition(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location to = event.getTo();
+        Location from = event.getFrom();
+        // 只在跨方块时更新，视角转动不产生写入
+        if (to != null && (to.getBlockX() != from.getBlockX() || to.getBlockY() != from.getBlockY()
+                || to.getBlockZ() != from.getBlockZ() || to.getWorld() != from.getWorld())) {
+            updatePosition(event.getPlayer(), to);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        updatePosition(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        updatePosition(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        forgetPlayer(event.getPlayer().getUniqueId());
+    }
+}
@@ -1,6 +1,7 @@
 package org.cubexmc.metro.physics;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.util.Vector;
 
 final class KinematicFollowerController {
@@ -30,10 +31,10 @@ final class KinematicFollowerController {
         return new FollowerCommand(projected, aligned, tangent);
     }
 
-    static FollowerCommand resolveWithSample(KinematicTrailBuffer.TrailSample sample, Vector currentVelocity,
-            Vector fallbackDirection, double baseSpeed) {
-        Location targetPosition = RailPathUtil.project(sample.location);
-        Vector motionDirection = KinematicRailMotionMath.normalizeOr(sample.tangent, fallbackDirection);
+    static FollowerCommand resolveWithSample(KinematicTrailBuffer.TrailSample sample, World world,
+            Vector currentVelocity, Vector fallbackDirection, double baseSpeed) {
+        Location targetPosition = RailPathUtil.project(sample.toLocation(world));
+        Vector motionDirection = KinematicRailMotionMath.normalizeOr(sample.tangent(), fallbackDirection);
 
         double configuredMax = Math.max(0.05, baseSpeed);
         double sampleSpeed = Math.min(sample.speed, configuredMax);
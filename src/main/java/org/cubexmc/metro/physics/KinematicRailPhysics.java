@@ -1,12 +1,14 @@
 package org.cubexmc.metro.physics;
 
 import java.util.List;
+import java.util.Map;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Minecart;
 import org.bukkit.util.Vector;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.train.TrainConsist;
 import org.cubexmc.metro.train.TrainInstance;
 import org.cubexmc.metro.util.LocationUtil;
 import org.cubexmc.metro.util.MinecartNmsUtil;
@@ -24,12 +26,14 @@ import org.cubexmc.metro.util.MinecartPhysicsUtil;
  */
 public class KinematicRailPhysics implements TrainPhysicsEngine {
     private final KinematicTrailBuffer trail = new KinematicTrailBuffer();
+    private final KinematicTrailBuffer.TrailSample trailSample = new KinematicTrailBuffer.TrailSample();
 
     // Kinematic state (our source of truth)
     private double leadX, leadY, leadZ;
     private double leadVx, leadVy, leadVz;
     private boolean initialized;
     private Vector lastLeadDirection = new Vector(1, 0, 0);
+    private VirtualFollowerRenderer virtualFollowers;
 
     @Override
     public void init(TrainInstance train) {
@@ -52,6 +56,14 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
             lastLeadDirection = state.facingDirection();
         }
         seedTrailFromConsist(train);
+        if (virtualFollowers == null && train.getConsist().hasVirtualCars()) {
+            Metro plugin = train.getService().getPlugin();
+            FakeEntityPackets packets = plugin.getFakeEntityPackets();
+            if (packets != null && plugin.getFakeEntityRegistry() != null) {
+                virtualFollowers = new VirtualFollowerRenderer(packets, plugin.getFakeEntityRegistry(),
+                        plugin.getVirtualFollowersViewDistance());
+            }
+        }
         initialized = true;
     }
 
@@ -186,11 +198,9 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
             double spacing) {
         List<Minecart> cars = train.getConsist().getCars();
         int n = cars.size();
-        if (n <= 1) {
-            return;
-        }
 
         // Process each follower cart
+        TrainConsist consist = train.getConsist();
         for (int i = 1; i < n; i++) {
             Minecart car = cars.get(i);
             if (car == null || car.isDead()) {
@@ -203,10 +213,8 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
             car.setMaxSpeed(Math.max(0.05, baseSpeed));
 
             // Step 2: Find target position on trail (spacing * i behind lead)
-            double distanceBehind = spacing * i;
-            KinematicTrailBuffer.TrailSample sample = trail.sampleState(distanceBehind, car.getWorld(), lastLeadDirection);
-
-            if (sample == null) {
+            double distanceBehind = spacing * consist.getSlotOf(i);
+            if (!trail.sampleInto(distanceBehind, lastLeadDirection, trailSample)) {
                 KinematicFollowerController.FollowerCommand command = KinematicFollowerController.resolveWithoutTrail(
                         car.getLocation(),
                         car.getVelocity().clone(),
@@ -218,12 +226,60 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
             }
 
             KinematicFollowerController.FollowerCommand command = KinematicFollowerController.resolveWithSample(
-                    sample,
+                    trailSample,
+                    car.getWorld(),
                     car.getVelocity().clone(),
                     lastLeadDirection,
                     baseSpeed);
             snapToPosition(car, command.targetPosition, command.velocity, command.facing, plugin, baseSpeed);
         }
+
+        if (virtualFollowers != null) {
+            updateVirtualFollowers(train, baseSpeed, spacing);
+        }
+    }
+
+    /**
+     * Place client-side follower cars on the trail, then turn clicked ones into real minecarts.
+     */
+    private void updateVirtualFollowers(TrainInstance train, double baseSpeed, double spacing) {
+        TrainConsist consist = train.getConsist();
+        Minecart lead = consist.getLeadCar();
+        if (lead == null || lead.isDead() || !lead.isValid()) {
+            return;
+        }
+        for (Map.Entry<Integer, Location> entry : consist.getVirtualSlots().entrySet()) {
+            int slot = entry.getKey();
+            Location previous = entry.getValue();
+            if (!trail.sampleInto(spacing * slot, lastLeadDirection, trailSample)) {
+                virtualFollowers.place(slot, previous, previous.getYaw());
+                continue;
+            }
+            KinematicFollowerController.FollowerCommand command = KinematicFollowerController.resolveWithSample(
+                    trailSample,
+                    lead.getWorld(),
+                    new Vector(),
+                    lastLeadDirection,
+                    baseSpeed);
+            KinematicSnapMath.SnapCommand snap = KinematicSnapMath.prepare(
+                    command.targetPosition, command.velocity, command.facing, lastLeadDirection, previous.getYaw());
+            Location placed = snap.location.clone();
+            placed.setYaw(snap.yaw);
+            consist.updateVirtualSlot(slot, placed);
+            virtualFollowers.place(slot, placed, snap.yaw);
+        }
+        virtualFollowers.tick(lead.getLocation());
+
+        for (VirtualFollowerRenderer.Promotion promotion : virtualFollowers.drainPromotions()) {
+            Minecart cart = train.promoteVirtualCar(promotion.slot);
+            if (cart == null) {
+                continue;
+            }
+            virtualFollowers.remove(promotion.slot);
+            if (promotion.player.isOnline() && promotion.player.getVehicle() == null) {
+                cart.addPassenger(promotion.player);
+            }
+        }
     }
 
     /**
@@ -267,7 +323,7 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
         if (train == null) {
             return;
         }
-        trail.maintain(train.getConsist().getCars().size(), train.getService().getTrainSpacing());
+        trail.maintain(train.getConsist().getSlotCount(), train.getService().getTrainSpacing());
     }
 
     /**
@@ -324,7 +380,7 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
                 lastLeadDirection,
                 train.getService().getCartSpeed());
 
-        trail.seedFromConsist(cars, leadVelocity);
+        trail.seedFromLocations(train.getConsist().getSlotLocations(), leadVelocity);
     }
 
     @Override
@@ -332,9 +388,23 @@ public class KinematicRailPhysics implements TrainPhysicsEngine {
         // Nothing needed
     }
 
+    @Override
+    public void idle(TrainInstance train, long currentTick) {
+        // 停站时仍需刷新虚拟车厢的可见玩家并处理上车点击
+        Minecart lead = train.getConsist().getLeadCar();
+        if (virtualFollowers != null && initialized && lead != null && !lead.isDead()) {
+            updateVirtualFollowers(train, train.getService().getCartSpeed(),
+                    Math.max(0.1, train.getService().getTrainSpacing()));
+        }
+    }
+
     @Override
     public void cleanup(TrainInstance train) {
         trail.clear();
+        if (virtualFollowers != null) {
+            virtualFollowers.cleanup();
+            virtualFollowers = null;
+        }
         initialized = false;
     }
 }
@@ -1,6 +1,5 @@
 package org.cubexmc.metro.physics;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,230 +8,297 @@ import org.bukkit.World;
 import org.bukkit.entity.Minecart;
 import org.bukkit.util.Vector;
 
+/**
+ * Path the lead car has travelled, newest point first, for followers to sample by distance.
+ *
+ * <p>Points live in a fixed-capacity ring of parallel primitive arrays, so a train's trail never
+ * grows past {@link #CAPACITY} entries (about 28 KB) and appending or sampling allocates nothing.
+ * Cumulative distance decreases from head to tail, which lets {@link #sampleInto} binary search it.
+ */
 final class KinematicTrailBuffer {
 
-    static final class TrailPoint {
-        final double x;
-        final double y;
-        final double z;
-        final double vx;
-        final double vy;
-        final double vz;
-        final double cumulativeDistance;
-
-        TrailPoint(double x, double y, double z, double vx, double vy, double vz, double cumulativeDistance) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.vx = vx;
-            this.vy = vy;
-            this.vz = vz;
-            this.cumulativeDistance = cumulativeDistance;
-        }
-    }
-
+    static final int CAPACITY = 512;
+    private static final int MASK = CAPACITY - 1;
+    /**
+     * Points closer than this to the one before the head replace the head instead of being appended,
+     * so slow running near stops cannot flood the ring.
+     */
+    static final double MIN_POINT_SPACING = 0.25;
+
+    /**
+     * Caller-owned sample output, overwritten by every {@link #sampleInto} call.
+     */
     static final class TrailSample {
-        final Location location;
-        final Vector tangent;
-        final double speed;
+        double x;
+        double y;
+        double z;
+        double tangentX;
+        double tangentY;
+        double tangentZ;
+        double speed;
+
+        Location toLocation(World world) {
+            return new Location(world, x, y, z);
+        }
 
-        TrailSample(Location location, Vector tangent, double speed) {
-            this.location = location;
-            this.tangent = tangent;
-            this.speed = speed;
+        Vector tangent() {
+            return new Vector(tangentX, tangentY, tangentZ);
         }
     }
 
-    private final ArrayDeque<TrailPoint> trail = new ArrayDeque<>();
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+    private final double[] zs = new double[CAPACITY];
+    private final double[] vxs = new double[CAPACITY];
+    private final double[] vys = new double[CAPACITY];
+    private final double[] vzs = new double[CAPACITY];
+    private final double[] distances = new double[CAPACITY];
+    private int head = -1;
+    private int count;
+
+    // interpolate() 的输出，避免为中间结果分配对象
+    private double px;
+    private double py;
+    private double pz;
+    private double pvx;
+    private double pvy;
+    private double pvz;
 
     void clear() {
-        trail.clear();
+        head = -1;
+        count = 0;
     }
 
     boolean isEmpty() {
-        return trail.isEmpty();
+        return count == 0;
     }
 
     int size() {
-        return trail.size();
+        return count;
+    }
+
+    /** Ring slot of the logical index, 0 being the newest point. */
+    private int slot(int index) {
+        return (head - index) & MASK;
     }
 
     void maintain(int carCount, double spacing) {
-        if (trail.isEmpty()) {
-            return;
-        }
-        TrailPoint head = trail.peekFirst();
-        if (head == null) {
+        if (count == 0) {
             return;
         }
         double maxDistance = (Math.max(1, carCount) + 3) * Math.max(0.1, spacing) + 12.0;
-        while (trail.size() > 2) {
-            TrailPoint tail = trail.peekLast();
-            if (tail == null) {
-                break;
-            }
-            double storedDistance = head.cumulativeDistance - tail.cumulativeDistance;
-            if (storedDistance <= maxDistance) {
-                break;
-            }
-            trail.removeLast();
-        }
-        while (trail.size() > 800) {
-            trail.removeLast();
+        double headDistance = distances[head];
+        while (count > 2 && headDistance - distances[slot(count - 1)] > maxDistance) {
+            count--;
         }
     }
 
     void addPoint(double x, double y, double z, double vx, double vy, double vz) {
-        double cumulativeDistance = 0.0;
-
-        if (!trail.isEmpty()) {
-            TrailPoint last = trail.peekFirst();
-            double dx = x - last.x;
-            double dy = y - last.y;
-            double dz = z - last.z;
-            double sectionDistance = Math.sqrt(dx * dx + dy * dy + dz * dz);
-            if (sectionDistance < 1.0e-4) {
+        if (count == 0) {
+            push(x, y, z, vx, vy, vz, 0.0);
+            return;
+        }
+        double sectionDistance = distanceTo(head, x, y, z);
+        if (sectionDistance < 1.0e-4) {
+            return;
+        }
+        if (count >= 2) {
+            int previous = slot(1);
+            double fromPrevious = distanceTo(previous, x, y, z);
+            if (fromPrevious < MIN_POINT_SPACING) {
+                write(head, x, y, z, vx, vy, vz, distances[previous] + fromPrevious);
                 return;
             }
-            cumulativeDistance = last.cumulativeDistance + sectionDistance;
         }
+        push(x, y, z, vx, vy, vz, distances[head] + sectionDistance);
+    }
+
+    private double distanceTo(int slot, double x, double y, double z) {
+        double dx = x - xs[slot];
+        double dy = y - ys[slot];
+        double dz = z - zs[slot];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
 
-        trail.addFirst(new TrailPoint(x, y, z, vx, vy, vz, cumulativeDistance));
-        while (trail.size() > 900) {
-            trail.removeLast();
+    private void push(double x, double y, double z, double vx, double vy, double vz, double distance) {
+        head = (head + 1) & MASK;
+        if (count < CAPACITY) {
+            count++;
         }
+        write(head, x, y, z, vx, vy, vz, distance);
+    }
+
+    private void write(int slot, double x, double y, double z, double vx, double vy, double vz, double distance) {
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        vxs[slot] = vx;
+        vys[slot] = vy;
+        vzs[slot] = vz;
+        distances[slot] = distance;
     }
 
     void seedFromConsist(List<Minecart> cars, Vector leadVelocity) {
         if (cars == null || cars.isEmpty()) {
             return;
         }
+        List<Location> locations = new ArrayList<>(cars.size());
+        for (Minecart car : cars) {
+            locations.add(car == null || car.isDead() ? null : car.getLocation());
+        }
+        seedFromLocations(locations, leadVelocity);
+    }
 
-        Minecart lead = cars.get(0);
-        if (lead == null || lead.isDead()) {
+    /**
+     * Seed from car positions in slot order; null entries (dead cars) are skipped.
+     */
+    void seedFromLocations(List<Location> locations, Vector leadVelocity) {
+        if (locations == null || locations.isEmpty() || locations.get(0) == null) {
             return;
         }
 
-        Location leadProjected = RailPathUtil.project(lead.getLocation());
+        Location leadProjected = RailPathUtil.project(locations.get(0));
         if (leadProjected == null) {
-            leadProjected = lead.getLocation();
+            leadProjected = locations.get(0);
         }
 
-        List<TrailPoint> points = new ArrayList<>();
+        List<Location> points = new ArrayList<>();
+        List<Double> pointDistances = new ArrayList<>();
         double cumulativeDistance = 0.0;
-        points.add(new TrailPoint(
-                leadProjected.getX(), leadProjected.getY(), leadProjected.getZ(),
-                leadVelocity.getX(), leadVelocity.getY(), leadVelocity.getZ(),
-                cumulativeDistance));
+        points.add(leadProjected);
+        pointDistances.add(cumulativeDistance);
 
         Location previousLocation = leadProjected.clone();
-        Vector fallbackVelocity = leadVelocity.clone();
-        for (int i = 1; i < cars.size(); i++) {
-            Minecart car = cars.get(i);
-            if (car == null || car.isDead()) {
+        for (int i = 1; i < locations.size() && points.size() < CAPACITY; i++) {
+            Location location = locations.get(i);
+            if (location == null) {
                 continue;
             }
 
-            Location projected = RailPathUtil.project(car.getLocation());
+            Location projected = RailPathUtil.project(location);
             if (projected == null) {
-                projected = car.getLocation();
+                projected = location;
             }
 
             double gap = projected.distance(previousLocation);
             if (gap > 1.0e-4) {
                 cumulativeDistance -= gap;
             }
-
-            points.add(new TrailPoint(
-                    projected.getX(), projected.getY(), projected.getZ(),
-                    fallbackVelocity.getX(), fallbackVelocity.getY(), fallbackVelocity.getZ(),
-                    cumulativeDistance));
+            points.add(projected);
+            pointDistances.add(cumulativeDistance);
             previousLocation = projected;
         }
 
-        trail.clear();
+        // 从车尾写到车头，车头最后写入成为 head
+        clear();
         for (int index = points.size() - 1; index >= 0; index--) {
-            trail.addFirst(points.get(index));
+            Location point = points.get(index);
+            push(point.getX(), point.getY(), point.getZ(),
+                    leadVelocity.getX(), leadVelocity.getY(), leadVelocity.getZ(),
+                    pointDistances.get(index));
         }
     }
 
-    TrailSample sampleState(double distanceBehind, World world, Vector fallbackDirection) {
-        TrailPoint point = samplePointAt(distanceBehind);
-        if (point == null || world == null) {
-            return null;
+    /**
+     * Position, tangent and speed {@code distanceBehind} blocks behind the head, clamped to the
+     * ends of the trail.
+     *
+     * @return false when the trail is empty, leaving {@code out} untouched
+     */
+    boolean sampleInto(double distanceBehind, Vector fallbackDirection, TrailSample out) {
+        if (count == 0) {
+            return false;
         }
 
-        Location location = new Location(world, point.x, point.y, point.z);
-        Vector tangent = computeTangent(distanceBehind);
-        double speed = Math.sqrt(point.vx * point.vx + point.vy * point.vy + point.vz * point.vz);
-
-        if ((tangent == null || tangent.lengthSquared() < 1.0e-8) && speed > 1.0e-6) {
-            tangent = new Vector(point.vx, point.vy, point.vz);
+        double delta = Math.max(0.05, Math.min(0.75, (distanceBehind * 0.5) + 0.1));
+        interpolate(Math.max(0.0, distanceBehind - delta));
+        double aheadX = px;
+        double aheadY = py;
+        double aheadZ = pz;
+        interpolate(distanceBehind + delta);
+        double tangentX = aheadX - px;
+        double tangentY = aheadY - py;
+        double tangentZ = aheadZ - pz;
+
+        interpolate(distanceBehind);
+        double speed = Math.sqrt(pvx * pvx + pvy * pvy + pvz * pvz);
+        if (lengthSquared(tangentX, tangentY, tangentZ) < 1.0e-8) {
+            tangentX = pvx;
+            tangentY = pvy;
+            tangentZ = pvz;
         }
-        if ((tangent == null || tangent.lengthSquared() < 1.0e-8) && fallbackDirection != null) {
-            tangent = fallbackDirection.clone();
+        if (lengthSquared(tangentX, tangentY, tangentZ) < 1.0e-8 && fallbackDirection != null) {
+            tangentX = fallbackDirection.getX();
+            tangentY = fallbackDirection.getY();
+            tangentZ = fallbackDirection.getZ();
         }
-        if (tangent == null || tangent.lengthSquared() < 1.0e-8) {
-            tangent = new Vector(1, 0, 0);
+        if (lengthSquared(tangentX, tangentY, tangentZ) < 1.0e-8) {
+            tangentX = 1.0;
+            tangentY = 0.0;
+            tangentZ = 0.0;
         }
 
-        return new TrailSample(location, tangent, speed);
+        out.x = px;
+        out.y = py;
+        out.z = pz;
+        out.tangentX = tangentX;
+        out.tangentY = tangentY;
+        out.tangentZ = tangentZ;
+        out.speed = speed;
+        return true;
     }
 
-    TrailPoint samplePointAt(double distanceBehind) {
-        if (trail.isEmpty()) {
-            return null;
-        }
+    private static double lengthSquared(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
 
-        TrailPoint head = trail.peekFirst();
-        double targetDistance = head.cumulativeDistance - distanceBehind;
-        if (targetDistance < 0) {
-            return trail.peekLast();
+    /**
+     * Interpolate the point {@code distanceBehind} blocks behind the head into the p* fields.
+     * Requires a non-empty trail.
+     */
+    private void interpolate(double distanceBehind) {
+        double target = distances[head] - distanceBehind;
+        // 第一个累计距离不大于目标的点；距离从 head 到尾部单调递减
+        int low = 0;
+        int high = count - 1;
+        if (distances[slot(high)] > target) {
+            load(slot(high));
+            return;
         }
-
-        TrailPoint previous = head;
-        for (TrailPoint point : trail) {
-            if (point.cumulativeDistance <= targetDistance) {
-                double segmentDistance = previous.cumulativeDistance - point.cumulativeDistance;
-                if (segmentDistance < 1.0e-6) {
-                    return previous;
-                }
-
-                double t = (targetDistance - point.cumulativeDistance) / segmentDistance;
-                t = Math.max(0.0, Math.min(1.0, t));
-                return new TrailPoint(
-                        point.x + t * (previous.x - point.x),
-                        point.y + t * (previous.y - point.y),
-                        point.z + t * (previous.z - point.z),
-                        point.vx + t * (previous.vx - point.vx),
-                        point.vy + t * (previous.vy - point.vy),
-                        point.vz + t * (previous.vz - point.vz),
-                        targetDistance);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (distances[slot(mid)] <= target) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
-            previous = point;
         }
-
-        return trail.peekLast();
+        int point = slot(low);
+        if (low == 0) {
+            load(point);
+            return;
+        }
+        int newer = slot(low - 1);
+        double segment = distances[newer] - distances[point];
+        if (segment < 1.0e-6) {
+            load(newer);
+            return;
+        }
+        double t = Math.max(0.0, Math.min(1.0, (target - distances[point]) / segment));
+        px = xs[point] + t * (xs[newer] - xs[point]);
+        py = ys[point] + t * (ys[newer] - ys[point]);
+        pz = zs[point] + t * (zs[newer] - zs[point]);
+        pvx = vxs[point] + t * (vxs[newer] - vxs[point]);
+        pvy = vys[point] + t * (vys[newer] - vys[point]);
+        pvz = vzs[point] + t * (vzs[newer] - vzs[point]);
     }
 
-    Vector computeTangent(double distanceBehind) {
-        double delta = Math.max(0.05, Math.min(0.75, (distanceBehind * 0.5) + 0.1));
-        double aheadDistance = Math.max(0.0, distanceBehind - delta);
-        double behindDistance = distanceBehind + delta;
-        TrailPoint ahead = samplePointAt(aheadDistance);
-        TrailPoint behind = samplePointAt(behindDistance);
-        if (ahead == null || behind == null) {
-            TrailPoint center = samplePointAt(distanceBehind);
-            return center != null ? new Vector(center.vx, center.vy, center.vz) : null;
-        }
-
-        Vector tangent = new Vector(ahead.x - behind.x, ahead.y - behind.y, ahead.z - behind.z);
-        if (tangent.lengthSquared() < 1.0e-8) {
-            TrailPoint center = samplePointAt(distanceBehind);
-            if (center != null) {
-                tangent = new Vector(center.vx, center.vy, center.vz);
-            }
-        }
-        return tangent;
+    private void load(int slot) {
+        px = xs[slot];
+        py = ys[slot];
+        pz = zs[slot];
+        pvx = vxs[slot];
+        pvy = vys[slot];
+        pvz = vzs[slot];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package org.cubexmc.metro.physics;
+
+/**
+ * Draws the visual leash between neighbouring cars of one consist.
+ */
+interface LeashRenderer {
+
+    void start();
+
+    void update();
+
+    void cleanup();
+}
@@ -0,0 +1,97 @@
+package org.cubexmc.metro.physics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Minecart;
+
+/**
+ * Renders leashes with client-only fake mobs, so a leashed consist adds no server entities.
+ * Fake mobs are shown to players within the view distance of the lead car and follow the
+ * midpoint between neighbouring cars.
+ */
+final class PacketLeashRenderer implements LeashRenderer {
+
+    private final Supplier<List<Minecart>> cars;
+    private final FakeEntityGroup group;
+    private final EntityType type;
+    private final double offsetY;
+    private final List<Integer> leashIds = new ArrayList<>();
+
+    PacketLeashRenderer(Supplier<List<Minecart>> cars, FakeEntityPackets packets, FakeEntityRegistry registry,
+            EntityType type, double offsetY, double viewDistance) {
+        this.cars = cars;
+        this.group = new FakeEntityGroup(packets, registry, viewDistance);
+        this.type = type;
+        this.offsetY = offsetY;
+    }
+
+    @Override
+    public void start() {
+        cleanup();
+        List<Minecart> current = cars.get();
+        rebuildLeashes(current);
+        group.refreshViewers(leadLocation(current));
+    }
+
+    @Override
+    public void update() {
+        List<Minecart> current = cars.get();
+        if (Math.max(0, current.size() - 1) != leashIds.size()) {
+            // 编组变化（车厢被移除或追加）时整体重建
+            group.clear();
+            rebuildLeashes(current);
+        }
+        for (int i = 0; i < leashIds.size(); i++) {
+            Minecart prev = current.get(i);
+            Minecart cur = current.get(i + 1);
+            if (prev == null || cur == null || prev.isDead() || cur.isDead()) {
+                continue;
+            }
+            int leashId = leashIds.get(i);
+            group.attach(leashId, prev.getEntityId());
+            group.moveTo(leashId, target(prev, cur), 0f);
+        }
+        group.tick(leadLocation(current));
+    }
+
+    @Override
+    public void cleanup() {
+        group.clear();
+        leashIds.clear();
+    }
+
+    int getViewerCount() {
+        return group.getViewerCount();
+    }
+
+    int getLeashCount() {
+        return leashIds.size();
+    }
+
+    private void rebuildLeashes(List<Minecart> current) {
+        leashIds.clear();
+        for (int i = 1; i < current.size(); i++) {
+            Minecart prev = current.get(i - 1);
+            Minecart cur = current.get(i);
+            Location at = prev != null && cur != null ? target(prev, cur) : new Location(null, 0, 0, 0);
+            int leashId = group.add(type, true, at, 0f);
+            if (prev != null) {
+                group.attach(leashId, prev.getEntityId());
+            }
+            leashIds.add(leashId);
+        }
+    }
+
+    private Location target(Minecart prev, Minecart cur) {
+        return LeashCoupler.midpoint(prev.getLocation(), cur.getLocation()).add(0, offsetY, 0);
+    }
+
+    private static Location leadLocation(List<Minecart> current) {
+        Minecart lead = current.isEmpty() ? null : current.get(0);
+        return lead == null || lead.isDead() ? null : lead.getLocation();
+    }
+}
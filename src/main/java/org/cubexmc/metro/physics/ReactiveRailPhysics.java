@@ -23,6 +23,9 @@ import org.cubexmc.metro.util.MinecartNmsUtil;
  */
 public class ReactiveRailPhysics implements TrainPhysicsEngine {
 
+    private static final double CRUISE_SPEED_EPSILON = 1.0e-3;
+    private static final double SAFE_SPEED_SAMPLE_BLOCKS = 0.5;
+
     private final ReactiveCartStateStore cartStates = new ReactiveCartStateStore();
 
     @Override
@@ -157,6 +160,59 @@ public class ReactiveRailPhysics implements TrainPhysicsEngine {
         }
     }
 
+    @Override
+    public boolean isStepSizeInvariant(TrainInstance train, double travelBlocks) {
+        List<Minecart> cars = train.getConsist().getCars();
+        if (cars.isEmpty()) {
+            return false;
+        }
+        Metro plugin = train.getService().getPlugin();
+        double base = train.getService().getCartSpeed();
+        double cruise = Math.max(0.05, base);
+        boolean safeMode = plugin.isSafeSpeedMode();
+        double scanBlocks = travelBlocks + Math.max(0, plugin.getPhysicsLookaheadBlocks());
+        // 跟随车的 PD 增益按子步累计：只有全列都以巡航速度行驶、间距不小于目标值时，
+        // 每个子步都会被限速钳在巡航速度上，一步与多步的结果才一致
+        double desiredSpacing = ReactiveSpacingDecisions.desiredSpacing(cruise);
+        Location previous = null;
+        for (Minecart car : cars) {
+            if (car == null || car.isDead()) {
+                return false;
+            }
+            Location position = cartStates.getPosition(car.getUniqueId());
+            Vector velocity = cartStates.getVelocity(car.getUniqueId());
+            if (position == null || velocity == null
+                    || Math.abs(velocity.length() - cruise) > CRUISE_SPEED_EPSILON) {
+                return false;
+            }
+            if (previous != null && previous.distance(position) < desiredSpacing) {
+                return false;
+            }
+            if (safeMode && !holdsCruiseSpeed(position, velocity, scanBlocks, cruise)) {
+                return false;
+            }
+            previous = position;
+        }
+        return true;
+    }
+
+    /**
+     * Safe-speed mode slows each sub-step by the rail it looks ahead at, so a single step is only
+     * equivalent when nothing within the scanned distance would drop below cruise speed.
+     */
+    private boolean holdsCruiseSpeed(Location from, Vector direction, double scanBlocks, double cruise) {
+        Vector step = direction.clone().normalize().multiply(SAFE_SPEED_SAMPLE_BLOCKS);
+        Location sample = from.clone();
+        for (double scanned = 0.0; scanned <= scanBlocks; scanned += SAFE_SPEED_SAMPLE_BLOCKS) {
+            double safe = LocationUtil.getSafeSpeedForRail(LocationUtil.getRailType(sample), cruise, true);
+            if (safe < cruise) {
+                return false;
+            }
+            sample.add(step.getX(), step.getY(), step.getZ());
+        }
+        return true;
+    }
+
     @Override
     public void onArrival(TrainInstance train, Stop atStop, long currentTick) {
         // no-op
@@ -13,6 +13,21 @@ public interface TrainPhysicsEngine {
 
     void onArrival(TrainInstance train, Stop atStop, long currentTick);
 
+    /**
+     * Called once per heartbeat while the train is waiting or terminating.
+     */
+    default void idle(TrainInstance train, long currentTick) {
+    }
+
+    /**
+     * Whether one full-tick step would leave every car where the fixed sub-steps would while the
+     * lead covers {@code travelBlocks}. The caller still refines around rail geometry changes; this
+     * only answers for the engine's own control state. Engines that cannot tell return false.
+     */
+    default boolean isStepSizeInvariant(TrainInstance train, double travelBlocks) {
+        return false;
+    }
+
     void cleanup(TrainInstance train);
 }
 
@@ -0,0 +1,113 @@
+package org.cubexmc.metro.physics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bukkit.Location;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+
+/**
+ * Draws follower cars that have no server entity as client-only minecarts.
+ * Clicking one queues a promotion, which the owning physics engine turns into a real
+ * minecart on its next tick so the player can board it.
+ */
+final class VirtualFollowerRenderer {
+
+    static final class Promotion {
+        final int slot;
+        final Player player;
+
+        Promotion(int slot, Player player) {
+            this.slot = slot;
+            this.player = player;
+        }
+    }
+
+    private final FakeEntityRegistry registry;
+    private final FakeEntityGroup group;
+    private final Map<Integer, Integer> entityBySlot = new HashMap<>();
+    private final Map<Integer, Integer> slotByEntity = new ConcurrentHashMap<>();
+    private final Queue<Promotion> promotions = new ConcurrentLinkedQueue<>();
+
+    VirtualFollowerRenderer(FakeEntityPackets packets, FakeEntityRegistry registry, double viewDistance) {
+        this.registry = registry;
+        this.group = new FakeEntityGroup(packets, registry, viewDistance);
+    }
+
+    /**
+     * Queue a click on one of this renderer's cars; called from the network thread.
+     */
+    void queuePromotion(Player player, int entityId) {
+        Integer slot = slotByEntity.get(entityId);
+        if (slot != null && player != null) {
+            promotions.add(new Promotion(slot, player));
+        }
+    }
+
+    void place(int slot, Location location, float yaw) {
+        Integer entityId = entityBySlot.get(slot);
+        if (entityId == null) {
+            int id = group.add(EntityType.MINECART, false, location, yaw);
+            entityBySlot.put(slot, id);
+            slotByEntity.put(id, slot);
+            registry.registerFollower(id, this);
+            return;
+        }
+        group.moveTo(entityId, location, yaw);
+    }
+
+    void remove(int slot) {
+        Integer entityId = entityBySlot.remove(slot);
+        if (entityId == null) {
+            return;
+        }
+        slotByEntity.remove(entityId);
+        registry.unregisterFollower(entityId);
+        group.remove(entityId);
+    }
+
+    void tick(Location center) {
+        group.tick(center);
+    }
+
+    /**
+     * Pending promotions, at most one per slot; clicks arrive once per hand, so duplicates are common.
+     */
+    List<Promotion> drainPromotions() {
+        List<Promotion> drained = new ArrayList<>();
+        Set<Integer> seenSlots = new HashSet<>();
+        Promotion promotion;
+        while ((promotion = promotions.poll()) != null) {
+            if (entityBySlot.containsKey(promotion.slot) && seenSlots.add(promotion.slot)) {
+                drained.add(promotion);
+            }
+        }
+        return drained;
+    }
+
+    int getCarCount() {
+        return entityBySlot.size();
+    }
+
+    int getViewerCount() {
+        return group.getViewerCount();
+    }
+
+    void cleanup() {
+        for (Integer entityId : entityBySlot.values()) {
+            registry.unregisterFollower(entityId);
+        }
+        entityBySlot.clear();
+        slotByEntity.clear();
+        promotions.clear();
+        group.clear();
+    }
+}
@@ -4,16 +4,21 @@ import org.bukkit.OfflinePlayer;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.profiling.LoadGovernor;
 import org.cubexmc.metro.service.LineService;
 import org.cubexmc.metro.train.TrainInstance;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RailwayPlaceholders extends PlaceholderExpansion {
 
     private final Metro plugin;
+    // line|stop -> {计算时的 tick, ETA 秒}，仅在负载调节器降级时使用
+    private final Map<String, long[]> etaCache = new ConcurrentHashMap<>();
 
     public RailwayPlaceholders(Metro plugin) {
         this.plugin = plugin;
@@ -56,7 +61,7 @@ public class RailwayPlaceholders extends PlaceholderExpansion {
             String lineId = findValue(parts, "line");
             String stopId = findValue(parts, "stop");
             if (lineId == null || stopId == null) return "";
-            int etaSec = estimateEtaSeconds(lineId, stopId);
+            int etaSec = cachedEtaSeconds(lineId, stopId);
             if (etaSec < 0) return "--:--";
             return formatSeconds(etaSec);
         }
@@ -85,6 +90,30 @@ public class RailwayPlaceholders extends PlaceholderExpansion {
         return null;
     }
 
+    /**
+     * Under load, reuse a recent ETA (counted down by the time since it was computed) instead of
+     * walking every active train for each placeholder request.
+     */
+    private int cachedEtaSeconds(String lineId, String stopId) {
+        LoadGovernor governor = plugin.getLoadGovernor();
+        int cacheTicks = governor == null ? 0 : governor.getPlaceholderCacheTicks();
+        if (cacheTicks <= 0) {
+            if (!etaCache.isEmpty()) {
+                etaCache.clear();
+            }
+            return estimateEtaSeconds(lineId, stopId);
+        }
+        long now = org.cubexmc.metro.util.SchedulerUtil.getCurrentTick();
+        String key = lineId + "|" + stopId;
+        long[] cached = etaCache.get(key);
+        if (cached != null && now - cached[0] < cacheTicks) {
+            return cached[1] < 0 ? -1 : (int) Math.max(0L, cached[1] - (now - cached[0]) / 20L);
+        }
+        int eta = estimateEtaSeconds(lineId, stopId);
+        etaCache.put(key, new long[] {now, eta});
+        return eta;
+    }
+
     private int estimateEtaSeconds(String lineId, String stopId) {
         LineService service = plugin.getLineServiceManager().getService(lineId);
         if (service == null) {
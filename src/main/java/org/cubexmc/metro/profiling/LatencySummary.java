@@ -0,0 +1,13 @@
+package org.cubexmc.metro.profiling;
+
+/**
+ * Percentile summary of one histogram window, all values in nanoseconds.
+ */
+public record LatencySummary(long count, long p50Nanos, long p99Nanos, long maxNanos) {
+
+    public static final LatencySummary EMPTY = new LatencySummary(0L, 0L, 0L, 0L);
+
+    public boolean isEmpty() {
+        return count == 0L;
+    }
+}
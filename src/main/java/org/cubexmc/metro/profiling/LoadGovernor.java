@@ -0,0 +1,166 @@
+package org.cubexmc.metro.profiling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Steps Railway through degradation tiers as the server's tick time rises. Escalation is
+ * immediate; recovery drops one tier at a time once the tick time has stayed below the lower
+ * tier's threshold minus a margin for the configured hold time.
+ *
+ * <p>Readers call the getters from any thread; {@link #update(double, long)} is called from one
+ * sampling task.
+ */
+public final class LoadGovernor {
+
+    /**
+     * One degradation tier, entered when the rolling tick time reaches {@code msptThreshold}.
+     */
+    public static final class Tier {
+        final double msptThreshold;
+        final int maxSubSteps;
+        final double uiIntervalMultiplier;
+        final double virtualIdleMultiplier;
+        final int placeholderCacheTicks;
+        final boolean pauseMapLive;
+
+        public Tier(double msptThreshold, int maxSubSteps, double uiIntervalMultiplier,
+                double virtualIdleMultiplier, int placeholderCacheTicks, boolean pauseMapLive) {
+            this.msptThreshold = msptThreshold;
+            this.maxSubSteps = Math.max(1, maxSubSteps);
+            this.uiIntervalMultiplier = Math.max(1.0, uiIntervalMultiplier);
+            this.virtualIdleMultiplier = Math.max(0.0, Math.min(1.0, virtualIdleMultiplier));
+            this.placeholderCacheTicks = Math.max(0, placeholderCacheTicks);
+            this.pauseMapLive = pauseMapLive;
+        }
+
+        public double getMsptThreshold() {
+            return msptThreshold;
+        }
+    }
+
+    private final List<Tier> tiers;
+    private final double recoverMarginMs;
+    private final long recoverHoldMillis;
+    private final Consumer<String> transitionLog;
+    private volatile int level;
+    private volatile double lastMspt;
+    private long belowSinceMillis = -1L;
+    private long transitions;
+
+    public LoadGovernor(List<Tier> tiers, double recoverMarginMs, long recoverHoldMillis,
+            Consumer<String> transitionLog) {
+        List<Tier> sorted = new ArrayList<>(tiers);
+        sorted.sort(Comparator.comparingDouble(Tier::getMsptThreshold));
+        this.tiers = List.copyOf(sorted);
+        this.recoverMarginMs = Math.max(0.0, recoverMarginMs);
+        this.recoverHoldMillis = Math.max(0L, recoverHoldMillis);
+        this.transitionLog = transitionLog;
+    }
+
+    /**
+     * Feed one rolling tick time sample.
+     */
+    public synchronized void update(double mspt, long nowMillis) {
+        lastMspt = mspt;
+        int target = 0;
+        for (int i = 0; i < tiers.size(); i++) {
+            if (mspt >= tiers.get(i).msptThreshold) {
+                target = i + 1;
+            }
+        }
+        if (target > level) {
+            belowSinceMillis = -1L;
+            changeLevel(target, mspt);
+            return;
+        }
+        if (level == 0) {
+            return;
+        }
+        double recoverBelow = tiers.get(level - 1).msptThreshold - recoverMarginMs;
+        if (mspt >= recoverBelow) {
+            belowSinceMillis = -1L;
+            return;
+        }
+        if (belowSinceMillis < 0L) {
+            belowSinceMillis = nowMillis;
+        }
+        if (nowMillis - belowSinceMillis >= recoverHoldMillis) {
+            belowSinceMillis = -1L;
+            changeLevel(level - 1, mspt);
+        }
+    }
+
+    private void changeLevel(int newLevel, double mspt) {
+        int previous = level;
+        level = newLevel;
+        transitions++;
+        if (transitionLog != null) {
+            transitionLog.accept(String.format("[LoadGovernor] Tick time %.1f ms: tier %d -> %d",
+                    mspt, previous, newLevel));
+        }
+    }
+
+    private Tier current() {
+        int current = level;
+        return current == 0 ? null : tiers.get(current - 1);
+    }
+
+    /**
+     * Current tier, 0 when not degraded.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public int getTierCount() {
+        return tiers.size();
+    }
+
+    public double getLastMspt() {
+        return lastMspt;
+    }
+
+    public synchronized long getTransitionCount() {
+        return transitions;
+    }
+
+    public int capSubSteps(int subSteps) {
+        Tier tier = current();
+        return tier == null ? subSteps : Math.min(subSteps, tier.maxSubSteps);
+    }
+
+    /**
+     * Stretch a UI refresh interval; non-positive intervals (disabled) are returned as is.
+     */
+    public int scaleUiInterval(int intervalTicks) {
+        Tier tier = current();
+        if (tier == null || intervalTicks <= 0) {
+            return intervalTicks;
+        }
+        return (int) Math.ceil(intervalTicks * tier.uiIntervalMultiplier);
+    }
+
+    /**
+     * Shorten the idle time after which an unoccupied physical train is virtualised.
+     */
+    public int scaleVirtualIdleTicks(int idleTicks) {
+        Tier tier = current();
+        if (tier == null) {
+            return idleTicks;
+        }
+        return Math.max(1, (int) Math.round(idleTicks * tier.virtualIdleMultiplier));
+    }
+
+    public int getPlaceholderCacheTicks() {
+        Tier tier = current();
+        return tier == null ? 0 : tier.placeholderCacheTicks;
+    }
+
+    public boolean isMapLivePaused() {
+        Tier tier = current();
+        return tier != null && tier.pauseMapLive;
+    }
+}
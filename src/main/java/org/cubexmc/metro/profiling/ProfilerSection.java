@@ -0,0 +1,24 @@
+package org.cubexmc.metro.profiling;
+
+/**
+ * Subsystems timed by the {@link TickProfiler}.
+ */
+public enum ProfilerSection {
+    HEARTBEAT("heartbeat"),
+    LINE_SERVICE("line-service"),
+    PHYSICS("physics"),
+    VEHICLE_LISTENER("vehicle-listener"),
+    STOP_PRESENCE("stop-presence"),
+    PERSISTENCE("persistence"),
+    MAP_REFRESH("map-refresh");
+
+    private final String key;
+
+    ProfilerSection(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
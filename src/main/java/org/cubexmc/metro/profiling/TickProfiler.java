@@ -0,0 +1,130 @@
+package org.cubexmc.metro.profiling;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 低开销的分子系统耗时统计。各子系统与每条线路各有一个滑动窗口直方图，
+ * 记录只涉及 nanoTime 和几次原子自增；关闭时 {@link #start()} 直接返回 0，不读时钟。
+ *
+ * <pre>
+ * long start = profiler.start();
+ * ...
+ * profiler.stop(ProfilerSection.PHYSICS, start);
+ * </pre>
+ */
+public class TickProfiler {
+
+    private final long sliceNanos;
+    private final int sliceCount;
+    private final LongSupplier clock;
+    private final WindowedHistogram[] sections;
+    private final Map<String, WindowedHistogram> lines = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    public TickProfiler(boolean enabled, int sliceSeconds, int sliceCount) {
+        this(enabled, TimeUnit.SECONDS.toNanos(Math.max(1, sliceSeconds)), sliceCount, System::nanoTime);
+    }
+
+    TickProfiler(boolean enabled, long sliceNanos, int sliceCount, LongSupplier clock) {
+        this.enabled = enabled;
+        this.sliceNanos = sliceNanos;
+        this.sliceCount = Math.max(1, sliceCount);
+        this.clock = clock;
+        this.sections = new WindowedHistogram[ProfilerSection.values().length];
+        for (ProfilerSection section : ProfilerSection.values()) {
+            sections[section.ordinal()] = new WindowedHistogram(sliceNanos, this.sliceCount, clock);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return start timestamp to hand back to {@link #stop}, or 0 when profiling is off
+     */
+    public long start() {
+        return enabled ? clock.getAsLong() : 0L;
+    }
+
+    public void stop(ProfilerSection section, long startNanos) {
+        if (startNanos != 0L) {
+            record(section, clock.getAsLong() - startNanos);
+        }
+    }
+
+    /**
+     * Record one line service tick both under {@link ProfilerSection#LINE_SERVICE} and for the line itself.
+     */
+    public void stopLine(String lineId, long startNanos) {
+        if (startNanos != 0L) {
+            long elapsed = clock.getAsLong() - startNanos;
+            record(ProfilerSection.LINE_SERVICE, elapsed);
+            recordLine(lineId, elapsed);
+        }
+    }
+
+    public void record(ProfilerSection section, long nanos) {
+        if (enabled) {
+            sections[section.ordinal()].record(nanos);
+        }
+    }
+
+    public void recordLine(String lineId, long nanos) {
+        if (enabled && lineId != null) {
+            lines.computeIfAbsent(lineId, id -> new WindowedHistogram(sliceNanos, sliceCount, clock)).record(nanos);
+        }
+    }
+
+    public Map<ProfilerSection, LatencySummary> summarizeSections(long windowSeconds) {
+        int windowSlices = toSlices(windowSeconds);
+        Map<ProfilerSection, LatencySummary> result = new EnumMap<>(ProfilerSection.class);
+        for (ProfilerSection section : ProfilerSection.values()) {
+            result.put(section, sections[section.ordinal()].summarize(windowSlices));
+        }
+        return result;
+    }
+
+    /**
+     * Per-line summaries, sorted by line id; lines with no samples in the window are omitted.
+     */
+    public Map<String, LatencySummary> summarizeLines(long windowSeconds) {
+        int windowSlices = toSlices(windowSeconds);
+        Map<String, LatencySummary> result = new TreeMap<>();
+        for (Map.Entry<String, WindowedHistogram> entry : lines.entrySet()) {
+            LatencySummary summary = entry.getValue().summarize(windowSlices);
+            if (!summary.isEmpty()) {
+                result.put(entry.getKey(), summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clear all recorded data, including histograms of lines that no longer exist.
+     */
+    public void reset() {
+        lines.clear();
+        for (int index = 0; index < sections.length; index++) {
+            sections[index] = new WindowedHistogram(sliceNanos, sliceCount, clock);
+        }
+    }
+
+    public long getMaxWindowSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(sliceNanos * sliceCount);
+    }
+
+    private int toSlices(long windowSeconds) {
+        long windowNanos = TimeUnit.SECONDS.toNanos(Math.max(1L, windowSeconds));
+        return (int) Math.max(1L, Math.min(sliceCount, (windowNanos + sliceNanos - 1) / sliceNanos));
+    }
+}
@@ -0,0 +1,98 @@
+package org.cubexmc.metro.profiling;
+
+import java.lang.reflect.Method;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.cubexmc.metro.util.SchedulerUtil;
+
+/**
+ * Feeds a {@link LoadGovernor} with the server's rolling tick time. Paper's
+ * {@code Server#getAverageTickTime()} is used when it is available; otherwise (Spigot, Folia) the
+ * sampler falls back to an exponential moving average of the wall time between its own
+ * once-per-tick runs. That interval is pinned to the 50 ms tick period on a healthy server, so it
+ * only becomes a tick time once ticks run late; see {@link #estimateMsptFromInterval(double)}.
+ */
+public final class TickTimeSampler {
+
+    /** Length of one server tick at 20 TPS. */
+    static final double TICK_PERIOD_MS = 50.0;
+    /** Lateness below this is scheduling jitter rather than an overloaded tick. */
+    static final double LATE_TOLERANCE_MS = 2.0;
+
+    private static final double LOCAL_SMOOTHING = 0.05;
+
+    private final Plugin plugin;
+    private final LoadGovernor governor;
+    private final int sampleIntervalTicks;
+    private Method averageTickTime;
+    private boolean paperAvailable = true;
+    private Object task;
+    private long lastRunNanos;
+    private double localMspt = 50.0;
+    private int ticksSinceSample;
+
+    public TickTimeSampler(Plugin plugin, LoadGovernor governor, int sampleIntervalTicks) {
+        this.plugin = plugin;
+        this.governor = governor;
+        this.sampleIntervalTicks = Math.max(1, sampleIntervalTicks);
+    }
+
+    public void start() {
+        stop();
+        lastRunNanos = 0L;
+        ticksSinceSample = 0;
+        task = SchedulerUtil.globalRun(plugin, this::tick, 1L, 1L);
+    }
+
+    public void stop() {
+        if (task != null) {
+            SchedulerUtil.cancelTask(task);
+            task = null;
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        if (lastRunNanos != 0L) {
+            double intervalMs = (now - lastRunNanos) / 1_000_000.0;
+            localMspt += (intervalMs - localMspt) * LOCAL_SMOOTHING;
+        }
+        lastRunNanos = now;
+        if (++ticksSinceSample < sampleIntervalTicks) {
+            return;
+        }
+        ticksSinceSample = 0;
+        double paperMspt = readPaperMspt();
+        governor.update(paperMspt >= 0.0 ? paperMspt : estimateMsptFromInterval(localMspt),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Tick time implied by the average interval between once-per-tick runs. While ticks keep to
+     * the 50 ms period the work inside them is not observable and 0 is reported, so a healthy
+     * server stays at tier 0; once ticks run late the interval is the tick time.
+     */
+    static double estimateMsptFromInterval(double intervalMs) {
+        return intervalMs - TICK_PERIOD_MS <= LATE_TOLERANCE_MS ? 0.0 : intervalMs;
+    }
+
+    /**
+     * @return Paper's average tick time in ms, or -1 when the server does not provide it
+     */
+    private double readPaperMspt() {
+        if (!paperAvailable) {
+            return -1.0;
+        }
+        try {
+            if (averageTickTime == null) {
+                averageTickTime = Bukkit.getServer().getClass().getMethod("getAverageTickTime");
+            }
+            return ((Number) averageTickTime.invoke(Bukkit.getServer())).doubleValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Spigot 没有该方法，Folia 在全局线程上会抛出 UnsupportedOperationException
+            paperAvailable = false;
+            return -1.0;
+        }
+    }
+}
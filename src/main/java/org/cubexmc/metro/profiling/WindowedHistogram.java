@@ -0,0 +1,85 @@
+package org.cubexmc.metro.profiling;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window latency histogram: a ring of time slices, each with its own {@link LatencyHistogram}.
+ * A slice is replaced by a fresh histogram (CAS, no locking) the first time it is written in a new period,
+ * so old data ages out without a cleanup task. Samples racing with a slice rollover may be dropped.
+ */
+public final class WindowedHistogram {
+
+    private final long sliceNanos;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<Slice> slices;
+
+    public WindowedHistogram(long sliceNanos, int sliceCount, LongSupplier clock) {
+        this.sliceNanos = Math.max(1L, sliceNanos);
+        this.clock = clock;
+        this.slices = new AtomicReferenceArray<>(Math.max(1, sliceCount));
+    }
+
+    public void record(long nanos) {
+        long epoch = currentEpoch();
+        int slot = (int) Math.floorMod(epoch, (long) slices.length());
+        Slice slice = slices.get(slot);
+        if (slice == null || slice.epoch != epoch) {
+            Slice fresh = new Slice(epoch);
+            if (slices.compareAndSet(slot, slice, fresh)) {
+                slice = fresh;
+            } else {
+                slice = slices.get(slot);
+                if (slice == null || slice.epoch != epoch) {
+                    return;
+                }
+            }
+        }
+        slice.histogram.record(nanos);
+    }
+
+    /**
+     * Summarise the most recent {@code windowSlices} slices, including the one currently being written.
+     */
+    public LatencySummary summarize(int windowSlices) {
+        int window = Math.max(1, Math.min(windowSlices, slices.length()));
+        long epoch = currentEpoch();
+        long[] merged = new long[LatencyHistogram.BUCKET_COUNT];
+        long total = 0L;
+        long max = 0L;
+        for (int index = 0; index < slices.length(); index++) {
+            Slice slice = slices.get(index);
+            if (slice == null || slice.epoch > epoch || epoch - slice.epoch >= window) {
+                continue;
+            }
+            slice.histogram.addTo(merged);
+            total += slice.histogram.getTotalCount();
+            max = Math.max(max, slice.histogram.getMax());
+        }
+        return new LatencySummary(total,
+                LatencyHistogram.percentile(merged, total, max, 50.0),
+                LatencyHistogram.percentile(merged, total, max, 99.0),
+                max);
+    }
+
+    public int getSliceCount() {
+        return slices.length();
+    }
+
+    public long getSliceNanos() {
+        return sliceNanos;
+    }
+
+    private long currentEpoch() {
+        return Math.floorDiv(clock.getAsLong(), sliceNanos);
+    }
+
+    private static final class Slice {
+        private final long epoch;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Slice(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package org.cubexmc.metro.service;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple skeleton for section occupancy. Real implementation will 
@@ -9,7 +9,8 @@ import java.util.Set;
  */
 public class BlockSectionManager {
 
-    private final Set<String> occupiedKeys = new HashSet<>();
+    // Folia 分区心跳下不同 region 线程的列车会同时进出区间
+    private final Set<String> occupiedKeys = ConcurrentHashMap.newKeySet();
 
     public boolean tryEnter(String sectionKey) {
         return occupiedKeys.add(sectionKey);
@@ -22,6 +23,24 @@ public class BlockSectionManager {
     public boolean isOccupied(String sectionKey) {
         return occupiedKeys.contains(sectionKey);
     }
+
+    public int getOccupiedCount() {
+        return occupiedKeys.size();
+    }
+
+    /**
+     * Count occupied sections of one line; keys follow {@code LineService#buildSectionKey}.
+     */
+    public int getOccupiedCount(String lineId) {
+        String prefix = lineId + ":";
+        int count = 0;
+        for (String key : occupiedKeys) {
+            if (key.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
 
 
@@ -0,0 +1,238 @@
+package org.cubexmc.metro.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Minecart;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.util.Vector;
+
+/**
+ * Per-world pool of parked train minecarts. Instead of removing the cars of a train that is
+ * virtualised or cleaned up, they are parked out of sight and handed back to the next spawn
+ * in the same world, which avoids entity spawn/remove churn in local mode.
+ *
+ * <p>Parked carts sit in a row at a configurable {@link Depot}, by default buried in the floor
+ * of the world below the spawn where players cannot see them. They are tagged with the
+ * {@code train-id} key set to {@link #POOLED_TAG} and are not persistent, so a crash never
+ * leaves them in the world. Disabled on Folia, where cross-region teleports are not synchronous.
+ */
+public class ConsistPool {
+
+    /** {@code train-id} value carried by parked carts. */
+    public static final String POOLED_TAG = "pooled";
+
+    /** Spacing between parked carts along the depot row. */
+    static final double DEPOT_SPACING = 2.0;
+
+    /**
+     * Where parked carts are kept in each world.
+     *
+     * @param offsetX horizontal offset of the first cart from the world spawn
+     * @param offsetZ horizontal offset of the row from the world spawn
+     * @param y       absolute height of the row, or null for one block above the world's minimum height
+     */
+    public record Depot(int offsetX, int offsetZ, Integer y) {
+
+        /** One block above the world floor, directly below the spawn. */
+        public static final Depot DEFAULT = new Depot(0, 0, null);
+    }
+
+    private static final class Parked {
+        final Minecart cart;
+        final long parkedTick;
+
+        Parked(Minecart cart, long parkedTick) {
+            this.cart = cart;
+            this.parkedTick = parkedTick;
+        }
+    }
+
+    private final boolean enabled;
+    private final int maxPerWorld;
+    private final long idleTicks;
+    private final NamespacedKey trainKey;
+    private final Depot depot;
+    private final Map<UUID, Deque<Parked>> parkedByWorld = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder parkedTotal = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ConsistPool(boolean enabled, int maxPerWorld, long idleTicks, NamespacedKey trainKey) {
+        this(enabled, maxPerWorld, idleTicks, trainKey, Depot.DEFAULT);
+    }
+
+    public ConsistPool(boolean enabled, int maxPerWorld, long idleTicks, NamespacedKey trainKey, Depot depot) {
+        this.enabled = enabled && maxPerWorld > 0;
+        this.maxPerWorld = Math.max(0, maxPerWorld);
+        this.idleTicks = Math.max(1L, idleTicks);
+        this.trainKey = trainKey;
+        this.depot = depot == null ? Depot.DEFAULT : depot;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Take a parked cart from the target's world and move it there.
+     *
+     * @return the reactivated cart, or null when the pool has none and a fresh spawn is needed
+     */
+    public synchronized Minecart acquire(Location target) {
+        if (!enabled || target == null || target.getWorld() == null) {
+            return null;
+        }
+        Deque<Parked> parked = parkedByWorld.get(target.getWorld().getUID());
+        while (parked != null && !parked.isEmpty()) {
+            Minecart cart = parked.pollLast().cart;
+            if (!cart.isValid() || !cart.teleport(target)) {
+                evicted.increment();
+                if (!cart.isDead()) {
+                    cart.remove();
+                }
+                continue;
+            }
+            cart.getPersistentDataContainer().remove(trainKey);
+            cart.setPersistent(true);
+            cart.setSilent(false);
+            cart.setVelocity(new Vector(0, 0, 0));
+            hits.increment();
+            return cart;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Park a cart that would otherwise be removed. Passengers must already have left.
+     *
+     * @return false when the cart was not taken; the caller should remove it
+     */
+    public synchronized boolean release(Minecart cart, long currentTick) {
+        if (!enabled || cart == null || !cart.isValid() || !cart.getPassengers().isEmpty()) {
+            return false;
+        }
+        World world = cart.getWorld();
+        if (world == null) {
+            return false;
+        }
+        Deque<Parked> parked = parkedByWorld.computeIfAbsent(world.getUID(), id -> new ArrayDeque<>());
+        if (parked.size() >= maxPerWorld) {
+            rejected.increment();
+            return false;
+        }
+        cart.setVelocity(new Vector(0, 0, 0));
+        if (!cart.teleport(depotLocation(world, depot, parked.size()))) {
+            rejected.increment();
+            return false;
+        }
+        // 停放的矿车仍由服务器每 tick 处理；静音、无重力、零速度让这一 tick 只剩最基本的开销
+        cart.setVelocity(new Vector(0, 0, 0));
+        cart.setPersistent(false);
+        cart.setCustomNameVisible(false);
+        cart.setGravity(false);
+        cart.setSilent(true);
+        cart.getPersistentDataContainer().set(trainKey, PersistentDataType.STRING, POOLED_TAG);
+        parked.addLast(new Parked(cart, currentTick));
+        parkedTotal.increment();
+        return true;
+    }
+
+    /**
+     * Remove carts parked for longer than the idle timeout, oldest first.
+     */
+    public synchronized void evictIdle(long currentTick) {
+        if (parkedByWorld.isEmpty()) {
+            return;
+        }
+        Iterator<Deque<Parked>> worlds = parkedByWorld.values().iterator();
+        while (worlds.hasNext()) {
+            Deque<Parked> parked = worlds.next();
+            while (!parked.isEmpty()) {
+                Parked oldest = parked.peekFirst();
+                if (oldest.cart.isValid() && currentTick - oldest.parkedTick < idleTicks) {
+                    break;
+                }
+                parked.pollFirst();
+                discard(oldest.cart);
+            }
+            if (parked.isEmpty()) {
+                worlds.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove every parked cart.
+     */
+    public synchronized void drain() {
+        for (Deque<Parked> parked : parkedByWorld.values()) {
+            for (Parked entry : parked) {
+                discard(entry.cart);
+            }
+        }
+        parkedByWorld.clear();
+    }
+
+    public synchronized int getParkedCount(UUID worldId) {
+        Deque<Parked> parked = parkedByWorld.get(worldId);
+        return parked == null ? 0 : parked.size();
+    }
+
+    public synchronized Map<UUID, Integer> getParkedCounts() {
+        Map<UUID, Integer> counts = new HashMap<>();
+        parkedByWorld.forEach((worldId, parked) -> counts.put(worldId, parked.size()));
+        return counts;
+    }
+
+    /** Cars taken from the pool, i.e. minecart spawns avoided. */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** Cars requested while the pool for the world was empty. */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Cars parked instead of removed. */
+    public long getParkedTotal() {
+        return parkedTotal.sum();
+    }
+
+    /** Cars that could not be parked because the world's pool was full. */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Parked cars removed for idling too long or becoming invalid. */
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    private void discard(Minecart cart) {
+        evicted.increment();
+        if (!cart.isDead()) {
+            cart.remove();
+        }
+    }
+
+    static Location depotLocation(World world, Depot depot, int index) {
+        Location spawn = world.getSpawnLocation();
+        int y = depot.y() != null ? depot.y() : world.getMinHeight() + 1;
+        return new Location(world, spawn.getBlockX() + depot.offsetX() + 0.5 + index * DEPOT_SPACING, y,
+                spawn.getBlockZ() + depot.offsetZ() + 0.5);
+    }
+}
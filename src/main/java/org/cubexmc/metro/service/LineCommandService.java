@@ -229,7 +229,7 @@ public class LineCommandService {
         }
 
         line.setPriceRule(rule);
-        lineManager.saveConfig();
+        lineManager.saveConfig(line.getId());
         return WriteStatus.SUCCESS;
     }
 
@@ -237,7 +237,7 @@ public class LineCommandService {
         Line line = lineManager.getLine(id);
         if (line == null) return false;
         line.setPriceRule(null);
-        lineManager.saveConfig();
+        lineManager.saveConfig(line.getId());
         return true;
     }
 
@@ -259,7 +259,7 @@ public class LineCommandService {
 
         line.setLineStatus(lineStatus);
         Bukkit.getPluginManager().callEvent(new LineStatusChangeEvent(line, oldStatus, lineStatus));
-        lineManager.saveConfig();
+        lineManager.saveConfig(line.getId());
         return WriteStatus.SUCCESS;
     }
 
@@ -268,7 +268,7 @@ public class LineCommandService {
         if (line == null) return false;
         boolean result = line.addAlternativeRoute(altLineId);
         if (result) {
-            lineManager.saveConfig();
+            lineManager.saveConfig(line.getId());
         }
         return result;
     }
@@ -278,7 +278,7 @@ public class LineCommandService {
         if (line == null) return false;
         boolean result = line.removeAlternativeRoute(altLineId);
         if (result) {
-            lineManager.saveConfig();
+            lineManager.saveConfig(line.getId());
         }
         return result;
     }
@@ -287,7 +287,7 @@ public class LineCommandService {
         Line line = lineManager.getLine(id);
         if (line == null) return false;
         line.setSuspensionMessage(message);
-        lineManager.saveConfig();
+        lineManager.saveConfig(line.getId());
         return true;
     }
 
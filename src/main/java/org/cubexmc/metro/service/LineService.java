@@ -2,10 +2,13 @@ package org.cubexmc.metro.service;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -17,7 +20,9 @@ import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
 import org.cubexmc.metro.service.strategy.GlobalDispatchStrategy;
 import org.cubexmc.metro.service.strategy.LocalDispatchStrategy;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
 import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.train.TrainSnapshot;
 import org.cubexmc.metro.util.LineTopologyUtil;
 import org.cubexmc.metro.util.SchedulerUtil;
 
@@ -28,16 +33,22 @@ public class LineService {
     private final String lineId;
     private final DispatchStrategy dispatchStrategy;
     private final TrainSpawner spawner;
-    private final List<TrainInstance> activeTrains = new ArrayList<>();
-    private final Set<TrainInstance> pendingRemoval = new LinkedHashSet<>();
+    // Folia 分区心跳下由各 region 线程并发增删
+    private final List<TrainInstance> activeTrains = new CopyOnWriteArrayList<>();
+    // 脱轨等回调可能来自 region 线程，移除队列需并发安全
+    private final Queue<TrainInstance> pendingRemoval = new ConcurrentLinkedQueue<>();
 
     private int headwaySeconds;
     private int dwellTicks;
     private int trainCars;
-    private long lastDepartureTick = -1L;
-    private long totalTicks = 0L;
-    private long totalTrainUpdates = 0L;
-    private long totalSpawns = 0L;
+    // 重启恢复后可能早于 tick 0，因此是否发过车单独记录，不用负数当哨兵
+    private volatile long lastDepartureTick;
+    private volatile boolean hasDeparted;
+    private final LongAdder totalTicks = new LongAdder();
+    // Checkpoint state applied on the first dispatch tick, once the server tick is known
+    private volatile ServiceCheckpoint.LineState pendingRestore;
+    private final LongAdder totalTrainUpdates = new LongAdder();
+    private final LongAdder totalSpawns = new LongAdder();
 
     public LineService(Metro plugin, LineServiceManager manager, String lineId, int headwaySeconds, int dwellTicks,
             int trainCars, DispatchStrategy dispatchStrategy) {
@@ -52,12 +63,24 @@ public class LineService {
     }
 
     public void tick() {
-        totalTicks++;
         long currentTick = SchedulerUtil.getCurrentTick();
+        tickDispatch(currentTick);
+        updateActiveTrains(currentTick);
+    }
+
+    /**
+     * Timetable and virtual train work, without touching physical trains.
+     */
+    void tickDispatch(long currentTick) {
+        totalTicks.increment();
+        ServiceCheckpoint.LineState restore = pendingRestore;
+        if (restore != null) {
+            pendingRestore = null;
+            applyRestore(restore, currentTick);
+        }
         if (dispatchStrategy != null) {
             dispatchStrategy.tick(this, currentTick);
         }
-        updateActiveTrains(currentTick);
     }
 
     public void shutdown() {
@@ -89,7 +112,9 @@ public class LineService {
                 releasedVirtualTrains++;
             }
             train.finishImmediately();
-            queueTrainRemoval(train);
+            if (!isRegionSharded()) {
+                queueTrainRemoval(train);
+            }
             retiredTrains++;
         }
         flushPendingTrainRemoval();
@@ -106,15 +131,23 @@ public class LineService {
      * Register a newly spawned train. Called by {@link TrainSpawner}.
      */
     public void addTrain(TrainInstance train, long currentTick) {
+        // 生成线程即车头所属线程，先发布一次快照，首次 tick 前也能被地图等读取
+        train.publishSnapshot();
         activeTrains.add(train);
-        totalSpawns++;
+        totalSpawns.increment();
         manager.registerTrain(train);
     }
 
     // ===== Spawn methods (delegated to TrainSpawner) =====
 
     public void spawnTrain(long currentTick) {
-        spawner.spawnTrainAtFirstStop(currentTick);
+        RegionShardedHeartbeat sharded = manager.getRegionHeartbeat();
+        Location anchor = sharded == null ? null : stopAnchor(firstStopId());
+        if (anchor == null) {
+            spawner.spawnTrainAtFirstStop(currentTick);
+            return;
+        }
+        sharded.runOnRegion(anchor, () -> spawner.spawnTrainAtFirstStop(currentTick));
     }
 
     public TrainInstance spawnTrainForVirtual(long currentTick, int fromStopIndex, int toStopIndex,
@@ -123,13 +156,43 @@ public class LineService {
                 progress, virtualTrainId, targetStopId);
     }
 
+    /**
+     * Spawn a train for a virtual train without blocking the caller. With region sharding the spawn
+     * runs later on the region owning the target stop and {@code onResult} is called there;
+     * otherwise both happen before this returns.
+     *
+     * @param onResult receives the spawned train, or null when the spawn failed
+     */
+    public void requestTrainForVirtual(long currentTick, int fromStopIndex, int toStopIndex,
+            double progress, UUID virtualTrainId, String targetStopId, Consumer<TrainInstance> onResult) {
+        RegionShardedHeartbeat sharded = manager.getRegionHeartbeat();
+        Location anchor = sharded == null ? null : stopAnchor(targetStopId);
+        if (anchor == null) {
+            onResult.accept(spawner.spawnTrainForVirtual(currentTick, fromStopIndex, toStopIndex,
+                    progress, virtualTrainId, targetStopId));
+            return;
+        }
+        sharded.runOnRegion(anchor, () -> onResult.accept(spawner.spawnTrainForVirtual(currentTick,
+                fromStopIndex, toStopIndex, progress, virtualTrainId, targetStopId)));
+    }
+
+    private String firstStopId() {
+        Line line = getLine();
+        return line == null || line.getOrderedStopIds().isEmpty() ? null : line.getOrderedStopIds().get(0);
+    }
+
+    private Location stopAnchor(String stopId) {
+        Stop stop = stopId == null ? null : plugin.getStopManager().getStop(stopId);
+        return stop == null ? null : stop.getStopPointLocation();
+    }
+
     // ===== Train lifecycle =====
 
     private void updateActiveTrains(long currentTick) {
         Iterator<TrainInstance> iterator = activeTrains.iterator();
         while (iterator.hasNext()) {
             TrainInstance train = iterator.next();
-            totalTrainUpdates++;
+            totalTrainUpdates.increment();
             train.update(currentTick);
             if (train.isFinished()) {
                 queueTrainRemoval(train);
@@ -138,10 +201,52 @@ public class LineService {
         flushPendingTrainRemoval();
     }
 
+    /**
+     * Tick one train outside the serial loop: on the region thread that owns its lead car (Folia
+     * region sharding) or from the tick budget scheduler.
+     *
+     * @return false once the train is gone and its region task should stop
+     */
+    boolean tickTrain(TrainInstance train, long currentTick) {
+        return tickTrain(train, currentTick, true);
+    }
+
+    /**
+     * @param refreshChunks false when chunk tickets are refreshed separately by the tick budget scheduler
+     */
+    boolean tickTrain(TrainInstance train, long currentTick, boolean refreshChunks) {
+        if (!activeTrains.contains(train)) {
+            return false;
+        }
+        totalTrainUpdates.increment();
+        train.update(currentTick, refreshChunks);
+        if (train.isFinished()) {
+            retireTrain(train);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remove a train right away; must run on the thread that owns its cars.
+     */
+    void retireTrain(TrainInstance train) {
+        if (train == null || !activeTrains.contains(train)) {
+            return;
+        }
+        long currentTick = SchedulerUtil.getCurrentTick();
+        restoreVirtualAuthorityIfNeeded(train, currentTick);
+        manager.unregisterTrain(train);
+        train.cleanup();
+        activeTrains.remove(train);
+    }
+
     public void handleTrainDerail(TrainInstance train) {
         if (train == null) return;
         train.finishImmediately();
-        queueTrainRemoval(train);
+        if (!isRegionSharded()) {
+            queueTrainRemoval(train);
+        }
     }
 
     public void virtualizeBackToPool(TrainInstance train, long currentTick) {
@@ -156,16 +261,11 @@ public class LineService {
         }
     }
 
-    private void flushPendingTrainRemoval() {
-        if (pendingRemoval.isEmpty()) return;
-        long currentTick = SchedulerUtil.getCurrentTick();
-        for (TrainInstance train : pendingRemoval) {
-            restoreVirtualAuthorityIfNeeded(train, currentTick);
-            manager.unregisterTrain(train);
-            train.cleanup();
-            activeTrains.remove(train);
+    void flushPendingTrainRemoval() {
+        TrainInstance train;
+        while ((train = pendingRemoval.poll()) != null) {
+            retireTrain(train);
         }
-        pendingRemoval.clear();
     }
 
     private void restoreVirtualAuthorityIfNeeded(TrainInstance train, long currentTick) {
@@ -175,11 +275,100 @@ public class LineService {
         localDispatch.returnTrainToPool(train, currentTick);
     }
 
+    // ===== Checkpoint =====
+
+    /**
+     * Queue checkpointed state to be applied on the next dispatch tick.
+     *
+     * @return false when the state was taken on different stops or timetable and was ignored
+     */
+    public boolean restoreFrom(ServiceCheckpoint.LineState state) {
+        Line line = getLine();
+        if (state == null || line == null || !state.matches(line.getOrderedStopIds(), headwaySeconds, dwellTicks)) {
+            return false;
+        }
+        pendingRestore = state;
+        return true;
+    }
+
+    private void applyRestore(ServiceCheckpoint.LineState state, long currentTick) {
+        if (state.departureAgeTicks() >= 0) {
+            markDeparture(currentTick - state.departureAgeTicks());
+        }
+        if (dispatchStrategy instanceof LocalDispatchStrategy localDispatch) {
+            localDispatch.restoreVirtualTrains(state.virtualTrains());
+        }
+        List<String> stopIds = state.stopIds();
+        boolean loop = isLoopLine();
+        for (ServiceCheckpoint.TrainPosition position : state.physicalTrains()) {
+            // 实体列车无法还原到轨道中途，在其所在站或下一站重新停靠发车
+            int index = position.waiting() ? position.stopIndex() : position.targetIndex();
+            if (index < 0 || index >= stopIds.size() || (!loop && index == stopIds.size() - 1)) {
+                continue;
+            }
+            requestTrainForVirtual(currentTick, index, index, 0.0, null, stopIds.get(index), train -> { });
+        }
+    }
+
+    /**
+     * Current state of this line for a checkpoint, with times relative to currentTick.
+     */
+    public ServiceCheckpoint.LineState captureCheckpoint(long currentTick) {
+        Line line = getLine();
+        if (line == null) {
+            return null;
+        }
+        List<ServiceCheckpoint.TrainPosition> virtualTrains = dispatchStrategy instanceof LocalDispatchStrategy localDispatch
+                ? localDispatch.captureVirtualTrains(this, currentTick)
+                : List.of();
+        List<ServiceCheckpoint.TrainPosition> physicalTrains = new ArrayList<>();
+        for (TrainInstance train : activeTrains) {
+            if (train.getVirtualTrainId() != null) {
+                continue;
+            }
+            ServiceCheckpoint.TrainPosition position = capturePosition(train, currentTick);
+            if (position != null) {
+                physicalTrains.add(position);
+            }
+        }
+        long departureAge = hasDeparted ? Math.max(0L, currentTick - lastDepartureTick) : -1L;
+        return new ServiceCheckpoint.LineState(line.getOrderedStopIds(), headwaySeconds, dwellTicks,
+                departureAge, virtualTrains, physicalTrains);
+    }
+
+    /**
+     * Position of a physical train from its published snapshot, or null once it is leaving service.
+     * Reads no live train state, so it is safe on the heartbeat thread under region sharding.
+     */
+    public ServiceCheckpoint.TrainPosition capturePosition(TrainInstance train, long currentTick) {
+        TrainSnapshot snapshot = train.getSnapshot();
+        if (snapshot == null || snapshot.state() == TrainInstance.TrainState.TERMINATING
+                || snapshot.state() == TrainInstance.TrainState.FINISHED) {
+            return null;
+        }
+        List<String> stopIds = snapshot.stopIds();
+        int current = snapshot.currentIndex();
+        int target = snapshot.targetIndex();
+        if (snapshot.state() == TrainInstance.TrainState.WAITING || target < 0) {
+            long waited = Math.max(0L, currentTick - snapshot.stateSinceTick());
+            return new ServiceCheckpoint.TrainPosition(true, current, -1, waited,
+                    Math.max(0L, dwellTicks - waited), 0.0);
+        }
+        double pathSeconds = 10.0;
+        if (current >= 0 && current < stopIds.size() && target < stopIds.size()) {
+            pathSeconds = plugin.getTravelTimeEstimator().estimateSeconds(lineId,
+                    stopIds.get(current), stopIds.get(target));
+        }
+        long pathTicks = Math.max(1L, Math.round(pathSeconds * 20.0));
+        long elapsed = Math.min(pathTicks, Math.round(snapshot.segmentElapsedSeconds(currentTick) * 20.0));
+        return new ServiceCheckpoint.TrainPosition(false, current, target, elapsed, pathTicks - elapsed, pathSeconds);
+    }
+
     // ===== ETA / Scheduling =====
 
     public int estimateNextEtaSeconds(long currentTick) {
         int headwayTicks = getHeadwayTicks();
-        if (lastDepartureTick < 0) {
+        if (!hasDeparted) {
             long mod = currentTick % headwayTicks;
             long etaTicks = (mod == 0) ? headwayTicks : (headwayTicks - mod);
             return (int) Math.ceil(etaTicks / 20.0);
@@ -231,11 +420,12 @@ public class LineService {
     }
 
     public boolean isDepartureWindow(long currentTick) {
-        return lastDepartureTick < 0 || currentTick - lastDepartureTick >= getHeadwayTicks();
+        return !hasDeparted || currentTick - lastDepartureTick >= getHeadwayTicks();
     }
 
     public void markDeparture(long currentTick) {
         lastDepartureTick = currentTick;
+        hasDeparted = true;
     }
 
     public boolean tryMarkDeparture(long currentTick) {
@@ -248,7 +438,7 @@ public class LineService {
 
     public void markVirtualizedTrain(long currentTick) {
         if (isGlobalMode()) return;
-        lastDepartureTick = Math.max(0L, currentTick - getHeadwayTicks());
+        markDeparture(currentTick - getHeadwayTicks());
     }
 
     // ===== Travel direction =====
@@ -268,11 +458,14 @@ public class LineService {
     public int getTrainCars() { return trainCars; }
     public Metro getPlugin() { return plugin; }
     public NamespacedKey getTrainKey() { return manager.getTrainKey(); }
+    public ConsistPool getConsistPool() { return manager.getConsistPool(); }
     public BlockSectionManager getBlockSectionManager() { return manager.getBlockSectionManager(); }
     public StopManager getStopManager() { return plugin.getStopManager(); }
     public Line getLine() { return plugin.getLineManager().getLine(lineId); }
     public List<TrainInstance> getActiveTrains() { return new ArrayList<>(activeTrains); }
 
+    public int getActiveTrainCount() { return activeTrains.size(); }
+
     public double getCartSpeed() {
         Line line = getLine();
         if (line != null) {
@@ -285,6 +478,14 @@ public class LineService {
     public double getTrainSpacing() { return plugin.getTrainSpacing(); }
     public String buildSectionKey(String fromStopId, String toStopId) { return lineId + ":" + fromStopId + "->" + toStopId; }
     public boolean isGlobalMode() { return dispatchStrategy instanceof GlobalDispatchStrategy; }
+    public boolean isRegionSharded() { return manager.getRegionHeartbeat() != null; }
+
+    /**
+     * Virtual train pool of a LOCAL-mode line, or null for GLOBAL mode / before the first tick.
+     */
+    public VirtualTrainPool getVirtualTrainPool() {
+        return dispatchStrategy instanceof LocalDispatchStrategy local ? local.getPool() : null;
+    }
 
     public boolean isLoopLine() {
         Line line = getLine();
@@ -295,7 +496,7 @@ public class LineService {
     public void setDwellTicks(int dwellTicks) { this.dwellTicks = dwellTicks; }
     public void setTrainCars(int trainCars) { this.trainCars = Math.max(1, trainCars); }
 
-    public long getTotalTicks() { return totalTicks; }
-    public long getTotalTrainUpdates() { return totalTrainUpdates; }
-    public long getTotalSpawns() { return totalSpawns; }
+    public long getTotalTicks() { return totalTicks.sum(); }
+    public long getTotalTrainUpdates() { return totalTrainUpdates.sum(); }
+    public long getTotalSpawns() { return totalSpawns.sum(); }
 }
@@ -1,16 +1,27 @@
 package org.cubexmc.metro.service;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
 import org.cubexmc.metro.service.strategy.GlobalDispatchStrategy;
 import org.cubexmc.metro.service.strategy.LocalDispatchStrategy;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
 import org.cubexmc.metro.train.TrainInstance;
 import org.cubexmc.metro.util.SchedulerUtil;
 
@@ -22,15 +33,29 @@ public class LineServiceManager {
     private final Map<UUID, TrainInstance> trainsByMinecart = new ConcurrentHashMap<>();
     private final NamespacedKey trainKey;
     private final BlockSectionManager blockSectionManager = new BlockSectionManager();
+    private final ConsistPool consistPool;
+    private final RegionShardedHeartbeat regionHeartbeat;
+    private final TickBudgetScheduler tickBudget;
     private Object heartbeat;
     private final OperationMode operationMode;
     private long lastMetricsLogTick = -1L;
+    private long lastCheckpointTick = -1L;
 
     public LineServiceManager(Metro plugin) {
         this.plugin = plugin;
         this.operationMode = OperationMode.from(plugin.getServiceModeRaw(),
                 OperationMode.LOCAL);
         this.trainKey = new NamespacedKey(plugin, "train-id");
+        // Folia 上跨 region 传送是异步的，停放池无法同步取回矿车
+        this.consistPool = new ConsistPool(plugin.isConsistPoolEnabled() && !SchedulerUtil.isFolia(),
+                plugin.getConsistPoolMaxPerWorld(), plugin.getConsistPoolIdleSeconds() * 20L, trainKey,
+                new ConsistPool.Depot(plugin.getConsistPoolDepotOffsetX(), plugin.getConsistPoolDepotOffsetZ(),
+                        plugin.getConsistPoolDepotY()));
+        this.regionHeartbeat = SchedulerUtil.isFolia() && plugin.isServiceRegionShardingEnabled()
+                ? new RegionShardedHeartbeat(plugin, plugin.getServiceHeartbeatIntervalTicks())
+                : null;
+        this.tickBudget = new TickBudgetScheduler(Math.round(plugin.getServiceTickBudgetMillis() * 1_000_000.0),
+                plugin.getServiceTickBudgetMaxDeferTicks());
 
         LineManager lineManager = plugin.getLineManager();
         for (Line line : lineManager.getAllLines()) {
@@ -39,6 +64,7 @@ public class LineServiceManager {
                         line.getTrainCars());
             }
         }
+        restoreCheckpoint();
 
         startHeartbeat();
     }
@@ -49,15 +75,74 @@ public class LineServiceManager {
         this.heartbeat = SchedulerUtil.globalRun(plugin, () -> {
             long currentTick = SchedulerUtil.getCurrentTick();
             long startNanos = System.nanoTime();
-            for (LineService service : lineIdToService.values()) {
-                service.tick();
+            TickProfiler profiler = plugin.getTickProfiler();
+            if (regionHeartbeat != null) {
+                // 列车在各自 region 上运行，这里只把调度交给异步通道
+                regionHeartbeat.runDispatchLane(lineIdToService.values(), currentTick);
+                consistPool.evictIdle(currentTick);
+            } else if (tickBudget.isEnabled()) {
+                runBudgetedTick(currentTick, profiler);
+            } else {
+                for (LineService service : lineIdToService.values()) {
+                    long lineStart = profiler == null ? 0L : profiler.start();
+                    service.tick();
+                    if (profiler != null) {
+                        profiler.stopLine(service.getLineId(), lineStart);
+                    }
+                }
+                consistPool.evictIdle(currentTick);
             }
             plugin.getLineManager().tick();
             plugin.getStopManager().tick();
-            maybeLogServiceMetrics(currentTick, System.nanoTime() - startNanos);
+            TrainTelemetryHub telemetryHub = plugin.getTelemetryHub();
+            if (telemetryHub != null) {
+                telemetryHub.publish(currentTick);
+            }
+            long elapsedNanos = System.nanoTime() - startNanos;
+            if (profiler != null) {
+                profiler.record(ProfilerSection.HEARTBEAT, elapsedNanos);
+            }
+            maybeLogServiceMetrics(currentTick, elapsedNanos);
+            maybeWriteCheckpoint(currentTick);
         }, period, period);
     }
 
+    /**
+     * Dispatch, trains carrying passengers or in motion and queued train removals run every
+     * heartbeat; idle empty trains, chunk ticket refreshes and pool eviction share the remaining
+     * budget.
+     */
+    private void runBudgetedTick(long currentTick, TickProfiler profiler) {
+        List<Runnable> critical = new ArrayList<>();
+        List<TickBudgetScheduler.Task> background = new ArrayList<>();
+        for (LineService service : lineIdToService.values()) {
+            // 调度推迟会直接打乱发车间隔，不参与预算轮转
+            critical.add(() -> {
+                long lineStart = profiler == null ? 0L : profiler.start();
+                service.tickDispatch(currentTick);
+                if (profiler != null) {
+                    profiler.stopLine(service.getLineId(), lineStart);
+                }
+            });
+            for (TrainInstance train : service.getActiveTrains()) {
+                // 行驶中的列车不能跳帧，否则会错过到站判定
+                Runnable update = () -> service.tickTrain(train, currentTick, false);
+                if (train.hasPassengers() || train.isMoving()) {
+                    critical.add(update);
+                } else {
+                    background.add(new TickBudgetScheduler.Task(train, "train", update));
+                }
+                background.add(new TickBudgetScheduler.Task(train, "chunks",
+                        () -> train.refreshChunkTickets(currentTick)));
+            }
+            // 脱轨等排队移除的列车在本 tick 内回收，不等到下一次串行更新
+            critical.add(service::flushPendingTrainRemoval);
+        }
+        background.add(new TickBudgetScheduler.Task(consistPool, "consist-pool",
+                () -> consistPool.evictIdle(currentTick)));
+        tickBudget.run(currentTick, critical, background);
+    }
+
     private void stopHeartbeat() {
         if (heartbeat != null) {
             SchedulerUtil.cancelTask(heartbeat);
@@ -67,9 +152,14 @@ public class LineServiceManager {
 
     public void shutdown() {
         stopHeartbeat();
+        saveCheckpoint();
         for (LineService service : lineIdToService.values()) {
             service.shutdown();
         }
+        if (regionHeartbeat != null) {
+            regionHeartbeat.cancelAll();
+        }
+        consistPool.drain();
         lineIdToService.clear();
         trainsById.clear();
         trainsByMinecart.clear();
@@ -81,6 +171,13 @@ public class LineServiceManager {
         return lineIdToService.get(lineId);
     }
 
+    /**
+     * 当前所有线路服务的快照，供地图/监控等只读消费者遍历。
+     */
+    public Collection<LineService> getServices() {
+        return List.copyOf(lineIdToService.values());
+    }
+
     public void registerService(String lineId, LineService service) {
         lineIdToService.put(lineId, service);
     }
@@ -127,9 +224,14 @@ public class LineServiceManager {
 
     public void rebuildFromLines() {
         stopHeartbeat();
+        // 重建前记录运行状态，未改动的线路无需从头重新铺车
+        ServiceCheckpoint checkpoint = captureCheckpoint(SchedulerUtil.getCurrentTick());
         for (LineService service : lineIdToService.values()) {
             service.shutdown();
         }
+        if (regionHeartbeat != null) {
+            regionHeartbeat.cancelAll();
+        }
         lineIdToService.clear();
         trainsById.clear();
         trainsByMinecart.clear();
@@ -141,6 +243,7 @@ public class LineServiceManager {
                         line.getTrainCars());
             }
         }
+        applyCheckpoint(checkpoint);
         startHeartbeat();
     }
 
@@ -152,20 +255,130 @@ public class LineServiceManager {
         return trainKey;
     }
 
+    public ConsistPool getConsistPool() {
+        return consistPool;
+    }
+
+    /**
+     * Folia region-sharded heartbeat, or null when services tick on the global heartbeat.
+     */
+    RegionShardedHeartbeat getRegionHeartbeat() {
+        return regionHeartbeat;
+    }
+
+    public TickBudgetScheduler getTickBudget() {
+        return tickBudget;
+    }
+
     public void registerTrain(TrainInstance train) {
         trainsById.put(train.getId(), train);
         train.getConsist().getCars().forEach(car -> trainsByMinecart.put(car.getUniqueId(), train));
+        if (regionHeartbeat != null) {
+            regionHeartbeat.bind(train.getService(), train);
+        }
     }
 
     public void unregisterTrain(TrainInstance train) {
         trainsById.remove(train.getId());
         train.getConsist().getCars().forEach(car -> trainsByMinecart.remove(car.getUniqueId()));
+        if (regionHeartbeat != null) {
+            regionHeartbeat.unbind(train);
+        }
     }
 
     public TrainInstance getTrainByMinecart(UUID minecartId) {
         return trainsByMinecart.get(minecartId);
     }
 
+    /**
+     * Checkpoint of every running line, with times relative to currentTick.
+     */
+    public ServiceCheckpoint captureCheckpoint(long currentTick) {
+        Map<String, ServiceCheckpoint.LineState> lines = new LinkedHashMap<>();
+        for (LineService service : lineIdToService.values()) {
+            ServiceCheckpoint.LineState state = service.captureCheckpoint(currentTick);
+            if (state != null) {
+                lines.put(service.getLineId(), state);
+            }
+        }
+        return new ServiceCheckpoint(System.currentTimeMillis(), lines);
+    }
+
+    /**
+     * Write the service checkpoint synchronously, for shutdown.
+     */
+    public void saveCheckpoint() {
+        if (!plugin.isServiceCheckpointEnabled()) {
+            return;
+        }
+        try {
+            String snapshot = captureCheckpoint(SchedulerUtil.getCurrentTick()).toYaml();
+            plugin.getSaveCoordinator().saveNow(checkpointFile().toPath(), snapshot);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "无法保存运行状态检查点", e);
+        }
+    }
+
+    private void maybeWriteCheckpoint(long currentTick) {
+        long interval = plugin.getServiceCheckpointIntervalSeconds() * 20L;
+        if (!plugin.isServiceCheckpointEnabled() || interval <= 0) {
+            return;
+        }
+        if (lastCheckpointTick < 0) {
+            // 启动后的第一拍只记基准，避免恢复尚未生效时就覆盖检查点
+            lastCheckpointTick = currentTick;
+            return;
+        }
+        if (currentTick - lastCheckpointTick < interval) {
+            return;
+        }
+        lastCheckpointTick = currentTick;
+        try {
+            String snapshot = captureCheckpoint(currentTick).toYaml();
+            plugin.getSaveCoordinator().submitSnapshot(checkpointFile().toPath(), snapshot);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "处理运行状态检查点时出错", e);
+        }
+    }
+
+    private void restoreCheckpoint() {
+        File file = checkpointFile();
+        if (!plugin.isServiceCheckpointEnabled() || !file.isFile()) {
+            return;
+        }
+        ServiceCheckpoint checkpoint;
+        try {
+            checkpoint = ServiceCheckpoint.fromYaml(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Ignoring service checkpoint " + file.getName() + ": " + e.getMessage());
+            return;
+        }
+        long maxAgeMillis = plugin.getServiceCheckpointMaxAgeMinutes() * 60_000L;
+        if (maxAgeMillis > 0 && System.currentTimeMillis() - checkpoint.getSavedAtMillis() > maxAgeMillis) {
+            plugin.getLogger().info("Service checkpoint is older than "
+                    + plugin.getServiceCheckpointMaxAgeMinutes() + " minutes, starting with a fresh timetable");
+            return;
+        }
+        int restored = applyCheckpoint(checkpoint);
+        if (restored > 0) {
+            plugin.getLogger().info("Restored service state of " + restored + " line(s) from checkpoint");
+        }
+    }
+
+    private int applyCheckpoint(ServiceCheckpoint checkpoint) {
+        int restored = 0;
+        for (LineService service : lineIdToService.values()) {
+            if (service.restoreFrom(checkpoint.getLine(service.getLineId()))) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    private File checkpointFile() {
+        return new File(plugin.getDataFolder(), ServiceCheckpoint.FILE_NAME);
+    }
+
     private void maybeLogServiceMetrics(long currentTick, long tickElapsedNanos) {
         int metricsInterval = plugin.getServiceMetricsLogIntervalTicks();
         if (metricsInterval <= 0) {
@@ -187,6 +400,8 @@ public class LineServiceManager {
                 + ", activeTrains=" + totalActiveTrains
                 + ", totalSpawns=" + totalSpawns
                 + ", totalTrainUpdates=" + totalUpdates
-                + ", heartbeatNanos=" + tickElapsedNanos);
+                + ", heartbeatNanos=" + tickElapsedNanos
+                + (regionHeartbeat == null ? "" : ", regionTrains=" + regionHeartbeat.getBoundTrainCount()
+                        + ", skippedDispatch=" + regionHeartbeat.getSkippedLaneTicks()));
     }
 }
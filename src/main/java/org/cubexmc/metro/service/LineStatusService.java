@@ -46,7 +46,7 @@ public class LineStatusService {
 
         line.setLineStatus(newStatus);
         Bukkit.getPluginManager().callEvent(new LineStatusChangeEvent(line, oldStatus, newStatus));
-        lineManager.saveConfig();
+        lineManager.saveConfig(line.getId());
         return true;
     }
 
@@ -0,0 +1,125 @@
+package org.cubexmc.metro.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Minecart;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.profiling.TickProfiler;
+import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.util.SchedulerUtil;
+
+/**
+ * Folia heartbeat split. Each physical train ticks on the entity scheduler of its lead car, so
+ * it runs on whichever region thread owns that car and is handed over automatically when the
+ * lead crosses a region boundary. Dispatch (timetables and virtual trains) runs on one async
+ * lane per heartbeat. It reads trains only through the {@link org.cubexmc.metro.train.TrainSnapshot}
+ * each train publishes on its region, and hands spawns to the region owning the spawn stop without
+ * waiting for them.
+ */
+final class RegionShardedHeartbeat {
+
+    private final Metro plugin;
+    private final long period;
+    private final Map<UUID, Object> trainTasks = new ConcurrentHashMap<>();
+    private final AtomicBoolean laneBusy = new AtomicBoolean();
+    private final LongAdder skippedLaneTicks = new LongAdder();
+
+    RegionShardedHeartbeat(Metro plugin, long period) {
+        this.plugin = plugin;
+        this.period = Math.max(1L, period);
+    }
+
+    /**
+     * Run dispatch for every service on the async lane. Skipped while the previous lane run is
+     * still busy, so dispatch never runs concurrently with itself.
+     */
+    void runDispatchLane(Collection<LineService> services, long currentTick) {
+        if (!laneBusy.compareAndSet(false, true)) {
+            skippedLaneTicks.increment();
+            return;
+        }
+        List<LineService> snapshot = new ArrayList<>(services);
+        SchedulerUtil.asyncRun(plugin, () -> {
+            try {
+                TickProfiler profiler = plugin.getTickProfiler();
+                for (LineService service : snapshot) {
+                    long lineStart = profiler == null ? 0L : profiler.start();
+                    try {
+                        service.tickDispatch(currentTick);
+                    } catch (RuntimeException e) {
+                        plugin.getLogger().log(Level.WARNING,
+                                "[ServiceHeartbeat] Dispatch failed for line " + service.getLineId(), e);
+                    }
+                    if (profiler != null) {
+                        profiler.stopLine(service.getLineId(), lineStart);
+                    }
+                }
+            } finally {
+                laneBusy.set(false);
+            }
+        }, 0L);
+    }
+
+    /**
+     * Start ticking a train on its lead car's region. Calling it again for the same train is a no-op.
+     */
+    void bind(LineService service, TrainInstance train) {
+        Minecart lead = train.getConsist().getLeadCar();
+        if (lead == null) {
+            return;
+        }
+        AtomicReference<Location> lastSeen = new AtomicReference<>(lead.getLocation());
+        trainTasks.computeIfAbsent(train.getId(), id -> SchedulerUtil.entityRun(plugin, lead, () -> {
+            Minecart current = train.getConsist().getLeadCar();
+            if (current != null && current.isValid()) {
+                lastSeen.set(current.getLocation());
+            }
+            if (!service.tickTrain(train, SchedulerUtil.getCurrentTick())) {
+                unbind(train);
+            }
+        }, () -> {
+            // 车头被移除（卸载/被破坏）：在最后所在的 region 上回收整列车
+            trainTasks.remove(train.getId());
+            SchedulerUtil.regionRun(plugin, lastSeen.get(), () -> service.retireTrain(train), 0L, -1L);
+        }, 1L, period));
+    }
+
+    void unbind(TrainInstance train) {
+        Object task = trainTasks.remove(train.getId());
+        if (task != null) {
+            SchedulerUtil.cancelTask(task);
+        }
+    }
+
+    void cancelAll() {
+        for (Object task : trainTasks.values()) {
+            SchedulerUtil.cancelTask(task);
+        }
+        trainTasks.clear();
+    }
+
+    /**
+     * Fire-and-forget work on the region owning {@code anchor}.
+     */
+    void runOnRegion(Location anchor, Runnable task) {
+        SchedulerUtil.regionRun(plugin, anchor, task, 0L, -1L);
+    }
+
+    int getBoundTrainCount() {
+        return trainTasks.size();
+    }
+
+    long getSkippedLaneTicks() {
+        return skippedLaneTicks.sum();
+    }
+}
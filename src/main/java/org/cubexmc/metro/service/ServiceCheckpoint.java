@@ -0,0 +1,172 @@
+package org.cubexmc.metro.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+/**
+ * Compact snapshot of the running service: virtual train timetables, in-flight physical trains and
+ * the last departure of every line.
+ *
+ * <p>Times are stored relative to the tick the checkpoint was taken at, because the server tick
+ * counter starts over after a restart; {@link LineService} converts them back against the tick the
+ * state is restored on.
+ */
+public final class ServiceCheckpoint {
+
+    public static final String FILE_NAME = "service-state.yml";
+    static final int FORMAT_VERSION = 1;
+
+    private final long savedAtMillis;
+    private final Map<String, LineState> lines;
+
+    public ServiceCheckpoint(long savedAtMillis, Map<String, LineState> lines) {
+        this.savedAtMillis = savedAtMillis;
+        this.lines = Collections.unmodifiableMap(new LinkedHashMap<>(lines));
+    }
+
+    public long getSavedAtMillis() {
+        return savedAtMillis;
+    }
+
+    public LineState getLine(String lineId) {
+        return lines.get(lineId);
+    }
+
+    public Map<String, LineState> getLines() {
+        return lines;
+    }
+
+    public String toYaml() {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("version", FORMAT_VERSION);
+        yaml.set("saved-at", savedAtMillis);
+        for (Map.Entry<String, LineState> entry : lines.entrySet()) {
+            String path = "lines." + entry.getKey();
+            LineState line = entry.getValue();
+            yaml.set(path + ".stops", line.stopIds());
+            yaml.set(path + ".headway", line.headwaySeconds());
+            yaml.set(path + ".dwell", line.dwellTicks());
+            yaml.set(path + ".departure-age", line.departureAgeTicks() < 0 ? null : line.departureAgeTicks());
+            yaml.set(path + ".virtual", toConfigStrings(line.virtualTrains()));
+            yaml.set(path + ".physical", toConfigStrings(line.physicalTrains()));
+        }
+        return yaml.saveToString();
+    }
+
+    /**
+     * @throws InvalidConfigurationException when the text is not a checkpoint this version can read
+     */
+    public static ServiceCheckpoint fromYaml(String text) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(text);
+        int version = yaml.getInt("version", -1);
+        if (version != FORMAT_VERSION) {
+            throw new InvalidConfigurationException("Unsupported service checkpoint version " + version);
+        }
+        Map<String, LineState> lines = new LinkedHashMap<>();
+        ConfigurationSection section = yaml.getConfigurationSection("lines");
+        if (section != null) {
+            for (String lineId : section.getKeys(false)) {
+                ConfigurationSection line = section.getConfigurationSection(lineId);
+                if (line == null) {
+                    continue;
+                }
+                lines.put(lineId, new LineState(
+                        line.getStringList("stops"),
+                        line.getInt("headway"),
+                        line.getInt("dwell"),
+                        line.getLong("departure-age", -1L),
+                        fromConfigStrings(line.getStringList("virtual")),
+                        fromConfigStrings(line.getStringList("physical"))));
+            }
+        }
+        return new ServiceCheckpoint(yaml.getLong("saved-at"), lines);
+    }
+
+    private static List<String> toConfigStrings(List<TrainPosition> trains) {
+        if (trains.isEmpty()) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(trains.size());
+        for (TrainPosition train : trains) {
+            values.add(train.toConfigString());
+        }
+        return values;
+    }
+
+    private static List<TrainPosition> fromConfigStrings(List<String> values) throws InvalidConfigurationException {
+        List<TrainPosition> trains = new ArrayList<>(values.size());
+        for (String value : values) {
+            trains.add(TrainPosition.fromConfigString(value));
+        }
+        return trains;
+    }
+
+    /**
+     * Service state of one line.
+     *
+     * @param departureAgeTicks ticks since the last departure, or -1 when the line has not dispatched yet
+     * @param virtualTrains     virtual trains, including those running as physical trains at the time
+     * @param physicalTrains    physical trains without a virtual train (global mode)
+     */
+    public record LineState(List<String> stopIds, int headwaySeconds, int dwellTicks, long departureAgeTicks,
+            List<TrainPosition> virtualTrains, List<TrainPosition> physicalTrains) {
+
+        public LineState {
+            stopIds = List.copyOf(stopIds);
+            virtualTrains = List.copyOf(virtualTrains);
+            physicalTrains = List.copyOf(physicalTrains);
+        }
+
+        /**
+         * Whether this state was taken on the same stops with the same timetable; anything else
+         * would place trains on the wrong segments or run the wrong number of them.
+         */
+        public boolean matches(List<String> currentStopIds, int currentHeadwaySeconds, int currentDwellTicks) {
+            return stopIds.equals(currentStopIds) && headwaySeconds == currentHeadwaySeconds
+                    && dwellTicks == currentDwellTicks;
+        }
+    }
+
+    /**
+     * Where a train was on its line.
+     *
+     * @param waiting        standing at {@code stopIndex}; otherwise travelling to {@code targetIndex}
+     * @param elapsedTicks   ticks spent in the current dwell or segment
+     * @param remainingTicks ticks until the dwell or segment ends
+     * @param pathSeconds    estimated duration of the current segment, 0 while waiting
+     */
+    public record TrainPosition(boolean waiting, int stopIndex, int targetIndex, long elapsedTicks,
+            long remainingTicks, double pathSeconds) {
+
+        String toConfigString() {
+            return (waiting ? "W" : "M") + "," + stopIndex + "," + targetIndex + "," + elapsedTicks + ","
+                    + remainingTicks + "," + String.format(Locale.ROOT, "%.2f", pathSeconds);
+        }
+
+        static TrainPosition fromConfigString(String value) throws InvalidConfigurationException {
+            String[] parts = value == null ? new String[0] : value.split(",");
+            if (parts.length != 6 || !(parts[0].equals("W") || parts[0].equals("M"))) {
+                throw new InvalidConfigurationException("Malformed train position: " + value);
+            }
+            try {
+                return new TrainPosition(parts[0].equals("W"),
+                        Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[2]),
+                        Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Double.parseDouble(parts[5]));
+            } catch (NumberFormatException e) {
+                throw new InvalidConfigurationException("Malformed train position: " + value, e);
+            }
+        }
+    }
+}
@@ -108,7 +108,7 @@ public class StopCommandService {
         Map<String, String> updated = existing == null ? new HashMap<>() : new HashMap<>(existing);
         updated.put(titleKey, titleValue);
         stop.setCustomTitle(titleType, updated);
-        stopManager.saveConfig();
+        stopManager.saveConfig(stop.getId());
         return WriteStatus.SUCCESS;
     }
 
@@ -119,7 +119,7 @@ public class StopCommandService {
         if (!stop.removeCustomTitle(titleType)) {
             return WriteStatus.NOT_FOUND;
         }
-        stopManager.saveConfig();
+        stopManager.saveConfig(stop.getId());
         return WriteStatus.SUCCESS;
     }
 
@@ -140,7 +140,7 @@ public class StopCommandService {
         } else {
             stop.setCustomTitle(titleType, updated);
         }
-        stopManager.saveConfig();
+        stopManager.saveConfig(stop.getId());
         return WriteStatus.SUCCESS;
     }
 
@@ -0,0 +1,173 @@
+package org.cubexmc.metro.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-slices heartbeat work within a per-tick budget. Critical work always runs. Background work
+ * is round-robined over the budget left after it, starting where the previous tick stopped; a
+ * task deferred for {@code maxDeferTicks} runs regardless of the budget so nothing starves.
+ */
+public class TickBudgetScheduler {
+
+    /**
+     * Deferrable unit of work. Tasks are identified across ticks by owner identity and kind.
+     */
+    public static final class Task {
+        final Object owner;
+        final String kind;
+        final Runnable work;
+
+        public Task(Object owner, String kind, Runnable work) {
+            this.owner = Objects.requireNonNull(owner, "owner");
+            this.kind = Objects.requireNonNull(kind, "kind");
+            this.work = Objects.requireNonNull(work, "work");
+        }
+    }
+
+    private static final class TaskKey {
+        private final Object owner;
+        private final String kind;
+
+        TaskKey(Task task) {
+            this.owner = task.owner;
+            this.kind = task.kind;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TaskKey key)) {
+                return false;
+            }
+            return owner == key.owner && kind.equals(key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(owner) + kind.hashCode();
+        }
+    }
+
+    private final long budgetNanos;
+    private final int maxDeferTicks;
+    private final LongSupplier nanoClock;
+    private Map<TaskKey, Long> lastRunTick = new HashMap<>();
+    private int cursor;
+
+    private long deadlineMisses;
+    private long forcedRuns;
+    private long deferredRuns;
+    private int lastBacklog;
+    private long lastElapsedNanos;
+
+    public TickBudgetScheduler(long budgetNanos, int maxDeferTicks) {
+        this(budgetNanos, maxDeferTicks, System::nanoTime);
+    }
+
+    TickBudgetScheduler(long budgetNanos, int maxDeferTicks, LongSupplier nanoClock) {
+        this.budgetNanos = Math.max(0L, budgetNanos);
+        this.maxDeferTicks = Math.max(1, maxDeferTicks);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * False when the budget is 0, in which case callers run everything every tick.
+     */
+    public boolean isEnabled() {
+        return budgetNanos > 0L;
+    }
+
+    public void run(long currentTick, List<Runnable> critical, List<Task> background) {
+        long start = nanoClock.getAsLong();
+        for (Runnable work : critical) {
+            work.run();
+        }
+
+        Map<TaskKey, Long> seen = new HashMap<>(background.size() * 2);
+        List<TaskKey> keys = new ArrayList<>(background.size());
+        for (Task task : background) {
+            TaskKey key = new TaskKey(task);
+            keys.add(key);
+            seen.put(key, lastRunTick.getOrDefault(key, Long.MIN_VALUE));
+        }
+        lastRunTick = seen;
+
+        int size = background.size();
+        boolean[] done = new boolean[size];
+        // 新任务与等待过久的任务先跑，保证不会饿死
+        for (int i = 0; i < size; i++) {
+            long lastRun = seen.get(keys.get(i));
+            boolean fresh = lastRun == Long.MIN_VALUE;
+            if (fresh || currentTick - lastRun >= maxDeferTicks) {
+                runTask(background.get(i), keys.get(i), currentTick);
+                done[i] = true;
+                if (!fresh) {
+                    forcedRuns++;
+                }
+            }
+        }
+
+        int first = size == 0 ? 0 : Math.floorMod(cursor, size);
+        int deferred = 0;
+        int nextCursor = -1;
+        for (int n = 0; n < size; n++) {
+            int i = (first + n) % size;
+            if (done[i]) {
+                continue;
+            }
+            if (nanoClock.getAsLong() - start >= budgetNanos) {
+                deferred++;
+                if (nextCursor < 0) {
+                    nextCursor = i;
+                }
+                continue;
+            }
+            runTask(background.get(i), keys.get(i), currentTick);
+        }
+        cursor = nextCursor < 0 ? first : nextCursor;
+
+        lastBacklog = deferred;
+        deferredRuns += deferred;
+        lastElapsedNanos = nanoClock.getAsLong() - start;
+        if (lastElapsedNanos > budgetNanos) {
+            deadlineMisses++;
+        }
+    }
+
+    private void runTask(Task task, TaskKey key, long currentTick) {
+        task.work.run();
+        lastRunTick.put(key, currentTick);
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /** Ticks whose work took longer than the budget. */
+    public long getDeadlineMisses() {
+        return deadlineMisses;
+    }
+
+    /** Background tasks run past the budget because they had been deferred too long. */
+    public long getForcedRuns() {
+        return forcedRuns;
+    }
+
+    /** Background task runs postponed to a later tick. */
+    public long getDeferredRuns() {
+        return deferredRuns;
+    }
+
+    /** Background tasks left over by the most recent tick. */
+    public int getLastBacklog() {
+        return lastBacklog;
+    }
+
+    public long getLastElapsedNanos() {
+        return lastElapsedNanos;
+    }
+}
@@ -7,8 +7,10 @@ import org.bukkit.Location;
 import org.bukkit.entity.Minecart;
 import org.bukkit.util.Vector;
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.control.TrainControlMode;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.physics.FakeEntityPackets;
 import org.cubexmc.metro.service.virtual.SpawnMode;
 import org.cubexmc.metro.service.virtual.VirtualTrain;
 import org.cubexmc.metro.train.TrainConsist;
@@ -204,6 +206,7 @@ public class TrainSpawner {
         double spacing = service.getTrainSpacing();
         double maxSpeed = service.getCartSpeed();
         int trainCars = service.getTrainCars();
+        boolean virtualFollowers = useVirtualFollowers();
 
         for (int i = 0; i < trainCars; i++) {
             Location spawnLoc = basePoint.clone().subtract(direction.clone().multiply(i * spacing));
@@ -221,23 +224,60 @@ public class TrainSpawner {
                 }
             }
 
-            Minecart cart = spawnLoc.getWorld().spawn(spawnLoc, Minecart.class, minecart -> {
-                minecart.setCustomName(plugin.getTrainName());
-                minecart.setCustomNameVisible(plugin.isTrainNameVisible());
-                minecart.setSlowWhenEmpty(false);
-                minecart.setMaxSpeed(maxSpeed);
-                minecart.setGravity(false);
-            });
-
-            consist.addCar(cart);
+            if (i > 0 && virtualFollowers) {
+                consist.addVirtualCar(spawnLoc);
+                continue;
+            }
+            consist.addCar(obtainCar(spawnLoc, maxSpeed));
         }
 
-        if (consist.getCars().size() != trainCars) {
+        if (consist.getSlotCount() != trainCars) {
             cleanupIncompleteConsist(consist);
         }
         return consist;
     }
 
+    /**
+     * Spawn one train minecart with the configured name and physics flags.
+     */
+    public static Minecart spawnCar(Metro plugin, Location location, double maxSpeed) {
+        return location.getWorld().spawn(location, Minecart.class, minecart -> configureCar(plugin, minecart, maxSpeed));
+    }
+
+    private static void configureCar(Metro plugin, Minecart minecart, double maxSpeed) {
+        minecart.setCustomName(plugin.getTrainName());
+        minecart.setCustomNameVisible(plugin.isTrainNameVisible());
+        minecart.setSlowWhenEmpty(false);
+        minecart.setMaxSpeed(maxSpeed);
+        minecart.setGravity(false);
+    }
+
+    /**
+     * Reuse a parked cart from the consist pool when one is available, otherwise spawn a new one.
+     */
+    private Minecart obtainCar(Location location, double maxSpeed) {
+        ConsistPool pool = service.getConsistPool();
+        Minecart pooled = pool == null ? null : pool.acquire(location);
+        if (pooled == null) {
+            return spawnCar(plugin, location, maxSpeed);
+        }
+        configureCar(plugin, pooled, maxSpeed);
+        return pooled;
+    }
+
+    /**
+     * Followers can be client-side fakes only under kinematic control, where their positions
+     * come from the lead car's trail, and only with a packet backend.
+     */
+    private boolean useVirtualFollowers() {
+        if (!plugin.isVirtualFollowersEnabled()) {
+            return false;
+        }
+        TrainControlMode mode = TrainControlMode.from(plugin.getControlMode(), TrainControlMode.KINEMATIC);
+        FakeEntityPackets packets = plugin.getFakeEntityPackets();
+        return mode == TrainControlMode.KINEMATIC && packets != null && packets.isSupported();
+    }
+
     private Location findMidSegmentSpawnLocation(List<String> stops, int fromIndex, int toIndex, double progress) {
         if (fromIndex < 0 || fromIndex >= stops.size() || toIndex < 0 || toIndex >= stops.size()) {
             return null;
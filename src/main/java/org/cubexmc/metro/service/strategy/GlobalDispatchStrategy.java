@@ -7,6 +7,7 @@ import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.service.DispatchStrategy;
 import org.cubexmc.metro.service.LineService;
 import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.train.TrainSnapshot;
 
 public class GlobalDispatchStrategy implements DispatchStrategy {
     @Override
@@ -34,7 +35,12 @@ public class GlobalDispatchStrategy implements DispatchStrategy {
         String startStopId = ordered.get(0);
         double threshold = Math.max(2.0, service.getHeadwaySeconds() * 0.5);
         for (TrainInstance train : service.getActiveTrains()) {
-            double eta = train.estimateEtaSecondsToStop(startStopId, currentTick,
+            // 调度可能运行在异步线程上，只读取列车自己发布的快照
+            TrainSnapshot snapshot = train.getSnapshot();
+            if (snapshot == null) {
+                continue;
+            }
+            double eta = snapshot.estimateEtaSecondsToStop(service.getLineId(), true, startStopId, currentTick,
                     service.getPlugin().getTravelTimeEstimator());
             if (Double.isFinite(eta) && eta <= threshold) {
                 return true;
@@ -1,11 +1,19 @@
 package org.cubexmc.metro.service.strategy;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.metrics.RailwayMetrics;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
 import org.cubexmc.metro.service.DispatchStrategy;
+import org.cubexmc.metro.service.ServiceCheckpoint;
 import org.cubexmc.metro.util.SchedulerUtil;
 import org.cubexmc.metro.service.LineService;
 import org.cubexmc.metro.service.virtual.VirtualTrain;
@@ -33,6 +41,12 @@ public class LocalDispatchStrategy implements DispatchStrategy {
     private long lastSpawnTick = -1L;
     private static final long SPAWN_COOLDOWN_TICKS = 60; // 3 seconds
 
+    // Virtual trains whose physical train is still being spawned on its region (Folia)
+    private final Set<UUID> pendingSpawns = ConcurrentHashMap.newKeySet();
+
+    // Virtual trains from a checkpoint, used instead of a fresh distribution when the pool starts
+    private List<ServiceCheckpoint.TrainPosition> pendingRestore;
+
     @Override
     public void tick(LineService service, long currentTick) {
         // Initialize pool on first tick
@@ -59,7 +73,7 @@ public class LocalDispatchStrategy implements DispatchStrategy {
         currentDemandStopId = (demandStop != null) ? demandStop.getId() : null;
 
         // Check if we already have a physical train for this line
-        boolean hasPhysicalTrain = !service.getActiveTrains().isEmpty();
+        boolean hasPhysicalTrain = !service.getActiveTrains().isEmpty() || !pendingSpawns.isEmpty();
 
         // Check spawn cooldown
         boolean onCooldown = lastSpawnTick > 0 && (currentTick - lastSpawnTick) < SPAWN_COOLDOWN_TICKS;
@@ -146,7 +160,7 @@ public class LocalDispatchStrategy implements DispatchStrategy {
         List<VirtualTrain> virtualTrains = pool.getVirtualTrains();
 
         for (VirtualTrain vt : virtualTrains) {
-            if (!pool.isMaterialized(vt.getId())) {
+            if (!pool.isMaterialized(vt.getId()) || pendingSpawns.contains(vt.getId())) {
                 continue;
             }
 
@@ -176,11 +190,78 @@ public class LocalDispatchStrategy implements DispatchStrategy {
         }
 
         pool = new VirtualTrainPool(service.getLineId(), service.getDwellTicks());
+        List<ServiceCheckpoint.TrainPosition> restore = pendingRestore;
+        pendingRestore = null;
+        if (restore != null && !restore.isEmpty()) {
+            List<String> stopIds = line.getOrderedStopIds();
+            List<VirtualTrain> trains = new ArrayList<>(restore.size());
+            for (ServiceCheckpoint.TrainPosition position : restore) {
+                trains.add(toVirtualTrain(service, stopIds, position, currentTick));
+            }
+            pool.restore(stopIds, trains, currentTick);
+            return;
+        }
         pool.initialize(line, service.getHeadwaySeconds(),
                 service.getPlugin().getTravelTimeEstimator(), currentTick);
 
     }
 
+    static VirtualTrain toVirtualTrain(LineService service, List<String> stopIds,
+            ServiceCheckpoint.TrainPosition position, long currentTick) {
+        VirtualTrain vt = new VirtualTrain(service.getLineId(), stopIds, service.getDwellTicks(),
+                position.stopIndex(), 0.0, currentTick);
+        vt.restoreState(position.stopIndex(), position.targetIndex(), 0.0, position.waiting(), currentTick, stopIds);
+        // 检查点里的时间是相对值，按本次启动的 tick 换算回绝对时刻
+        vt.restoreTiming(currentTick - position.elapsedTicks(), currentTick + position.remainingTicks(),
+                position.pathSeconds());
+        return vt;
+    }
+
+    /**
+     * Start the pool from checkpointed virtual trains instead of spreading new ones along the line.
+     * Takes effect when the pool is created on the first tick; later calls are ignored.
+     */
+    public void restoreVirtualTrains(List<ServiceCheckpoint.TrainPosition> trains) {
+        if (!initialized) {
+            pendingRestore = trains;
+        }
+    }
+
+    /**
+     * Positions of all virtual trains; a materialised train is captured from its physical train,
+     * which is the authority while it runs.
+     */
+    public List<ServiceCheckpoint.TrainPosition> captureVirtualTrains(LineService service, long currentTick) {
+        if (pool == null) {
+            // 尚未初始化时保留待恢复的状态，避免刚启动就保存出空检查点
+            return pendingRestore == null ? List.of() : pendingRestore;
+        }
+        Map<UUID, TrainInstance> physicalTrains = new HashMap<>();
+        for (TrainInstance train : service.getActiveTrains()) {
+            if (train.getVirtualTrainId() != null) {
+                physicalTrains.put(train.getVirtualTrainId(), train);
+            }
+        }
+        List<ServiceCheckpoint.TrainPosition> positions = new ArrayList<>();
+        for (VirtualTrain vt : pool.getVirtualTrains()) {
+            TrainInstance physical = pool.isMaterialized(vt.getId()) ? physicalTrains.get(vt.getId()) : null;
+            if (physical != null) {
+                ServiceCheckpoint.TrainPosition position = service.capturePosition(physical, currentTick);
+                if (position != null) {
+                    positions.add(position);
+                }
+                continue;
+            }
+            boolean waiting = vt.getState() == VirtualTrain.State.WAITING;
+            positions.add(new ServiceCheckpoint.TrainPosition(waiting, vt.getCurrentStopIndex(),
+                    waiting ? -1 : vt.getTargetStopIndex(),
+                    Math.max(0L, currentTick - vt.getLastEventTick()),
+                    Math.max(0L, vt.getNextEventTick() - currentTick),
+                    waiting ? 0.0 : vt.getPathDurationSeconds()));
+        }
+        return positions;
+    }
+
     private Stop findPlayerOccupiedStop(LineService service) {
         Line line = service.getLine();
         if (line == null)
@@ -217,19 +298,28 @@ public class LocalDispatchStrategy implements DispatchStrategy {
         int fromStopIndex = vt.getCurrentStopIndex();
         int toStopIndex = fromStopIndex; // Target the station we are at!
 
-        // Spawn the physical train at the current stop
-        TrainInstance train = service.spawnTrainForVirtual(
-                currentTick, fromStopIndex, toStopIndex, 0.0,
-                vt.getId(), targetStopId);
-
-        if (train != null) {
-            pool.markMaterialized(vt.getId());
-            // plugin.getLogger().info("[LocalDispatch] Train materialized at " +
-            // targetStopId);
-            return true;
-        } else {
+        // Spawn the physical train at the current stop. Marked before the spawn so that the
+        // train is not picked again while a region thread is still spawning it.
+        UUID vtId = vt.getId();
+        VirtualTrainPool spawnPool = pool;
+        spawnPool.markMaterialized(vtId);
+        pendingSpawns.add(vtId);
+        service.requestTrainForVirtual(currentTick, fromStopIndex, toStopIndex, 0.0, vtId, targetStopId,
+                train -> onMaterialized(service, spawnPool, vtId, targetStopId, train));
+        return true;
+    }
+
+    private void onMaterialized(LineService service, VirtualTrainPool spawnPool, UUID vtId, String targetStopId,
+            TrainInstance train) {
+        Metro plugin = service.getPlugin();
+        pendingSpawns.remove(vtId);
+        if (train == null) {
+            spawnPool.clearMaterialized(vtId);
             plugin.getLogger().warning("[LocalDispatch] Failed to spawn train at " + targetStopId);
-            return false;
+            return;
+        }
+        if (plugin.getRailwayMetrics() != null) {
+            plugin.getRailwayMetrics().recordMaterialisation(service.getLineId());
         }
     }
 
@@ -252,6 +342,11 @@ public class LocalDispatchStrategy implements DispatchStrategy {
         TrainInstance.VirtualizationState state = train.getVirtualizationState(currentTick);
         pool.returnToVirtual(vtId, state.currentIndex, state.targetIndex,
                 state.progress, state.isWaiting, currentTick, stopIds);
+        Metro plugin = train.getService().getPlugin();
+        RailwayMetrics metrics = plugin == null ? null : plugin.getRailwayMetrics();
+        if (metrics != null) {
+            metrics.recordVirtualisation(line.getId());
+        }
     }
 
     public VirtualTrainPool getPool() {
@@ -8,6 +8,7 @@ import org.bukkit.util.Vector;
 import org.cubexmc.metro.estimation.TravelTimeEstimator;
 import org.cubexmc.metro.util.LineTopologyUtil;
 import org.cubexmc.metro.util.SchedulerUtil;
+import org.cubexmc.metro.util.TrainIds;
 import org.cubexmc.metro.manager.StopManager;
 import org.cubexmc.metro.model.Stop;
 
@@ -59,7 +60,7 @@ public class VirtualTrain {
      */
     public VirtualTrain(String lineId, List<String> stopIds, int dwellTicks,
             int initialStopIndex, double initialProgress, long initialTick) {
-        this.id = UUID.randomUUID();
+        this.id = TrainIds.next();
         this.lineId = lineId;
         this.stopIds = new java.util.ArrayList<>(stopIds);
         this.dwellTicks = Math.max(20, dwellTicks);
@@ -185,6 +186,10 @@ public class VirtualTrain {
         return lastEventType;
     }
 
+    public double getPathDurationSeconds() {
+        return currentPathDurationSeconds;
+    }
+
     /**
      * Estimate the ETA (in seconds) from current position to a specific stop.
      * 
@@ -430,6 +435,22 @@ public class VirtualTrain {
         }
     }
 
+    /**
+     * Put back the exact timing of a checkpoint after {@link #restoreState}, which only knows the
+     * position and assumes a default segment duration.
+     *
+     * @param lastEventTick       Tick the current dwell or segment started
+     * @param nextEventTick       Tick the current dwell or segment ends
+     * @param pathDurationSeconds Duration of the current segment, ignored while waiting
+     */
+    public void restoreTiming(long lastEventTick, long nextEventTick, double pathDurationSeconds) {
+        this.lastEventTick = lastEventTick;
+        this.nextEventTick = Math.max(lastEventTick, nextEventTick);
+        if (lastEventType == EventType.DEPARTURE && pathDurationSeconds > 0) {
+            this.currentPathDurationSeconds = pathDurationSeconds;
+        }
+    }
+
     /**
      * Check if this virtual train has reached terminal and cannot proceed.
      * Only applies to non-loop lines.
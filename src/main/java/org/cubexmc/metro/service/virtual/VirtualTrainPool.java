@@ -66,7 +66,7 @@ public class VirtualTrainPool {
      * @param estimator      Travel time estimator
      * @param currentTick    Current server tick
      */
-    public void initialize(Line line, int headwaySeconds, TravelTimeEstimator estimator, long currentTick) {
+    public synchronized void initialize(Line line, int headwaySeconds, TravelTimeEstimator estimator, long currentTick) {
         virtualTrains.clear();
         eventQueue.clear();
         materializedIds.clear();
@@ -145,6 +145,30 @@ public class VirtualTrainPool {
         }
     }
 
+    /**
+     * Replace the pool with trains restored from a checkpoint instead of distributing new ones.
+     *
+     * @param stopIds     Ordered stop IDs the trains were captured on
+     * @param trains      Restored trains, with their timing already relative to currentTick
+     * @param currentTick Current server tick
+     */
+    public synchronized void restore(List<String> stopIds, List<VirtualTrain> trains, long currentTick) {
+        virtualTrains.clear();
+        eventQueue.clear();
+        materializedIds.clear();
+        this.cachedStopIds = new ArrayList<>(stopIds);
+
+        for (VirtualTrain vt : trains) {
+            virtualTrains.put(vt.getId(), vt);
+            if (vt.getLastEventType() == EventType.ARRIVAL) {
+                // 保留剩余停站时间，而不是按 lastEventTick + dwellTicks 重新计算
+                eventQueue.add(new TrainEvent(vt.getNextEventTick(), vt.getId(), EventType.DEPARTURE));
+            } else {
+                scheduleNextEvent(vt, null, currentTick);
+            }
+        }
+    }
+
     private List<SegmentBoundary> buildSegmentBoundaries(List<String> stopIds, TravelTimeEstimator estimator) {
         List<SegmentBoundary> boundaries = new ArrayList<>();
         double cumulative = 0;
@@ -183,7 +207,7 @@ public class VirtualTrainPool {
      * @param currentTick Current server tick
      * @param estimator   Travel time estimator
      */
-    public void tick(long currentTick, TravelTimeEstimator estimator) {
+    public synchronized void tick(long currentTick, TravelTimeEstimator estimator) {
         // Process all events that are due (scheduled time <= current time)
         while (!eventQueue.isEmpty() && eventQueue.peek().tick <= currentTick) {
             TrainEvent event = eventQueue.poll();
@@ -345,7 +369,7 @@ public class VirtualTrainPool {
      * @param estimator     Travel time estimator
      * @return Best candidate, or null if none found
      */
-    public VirtualTrain findBestCandidateForStop(String stopId, List<String> stopIds,
+    public synchronized VirtualTrain findBestCandidateForStop(String stopId, List<String> stopIds,
             double maxEtaSeconds, TravelTimeEstimator estimator, long currentTick) {
         int stopIndex = stopIds.indexOf(stopId);
         if (stopIndex < 0)
@@ -375,14 +399,14 @@ public class VirtualTrainPool {
     /**
      * Mark a virtual train as materialized (physical instance created).
      */
-    public void markMaterialized(UUID virtualTrainId) {
+    public synchronized void markMaterialized(UUID virtualTrainId) {
         materializedIds.add(virtualTrainId);
     }
 
     /**
      * Check if a virtual train is currently materialized.
      */
-    public boolean isMaterialized(UUID virtualTrainId) {
+    public synchronized boolean isMaterialized(UUID virtualTrainId) {
         return materializedIds.contains(virtualTrainId);
     }
 
@@ -391,7 +415,7 @@ public class VirtualTrainPool {
      * Used when the physical train was removed but the virtual train
      * should continue from its current simulated position.
      */
-    public void clearMaterialized(UUID virtualTrainId) {
+    public synchronized void clearMaterialized(UUID virtualTrainId) {
         materializedIds.remove(virtualTrainId);
     }
 
@@ -399,7 +423,7 @@ public class VirtualTrainPool {
      * Release a materialized train back to virtual control using its current
      * synchronized virtual state.
      */
-    public void releaseMaterialized(UUID virtualTrainId) {
+    public synchronized void releaseMaterialized(UUID virtualTrainId) {
         if (!materializedIds.remove(virtualTrainId)) {
             return;
         }
@@ -427,7 +451,7 @@ public class VirtualTrainPool {
      * @param currentTick    Current tick
      */
 
-    public void returnToVirtual(UUID virtualTrainId, int stopIndex, int targetIndex,
+    public synchronized void returnToVirtual(UUID virtualTrainId, int stopIndex, int targetIndex,
             double progress, boolean isWaiting, long currentTick, List<String> stopIds) {
         materializedIds.remove(virtualTrainId);
 
@@ -463,7 +487,7 @@ public class VirtualTrainPool {
      * Completely remove a virtual train (e.g., when it completes a non-loop line).
      * A new one will be spawned at the start on the next initialize call.
      */
-    public void removeVirtualTrain(UUID virtualTrainId) {
+    public synchronized void removeVirtualTrain(UUID virtualTrainId) {
         materializedIds.remove(virtualTrainId);
         virtualTrains.remove(virtualTrainId);
         // We leave the events in the queue; they will be ignored in tick() because
@@ -473,14 +497,22 @@ public class VirtualTrainPool {
     /**
      * Get all virtual trains (for debugging/monitoring).
      */
-    public List<VirtualTrain> getVirtualTrains() {
+    public synchronized List<VirtualTrain> getVirtualTrains() {
         return new ArrayList<>(virtualTrains.values());
     }
 
+    public synchronized int getVirtualTrainCount() {
+        return virtualTrains.size();
+    }
+
+    public synchronized int getMaterializedCount() {
+        return materializedIds.size();
+    }
+
     /**
      * Get count of active (non-terminal) virtual trains.
      */
-    public int getActiveCount(List<String> stopIds) {
+    public synchronized int getActiveCount(List<String> stopIds) {
         int count = 0;
         for (VirtualTrain vt : virtualTrains.values()) {
             if (!vt.isAtTerminal(stopIds)) {
@@ -494,7 +526,7 @@ public class VirtualTrainPool {
      * Check if there are any available (non-materialized, non-terminal) virtual
      * trains.
      */
-    public boolean hasAvailableTrains(List<String> stopIds) {
+    public synchronized boolean hasAvailableTrains(List<String> stopIds) {
         for (VirtualTrain vt : virtualTrains.values()) {
             if (!materializedIds.contains(vt.getId()) && !vt.isAtTerminal(stopIds)) {
                 return true;
@@ -511,7 +543,7 @@ public class VirtualTrainPool {
      * @param estimator   TravelTimeEstimator
      * @param currentTick Current server tick
      */
-    public void refreshTopology(List<String> newStopIds, TravelTimeEstimator estimator,
+    public synchronized void refreshTopology(List<String> newStopIds, TravelTimeEstimator estimator,
             long currentTick) {
         // Use cachedStopIds as oldStopIds
         List<String> oldStopIds = new ArrayList<>(this.cachedStopIds);
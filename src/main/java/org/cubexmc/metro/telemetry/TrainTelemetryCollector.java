@@ -0,0 +1,89 @@
+package org.cubexmc.metro.telemetry;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Minecart;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.LineServiceManager;
+import org.cubexmc.metro.train.TrainInstance;
+import org.cubexmc.metro.train.TrainMovementTask;
+import org.cubexmc.metro.train.TrainSnapshot;
+
+/**
+ * Fills a snapshot builder from the live service trains and player rides.
+ *
+ * <p>Virtual trains have no entity and no position, so only materialised service trains appear.
+ * Positions come from what each train and ride recorded on its own thread, never from the
+ * entities, which on Folia belong to other regions.
+ */
+final class TrainTelemetryCollector {
+
+    private TrainTelemetryCollector() {
+    }
+
+    static void collect(Metro plugin, TrainTelemetrySnapshot.Builder builder) {
+        LineServiceManager serviceManager = plugin.getLineServiceManager();
+        if (serviceManager != null) {
+            for (LineService service : serviceManager.getServices()) {
+                for (TrainInstance train : service.getActiveTrains()) {
+                    collectService(service, train, builder);
+                }
+            }
+        }
+        TrainMovementTask.forEachActiveTask(task -> collectRide(task, builder));
+    }
+
+    private static void collectService(LineService service, TrainInstance train,
+                                       TrainTelemetrySnapshot.Builder builder) {
+        TrainSnapshot snapshot = train.getSnapshot();
+        TrainTelemetryState state = snapshot == null ? null : map(snapshot.state());
+        if (state == null) {
+            return;
+        }
+        builder.add(train.getId(), TrainTelemetrySnapshot.Source.SERVICE, service.getLineId(), state,
+                snapshot.worldName(), snapshot.x(), snapshot.y(), snapshot.z(),
+                snapshot.fromStopId(), snapshot.toStopId());
+    }
+
+    private static void collectRide(TrainMovementTask task, TrainTelemetrySnapshot.Builder builder) {
+        Minecart minecart = task.getMinecart();
+        TrainTelemetryState state = map(task.getState());
+        Location location = task.getLastKnownLocation();
+        if (minecart == null || state == null || location == null) {
+            return;
+        }
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+        Line line = task.getLine();
+        builder.add(minecart.getUniqueId(), TrainTelemetrySnapshot.Source.RIDE, line == null ? null : line.getId(),
+                state, world.getName(), location.getX(), location.getY(), location.getZ(),
+                task.getCurrentStopId(), task.getTargetStopId());
+    }
+
+    private static TrainTelemetryState map(TrainInstance.TrainState state) {
+        if (state == null) {
+            return null;
+        }
+        return switch (state) {
+            case WAITING -> TrainTelemetryState.STOPPED;
+            case MOVING -> TrainTelemetryState.MOVING;
+            case TERMINATING -> TrainTelemetryState.TERMINATING;
+            case FINISHED -> null;
+        };
+    }
+
+    private static TrainTelemetryState map(TrainMovementTask.TrainState state) {
+        if (state == null) {
+            return null;
+        }
+        return switch (state) {
+            case STOPPED_AT_STATION -> TrainTelemetryState.STOPPED;
+            case MOVING_IN_STATION -> TrainTelemetryState.APPROACHING;
+            case MOVING_BETWEEN_STATIONS -> TrainTelemetryState.MOVING;
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package org.cubexmc.metro.telemetry;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.event.TrainTelemetryEvent;
+
+/**
+ * Publishes one {@link TrainTelemetrySnapshot} per service heartbeat to API subscribers and to
+ * {@link TrainTelemetryEvent} listeners.
+ *
+ * <p>Telemetry is opt-in: while nobody subscribes and no listener is registered for the event, the
+ * heartbeat hook returns after one check and stop transitions are not recorded. The fleet columns
+ * are collected on the heartbeat thread into a reused buffer; stop transitions may arrive from any
+ * region thread and are appended under a lock until the next snapshot takes them.
+ *
+ * @since 1.1.7
+ */
+public final class TrainTelemetryHub {
+
+    /**
+     * Handle returned by {@link #subscribe}; closing it stops delivery.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Logger logger;
+    private final Consumer<TrainTelemetrySnapshot.Builder> collector;
+    private final BooleanSupplier hasEventListeners;
+    private final Consumer<TrainTelemetrySnapshot> eventSink;
+    private final List<Consumer<? super TrainTelemetrySnapshot>> subscribers = new CopyOnWriteArrayList<>();
+    private final TrainTelemetrySnapshot.Builder builder = new TrainTelemetrySnapshot.Builder();
+    private final Object transitionLock = new Object();
+    private final TrainTelemetrySnapshot.TransitionBuffer pendingTransitions =
+            new TrainTelemetrySnapshot.TransitionBuffer(16);
+    private volatile boolean active;
+    private long sequence;
+
+    public TrainTelemetryHub(Metro plugin) {
+        this(plugin.getLogger(), builder -> TrainTelemetryCollector.collect(plugin, builder),
+                () -> TrainTelemetryEvent.getHandlerList().getRegisteredListeners().length > 0,
+                snapshot -> Bukkit.getPluginManager().callEvent(new TrainTelemetryEvent(snapshot)));
+    }
+
+    TrainTelemetryHub(Logger logger, Consumer<TrainTelemetrySnapshot.Builder> collector,
+                      BooleanSupplier hasEventListeners, Consumer<TrainTelemetrySnapshot> eventSink) {
+        this.logger = logger;
+        this.collector = collector;
+        this.hasEventListeners = hasEventListeners;
+        this.eventSink = eventSink;
+    }
+
+    /**
+     * Receive every snapshot on the heartbeat thread until the subscription is closed. The consumer
+     * should copy what it needs and return quickly; hand heavy work to another thread.
+     */
+    public Subscription subscribe(Consumer<? super TrainTelemetrySnapshot> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer must not be null");
+        }
+        subscribers.add(consumer);
+        active = true;
+        return () -> subscribers.remove(consumer);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Record a stop transition for the next snapshot. Does nothing while telemetry is inactive.
+     */
+    public void recordTransition(UUID cartId, String lineId, String stopId,
+                                 TrainTelemetrySnapshot.StopTransition type) {
+        if (!active || cartId == null || type == null) {
+            return;
+        }
+        synchronized (transitionLock) {
+            pendingTransitions.add(cartId, lineId, stopId, type);
+        }
+    }
+
+    /**
+     * Collect and deliver a snapshot. Called once per service heartbeat.
+     */
+    public void publish(long tick) {
+        boolean listening = hasEventListeners.getAsBoolean();
+        if (subscribers.isEmpty() && !listening) {
+            if (active) {
+                active = false;
+                synchronized (transitionLock) {
+                    pendingTransitions.clear();
+                }
+            }
+            return;
+        }
+        active = true;
+
+        builder.reset();
+        collector.accept(builder);
+        TrainTelemetrySnapshot.TransitionBuffer transitions;
+        synchronized (transitionLock) {
+            transitions = pendingTransitions.copy();
+            pendingTransitions.clear();
+        }
+        TrainTelemetrySnapshot snapshot = builder.build(++sequence, tick, transitions);
+
+        for (Consumer<? super TrainTelemetrySnapshot> subscriber : subscribers) {
+            try {
+                subscriber.accept(snapshot);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "[Telemetry] Subscriber failed to handle snapshot " + snapshot.sequence(), e);
+            }
+        }
+        if (listening) {
+            try {
+                eventSink.accept(snapshot);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "[Telemetry] Failed to fire telemetry event", e);
+            }
+        }
+    }
+}
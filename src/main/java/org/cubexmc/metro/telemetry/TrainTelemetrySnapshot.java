@@ -0,0 +1,310 @@
+package org.cubexmc.metro.telemetry;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Positions and states of every train, plus the stop transitions since the previous snapshot,
+ * captured in one heartbeat.
+ *
+ * <p>The data is held column-wise in parallel arrays and read by index, so a consumer walks the
+ * whole fleet in one loop without any per-train objects:
+ *
+ * <pre>{@code
+ * for (int i = 0; i < snapshot.size(); i++) {
+ *     if (snapshot.state(i) == TrainTelemetryState.MOVING) {
+ *         draw(snapshot.lineId(i), snapshot.x(i), snapshot.z(i));
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>Instances are immutable and safe to hand to other threads.
+ *
+ * @since 1.1.7
+ */
+public final class TrainTelemetrySnapshot {
+
+    /** Where a train entry comes from. */
+    public enum Source {
+        /** A scheduled train run by a line service. */
+        SERVICE,
+        /** A player-boarded minecart ride. */
+        RIDE
+    }
+
+    /** Kind of a recorded stop transition. */
+    public enum StopTransition {
+        /** The cart entered a stop area. */
+        ENTER,
+        /** The cart left a stop area. */
+        EXIT,
+        /** The ride started braking into its target stop. */
+        ARRIVING,
+        /** The ride stopped at the stop point. */
+        DOCKED,
+        /** The ride departed towards its next stop. */
+        DEPARTED
+    }
+
+    static final TrainTelemetrySnapshot EMPTY = new Builder().build(0L, 0L, TransitionBuffer.EMPTY);
+
+    private final long sequence;
+    private final long tick;
+    private final int size;
+    private final UUID[] trainIds;
+    private final Source[] sources;
+    private final String[] lineIds;
+    private final TrainTelemetryState[] states;
+    private final String[] worldNames;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final String[] fromStopIds;
+    private final String[] toStopIds;
+    private final TransitionBuffer transitions;
+
+    private TrainTelemetrySnapshot(long sequence, long tick, Builder builder, TransitionBuffer transitions) {
+        this.sequence = sequence;
+        this.tick = tick;
+        this.size = builder.size;
+        this.trainIds = Arrays.copyOf(builder.trainIds, size);
+        this.sources = Arrays.copyOf(builder.sources, size);
+        this.lineIds = Arrays.copyOf(builder.lineIds, size);
+        this.states = Arrays.copyOf(builder.states, size);
+        this.worldNames = Arrays.copyOf(builder.worldNames, size);
+        this.xs = Arrays.copyOf(builder.xs, size);
+        this.ys = Arrays.copyOf(builder.ys, size);
+        this.zs = Arrays.copyOf(builder.zs, size);
+        this.fromStopIds = Arrays.copyOf(builder.fromStopIds, size);
+        this.toStopIds = Arrays.copyOf(builder.toStopIds, size);
+        this.transitions = transitions;
+    }
+
+    /** Increases by one for every published snapshot. */
+    public long sequence() {
+        return sequence;
+    }
+
+    /** Server tick at which the snapshot was taken. */
+    public long tick() {
+        return tick;
+    }
+
+    /** Number of trains. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Train id for {@link Source#SERVICE} entries, lead minecart UUID for {@link Source#RIDE} entries.
+     */
+    public UUID trainId(int index) {
+        return trainIds[checkTrain(index)];
+    }
+
+    public Source source(int index) {
+        return sources[checkTrain(index)];
+    }
+
+    public String lineId(int index) {
+        return lineIds[checkTrain(index)];
+    }
+
+    public TrainTelemetryState state(int index) {
+        return states[checkTrain(index)];
+    }
+
+    public String worldName(int index) {
+        return worldNames[checkTrain(index)];
+    }
+
+    public double x(int index) {
+        return xs[checkTrain(index)];
+    }
+
+    public double y(int index) {
+        return ys[checkTrain(index)];
+    }
+
+    public double z(int index) {
+        return zs[checkTrain(index)];
+    }
+
+    /** Stop the train last left or is stopped at, or null when unknown. */
+    public String fromStopId(int index) {
+        return fromStopIds[checkTrain(index)];
+    }
+
+    /** Stop the train is heading to, or null when unknown. */
+    public String toStopId(int index) {
+        return toStopIds[checkTrain(index)];
+    }
+
+    /** Number of stop transitions since the previous snapshot. */
+    public int transitionCount() {
+        return transitions.size;
+    }
+
+    /** Minecart UUID of the cart that made the transition. */
+    public UUID transitionCartId(int index) {
+        return transitions.cartIds[checkTransition(index)];
+    }
+
+    /** Line of the transition, or null when the cart was not bound to a known line. */
+    public String transitionLineId(int index) {
+        return transitions.lineIds[checkTransition(index)];
+    }
+
+    public String transitionStopId(int index) {
+        return transitions.stopIds[checkTransition(index)];
+    }
+
+    public StopTransition transitionType(int index) {
+        return transitions.types[checkTransition(index)];
+    }
+
+    private int checkTrain(int index) {
+        return Objects.checkIndex(index, size);
+    }
+
+    private int checkTransition(int index) {
+        return Objects.checkIndex(index, transitions.size);
+    }
+
+    /**
+     * Reusable column buffer filled once per heartbeat; {@link #build} copies it into a snapshot.
+     */
+    static final class Builder {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int size;
+        private UUID[] trainIds = new UUID[INITIAL_CAPACITY];
+        private Source[] sources = new Source[INITIAL_CAPACITY];
+        private String[] lineIds = new String[INITIAL_CAPACITY];
+        private TrainTelemetryState[] states = new TrainTelemetryState[INITIAL_CAPACITY];
+        private String[] worldNames = new String[INITIAL_CAPACITY];
+        private double[] xs = new double[INITIAL_CAPACITY];
+        private double[] ys = new double[INITIAL_CAPACITY];
+        private double[] zs = new double[INITIAL_CAPACITY];
+        private String[] fromStopIds = new String[INITIAL_CAPACITY];
+        private String[] toStopIds = new String[INITIAL_CAPACITY];
+
+        void add(UUID trainId, Source source, String lineId, TrainTelemetryState state, String worldName,
+                 double x, double y, double z, String fromStopId, String toStopId) {
+            if (size == trainIds.length) {
+                grow();
+            }
+            trainIds[size] = trainId;
+            sources[size] = source;
+            lineIds[size] = lineId;
+            states[size] = state;
+            worldNames[size] = worldName;
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            fromStopIds[size] = fromStopId;
+            toStopIds[size] = toStopId;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        TrainTelemetrySnapshot build(long sequence, long tick, TransitionBuffer transitions) {
+            return new TrainTelemetrySnapshot(sequence, tick, this, transitions);
+        }
+
+        /**
+         * Drop the previous pass without releasing capacity; references are cleared so removed
+         * trains are not kept reachable.
+         */
+        void reset() {
+            Arrays.fill(trainIds, 0, size, null);
+            Arrays.fill(lineIds, 0, size, null);
+            Arrays.fill(worldNames, 0, size, null);
+            Arrays.fill(fromStopIds, 0, size, null);
+            Arrays.fill(toStopIds, 0, size, null);
+            size = 0;
+        }
+
+        private void grow() {
+            int capacity = trainIds.length << 1;
+            trainIds = Arrays.copyOf(trainIds, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            lineIds = Arrays.copyOf(lineIds, capacity);
+            states = Arrays.copyOf(states, capacity);
+            worldNames = Arrays.copyOf(worldNames, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            fromStopIds = Arrays.copyOf(fromStopIds, capacity);
+            toStopIds = Arrays.copyOf(toStopIds, capacity);
+        }
+    }
+
+    /**
+     * Append-only stop transition columns. Snapshots hold trimmed copies that are never written
+     * again.
+     */
+    static final class TransitionBuffer {
+        static final TransitionBuffer EMPTY = new TransitionBuffer(0);
+
+        private int size;
+        private UUID[] cartIds;
+        private String[] lineIds;
+        private String[] stopIds;
+        private StopTransition[] types;
+
+        TransitionBuffer(int capacity) {
+            cartIds = new UUID[capacity];
+            lineIds = new String[capacity];
+            stopIds = new String[capacity];
+            types = new StopTransition[capacity];
+        }
+
+        void add(UUID cartId, String lineId, String stopId, StopTransition type) {
+            if (size == cartIds.length) {
+                int capacity = Math.max(8, size << 1);
+                cartIds = Arrays.copyOf(cartIds, capacity);
+                lineIds = Arrays.copyOf(lineIds, capacity);
+                stopIds = Arrays.copyOf(stopIds, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            cartIds[size] = cartId;
+            lineIds[size] = lineId;
+            stopIds[size] = stopId;
+            types[size] = type;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return a trimmed copy, or {@link #EMPTY} when nothing was recorded
+         */
+        TransitionBuffer copy() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            TransitionBuffer copy = new TransitionBuffer(size);
+            System.arraycopy(cartIds, 0, copy.cartIds, 0, size);
+            System.arraycopy(lineIds, 0, copy.lineIds, 0, size);
+            System.arraycopy(stopIds, 0, copy.stopIds, 0, size);
+            System.arraycopy(types, 0, copy.types, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        void clear() {
+            Arrays.fill(cartIds, 0, size, null);
+            Arrays.fill(lineIds, 0, size, null);
+            Arrays.fill(stopIds, 0, size, null);
+            Arrays.fill(types, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.cubexmc.metro.telemetry;
+
+/**
+ * Coarse train state shared by scheduled service trains and player rides.
+ *
+ * @since 1.1.7
+ */
+public enum TrainTelemetryState {
+    /** Standing at a stop. */
+    STOPPED,
+    /** Travelling between stops. */
+    MOVING,
+    /** A ride braking inside its target stop area. */
+    APPROACHING,
+    /** A service train running out of service after its last stop. */
+    TERMINATING
+}
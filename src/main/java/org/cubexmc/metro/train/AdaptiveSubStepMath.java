@@ -0,0 +1,94 @@
+package org.cubexmc.metro.train;
+
+/**
+ * Chooses how many physics sub-steps a moving train needs this tick. The fixed policy splits the
+ * tick so no sub-step moves more than {@link #MAX_STEP_BLOCKS}; the adaptive policy looks along the
+ * distance the lead covers this tick and only pays for that split when the rail geometry changes
+ * (curves, slope transitions, missing rail) or a stop is close. On uniform track one sub-step lands
+ * on the same rail line as many small ones, so straight express runs cost a single step.
+ */
+final class AdaptiveSubStepMath {
+
+    static final double MAX_STEP_BLOCKS = 0.35;
+    static final int MAX_SUB_STEPS = 12;
+    /** Extra distance scanned past this tick's travel so a step never ends just short of a change. */
+    static final double LOOKAHEAD_MARGIN_BLOCKS = 1.0;
+    /** Spacing of lookahead samples; below one block so diagonal travel cannot skip a cell. */
+    private static final double SAMPLE_SPACING_BLOCKS = 0.5;
+
+    enum Geometry {
+        NONE,
+        STRAIGHT,
+        CURVE,
+        SLOPE
+    }
+
+    @FunctionalInterface
+    interface GeometryProbe {
+        Geometry at(int x, int y, int z);
+    }
+
+    private AdaptiveSubStepMath() {
+    }
+
+    static int fixedSubSteps(double leadSpeed, int maxSubSteps) {
+        if (leadSpeed <= MAX_STEP_BLOCKS) {
+            return 1;
+        }
+        int steps = (int) Math.ceil(leadSpeed / MAX_STEP_BLOCKS);
+        return Math.max(1, Math.min(steps, maxSubSteps));
+    }
+
+    /**
+     * @param dirX         travel direction, need not be normalised
+     * @param stopDistance distance from the lead to the target stop, or a negative value if unknown
+     */
+    static int adaptiveSubSteps(double x, double y, double z, double dirX, double dirY, double dirZ,
+            double leadSpeed, double stopDistance, int maxSubSteps, GeometryProbe probe) {
+        int fixed = fixedSubSteps(leadSpeed, maxSubSteps);
+        if (fixed <= 1) {
+            return 1;
+        }
+        double lookahead = leadSpeed + LOOKAHEAD_MARGIN_BLOCKS;
+        if (stopDistance >= 0.0
+                && stopDistance <= lookahead + ArrivalHeuristics.thresholdBlocks(leadSpeed)) {
+            return fixed;
+        }
+        double length = Math.sqrt(dirX * dirX + dirY * dirY + dirZ * dirZ);
+        if (probe == null || length < 1.0e-8) {
+            return fixed;
+        }
+        double ux = dirX / length;
+        double uy = dirY / length;
+        double uz = dirZ / length;
+
+        int lastX = floor(x);
+        int lastY = floor(y);
+        int lastZ = floor(z);
+        Geometry start = probe.at(lastX, lastY, lastZ);
+        if (start == Geometry.NONE || start == Geometry.CURVE) {
+            return fixed;
+        }
+        int samples = (int) Math.ceil(lookahead / SAMPLE_SPACING_BLOCKS);
+        for (int i = 1; i <= samples; i++) {
+            double distance = Math.min(lookahead, i * SAMPLE_SPACING_BLOCKS);
+            int cx = floor(x + ux * distance);
+            int cy = floor(y + uy * distance);
+            int cz = floor(z + uz * distance);
+            if (cx == lastX && cy == lastY && cz == lastZ) {
+                continue;
+            }
+            lastX = cx;
+            lastY = cy;
+            lastZ = cz;
+            if (probe.at(cx, cy, cz) != start) {
+                return fixed;
+            }
+        }
+        return 1;
+    }
+
+    private static int floor(double value) {
+        return (int) Math.floor(value);
+    }
+}
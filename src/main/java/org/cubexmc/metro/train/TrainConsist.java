@@ -3,18 +3,39 @@ package org.cubexmc.metro.train;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.bukkit.Location;
 import org.bukkit.entity.Minecart;
 import org.bukkit.util.Vector;
 
+/**
+ * Ordered cars of one train. Each car occupies a slot (0 = lead); a slot is either a real
+ * {@link Minecart} or a virtual follower that only exists as a client-side fake.
+ */
 public class TrainConsist {
 
     private final List<Minecart> cars = new ArrayList<>();
+    private final List<Integer> carSlots = new ArrayList<>();
+    private final TreeMap<Integer, Location> virtualSlots = new TreeMap<>();
+    private int slotCount;
 
     public void addCar(Minecart car) {
         cars.add(car);
+        carSlots.add(slotCount++);
     }
 
+    /**
+     * Reserve the next slot for a virtual follower starting at {@code location}.
+     */
+    public void addVirtualCar(Location location) {
+        virtualSlots.put(slotCount++, location.clone());
+    }
+
+    /**
+     * Real minecarts in slot order.
+     */
     public List<Minecart> getCars() {
         return Collections.unmodifiableList(cars);
     }
@@ -27,6 +48,73 @@ public class TrainConsist {
         return cars.contains(car);
     }
 
+    /**
+     * Total number of cars, real and virtual.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Slot of the real car at {@code carIndex} in {@link #getCars()}.
+     */
+    public int getSlotOf(int carIndex) {
+        return carSlots.get(carIndex);
+    }
+
+    public boolean hasVirtualCars() {
+        return !virtualSlots.isEmpty();
+    }
+
+    /**
+     * Virtual follower slots and their last rendered locations, in slot order.
+     */
+    public Map<Integer, Location> getVirtualSlots() {
+        return Collections.unmodifiableMap(virtualSlots);
+    }
+
+    public void updateVirtualSlot(int slot, Location location) {
+        if (virtualSlots.containsKey(slot)) {
+            virtualSlots.put(slot, location);
+        }
+    }
+
+    /**
+     * Positions of every slot in order: live minecart locations and stored virtual locations.
+     */
+    public List<Location> getSlotLocations() {
+        List<Location> locations = new ArrayList<>(slotCount);
+        int carIndex = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            Location virtual = virtualSlots.get(slot);
+            if (virtual != null) {
+                locations.add(virtual.clone());
+            } else if (carIndex < cars.size()) {
+                Minecart car = cars.get(carIndex++);
+                locations.add(car == null || car.isDead() ? null : car.getLocation());
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Replace a virtual slot with a real minecart, keeping slot order.
+     *
+     * @return false when the slot is not virtual
+     */
+    public boolean promote(int slot, Minecart car) {
+        if (car == null || virtualSlots.remove(slot) == null) {
+            return false;
+        }
+        int insertAt = 0;
+        while (insertAt < carSlots.size() && carSlots.get(insertAt) < slot) {
+            insertAt++;
+        }
+        cars.add(insertAt, car);
+        carSlots.add(insertAt, slot);
+        return true;
+    }
+
     public void setVelocity(Vector velocity) {
         for (Minecart car : cars) {
             if (car == null || car.isDead()) continue;
@@ -40,7 +128,8 @@ public class TrainConsist {
 
     public void clear() {
         cars.clear();
+        carSlots.clear();
+        virtualSlots.clear();
+        slotCount = 0;
     }
 }
-
-
@@ -6,6 +6,8 @@ import org.cubexmc.metro.event.MetroTrainArrivalEvent;
 import org.cubexmc.metro.event.MetroTrainDepartureEvent;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
+import org.cubexmc.metro.telemetry.TrainTelemetrySnapshot.StopTransition;
 
 /**
  * Publishes train lifecycle events consumed by display and integration layers.
@@ -21,6 +23,7 @@ public class TrainEventPublisher {
     public void publishEnteringStop(Stop targetStop) {
         Player passenger = session.getPassenger();
         Line line = session.getLine();
+        recordTransition(line, targetStop, StopTransition.ARRIVING);
         if (passenger == null || !passenger.isOnline() || line == null || targetStop == null) {
             return;
         }
@@ -36,6 +39,7 @@ public class TrainEventPublisher {
         if (line == null || currentStop == null) {
             return;
         }
+        recordTransition(line, currentStop, StopTransition.DOCKED);
         Bukkit.getPluginManager().callEvent(new MetroTrainArrivalEvent(session.getMinecart(),
                 session.getPassenger(), line, currentStop, isTerminus, MetroTrainArrivalEvent.ArrivalType.DOCKED));
     }
@@ -45,7 +49,16 @@ public class TrainEventPublisher {
         if (line == null || currentStop == null || nextStop == null) {
             return;
         }
+        recordTransition(line, currentStop, StopTransition.DEPARTED);
         Bukkit.getPluginManager().callEvent(new MetroTrainDepartureEvent(session.getMinecart(),
                 session.getPassenger(), line, currentStop, nextStop));
     }
+
+    private void recordTransition(Line line, Stop stop, StopTransition type) {
+        TrainTelemetryHub hub = session.getPlugin() == null ? null : session.getPlugin().getTelemetryHub();
+        if (hub == null || !hub.isActive() || line == null || stop == null || session.getMinecart() == null) {
+            return;
+        }
+        hub.recordTransition(session.getMinecart().getUniqueId(), line.getId(), stop.getId(), type);
+    }
 }
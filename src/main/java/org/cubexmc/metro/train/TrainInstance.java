@@ -12,6 +12,8 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Rail;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
@@ -20,10 +22,13 @@ import org.bukkit.entity.Mob;
 import org.bukkit.entity.Player;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.Vector;
+import org.cubexmc.metro.listener.VehicleListener;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.Stop;
 import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.service.ConsistPool;
 import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.TrainSpawner;
 import org.cubexmc.metro.estimation.TravelTimeEstimator;
 import org.cubexmc.metro.util.LocationUtil;
 import org.cubexmc.metro.util.MinecartPhysicsUtil;
@@ -32,7 +37,11 @@ import org.cubexmc.metro.physics.KinematicRailPhysics;
 import org.cubexmc.metro.physics.ReactiveRailPhysics;
 import org.cubexmc.metro.physics.LeashedRailPhysics;
 import org.cubexmc.metro.control.TrainControlMode;
+import org.cubexmc.metro.profiling.LoadGovernor;
+import org.cubexmc.metro.profiling.ProfilerSection;
+import org.cubexmc.metro.profiling.TickProfiler;
 import org.cubexmc.metro.util.SchedulerUtil;
+import org.cubexmc.metro.util.TrainIds;
 import org.cubexmc.metro.Metro;
 import org.bukkit.entity.ArmorStand;
 
@@ -42,7 +51,10 @@ public class TrainInstance {
         WAITING, MOVING, TERMINATING, FINISHED
     }
 
-    private final UUID id = UUID.randomUUID();
+    // 依次检查同层、下一层、上一层的铁轨，兼容坡道
+    private static final int[] RAIL_PROBE_OFFSETS = {0, -1, 1};
+
+    private final UUID id = TrainIds.next();
     private final LineService service;
     private final Line line;
     private final TrainConsist consist;
@@ -70,7 +82,10 @@ public class TrainInstance {
     private long lastChunkUpdateTick = 0L;
 
     // Virtual train system
-    private UUID virtualTrainId = null;
+    private volatile UUID virtualTrainId = null;
+
+    // Published by the ticking thread for readers on other threads
+    private volatile TrainSnapshot snapshot;
 
     public TrainInstance(LineService service, Line line, TrainConsist consist, List<String> orderedStopIds,
             long spawnTick, int dwellTicks) {
@@ -132,6 +147,14 @@ public class TrainInstance {
         return navigator.getTargetStopId();
     }
 
+    public int getForcedChunkCount() {
+        return forcedChunks.size();
+    }
+
+    public TrainState getState() {
+        return state;
+    }
+
     public void setState(TrainState state, long tick) {
         this.state = state;
         this.stateSinceTick = tick;
@@ -156,12 +179,21 @@ public class TrainInstance {
     }
 
     public void update(long currentTick) {
+        update(currentTick, true);
+    }
+
+    /**
+     * @param refreshChunks whether to refresh chunk tickets in this call; the tick budget scheduler
+     *                      passes false and runs {@link #refreshChunkTickets(long)} as deferrable work
+     */
+    public void update(long currentTick, boolean refreshChunks) {
         if (state != TrainState.MOVING) {
             idleVirtualTicks = 0L;
         }
         switch (state) {
             case WAITING:
                 consist.zeroVelocity();
+                physicsEngine.idle(this, currentTick);
                 if (!readyToDepart && currentTick - stateSinceTick >= dwellTicks) {
                     readyToDepart = true;
                 }
@@ -169,7 +201,7 @@ public class TrainInstance {
                     navigator.attemptDeparture(currentTick);
                 } else {
                     // Show waiting UI updates periodically
-                    int waitingInterval = service.getPlugin().getWaitingInterval();
+                    int waitingInterval = scaleUiInterval(service.getPlugin().getWaitingInterval());
                     if (waitingInterval > 0 && (currentTick - stateSinceTick) % waitingInterval == 0) {
                         updateWaitingUI(currentTick);
                     }
@@ -183,9 +215,14 @@ public class TrainInstance {
                 double leadSpeed = getLeadSpeed();
                 int subSteps = computeSubSteps(leadSpeed);
                 double stepFraction = subSteps <= 1 ? 1.0 : 1.0 / subSteps;
+                TickProfiler profiler = service.getPlugin() == null ? null : service.getPlugin().getTickProfiler();
+                long physicsStart = profiler == null ? 0L : profiler.start();
                 for (int i = 0; i < subSteps; i++) {
                     maintainVelocity(stepFraction, leadSpeed);
                 }
+                if (profiler != null) {
+                    profiler.stop(ProfilerSection.PHYSICS, physicsStart);
+                }
                 // If head appears stuck for a short while, nudge it once
                 if (leadSpeed < 1.0e-3) {
                     stalledTicks++;
@@ -212,13 +249,14 @@ public class TrainInstance {
                 }
                 maybeVirtualize(currentTick);
                 // Show journey UI updates periodically
-                int departureInterval = service.getPlugin().getDepartureInterval();
+                int departureInterval = scaleUiInterval(service.getPlugin().getDepartureInterval());
                 if (departureInterval > 0 && (currentTick - stateSinceTick) % departureInterval == 0) {
                     updateJourneyUI();
                 }
                 break;
             case TERMINATING:
                 consist.zeroVelocity();
+                physicsEngine.idle(this, currentTick);
                 if (currentTick - stateSinceTick >= dwellTicks) {
                     finish();
                 }
@@ -228,14 +266,52 @@ public class TrainInstance {
                 break;
         }
 
-        // Update chunk loading (Global mode OR occupied Local mode)
-        if (service.getPlugin().isChunkLoadingEnabled()) {
-            updateChunkLoading(currentTick);
+        if (refreshChunks) {
+            refreshChunkTickets(currentTick);
         }
 
+        publishSnapshot();
+
         // Entity model features not available in this build
     }
 
+    /**
+     * Latest position and state published by the thread that ticks this train, or null before the
+     * first publish and after cleanup. Safe to read from any thread.
+     */
+    public TrainSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Record the current position and state; must run on the thread that owns the lead car.
+     */
+    public void publishSnapshot() {
+        Minecart lead = consist.getLeadCar();
+        if (lead == null || lead.isDead()) {
+            snapshot = null;
+            return;
+        }
+        Location location = lead.getLocation();
+        World world = location.getWorld();
+        if (world == null) {
+            snapshot = null;
+            return;
+        }
+        snapshot = new TrainSnapshot(world.getName(), location.getX(), location.getY(), location.getZ(), state,
+                navigator.getCurrentIndex(), navigator.getTargetIndex(), stateSinceTick, navigator.getStopIds(),
+                forcedChunks.size());
+    }
+
+    /**
+     * Update chunk loading (Global mode OR occupied Local mode).
+     */
+    public void refreshChunkTickets(long currentTick) {
+        if (service.getPlugin().isChunkLoadingEnabled()) {
+            updateChunkLoading(currentTick);
+        }
+    }
+
     private void updateWaitingUI(long currentTick) {
         if (!hasPassengers()) {
             return;
@@ -282,11 +358,95 @@ public class TrainInstance {
     }
 
     private int computeSubSteps(double leadSpeed) {
-        int maxSubSteps = 12;
-        if (leadSpeed <= 0.35)
-            return 1;
-        int steps = (int) Math.ceil(leadSpeed / 0.35);
-        return Math.max(1, Math.min(steps, maxSubSteps));
+        int maxSubSteps = AdaptiveSubStepMath.MAX_SUB_STEPS;
+        LoadGovernor governor = loadGovernor();
+        if (governor != null) {
+            maxSubSteps = governor.capSubSteps(maxSubSteps);
+        }
+        Metro plugin = service.getPlugin();
+        Minecart lead = consist.getLeadCar();
+        if (plugin == null || !plugin.isAdaptiveSubStepsEnabled() || lead == null || lead.isDead()) {
+            return AdaptiveSubStepMath.fixedSubSteps(leadSpeed, maxSubSteps);
+        }
+        return adaptiveSubSteps(physicsEngine, this, leadSpeed, distanceToTargetStop(lead.getLocation()),
+                maxSubSteps);
+    }
+
+    /**
+     * Adaptive count for the whole consist: a single step only when the engine reports its control
+     * is settled and every car, not just the lead, is on uniform track. A follower still leaving a
+     * curve needs the fine steps as much as a lead entering one.
+     */
+    static int adaptiveSubSteps(TrainPhysicsEngine engine, TrainInstance train, double leadSpeed,
+            double stopDistance, int maxSubSteps) {
+        int fixed = AdaptiveSubStepMath.fixedSubSteps(leadSpeed, maxSubSteps);
+        if (fixed <= 1 || engine == null || !engine.isStepSizeInvariant(train, leadSpeed)) {
+            return fixed;
+        }
+        List<Minecart> cars = train.getConsist().getCars();
+        int steps = 1;
+        for (int i = 0; i < cars.size() && steps < fixed; i++) {
+            Minecart car = cars.get(i);
+            if (car == null || car.isDead()) {
+                continue;
+            }
+            Location location = car.getLocation();
+            Vector velocity = car.getVelocity();
+            World world = location.getWorld();
+            steps = Math.max(steps, AdaptiveSubStepMath.adaptiveSubSteps(location.getX(), location.getY(),
+                    location.getZ(), velocity.getX(), velocity.getY(), velocity.getZ(), leadSpeed,
+                    i == 0 ? stopDistance : -1.0, maxSubSteps,
+                    world == null ? null : (x, y, z) -> railGeometry(world, x, y, z)));
+        }
+        return steps;
+    }
+
+    private double distanceToTargetStop(Location leadLocation) {
+        String targetStopId = navigator.getTargetStopId();
+        Stop target = targetStopId == null ? null : service.getStopManager().getStop(targetStopId);
+        Location stopPoint = target == null ? null : target.getStopPointLocation();
+        if (stopPoint == null || !Objects.equals(stopPoint.getWorld(), leadLocation.getWorld())) {
+            return -1.0;
+        }
+        return stopPoint.distance(leadLocation);
+    }
+
+    /**
+     * Classify the rail at a block, also checking one block below and above so slopes are found
+     * whether or not the travel direction has a vertical component. Unloaded chunks count as no rail.
+     */
+    private static AdaptiveSubStepMath.Geometry railGeometry(World world, int x, int y, int z) {
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+            return AdaptiveSubStepMath.Geometry.NONE;
+        }
+        for (int dy : RAIL_PROBE_OFFSETS) {
+            BlockData data = world.getBlockAt(x, y + dy, z).getBlockData();
+            if (data instanceof Rail) {
+                switch (((Rail) data).getShape()) {
+                    case NORTH_SOUTH:
+                    case EAST_WEST:
+                        return AdaptiveSubStepMath.Geometry.STRAIGHT;
+                    case ASCENDING_EAST:
+                    case ASCENDING_WEST:
+                    case ASCENDING_NORTH:
+                    case ASCENDING_SOUTH:
+                        return AdaptiveSubStepMath.Geometry.SLOPE;
+                    default:
+                        return AdaptiveSubStepMath.Geometry.CURVE;
+                }
+            }
+        }
+        return AdaptiveSubStepMath.Geometry.NONE;
+    }
+
+    private LoadGovernor loadGovernor() {
+        Metro plugin = service.getPlugin();
+        return plugin == null ? null : plugin.getLoadGovernor();
+    }
+
+    private int scaleUiInterval(int intervalTicks) {
+        LoadGovernor governor = loadGovernor();
+        return governor == null ? intervalTicks : governor.scaleUiInterval(intervalTicks);
     }
 
     private void maintainVelocity(double timeFraction, double leadSpeed) {
@@ -349,7 +509,12 @@ public class TrainInstance {
         }
 
         idleVirtualTicks++;
-        if (idleVirtualTicks >= plugin.getLocalVirtualIdleTicks()) {
+        int idleLimit = plugin.getLocalVirtualIdleTicks();
+        LoadGovernor governor = plugin.getLoadGovernor();
+        if (governor != null) {
+            idleLimit = governor.scaleVirtualIdleTicks(idleLimit);
+        }
+        if (idleVirtualTicks >= idleLimit) {
             service.virtualizeBackToPool(this, currentTick);
             service.markVirtualizedTrain(currentTick);
             finishImmediately();
@@ -451,8 +616,15 @@ public class TrainInstance {
         releaseRoutingReservation();
         releaseAllForcedChunks();
 
+        ConsistPool pool = service.getConsistPool();
+        VehicleListener vehicleListener = service.getPlugin().getVehicleListener();
+        long currentTick = SchedulerUtil.getCurrentTick();
         for (Minecart cart : consist.getCars()) {
             cart.getPersistentDataContainer().remove(key);
+            if (vehicleListener != null) {
+                // 停放或移除的矿车不能保留旧的站台与方块状态
+                vehicleListener.forgetCart(cart);
+            }
             if (!cart.isDead()) {
                 for (Entity passenger : new ArrayList<>(cart.getPassengers())) {
                     if (passenger instanceof Player) {
@@ -460,11 +632,14 @@ public class TrainInstance {
                     }
                     passenger.leaveVehicle();
                 }
-                cart.remove();
+                if (pool == null || !pool.release(cart, currentTick)) {
+                    cart.remove();
+                }
             }
         }
         resetTransientRuntimeState();
         consist.clear();
+        snapshot = null;
     }
 
     // Helpers for local strategy ETA
@@ -533,6 +708,28 @@ public class TrainInstance {
         }
     }
 
+    /**
+     * Spawn a real minecart in place of a virtual follower slot, e.g. when a player clicks it.
+     *
+     * @return the new minecart, or null when the slot is not virtual
+     */
+    public Minecart promoteVirtualCar(int slot) {
+        Location at = consist.getVirtualSlots().get(slot);
+        if (at == null || at.getWorld() == null) {
+            return null;
+        }
+        Minecart cart = TrainSpawner.spawnCar(service.getPlugin(), at, service.getCartSpeed());
+        if (!consist.promote(slot, cart)) {
+            cart.remove();
+            return null;
+        }
+        cart.getPersistentDataContainer().set(key, PersistentDataType.STRING, id.toString());
+        if (service.getPlugin().getLineServiceManager() != null) {
+            service.getPlugin().getLineServiceManager().registerTrain(this);
+        }
+        return cart;
+    }
+
     // Passenger management methods
 
     public void addPassenger(org.bukkit.entity.HumanEntity player, Minecart cart) {
@@ -1,6 +1,7 @@
 package org.cubexmc.metro.train;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -16,6 +17,7 @@ import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.event.TrainEnterStopEvent;
 import org.cubexmc.metro.manager.LanguageManager;
 import org.cubexmc.metro.manager.LineManager;
+import org.cubexmc.metro.manager.PortalManager;
 import org.cubexmc.metro.manager.StopManager;
 import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.PriceRule;
@@ -34,6 +36,9 @@ public class TrainMovementTask implements Listener {
         MOVING_BETWEEN_STATIONS
     }
 
+    /** 每行驶这么多格检查一次前方的传送门 */
+    private static final double PORTAL_PREWARM_STRIDE_BLOCKS = 8.0;
+
     private final TrainSession session;
     private final TrainStateMachine stateMachine;
     private final TrainScheduler trainScheduler;
@@ -41,6 +46,9 @@ public class TrainMovementTask implements Listener {
     private final TrainEventPublisher eventPublisher;
     private final TrainScoreboardController scoreboardController;
     private final TrainMovementAssistController movementAssistController;
+    private double distanceSincePortalPrewarm = PORTAL_PREWARM_STRIDE_BLOCKS;
+    // 由矿车所属线程写入，供遥测等其他线程读取，避免跨 region 访问实体
+    private volatile Location lastKnownLocation;
 
     public TrainMovementTask(Metro plugin, Minecart minecart, Player passenger, String lineId, String fromStopId) {
         this(plugin, minecart, passenger, lineId, fromStopId, TrainState.STOPPED_AT_STATION);
@@ -62,6 +70,8 @@ public class TrainMovementTask implements Listener {
         if (line != null && session.getTargetStopId() != null) {
             scoreboardController.updateBasedOnState(session);
         }
+        Location start = minecart == null ? null : minecart.getLocation();
+        this.lastKnownLocation = start == null ? null : start.clone();
     }
 
     public void cancel() {
@@ -97,6 +107,8 @@ public class TrainMovementTask implements Listener {
         Minecart previousCart = session.getMinecart();
         session.setMinecart(newCart);
         session.setTeleporting(false);
+        Location transferred = newCart.getLocation();
+        lastKnownLocation = transferred == null ? null : transferred.clone();
         TrainTaskRegistry.transfer(previousCart, newCart, this);
         Line line = session.getLine();
         if (line != null && session.getPlugin().getRouteRecorder() != null) {
@@ -117,10 +129,45 @@ public class TrainMovementTask implements Listener {
         return line != null && line.containsPortal(portalId);
     }
 
+    public Minecart getMinecart() {
+        return session.getMinecart();
+    }
+
+    public Line getLine() {
+        return session.getLine();
+    }
+
+    public TrainState getState() {
+        return session.getState();
+    }
+
+    public String getCurrentStopId() {
+        return session.getCurrentStopId();
+    }
+
+    public String getTargetStopId() {
+        return session.getTargetStopId();
+    }
+
+    /**
+     * Last position of the ride cart recorded on the thread that owns it. Readers on other threads
+     * must use this instead of the minecart; callers must not modify the returned location.
+     */
+    public Location getLastKnownLocation() {
+        return lastKnownLocation;
+    }
+
     public static TrainMovementTask getTaskFor(Minecart cart) {
         return TrainTaskRegistry.get(cart);
     }
 
+    /**
+     * Visit every active ride. The set may change concurrently; each task is visited at most once.
+     */
+    public static void forEachActiveTask(Consumer<TrainMovementTask> action) {
+        TrainTaskRegistry.forEach(action);
+    }
+
     public static int shutdownActiveTasks() {
         return TrainTaskRegistry.shutdownActiveTasks();
     }
@@ -162,6 +209,8 @@ public class TrainMovementTask implements Listener {
             return;
         }
 
+        Location movedTo = event.getTo();
+        lastKnownLocation = movedTo == null ? null : movedTo.clone();
         Line line = session.getLine();
         if (line != null) {
             session.getPlugin().getRouteRecorder().sample(line.getId(), minecart, event.getTo());
@@ -177,6 +226,7 @@ public class TrainMovementTask implements Listener {
                 double dist = Math.sqrt(dx * dx + dz * dz);
                 if (dist > 0.001) {
                     session.addDistance(dist);
+                    prewarmPortalsAhead(line, to, dist);
                 }
             }
         }
@@ -215,6 +265,7 @@ public class TrainMovementTask implements Listener {
         Location snapLocation = stop.getStopPointLocation().clone();
         snapLocation.setX(snapLocation.getBlockX() + 0.5);
         snapLocation.setZ(snapLocation.getBlockZ() + 0.5);
+        lastKnownLocation = snapLocation.clone();
         if (session.getLine() != null) {
             session.getPlugin().getRouteRecorder().sample(session.getLine().getId(), minecart, snapLocation);
         }
@@ -460,6 +511,18 @@ public class TrainMovementTask implements Listener {
         TrainTaskStarter.start(plugin, minecart, passenger, lineId, currentStopId);
     }
 
+    private void prewarmPortalsAhead(Line line, Location location, double dist) {
+        distanceSincePortalPrewarm += dist;
+        if (distanceSincePortalPrewarm < PORTAL_PREWARM_STRIDE_BLOCKS || line == null) {
+            return;
+        }
+        distanceSincePortalPrewarm = 0.0;
+        PortalManager portalManager = session.getPlugin().getPortalManager();
+        if (portalManager != null) {
+            portalManager.prewarmAhead(line, location, session.getLastTravelDirection());
+        }
+    }
+
     private void updateLastTravelDirection(Location from, Location to) {
         if (session.getState() == TrainState.STOPPED_AT_STATION || from == null || to == null) {
             return;
@@ -137,6 +137,10 @@ public class TrainNavigator {
         if (!arrival.valid) {
             return;
         }
+        if (sectionKey != null) {
+            train.getService().getBlockSectionManager().leave(sectionKey);
+            sectionKey = null;
+        }
 
         train.setState(arrival.nextState, currentTick);
         currentIndex = arrival.currentIndex;
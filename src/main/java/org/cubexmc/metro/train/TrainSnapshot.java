@@ -0,0 +1,45 @@
+package org.cubexmc.metro.train;
+
+import java.util.List;
+
+import org.cubexmc.metro.estimation.TravelTimeEstimator;
+
+/**
+ * Immutable view of a service train, published by the thread that ticks it.
+ *
+ * <p>On Folia the lead car belongs to one region thread; map layers, telemetry and dispatch run
+ * elsewhere and must read this snapshot instead of the entity or the navigator.
+ *
+ * @param worldName      world of the lead car
+ * @param state          train state when the snapshot was taken
+ * @param currentIndex   index of the stop the train is at or departed from
+ * @param targetIndex    index of the stop it is heading to, -1 while waiting
+ * @param stateSinceTick tick the current state started
+ * @param stopIds        ordered stops of the train's route
+ * @param forcedChunks   chunks the train keeps force-loaded
+ */
+public record TrainSnapshot(String worldName, double x, double y, double z, TrainInstance.TrainState state,
+        int currentIndex, int targetIndex, long stateSinceTick, List<String> stopIds, int forcedChunks) {
+
+    public String fromStopId() {
+        return targetIndex >= 0 && currentIndex >= 0 && currentIndex < stopIds.size() ? stopIds.get(currentIndex) : null;
+    }
+
+    public String toStopId() {
+        return targetIndex >= 0 && targetIndex < stopIds.size() ? stopIds.get(targetIndex) : null;
+    }
+
+    public double segmentElapsedSeconds(long currentTick) {
+        return state == TrainInstance.TrainState.MOVING ? Math.max(0.0, (currentTick - stateSinceTick) / 20.0) : 0.0;
+    }
+
+    /**
+     * Same estimate as {@link TrainInstance#estimateEtaSecondsToStop}, from the snapshot only.
+     */
+    public double estimateEtaSecondsToStop(String lineId, boolean loop, String stopId, long currentTick,
+            TravelTimeEstimator estimator) {
+        return TrainStateMath.estimateEtaSecondsToStop(state, stopIds, currentIndex, targetIndex, loop, stopId,
+                segmentElapsedSeconds(currentTick),
+                (fromStopId, toStopId) -> estimator.estimateSeconds(lineId, fromStopId, toStopId));
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.bukkit.entity.Minecart;
 import org.cubexmc.metro.Metro;
@@ -41,6 +42,13 @@ final class TrainTaskRegistry {
         register(newCart, task);
     }
 
+    static void forEach(Consumer<TrainMovementTask> action) {
+        // 换车过程中同一任务可能短暂挂在两个 UUID 下
+        for (TrainMovementTask task : new LinkedHashSet<>(ACTIVE_TASKS.values())) {
+            action.accept(task);
+        }
+    }
+
     static int shutdownActiveTasks() {
         return shutdownActiveTasks(null, false);
     }
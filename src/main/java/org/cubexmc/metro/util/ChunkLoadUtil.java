@@ -0,0 +1,50 @@
+package org.cubexmc.metro.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+
+/**
+ * Non-blocking chunk loads through Paper's {@code World#getChunkAtAsync}, resolved reflectively so
+ * the plugin still runs on Spigot.
+ */
+public final class ChunkLoadUtil {
+
+    private static final Method GET_CHUNK_AT_ASYNC = findGetChunkAtAsync();
+
+    private ChunkLoadUtil() {
+    }
+
+    public static boolean isAsyncLoadSupported() {
+        return GET_CHUNK_AT_ASYNC != null;
+    }
+
+    /**
+     * Start loading a chunk without blocking the calling thread. Paper completes the future on the
+     * thread that owns the chunk.
+     *
+     * @return the pending load, or null when the server has no async chunk API and the caller has to
+     *         fall back to {@link World#getChunkAt(int, int)}
+     */
+    @SuppressWarnings("unchecked")
+    public static CompletableFuture<Chunk> loadChunkAsync(World world, int chunkX, int chunkZ) {
+        if (GET_CHUNK_AT_ASYNC == null || world == null) {
+            return null;
+        }
+        try {
+            return (CompletableFuture<Chunk>) GET_CHUNK_AT_ASYNC.invoke(world, chunkX, chunkZ);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static Method findGetChunkAtAsync() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
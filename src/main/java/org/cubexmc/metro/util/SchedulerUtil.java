@@ -5,6 +5,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -23,12 +24,40 @@ public class SchedulerUtil {
 
     private static final AtomicLong TICK_COUNTER = new AtomicLong();
     private static volatile boolean tickCounterStarted = false;
+    // Paper 的 Bukkit.getCurrentTick()，Spigot 上或首次调用失败后为 null
+    private static volatile Method currentTickMethod = findCurrentTickMethod();
+    private static volatile LongSupplier tickSource;
 
     public static long getCurrentTick() {
+        LongSupplier source = tickSource;
+        if (source != null) {
+            return source.getAsLong();
+        }
+        Method method = currentTickMethod;
+        if (method != null) {
+            try {
+                return ((Number) method.invoke(null)).longValue();
+            } catch (Exception e) {
+                // 失败一次后不再反射调用（例如服务端不支持该方法），此后一直使用自增计数
+                currentTickMethod = null;
+            }
+        }
+        return TICK_COUNTER.get();
+    }
+
+    /**
+     * Answer {@link #getCurrentTick()} from the given clock instead of the server, e.g. a simulated
+     * one driving the services headlessly. Pass null to go back to the server tick.
+     */
+    public static void setTickSource(LongSupplier source) {
+        tickSource = source;
+    }
+
+    private static Method findCurrentTickMethod() {
         try {
-            return (long) Bukkit.class.getMethod("getCurrentTick").invoke(null);
-        } catch (Exception e) {
-            return TICK_COUNTER.get();
+            return Bukkit.class.getMethod("getCurrentTick");
+        } catch (NoSuchMethodException e) {
+            return null;
         }
     }
 
@@ -201,21 +230,41 @@ public class SchedulerUtil {
      * @return 任务ID
      */
     public static Object entityRun(Plugin plugin, Entity entity, Runnable task, long delay, long period) {
+        return entityRun(plugin, entity, task, null, delay, period);
+    }
+
+    /**
+     * 在实体所在区域执行任务，实体被移除时调用 retired（仅 Folia）
+     *
+     * @param plugin  插件实例
+     * @param entity  实体
+     * @param task    任务
+     * @param retired 实体不再存在时的回调，可为 null
+     * @param delay   延迟时间，单位为tick
+     * @param period  周期时间，单位为tick，如果为负数则表示只延迟一次
+     * @return 任务ID
+     */
+    public static Object entityRun(Plugin plugin, Entity entity, Runnable task, Runnable retired, long delay,
+            long period) {
         delay = Math.max(0, delay);
         if (IS_FOLIA && reflectionInitialized) {
-            return foliaEntityRun(plugin, entity, task, delay, period);
+            return foliaEntityRun(plugin, entity, task, retired, delay, period);
         } else {
             warnUnsafeBukkitFallbackIfNeeded(plugin, "entity scheduler reflection is unavailable");
             return bukkitGlobalRun(plugin, task, delay, period);
         }
     }
 
-    private static Object foliaEntityRun(Plugin plugin, Entity entity, Runnable task, long delay, long period) {
+    private static Object foliaEntityRun(Plugin plugin, Entity entity, Runnable task, Runnable retired, long delay,
+            long period) {
         try {
             Object scheduler = entitySchedulerMethod.invoke(entity);
             Consumer<Object> foliaTask = scheduledTask -> task.run();
             Runnable retiredCallback = () -> {
                 // Entity no longer exists
+                if (retired != null) {
+                    retired.run();
+                }
             };
 
             if (period <= 0) {
@@ -0,0 +1,28 @@
+package org.cubexmc.metro.util;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Ids for service trains and virtual trains, random unless a source is installed.
+ */
+public final class TrainIds {
+
+    private static volatile Supplier<UUID> source;
+
+    private TrainIds() {
+    }
+
+    public static UUID next() {
+        Supplier<UUID> current = source;
+        return current != null ? current.get() : UUID.randomUUID();
+    }
+
+    /**
+     * Draw ids from the given source instead of {@link UUID#randomUUID()}, e.g. a seeded one so a
+     * headless simulation hands out the same ids on every run. Pass null to go back to random ids.
+     */
+    public static void setSource(Supplier<UUID> source) {
+        TrainIds.source = source;
+    }
+}
@@ -0,0 +1,556 @@
+package org.cubexmc.metro.simulation;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.stream.Stream;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.config.ConfigFacade;
+import org.cubexmc.metro.estimation.TravelTimeEstimator;
+import org.cubexmc.metro.manager.LineManager;
+import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.persistence.SaveCoordinator;
+import org.cubexmc.metro.service.ConsistPool;
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.LineServiceManager;
+import org.cubexmc.metro.telemetry.TrainTelemetryHub;
+import org.cubexmc.metro.util.SchedulerUtil;
+import org.cubexmc.metro.util.TrainIds;
+import org.mockito.Mockito;
+
+/**
+ * Headless run of the train services on a generated network with simulated riders.
+ *
+ * <p>The real {@link LineManager}, {@link StopManager} and {@link LineServiceManager} run against a
+ * simulated server, world and scheduler; the tick only advances when the loop says so, so a run
+ * takes as long as the code needs rather than 50 ms per tick. Every source of time is the simulated
+ * tick and riders draw from a seeded random, so runs with the same arguments are comparable; only
+ * the measured tick times are expected to differ.
+ *
+ * <pre>
+ * mvn -Psimulation -DskipTests test-compile exec:exec@simulation -Dsim.args="--lines 8 --hours 2"
+ * </pre>
+ */
+public final class NetworkSimulation {
+
+    static final String WORLD_NAME = "simulation";
+    static final Instant ORIGIN = Instant.parse("2024-01-01T00:00:00Z");
+    static final int TICKS_PER_HOUR = 72_000;
+    /** Riders check the trains this often; shorter than the minimum dwell so no stop is missed. */
+    static final int RIDER_SAMPLE_TICKS = 10;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: NetworkSimulation [options]",
+            "  --lines <n>          number of lines (default 4)",
+            "  --stops <n>          stops per line (default 8)",
+            "  --spacing <blocks>   distance between stops (default 160)",
+            "  --riders <n>         simulated riders (default 200)",
+            "  --hours <h>          simulated hours, fractions allowed (default 1)",
+            "  --mode <mode>        service.mode: local or global (default local)",
+            "  --headway <s>        headway seconds per line (default 90)",
+            "  --dwell <ticks>      dwell ticks per stop (default 100)",
+            "  --cars <n>           cars per train (default 3)",
+            "  --seed <n>           rider random seed (default 1)",
+            "  --report <file>      JSON report path (default target/simulation-report.json)",
+            "  --set <path=value>   override a config.yml value, repeatable",
+            "  --verbose            log plugin INFO messages");
+
+    private final Options options;
+
+    private NetworkSimulation(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            // exec:exec@simulation 把 -Dsim.args 作为单个参数传入，在这里按空白拆开
+            options = Options.parse(args.length == 1 ? splitArgs(args[0]) : args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help) {
+            System.out.println(USAGE);
+            return;
+        }
+        SimulationReport report = new NetworkSimulation(options).run();
+        System.out.print(report.toText());
+        report.write(options.report);
+        System.out.println("Report written to " + options.report.toAbsolutePath());
+        // 任一调度任务抛出异常都视为失败，便于在 CI 中直接使用退出码
+        Object failures = report.get("tasks", "failures");
+        System.exit(failures instanceof Number number && number.longValue() > 0 ? 1 : 0);
+    }
+
+    private static String[] splitArgs(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    private SimulationReport run() throws Exception {
+        Logger logger = createLogger(options.verbose);
+        SimulationClock clock = new SimulationClock(logger);
+        SimulatedServer server = SimulatedServer.install(clock, logger);
+        SyntheticNetwork network = new SyntheticNetwork(options.lines, options.stops, options.spacing);
+        SimulatedWorld world = new SimulatedWorld(WORLD_NAME, network.layout());
+        server.addWorld(world);
+
+        Path dataFolder = Files.createTempDirectory("railway-simulation");
+        SchedulerUtil.setTickSource(clock::tick);
+        // 列车 id 也取自种子，按哈希顺序遍历列车的代码在每次运行中顺序一致
+        Random trainIds = new Random(options.seed);
+        TrainIds.setSource(() -> new UUID(trainIds.nextLong(), trainIds.nextLong()));
+        try {
+            Metro plugin = createPlugin(dataFolder.toFile(), logger);
+            LineManager lineManager = new LineManager(plugin);
+            StopManager stopManager = new StopManager(plugin);
+            setField(plugin, "lineManager", lineManager);
+            setField(plugin, "stopManager", stopManager);
+            network.populate(world.world(), stopManager, lineManager, options.headway, options.dwell, options.cars);
+
+            setField(plugin, "travelTimeEstimator", new TravelTimeEstimator(estimatorSettings(plugin),
+                    new File(dataFolder.toFile(), "travel-times"), clock.asClock(ORIGIN)));
+            TrainTelemetryHub telemetryHub = new TrainTelemetryHub(plugin);
+            AtomicLong snapshots = new AtomicLong();
+            AtomicLong peakTrains = new AtomicLong();
+            telemetryHub.subscribe(snapshot -> {
+                snapshots.incrementAndGet();
+                peakTrains.accumulateAndGet(snapshot.size(), Math::max);
+            });
+            setField(plugin, "telemetryHub", telemetryHub);
+
+            LineServiceManager services = new LineServiceManager(plugin);
+            setField(plugin, "lineServiceManager", services);
+            RiderModel riders = new RiderModel(network, options.riders, options.seed);
+
+            long totalTicks = Math.round(options.hours * TICKS_PER_HOUR);
+            long[] tickNanos = new long[(int) totalTicks];
+            MemoryProbe memory = new MemoryProbe();
+            long wallStart = System.nanoTime();
+            for (int index = 0; index < tickNanos.length; index++) {
+                long start = System.nanoTime();
+                clock.advance();
+                tickNanos[index] = System.nanoTime() - start;
+                if (clock.tick() % RIDER_SAMPLE_TICKS == 0) {
+                    riders.step(clock.tick(), services.getServices());
+                }
+            }
+            long wallNanos = System.nanoTime() - wallStart;
+
+            SimulationReport report = new SimulationReport();
+            describeRun(report, network, clock, tickNanos.length, wallNanos);
+            describeTicks(report, tickNanos);
+            describeService(report, services, world);
+            describeRiders(report, riders);
+            report.put("telemetry", "snapshots", snapshots.get())
+                    .put("telemetry", "peakTrainsPerSnapshot", peakTrains.get())
+                    .put("telemetry", "eventsFired", new LinkedHashMap<>(server.firedEvents()));
+            memory.describe(report);
+
+            services.shutdown();
+            report.put("tasks", "executed", clock.executedTaskCount())
+                    .put("tasks", "pendingAfterShutdown", clock.pendingTaskCount())
+                    .put("tasks", "failures", clock.failureCount())
+                    .put("tasks", "failureSignatures", new LinkedHashMap<>(clock.failures()));
+            return report;
+        } finally {
+            SchedulerUtil.setTickSource(null);
+            TrainIds.setSource(null);
+            deleteRecursively(dataFolder);
+        }
+    }
+
+    private void describeRun(SimulationReport report, SyntheticNetwork network, SimulationClock clock, int ticks,
+            long wallNanos) {
+        double wallSeconds = wallNanos / 1e9;
+        double simulatedSeconds = ticks * SimulationClock.MILLIS_PER_TICK / 1000.0;
+        report.put("run", "mode", options.mode)
+                .put("run", "seed", options.seed)
+                .put("run", "lines", network.lineCount())
+                .put("run", "stopsPerLine", network.stopsPerLine())
+                .put("run", "riders", options.riders)
+                .put("run", "ticks", (long) ticks)
+                .put("run", "finalTick", clock.tick())
+                .put("run", "simulatedSeconds", simulatedSeconds)
+                .put("run", "wallSeconds", wallSeconds)
+                .put("run", "ticksPerWallSecond", wallSeconds <= 0.0 ? 0.0 : ticks / wallSeconds)
+                .put("run", "speedup", wallSeconds <= 0.0 ? 0.0 : simulatedSeconds / wallSeconds);
+    }
+
+    private static void describeTicks(SimulationReport report, long[] tickNanos) {
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        long total = 0L;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+        report.put("tickMillis", "mean", sorted.length == 0 ? 0.0 : total / 1e6 / sorted.length)
+                .put("tickMillis", "p50", percentileMillis(sorted, 50.0))
+                .put("tickMillis", "p90", percentileMillis(sorted, 90.0))
+                .put("tickMillis", "p99", percentileMillis(sorted, 99.0))
+                .put("tickMillis", "p999", percentileMillis(sorted, 99.9))
+                .put("tickMillis", "max", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static void describeService(SimulationReport report, LineServiceManager services, SimulatedWorld world) {
+        long spawns = 0L;
+        long updates = 0L;
+        int activeTrains = 0;
+        int virtualTrains = 0;
+        for (LineService service : services.getServices()) {
+            spawns += service.getTotalSpawns();
+            updates += service.getTotalTrainUpdates();
+            activeTrains += service.getActiveTrains().size();
+            if (service.getVirtualTrainPool() != null) {
+                virtualTrains += service.getVirtualTrainPool().getVirtualTrainCount();
+            }
+        }
+        ConsistPool pool = services.getConsistPool();
+        report.put("service", "lines", services.getServices().size())
+                .put("service", "trainSpawns", spawns)
+                .put("service", "trainUpdates", updates)
+                .put("service", "activeTrains", activeTrains)
+                .put("service", "virtualTrains", virtualTrains)
+                .put("service", "occupiedSections", services.getBlockSectionManager().getOccupiedCount())
+                .put("service", "consistPoolHits", pool.getHitCount())
+                .put("service", "consistPoolMisses", pool.getMissCount())
+                .put("world", "cartsSpawned", world.spawnedCarts())
+                .put("world", "liveCarts", world.liveCarts())
+                .put("world", "peakLiveCarts", world.peakLiveCarts())
+                .put("world", "forcedChunks", world.forcedChunks())
+                .put("world", "peakForcedChunks", world.peakForcedChunks());
+    }
+
+    private static void describeRiders(SimulationReport report, RiderModel riders) {
+        report.put("riders", "completedTrips", riders.completedTrips())
+                .put("riders", "boardings", riders.boardings())
+                .put("riders", "stranded", riders.stranded())
+                .put("riders", "waitingAtEnd", riders.waitingRiders())
+                .put("riders", "ridingAtEnd", riders.ridingRiders())
+                .put("riders", "waitSecondsP50", riders.waitPercentileSeconds(50.0))
+                .put("riders", "waitSecondsP95", riders.waitPercentileSeconds(95.0))
+                .put("riders", "meanRideSeconds", riders.meanRideSeconds());
+    }
+
+    /**
+     * Plugin with real config-backed getters and the managers set by {@link #run()}. Only the
+     * {@link org.bukkit.plugin.java.JavaPlugin} plumbing that needs a loader is stubbed.
+     */
+    private Metro createPlugin(File dataFolder, Logger logger) throws IOException, ReflectiveOperationException {
+        // 预先放置空数据文件，管理器不会去 jar 中复制默认文件
+        Files.writeString(dataFolder.toPath().resolve("lines.yml"), "");
+        Files.writeString(dataFolder.toPath().resolve("stops.yml"), "");
+        YamlConfiguration config = loadBundledConfig();
+        config.set("service.mode", options.mode);
+        // 预算调度依赖墙钟耗时，会让两次运行做出不同的推迟决定
+        config.set("service.tick-budget-ms", 0.0);
+        config.set("service.metrics-log-interval-ticks", 0);
+        for (Map.Entry<String, Object> override : options.overrides.entrySet()) {
+            config.set(override.getKey(), override.getValue());
+        }
+
+        Metro plugin = mock(Metro.class, withSettings().defaultAnswer(Mockito.CALLS_REAL_METHODS));
+        doReturn(config).when(plugin).getConfig();
+        doReturn(logger).when(plugin).getLogger();
+        doReturn("Railway").when(plugin).getName();
+        doReturn(dataFolder).when(plugin).getDataFolder();
+        doNothing().when(plugin).saveResource(anyString(), anyBoolean());
+        ConfigFacade configFacade = new ConfigFacade(plugin);
+        configFacade.reload();
+        setField(plugin, "configFacade", configFacade);
+        setField(plugin, "saveCoordinator", new SaveCoordinator(logger, Runnable::run));
+        return plugin;
+    }
+
+    private static YamlConfiguration loadBundledConfig() throws IOException {
+        try (InputStream in = NetworkSimulation.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (in == null) {
+                throw new IOException("config.yml is not on the classpath; run test-compile first");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return YamlConfiguration.loadConfiguration(reader);
+            }
+        }
+    }
+
+    private static TravelTimeEstimator.Settings estimatorSettings(Metro plugin) {
+        return new TravelTimeEstimator.Settings() {
+            @Override
+            public boolean enabled() {
+                return plugin.isTravelTimeEnabled();
+            }
+
+            @Override
+            public double defaultSectionSeconds() {
+                return plugin.getDefaultSectionSeconds();
+            }
+
+            @Override
+            public double priorStrength() {
+                return plugin.getPriorStrength();
+            }
+
+            @Override
+            public double outlierSigma() {
+                return plugin.getOutlierSigma();
+            }
+
+            @Override
+            public double decayPerDay() {
+                return plugin.getDecayPerDay();
+            }
+        };
+    }
+
+    private static void setField(Metro plugin, String name, Object value) throws ReflectiveOperationException {
+        Field field = Metro.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(plugin, value);
+    }
+
+    private static Logger createLogger(boolean verbose) {
+        Logger logger = Logger.getLogger("RailwaySimulation");
+        logger.setUseParentHandlers(false);
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setFormatter(new SimpleFormatter());
+        Level level = verbose ? Level.INFO : Level.WARNING;
+        handler.setLevel(level);
+        logger.setLevel(level);
+        logger.addHandler(handler);
+        return logger;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Heap high-water mark and collector activity from the start of the tick loop.
+     */
+    private static final class MemoryProbe {
+        private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        private final long gcCountAtStart;
+        private final long gcMillisAtStart;
+
+        private MemoryProbe() {
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            this.gcCountAtStart = gcCount();
+            this.gcMillisAtStart = gcMillis();
+        }
+
+        private void describe(SimulationReport report) {
+            long peak = 0L;
+            for (MemoryPoolMXBean pool : heapPools) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+            report.put("memory", "peakHeapMiB", peak / (1024.0 * 1024.0))
+                    .put("memory", "gcCollections", gcCount() - gcCountAtStart)
+                    .put("memory", "gcMillis", gcMillis() - gcMillisAtStart);
+        }
+
+        private static long gcCount() {
+            long total = 0L;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0L, gc.getCollectionCount());
+            }
+            return total;
+        }
+
+        private static long gcMillis() {
+            long total = 0L;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0L, gc.getCollectionTime());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Parsed command line.
+     */
+    private static final class Options {
+        private int lines = 4;
+        private int stops = 8;
+        private int spacing = 160;
+        private int riders = 200;
+        private double hours = 1.0;
+        private String mode = "local";
+        private int headway = 90;
+        private int dwell = 100;
+        private int cars = 3;
+        private long seed = 1L;
+        private Path report = Paths.get("target", "simulation-report.json");
+        private final Map<String, Object> overrides = new LinkedHashMap<>();
+        private boolean verbose;
+        private boolean help;
+
+        private static Options parse(String[] args) {
+            Options options = new Options();
+            for (int index = 0; index < args.length; index++) {
+                String arg = args[index];
+                String value = null;
+                int equals = arg.indexOf('=');
+                if (arg.startsWith("--") && equals > 0 && !arg.startsWith("--set")) {
+                    value = arg.substring(equals + 1);
+                    arg = arg.substring(0, equals);
+                }
+                switch (arg) {
+                    case "--help", "-h" -> options.help = true;
+                    case "--verbose" -> options.verbose = true;
+                    case "--lines" -> options.lines = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--stops" -> options.stops = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--spacing" -> options.spacing = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--riders" -> options.riders = nonNegative(arg, value != null ? value : next(args, ++index, arg));
+                    case "--headway" -> options.headway = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--dwell" -> options.dwell = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--cars" -> options.cars = positive(arg, value != null ? value : next(args, ++index, arg));
+                    case "--hours" -> options.hours = hours(value != null ? value : next(args, ++index, arg));
+                    case "--mode" -> options.mode = mode(value != null ? value : next(args, ++index, arg));
+                    case "--seed" -> options.seed = number(arg, value != null ? value : next(args, ++index, arg));
+                    case "--report" -> options.report = Paths.get(value != null ? value : next(args, ++index, arg));
+                    default -> {
+                        if (arg.equals("--set") || arg.startsWith("--set=")) {
+                            String assignment = arg.equals("--set") ? next(args, ++index, arg) : arg.substring(6);
+                            options.override(assignment);
+                        } else {
+                            throw new IllegalArgumentException("Unknown option " + arg);
+                        }
+                    }
+                }
+            }
+            return options;
+        }
+
+        private void override(String assignment) {
+            int equals = assignment.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("--set expects path=value, got " + assignment);
+            }
+            overrides.put(assignment.substring(0, equals).trim(), configValue(assignment.substring(equals + 1).trim()));
+        }
+
+        private static Object configValue(String raw) {
+            if ("true".equalsIgnoreCase(raw) || "false".equalsIgnoreCase(raw)) {
+                return Boolean.parseBoolean(raw);
+            }
+            try {
+                return Integer.parseInt(raw);
+            } catch (NumberFormatException ignored) {
+                // 继续尝试小数
+            }
+            try {
+                return Double.parseDouble(raw);
+            } catch (NumberFormatException ignored) {
+                return raw;
+            }
+        }
+
+        private static String next(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            return args[index];
+        }
+
+        private static long number(String option, String raw) {
+            try {
+                return Long.parseLong(raw);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option + " expects a whole number, got " + raw);
+            }
+        }
+
+        private static int nonNegative(String option, String raw) {
+            long value = number(option, raw);
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(option + " is out of range: " + raw);
+            }
+            return (int) value;
+        }
+
+        private static int positive(String option, String raw) {
+            int value = nonNegative(option, raw);
+            if (value == 0) {
+                throw new IllegalArgumentException(option + " must be at least 1");
+            }
+            return value;
+        }
+
+        private static double hours(String raw) {
+            double hours;
+            try {
+                hours = Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--hours expects a number, got " + raw);
+            }
+            // 每 tick 的耗时都保存在内存中，上限约 1 GiB
+            if (!(hours > 0.0) || hours * TICKS_PER_HOUR > 100_000_000L) {
+                throw new IllegalArgumentException("--hours must be positive and at most "
+                        + (100_000_000L / TICKS_PER_HOUR));
+            }
+            return hours;
+        }
+
+        private static String mode(String raw) {
+            String mode = raw.toLowerCase(Locale.ROOT);
+            if (!mode.equals("local") && !mode.equals("global")) {
+                throw new IllegalArgumentException("--mode must be local or global, got " + raw);
+            }
+            return mode;
+        }
+    }
+}
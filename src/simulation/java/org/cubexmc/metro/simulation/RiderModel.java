@@ -0,0 +1,226 @@
+package org.cubexmc.metro.simulation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.virtual.VirtualTrain;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
+import org.cubexmc.metro.train.TrainInstance;
+
+/**
+ * Abstract passengers. Each rider waits at an origin stop, boards the first train that stops there,
+ * leaves it at a later stop on the same line and starts another trip after a pause.
+ *
+ * <p>Riders only observe trains: they are not player entities, so carts stay empty and the services
+ * run their empty-train paths. Trains are tracked by their virtual train id where they have one, so
+ * a rider keeps its seat when a virtual train materialises or goes back to the pool.
+ */
+final class RiderModel {
+
+    /** Longest pause between two trips of the same rider. */
+    static final long MAX_PAUSE_TICKS = 5L * 60L * 20L;
+    /** A ride longer than this counts as stranded, e.g. a train that never reaches the stop. */
+    static final long MAX_RIDE_TICKS = 2L * 60L * 60L * 20L;
+
+    private enum Phase {
+        PAUSED, WAITING, RIDING
+    }
+
+    private final Random random;
+    private final SyntheticNetwork network;
+    private final Rider[] riders;
+    private long[] waitTicks = new long[256];
+    private int completedTrips;
+    private long boardings;
+    private long stranded;
+    private long totalRideTicks;
+
+    RiderModel(SyntheticNetwork network, int riderCount, long seed) {
+        this.random = new Random(seed);
+        this.network = network;
+        this.riders = new Rider[riderCount];
+        for (int index = 0; index < riderCount; index++) {
+            riders[index] = new Rider();
+            // 起始暂停错开，客流逐步进入而不是第一 tick 全部到站
+            pause(riders[index], 0L);
+        }
+    }
+
+    /**
+     * Advance every rider against the trains currently on the network.
+     */
+    void step(long tick, Collection<LineService> services) {
+        Map<String, Map<UUID, Integer>> stoppedByLine = new HashMap<>();
+        Set<UUID> alive = new HashSet<>();
+        for (LineService service : services) {
+            stoppedByLine.put(service.getLineId(), observe(service, alive));
+        }
+        for (Rider rider : riders) {
+            switch (rider.phase) {
+                case PAUSED -> {
+                    if (tick >= rider.since) {
+                        startTrip(rider, tick);
+                    }
+                }
+                case WAITING -> board(rider, tick, stoppedByLine.get(SyntheticNetwork.lineId(rider.line)));
+                case RIDING -> ride(rider, tick, stoppedByLine.get(SyntheticNetwork.lineId(rider.line)), alive);
+                default -> throw new IllegalStateException("Unknown phase " + rider.phase);
+            }
+        }
+    }
+
+    int riderCount() {
+        return riders.length;
+    }
+
+    int completedTrips() {
+        return completedTrips;
+    }
+
+    long boardings() {
+        return boardings;
+    }
+
+    long stranded() {
+        return stranded;
+    }
+
+    int waitingRiders() {
+        return count(Phase.WAITING);
+    }
+
+    int ridingRiders() {
+        return count(Phase.RIDING);
+    }
+
+    double meanRideSeconds() {
+        return completedTrips == 0 ? 0.0 : totalRideTicks / 20.0 / completedTrips;
+    }
+
+    /**
+     * Wait time percentile over completed trips, in seconds.
+     */
+    double waitPercentileSeconds(double percentile) {
+        if (completedTrips == 0) {
+            return 0.0;
+        }
+        long[] sorted = Arrays.copyOf(waitTicks, completedTrips);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 20.0;
+    }
+
+    /**
+     * Train id to the index of the stop it is standing at, in the service's own train order so that
+     * boarding does not depend on id hashes; every train seen is added to alive.
+     */
+    private static Map<UUID, Integer> observe(LineService service, Set<UUID> alive) {
+        Map<UUID, Integer> stopped = new LinkedHashMap<>();
+        for (TrainInstance train : service.getActiveTrains()) {
+            UUID id = train.getVirtualTrainId() != null ? train.getVirtualTrainId() : train.getId();
+            int index = train.getNavigator().getCurrentIndex();
+            alive.add(id);
+            TrainInstance.TrainState state = train.getState();
+            if (state == TrainInstance.TrainState.WAITING || state == TrainInstance.TrainState.TERMINATING) {
+                stopped.put(id, index);
+            }
+        }
+        VirtualTrainPool pool = service.getVirtualTrainPool();
+        if (pool != null) {
+            List<VirtualTrain> virtualTrains = pool.getVirtualTrains();
+            for (VirtualTrain train : virtualTrains) {
+                if (pool.isMaterialized(train.getId())) {
+                    continue;
+                }
+                alive.add(train.getId());
+                if (train.getState() == VirtualTrain.State.WAITING) {
+                    stopped.put(train.getId(), train.getCurrentStopIndex());
+                }
+            }
+        }
+        return stopped;
+    }
+
+    private void startTrip(Rider rider, long tick) {
+        int stops = network.stopsPerLine();
+        rider.line = random.nextInt(network.lineCount());
+        rider.origin = random.nextInt(stops - 1);
+        rider.destination = rider.origin + 1 + random.nextInt(stops - 1 - rider.origin);
+        rider.phase = Phase.WAITING;
+        rider.since = tick;
+        rider.train = null;
+    }
+
+    private void board(Rider rider, long tick, Map<UUID, Integer> stopped) {
+        if (stopped == null) {
+            return;
+        }
+        for (Map.Entry<UUID, Integer> entry : stopped.entrySet()) {
+            if (entry.getValue() == rider.origin) {
+                rider.phase = Phase.RIDING;
+                rider.train = entry.getKey();
+                rider.waited = tick - rider.since;
+                rider.since = tick;
+                boardings++;
+                return;
+            }
+        }
+    }
+
+    private void ride(Rider rider, long tick, Map<UUID, Integer> stopped, Set<UUID> alive) {
+        Integer at = stopped == null ? null : stopped.get(rider.train);
+        if (at != null && at == rider.destination) {
+            recordTrip(rider.waited, tick - rider.since);
+            pause(rider, tick);
+            return;
+        }
+        if (!alive.contains(rider.train) || tick - rider.since > MAX_RIDE_TICKS) {
+            stranded++;
+            pause(rider, tick);
+        }
+    }
+
+    private void recordTrip(long waited, long rode) {
+        if (completedTrips == waitTicks.length) {
+            waitTicks = Arrays.copyOf(waitTicks, completedTrips * 2);
+        }
+        waitTicks[completedTrips++] = waited;
+        totalRideTicks += rode;
+    }
+
+    private void pause(Rider rider, long tick) {
+        rider.phase = Phase.PAUSED;
+        rider.since = tick + 1L + (long) (random.nextDouble() * MAX_PAUSE_TICKS);
+        rider.train = null;
+    }
+
+    private int count(Phase phase) {
+        int count = 0;
+        for (Rider rider : riders) {
+            if (rider.phase == phase) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Rider {
+        private Phase phase;
+        private int line;
+        private int origin;
+        private int destination;
+        /** Tick the current phase started, or for a pause the tick it ends. */
+        private long since;
+        private long waited;
+        private UUID train;
+    }
+}
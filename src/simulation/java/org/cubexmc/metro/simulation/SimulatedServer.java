@@ -0,0 +1,93 @@
+package org.cubexmc.metro.simulation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.PluginManager;
+
+/**
+ * The {@link Server} behind {@link Bukkit} during a simulation: the simulated scheduler and
+ * worlds, no players and a plugin manager that only counts the events fired through it.
+ */
+final class SimulatedServer {
+
+    private final Map<String, SimulatedWorld> worlds = new LinkedHashMap<>();
+    private final Map<String, Long> firedEvents = new LinkedHashMap<>();
+    private final Server server;
+
+    private SimulatedServer(SimulationClock clock, Logger logger) {
+        Object scheduler = clock.scheduler();
+        PluginManager pluginManager = Proxies.proxy(PluginManager.class, (proxy, method, args) -> {
+            if ("callEvent".equals(method.getName())) {
+                firedEvents.merge(((Event) args[0]).getEventName(), 1L, Long::sum);
+                return null;
+            }
+            return Proxies.defaultValue(proxy, method, args);
+        });
+        this.server = Proxies.proxy(Server.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "RailwaySimulation";
+            case "getVersion" -> "simulation";
+            case "getBukkitVersion" -> "1.18.2-R0.1-SNAPSHOT";
+            case "getLogger" -> logger;
+            case "getScheduler" -> scheduler;
+            case "getPluginManager" -> pluginManager;
+            case "isPrimaryThread" -> true;
+            case "getOnlinePlayers" -> List.of();
+            case "getWorlds" -> worldList();
+            case "getWorld" -> findWorld(args[0]);
+            default -> Proxies.defaultValue(proxy, method, args);
+        });
+    }
+
+    /**
+     * Install a simulated server as the JVM-wide {@link Bukkit} server. Bukkit allows this once per
+     * JVM, so one process runs one simulation.
+     */
+    static SimulatedServer install(SimulationClock clock, Logger logger) {
+        if (Bukkit.getServer() != null) {
+            throw new IllegalStateException("A Bukkit server is already installed in this JVM");
+        }
+        SimulatedServer simulated = new SimulatedServer(clock, logger);
+        Bukkit.setServer(simulated.server);
+        return simulated;
+    }
+
+    void addWorld(SimulatedWorld world) {
+        worlds.put(world.name(), world);
+    }
+
+    List<SimulatedWorld> worlds() {
+        return List.copyOf(worlds.values());
+    }
+
+    /**
+     * Event name to number of times it was fired.
+     */
+    Map<String, Long> firedEvents() {
+        return Map.copyOf(firedEvents);
+    }
+
+    private List<World> worldList() {
+        List<World> list = new ArrayList<>();
+        for (SimulatedWorld world : worlds.values()) {
+            list.add(world.world());
+        }
+        return list;
+    }
+
+    private World findWorld(Object key) {
+        for (SimulatedWorld world : worlds.values()) {
+            if (world.name().equals(key) || world.world().getUID().equals(key)) {
+                return world.world();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,280 @@
+package org.cubexmc.metro.simulation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Rail;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Minecart;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.util.Vector;
+
+/**
+ * Headless world: rail blocks come from a {@link RailLayout}, every chunk counts as loaded and
+ * minecarts are plain state holders that move only when the service code teleports them.
+ */
+final class SimulatedWorld {
+
+    /**
+     * Rail shape at a block position, or null for air.
+     */
+    @FunctionalInterface
+    interface RailLayout {
+        Rail.Shape shapeAt(int x, int y, int z);
+    }
+
+    private static final double DEFAULT_MAX_SPEED = 0.4;
+
+    private final String name;
+    private final UUID uid;
+    private final RailLayout layout;
+    private final World world;
+    private final BlockData airData;
+    private final Map<Rail.Shape, Rail> railData = new EnumMap<>(Rail.Shape.class);
+    private final Map<UUID, Minecart> liveCarts = new LinkedHashMap<>();
+    private final Set<Long> forcedChunks = new HashSet<>();
+    private long nextEntityId = 1L;
+    private long spawnedCarts;
+    private int peakLiveCarts;
+    private int peakForcedChunks;
+
+    SimulatedWorld(String name, RailLayout layout) {
+        this.name = name;
+        this.uid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        this.layout = layout;
+        this.airData = Proxies.proxy(BlockData.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getMaterial" -> Material.AIR;
+            case "clone" -> proxy;
+            default -> Proxies.defaultValue(proxy, method, args);
+        });
+        this.world = Proxies.proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "getUID" -> uid;
+            case "getMinHeight" -> 0;
+            case "getMaxHeight" -> 256;
+            case "getTime", "getFullTime" -> 6000L;
+            case "getEnvironment" -> World.Environment.NORMAL;
+            case "getSpawnLocation" -> new Location((World) proxy, 0.5, 64.0, -63.5);
+            case "getBlockAt" -> args.length == 1
+                    ? block(((Location) args[0]).getBlockX(), ((Location) args[0]).getBlockY(),
+                            ((Location) args[0]).getBlockZ())
+                    : block((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+            case "isChunkLoaded", "loadChunk" -> method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+            case "setChunkForceLoaded" -> {
+                forceChunk((Integer) args[0], (Integer) args[1], (Boolean) args[2]);
+                yield null;
+            }
+            case "isChunkForceLoaded" -> forcedChunks.contains(chunkKey((Integer) args[0], (Integer) args[1]));
+            case "getPlayers" -> List.of();
+            case "getEntities", "getLivingEntities" -> new ArrayList<>(liveCarts.values());
+            case "spawn" -> spawnCart((Location) args[0], args.length > 2 ? args[2] : null);
+            case "spawnEntity" -> spawnCart((Location) args[0], null);
+            default -> Proxies.defaultValue(proxy, method, args);
+        });
+    }
+
+    World world() {
+        return world;
+    }
+
+    String name() {
+        return name;
+    }
+
+    long spawnedCarts() {
+        return spawnedCarts;
+    }
+
+    int liveCarts() {
+        return liveCarts.size();
+    }
+
+    int peakLiveCarts() {
+        return peakLiveCarts;
+    }
+
+    int forcedChunks() {
+        return forcedChunks.size();
+    }
+
+    int peakForcedChunks() {
+        return peakForcedChunks;
+    }
+
+    private void forceChunk(int chunkX, int chunkZ, boolean forced) {
+        long key = chunkKey(chunkX, chunkZ);
+        if (forced) {
+            forcedChunks.add(key);
+            peakForcedChunks = Math.max(peakForcedChunks, forcedChunks.size());
+        } else {
+            forcedChunks.remove(key);
+        }
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) ^ (chunkZ & 0xffffffffL);
+    }
+
+    private Block block(int x, int y, int z) {
+        Rail.Shape shape = layout.shapeAt(x, y, z);
+        return Proxies.proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getX" -> x;
+            case "getY" -> y;
+            case "getZ" -> z;
+            case "getWorld" -> world;
+            case "getType" -> shape == null ? Material.AIR : Material.RAIL;
+            case "getBlockData" -> shape == null ? airData : railData(shape);
+            case "isEmpty", "isPassable" -> shape == null;
+            case "getLocation" -> args == null || args.length == 0 ? new Location(world, x, y, z) : null;
+            case "getRelative" -> args[0] instanceof BlockFace face
+                    ? block(x + face.getModX(), y + face.getModY(), z + face.getModZ())
+                    : block(x + (Integer) args[0], y + (Integer) args[1], z + (Integer) args[2]);
+            default -> Proxies.defaultValue(proxy, method, args);
+        });
+    }
+
+    private Rail railData(Rail.Shape shape) {
+        return railData.computeIfAbsent(shape, key -> Proxies.proxy(Rail.class, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "getShape" -> key;
+                    case "getMaterial" -> Material.RAIL;
+                    case "clone" -> proxy;
+                    default -> Proxies.defaultValue(proxy, method, args);
+                }));
+    }
+
+    @SuppressWarnings({"unchecked", "deprecation"})
+    private Minecart spawnCart(Location location, Object configurer) {
+        Minecart cart = new CartState(location).entity;
+        if (configurer instanceof java.util.function.Consumer<?> consumer) {
+            ((java.util.function.Consumer<Object>) consumer).accept(cart);
+        } else if (configurer instanceof org.bukkit.util.Consumer<?> consumer) {
+            ((org.bukkit.util.Consumer<Object>) consumer).accept(cart);
+        }
+        return cart;
+    }
+
+    /**
+     * Position, velocity and tags of one simulated minecart.
+     */
+    private final class CartState {
+        private final UUID id;
+        private final int entityId;
+        private final Map<NamespacedKey, Object> tags = new HashMap<>();
+        private final Minecart entity;
+        private final PersistentDataContainer container;
+        private Location location;
+        private Vector velocity = new Vector();
+        private double maxSpeed = DEFAULT_MAX_SPEED;
+        private boolean dead;
+
+        private CartState(Location spawnAt) {
+            // 按生成顺序编号，同一输入的多次运行得到相同的实体 id
+            this.entityId = (int) nextEntityId;
+            this.id = new UUID(0L, nextEntityId++);
+            this.location = relocate(spawnAt);
+            this.container = Proxies.proxy(PersistentDataContainer.class, (proxy, method, args) ->
+                    switch (method.getName()) {
+                        case "set" -> {
+                            tags.put((NamespacedKey) args[0], args[2]);
+                            yield null;
+                        }
+                        case "get" -> tags.get((NamespacedKey) args[0]);
+                        case "getOrDefault" -> tags.getOrDefault((NamespacedKey) args[0], args[2]);
+                        case "has" -> tags.containsKey((NamespacedKey) args[0]);
+                        case "remove" -> {
+                            tags.remove((NamespacedKey) args[0]);
+                            yield null;
+                        }
+                        case "getKeys" -> Set.copyOf(tags.keySet());
+                        case "isEmpty" -> tags.isEmpty();
+                        default -> Proxies.defaultValue(proxy, method, args);
+                    });
+            this.entity = Proxies.proxy(Minecart.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getLocation" -> location(args);
+                case "getVelocity" -> velocity.clone();
+                case "setVelocity" -> {
+                    velocity = ((Vector) args[0]).clone();
+                    yield null;
+                }
+                case "teleport" -> teleport(args[0]);
+                case "setRotation" -> {
+                    location.setYaw((Float) args[0]);
+                    location.setPitch((Float) args[1]);
+                    yield null;
+                }
+                case "getWorld" -> world;
+                case "getUniqueId" -> id;
+                case "getEntityId" -> entityId;
+                case "getType" -> EntityType.MINECART;
+                case "isDead" -> dead;
+                case "isValid" -> !dead;
+                case "remove" -> {
+                    remove();
+                    yield null;
+                }
+                case "getMaxSpeed" -> maxSpeed;
+                case "setMaxSpeed" -> {
+                    maxSpeed = (Double) args[0];
+                    yield null;
+                }
+                case "getPassengers", "getNearbyEntities" -> List.of();
+                case "isEmpty" -> true;
+                case "getPersistentDataContainer" -> container;
+                default -> Proxies.defaultValue(proxy, method, args);
+            });
+            liveCarts.put(id, entity);
+            spawnedCarts++;
+            peakLiveCarts = Math.max(peakLiveCarts, liveCarts.size());
+        }
+
+        private Location location(Object[] args) {
+            if (args != null && args.length == 1 && args[0] instanceof Location target) {
+                target.setWorld(world);
+                target.setX(location.getX());
+                target.setY(location.getY());
+                target.setZ(location.getZ());
+                target.setYaw(location.getYaw());
+                target.setPitch(location.getPitch());
+                return target;
+            }
+            return location.clone();
+        }
+
+        private boolean teleport(Object target) {
+            if (dead) {
+                return false;
+            }
+            Location destination = target instanceof Location at ? at : ((Entity) target).getLocation();
+            location = relocate(destination);
+            return true;
+        }
+
+        private void remove() {
+            if (!dead) {
+                dead = true;
+                liveCarts.remove(id);
+            }
+        }
+
+        private Location relocate(Location at) {
+            return new Location(world, at.getX(), at.getY(), at.getZ(), at.getYaw(), at.getPitch());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.cubexmc.metro.simulation;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Simulated server tick plus the task queue behind the simulated {@link BukkitScheduler}.
+ *
+ * <p>Nothing runs on its own: {@link #advance()} moves the tick forward by one and runs every task
+ * that became due, ordered by due tick and then by submission. Async submissions run on the same
+ * thread like sync ones, so a run only depends on its inputs. A task that throws is counted and
+ * logged once per distinct failure, and the tick carries on.
+ */
+final class SimulationClock {
+
+    static final long MILLIS_PER_TICK = 50L;
+
+    private final Logger logger;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Task task) -> task.dueTick).thenComparingLong(task -> task.sequence));
+    private final Map<Integer, Task> tasksById = new HashMap<>();
+    private final Map<String, Long> failures = new TreeMap<>();
+    private long tick;
+    private long nextSequence;
+    private int nextTaskId = 1;
+    private long executedTasks;
+    private long failureCount;
+
+    SimulationClock(Logger logger) {
+        this.logger = logger;
+    }
+
+    long tick() {
+        return tick;
+    }
+
+    /**
+     * Wall clock that follows the simulated tick, for code that timestamps samples.
+     */
+    Clock asClock(Instant origin) {
+        return new TickClock(origin, ZoneOffset.UTC);
+    }
+
+    BukkitScheduler scheduler() {
+        return Proxies.proxy(BukkitScheduler.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("runTask") || name.startsWith("scheduleSync")) {
+                Task task = submit(method, args);
+                return method.getReturnType() == int.class ? task.getTaskId() : task;
+            }
+            switch (name) {
+                case "callSyncMethod":
+                    FutureTask<Object> future = new FutureTask<>(castCallable(args[1]));
+                    schedule((Plugin) args[0], task -> future.run(), 0L, -1L);
+                    return future;
+                case "cancelTask":
+                    Task cancelled = tasksById.get((Integer) args[0]);
+                    if (cancelled != null) {
+                        cancelled.cancel();
+                    }
+                    return null;
+                case "cancelTasks":
+                    for (Task task : tasksById.values().toArray(new Task[0])) {
+                        if (task.owner == args[0]) {
+                            task.cancel();
+                        }
+                    }
+                    return null;
+                case "isCurrentlyRunning":
+                case "isQueued":
+                    return tasksById.containsKey((Integer) args[0]);
+                default:
+                    return Proxies.defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    Task schedule(Plugin owner, Consumer<Task> body, long delay, long period) {
+        Task task = new Task(nextTaskId++, owner, body, period);
+        task.dueTick = tick + Math.max(1L, delay);
+        task.sequence = nextSequence++;
+        tasksById.put(task.id, task);
+        queue.add(task);
+        return task;
+    }
+
+    /**
+     * Move to the next tick and run the tasks due on it, including ones they schedule for the same tick.
+     */
+    void advance() {
+        tick++;
+        while (!queue.isEmpty() && queue.peek().dueTick <= tick) {
+            Task task = queue.poll();
+            if (task.cancelled) {
+                continue;
+            }
+            run(task);
+            if (task.period > 0L && !task.cancelled) {
+                task.dueTick = tick + task.period;
+                task.sequence = nextSequence++;
+                queue.add(task);
+            } else {
+                tasksById.remove(task.id);
+            }
+        }
+    }
+
+    int pendingTaskCount() {
+        return tasksById.size();
+    }
+
+    long executedTaskCount() {
+        return executedTasks;
+    }
+
+    long failureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Failure signature (exception type and throwing frame) to number of occurrences.
+     */
+    Map<String, Long> failures() {
+        return Map.copyOf(failures);
+    }
+
+    private void run(Task task) {
+        executedTasks++;
+        try {
+            task.body.accept(task);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            failureCount++;
+            String signature = signature(e);
+            if (failures.merge(signature, 1L, Long::sum) == 1L) {
+                logger.log(Level.WARNING, "Task failed at tick " + tick + ": " + signature, e);
+            }
+        }
+    }
+
+    private Task submit(Method method, Object[] args) {
+        Plugin owner = (Plugin) args[0];
+        long delay = args.length > 2 ? (Long) args[2] : 0L;
+        long period = -1L;
+        if (args.length > 3) {
+            // 与 CraftScheduler 一致：周期 0 视为每 tick
+            period = Math.max(1L, (Long) args[3]);
+        }
+        return schedule(owner, body(args[1]), delay, period);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<Task> body(Object task) {
+        if (task instanceof Runnable runnable) {
+            return ignored -> runnable.run();
+        }
+        Consumer<? super BukkitTask> consumer = (Consumer<? super BukkitTask>) task;
+        return consumer::accept;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Callable<Object> castCallable(Object callable) {
+        return (Callable<Object>) callable;
+    }
+
+    private static String signature(Throwable error) {
+        StackTraceElement origin = null;
+        for (StackTraceElement frame : error.getStackTrace()) {
+            if (frame.getClassName().startsWith("org.cubexmc.metro.")) {
+                origin = frame;
+                break;
+            }
+        }
+        if (origin == null && error.getStackTrace().length > 0) {
+            origin = error.getStackTrace()[0];
+        }
+        return error.getClass().getName() + (origin == null ? "" : " at " + origin);
+    }
+
+    /**
+     * One scheduled task; also the {@link BukkitTask} handed back to the scheduling code.
+     */
+    final class Task implements BukkitTask {
+        private final int id;
+        private final Plugin owner;
+        private final Consumer<Task> body;
+        private final long period;
+        private long dueTick;
+        private long sequence;
+        private boolean cancelled;
+
+        private Task(int id, Plugin owner, Consumer<Task> body, long period) {
+            this.id = id;
+            this.owner = owner;
+            this.body = body;
+            this.period = period;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        @Override
+        public boolean isSync() {
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            tasksById.remove(id);
+        }
+    }
+
+    private final class TickClock extends Clock {
+        private final Instant origin;
+        private final ZoneId zone;
+
+        private TickClock(Instant origin, ZoneId zone) {
+            this.origin = origin;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new TickClock(origin, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return origin.plusMillis(tick * MILLIS_PER_TICK);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.cubexmc.metro.simulation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Result of one run, grouped into named sections of metrics. Printed as text and written as JSON
+ * so that runs can be compared by hand or by a script.
+ */
+final class SimulationReport {
+
+    private final Map<String, Map<String, Object>> sections = new LinkedHashMap<>();
+
+    /**
+     * Add a metric; sections and metrics keep the order they were first added in.
+     */
+    SimulationReport put(String section, String metric, Object value) {
+        sections.computeIfAbsent(section, key -> new LinkedHashMap<>()).put(metric, value);
+        return this;
+    }
+
+    Object get(String section, String metric) {
+        Map<String, Object> metrics = sections.get(section);
+        return metrics == null ? null : metrics.get(metric);
+    }
+
+    String toText() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            out.append(section.getKey()).append('\n');
+            for (Map.Entry<String, Object> metric : section.getValue().entrySet()) {
+                out.append("  ").append(metric.getKey()).append(": ").append(format(metric.getValue())).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    String toJson() {
+        StringBuilder out = new StringBuilder("{\n");
+        int sectionIndex = 0;
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            out.append("  ").append(quote(section.getKey())).append(": {\n");
+            int metricIndex = 0;
+            for (Map.Entry<String, Object> metric : section.getValue().entrySet()) {
+                out.append("    ").append(quote(metric.getKey())).append(": ").append(json(metric.getValue()));
+                out.append(++metricIndex < section.getValue().size() ? ",\n" : "\n");
+            }
+            out.append("  }").append(++sectionIndex < sections.size() ? ",\n" : "\n");
+        }
+        return out.append("}\n").toString();
+    }
+
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return String.format(Locale.ROOT, "%.3f", ((Number) value).doubleValue());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.isEmpty() ? "none" : map.toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static String json(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? String.format(Locale.ROOT, "%.3f", number) : "null";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Map<?, ?> map) {
+            StringBuilder out = new StringBuilder("{");
+            int index = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.append(index++ == 0 ? "" : ", ").append(quote(String.valueOf(entry.getKey())))
+                        .append(": ").append(json(entry.getValue()));
+            }
+            return out.append('}').toString();
+        }
+        return quote(value.toString());
+    }
+
+    private static String quote(String text) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int index = 0; index < text.length(); index++) {
+            char c = text.charAt(index);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,95 @@
+package org.cubexmc.metro.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.Rail;
+import org.cubexmc.metro.manager.LineManager;
+import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.model.Line;
+
+/**
+ * Generated network: parallel east-bound lines, each a straight rail with evenly spaced stops.
+ * Lines never cross, so every line is served independently and a run scales with its arguments.
+ */
+final class SyntheticNetwork {
+
+    static final int RAIL_Y = 64;
+    static final int LINE_SPACING = 32;
+    /** Rail laid before the first and past the last stop, for the launch and the terminal overrun. */
+    static final int RUN_OFF = 48;
+
+    private final int lineCount;
+    private final int stopsPerLine;
+    private final int stopSpacing;
+
+    SyntheticNetwork(int lineCount, int stopsPerLine, int stopSpacing) {
+        if (lineCount < 1 || stopsPerLine < 2 || stopSpacing < 16) {
+            throw new IllegalArgumentException("A network needs at least 1 line, 2 stops per line and 16 blocks between stops");
+        }
+        this.lineCount = lineCount;
+        this.stopsPerLine = stopsPerLine;
+        this.stopSpacing = stopSpacing;
+    }
+
+    int lineCount() {
+        return lineCount;
+    }
+
+    int stopsPerLine() {
+        return stopsPerLine;
+    }
+
+    static String lineId(int line) {
+        return "sim" + line;
+    }
+
+    static String stopId(int line, int stop) {
+        return "sim" + line + "_" + stop;
+    }
+
+    SimulatedWorld.RailLayout layout() {
+        int lastX = (stopsPerLine - 1) * stopSpacing + RUN_OFF;
+        return (x, y, z) -> {
+            if (y != RAIL_Y || z < 0 || z % LINE_SPACING != 0 || z / LINE_SPACING >= lineCount) {
+                return null;
+            }
+            return x >= -RUN_OFF && x <= lastX ? Rail.Shape.EAST_WEST : null;
+        };
+    }
+
+    /**
+     * Create the stops and lines through the managers, the same way the commands do.
+     */
+    List<String> populate(World world, StopManager stopManager, LineManager lineManager, int headwaySeconds,
+            int dwellTicks, int trainCars) {
+        List<String> lineIds = new ArrayList<>(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            String lineId = lineId(line);
+            int z = line * LINE_SPACING;
+            lineManager.createLine(lineId, "Simulated Line " + line, null);
+            lineManager.setLineWorldName(lineId, world.getName());
+            for (int stop = 0; stop < stopsPerLine; stop++) {
+                String stopId = stopId(line, stop);
+                int x = stop * stopSpacing;
+                stopManager.createStop(stopId, "Stop " + line + "-" + stop,
+                        new Location(world, x - 4, RAIL_Y - 1, z - 2), new Location(world, x + 4, RAIL_Y + 2, z + 2),
+                        null);
+                // yaw -90 朝 +x（东）发车
+                stopManager.setStopPoint(stopId, new Location(world, x, RAIL_Y, z), -90.0f);
+                lineManager.addStopToLine(lineId, stopId, -1);
+            }
+            Line model = lineManager.getLine(lineId);
+            // 与 setheadway / setdwell / setcarts 命令相同的取值范围
+            model.setHeadwaySeconds(Math.max(10, headwaySeconds));
+            model.setDwellTicks(Math.max(20, dwellTicks));
+            model.setTrainCars(Math.max(1, Math.min(32, trainCars)));
+            model.setServiceEnabled(true);
+            lineManager.saveConfig(lineId);
+            lineIds.add(lineId);
+        }
+        return lineIds;
+    }
+}
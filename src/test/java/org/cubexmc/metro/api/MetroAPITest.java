@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +25,7 @@ import org.bukkit.entity.Player;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.config.ConfigFacade;
 import org.cubexmc.metro.integration.VaultIntegration;
+import org.cubexmc.metro.manager.ChangeJournal;
 import org.cubexmc.metro.manager.LineManager;
 import org.cubexmc.metro.manager.PortalManager;
 import org.cubexmc.metro.manager.StopManager;
@@ -258,6 +260,40 @@ class MetroAPITest {
         assertEquals(List.of(portalSnapshot), api.getPortalSnapshots());
     }
 
+    @Test
+    void snapshotListsShouldOnlyRebuildChangedEntriesAndReportDeltas() {
+        ChangeJournal journal = new ChangeJournal();
+        Line red = new Line("red", "Red");
+        Line blue = new Line("blue", "Blue");
+        when(lineManager.getChangeJournal()).thenReturn(journal);
+        when(lineManager.getAllLines()).thenReturn(List.of(red, blue));
+        when(lineManager.getLine("red")).thenReturn(red);
+        when(lineManager.getLine("blue")).thenReturn(blue);
+
+        MetroAPI.Changes<MetroAPI.LineSnapshot> initial = api.getLineChangesSince(0L);
+        assertFalse(initial.complete());
+        assertEquals(2, initial.changed().size());
+        List<MetroAPI.LineSnapshot> first = api.getLineSnapshots();
+        assertSame(first, api.getLineSnapshots());
+
+        red.setName("Red Line");
+        journal.recordChanged("red");
+        when(lineManager.getLine("blue")).thenReturn(null);
+        journal.recordRemoved("blue");
+
+        MetroAPI.Changes<MetroAPI.LineSnapshot> delta = api.getLineChangesSince(initial.version());
+        assertTrue(delta.complete());
+        assertEquals(List.of("red"), delta.changed().stream().map(MetroAPI.LineSnapshot::id).toList());
+        assertEquals(Set.of("blue"), delta.removedIds());
+        assertEquals(journal.version(), delta.version());
+
+        List<MetroAPI.LineSnapshot> second = api.getLineSnapshots();
+        assertEquals(1, second.size());
+        assertEquals("Red Line", second.get(0).name());
+        // 增量刷新不再全量读取 getAllLines
+        verify(lineManager, org.mockito.Mockito.times(1)).getAllLines();
+    }
+
     @Test
     void snapshotsShouldReturnNullForMissingEntries() {
         assertNull(api.getLineSnapshot("missing"));
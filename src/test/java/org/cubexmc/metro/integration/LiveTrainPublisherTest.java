@@ -0,0 +1,80 @@
+package org.cubexmc.metro.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class LiveTrainPublisherTest {
+
+    @Test
+    void firstSnapshotPublishesEveryMarker() {
+        LiveTrainPublisher publisher = new LiveTrainPublisher(20L, 1.0, 16);
+
+        LiveTrainBatch batch = publisher.poll(snapshot(1L, marker("a", 0.0), marker("b", 10.0)), 20L);
+
+        assertNotNull(batch);
+        assertEquals(2, batch.upserts().size());
+        assertTrue(batch.removals().isEmpty());
+        assertEquals(2, publisher.getPublishedCount());
+    }
+
+    @Test
+    void snapshotsInsideRateCapAreSkipped() {
+        LiveTrainPublisher publisher = new LiveTrainPublisher(40L, 1.0, 16);
+        publisher.poll(snapshot(1L, marker("a", 0.0)), 20L);
+
+        assertNull(publisher.poll(snapshot(2L, marker("a", 5.0)), 40L));
+        LiveTrainBatch batch = publisher.poll(snapshot(3L, marker("a", 6.0)), 60L);
+
+        assertNotNull(batch);
+        assertEquals(6.0, batch.upserts().get(0).x());
+    }
+
+    @Test
+    void smallMovesAreSuppressedAndVanishedTrainsRemoved() {
+        LiveTrainPublisher publisher = new LiveTrainPublisher(1L, 2.0, 16);
+        publisher.poll(snapshot(1L, marker("a", 0.0), marker("b", 0.0)), 1L);
+
+        LiveTrainBatch batch = publisher.poll(snapshot(2L, marker("a", 0.5)), 2L);
+
+        assertNotNull(batch);
+        assertTrue(batch.upserts().isEmpty());
+        assertEquals(Set.of("b"), batch.removals());
+        assertNull(publisher.poll(snapshot(3L, marker("a", 1.0)), 3L));
+    }
+
+    @Test
+    void sameVersionIsNeverPublishedTwice() {
+        LiveTrainPublisher publisher = new LiveTrainPublisher(1L, 0.0, 16);
+        LiveTrainSnapshot snapshot = snapshot(7L, marker("a", 0.0));
+
+        assertNotNull(publisher.poll(snapshot, 1L));
+        assertNull(publisher.poll(snapshot, 100L));
+    }
+
+    @Test
+    void markerCapLimitsBatchAndResetClearsLayer() {
+        LiveTrainPublisher publisher = new LiveTrainPublisher(1L, 0.0, 2);
+
+        LiveTrainBatch batch = publisher.poll(snapshot(1L, marker("a", 0.0), marker("b", 0.0), marker("c", 0.0)), 1L);
+        LiveTrainBatch cleared = publisher.reset();
+
+        assertEquals(2, batch.upserts().size());
+        assertEquals(Set.of("a", "b"), cleared.removals());
+        assertEquals(0, publisher.getPublishedCount());
+    }
+
+    private static LiveTrainSnapshot snapshot(long version, LiveTrainMarker... markers) {
+        return new LiveTrainSnapshot(version, version, List.of(markers));
+    }
+
+    private static LiveTrainMarker marker(String id, double x) {
+        return new LiveTrainMarker(id, "red", "Red", "world", x, 64.0, 0.0, MapLineColor.WHITE, false);
+    }
+}
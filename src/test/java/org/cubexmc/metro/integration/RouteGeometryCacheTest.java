@@ -0,0 +1,123 @@
+package org.cubexmc.metro.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.model.RoutePoint;
+import org.junit.jupiter.api.Test;
+
+class RouteGeometryCacheTest {
+
+    private static final List<Double> TOLERANCES = List.of(0.0, 2.0, 50.0);
+
+    @Test
+    void zeroToleranceDropsOnlyCollinearPoints() {
+        List<RoutePoint> points = List.of(
+                point(0, 0), point(5, 0), point(10, 0), point(10, 5), point(10, 10));
+
+        List<RoutePoint> simplified = RouteSimplifier.douglasPeucker(points, 0.0);
+
+        assertEquals(List.of(point(0, 0), point(10, 0), point(10, 10)), simplified);
+    }
+
+    @Test
+    void coarserLevelsNeverHaveMorePoints() {
+        Line line = wigglyLine("red", 400);
+        RouteGeometryCache cache = new RouteGeometryCache(Runnable::run);
+
+        RouteGeometry geometry = cache.get(line, TOLERANCES);
+
+        assertEquals(3, geometry.levelCount());
+        assertTrue(geometry.level(0).size() >= geometry.level(1).size());
+        assertTrue(geometry.level(1).size() >= geometry.level(2).size());
+        assertEquals(geometry.level(0).get(0), geometry.level(2).get(0));
+        assertEquals(geometry.level(0).get(geometry.level(0).size() - 1),
+                geometry.level(2).get(geometry.level(2).size() - 1));
+        assertEquals("world", geometry.worldName());
+    }
+
+    @Test
+    void prepareRunsOnWorkerAndSkipsUnchangedRoutes() {
+        List<Runnable> queued = new ArrayList<>();
+        RouteGeometryCache cache = new RouteGeometryCache(queued::add);
+        Line line = wigglyLine("red", 50);
+
+        CompletableFuture<Void> first = cache.prepare(List.of(line), TOLERANCES);
+        assertFalse(first.isDone());
+        assertEquals(0, cache.size());
+        queued.remove(0).run();
+        assertTrue(first.isDone());
+        assertEquals(1, cache.size());
+
+        CompletableFuture<Void> second = cache.prepare(List.of(line), TOLERANCES);
+        assertTrue(second.isDone());
+        assertTrue(queued.isEmpty());
+    }
+
+    @Test
+    void changedRouteVersionRebuildsAndRemovedLinesAreDropped() {
+        RouteGeometryCache cache = new RouteGeometryCache(Runnable::run);
+        Line red = wigglyLine("red", 50);
+        Line blue = wigglyLine("blue", 50);
+        cache.prepare(List.of(red, blue), TOLERANCES);
+        RouteGeometry before = cache.get(red, TOLERANCES);
+
+        red.setRoutePoints(List.of(point(0, 0), point(100, 0)));
+        cache.prepare(List.of(red), TOLERANCES);
+        RouteGeometry after = cache.get(red, TOLERANCES);
+
+        assertNotSame(before, after);
+        assertEquals(2, after.level(0).size());
+        assertSame(after, cache.get(red, TOLERANCES));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void reloadedLineWithSameRecordingTimeRebuilds() {
+        RouteGeometryCache cache = new RouteGeometryCache(Runnable::run);
+        Line before = new Line("red", "Red");
+        before.setRoutePoints(List.of(point(0, 0), point(10, 0)));
+        before.setRouteRecordedAtEpochMillis(1_000L);
+        cache.get(before, TOLERANCES);
+
+        // 重载后同一线路是新的 Line 实例，录制时间不变但路线点已被外部改写
+        Line reloaded = new Line("red", "Red");
+        reloaded.setRoutePoints(List.of(point(0, 0), point(10, 0), point(10, 10)));
+        reloaded.setRouteRecordedAtEpochMillis(1_000L);
+
+        assertEquals(3, cache.get(reloaded, TOLERANCES).level(0).size());
+    }
+
+    @Test
+    void identicalLevelsMergeIntoOneSpan() {
+        Line line = new Line("short", "Short");
+        line.setRoutePoints(List.of(point(0, 0), point(10, 0)));
+
+        RouteGeometry geometry = new RouteGeometryCache(Runnable::run).get(line, TOLERANCES);
+
+        assertEquals(List.of(new RouteGeometry.LevelSpan(0, 2)), geometry.distinctLevels(3));
+    }
+
+    private static Line wigglyLine(String id, int length) {
+        Line line = new Line(id, id);
+        List<RoutePoint> points = new ArrayList<>();
+        for (int x = 0; x <= length; x++) {
+            // 沿 X 轴的锯齿形路线，每 8 格偏移一次 Z
+            points.add(point(x, (x / 8) % 2 == 0 ? 0 : 3));
+        }
+        line.setRoutePoints(points);
+        return line;
+    }
+
+    private static RoutePoint point(double x, double z) {
+        return new RoutePoint("world", x, 64.0, z);
+    }
+}
@@ -0,0 +1,168 @@
+package org.cubexmc.metro.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.config.ConfigFacade;
+import org.cubexmc.metro.integration.LiveTrainBatch;
+import org.cubexmc.metro.integration.LiveTrainMarker;
+import org.cubexmc.metro.integration.MapIntegration;
+import org.cubexmc.metro.integration.MapLineColor;
+import org.junit.jupiter.api.Test;
+
+class LiveTrainLayerTest {
+
+    @Test
+    void doesNotStartWhenDisabledInConfig() {
+        Fixtures fixtures = new Fixtures(false, true);
+
+        fixtures.layer.start(fixtures.integration, "BLUEMAP");
+
+        assertFalse(fixtures.layer.isRunning());
+        assertEquals(0, fixtures.scheduler.scheduled.size());
+    }
+
+    @Test
+    void threadSafeProviderReceivesBatchesOnPushExecutor() {
+        Fixtures fixtures = new Fixtures(true, true);
+        fixtures.layer.start(fixtures.integration, "BLUEMAP");
+        fixtures.markers.add(marker("a", 0.0));
+
+        fixtures.layer.sampleAndPush();
+
+        assertTrue(fixtures.layer.isRunning());
+        assertEquals(1, fixtures.executed.size());
+        fixtures.executed.remove(0).run();
+        assertEquals(1, fixtures.integration.batches.size());
+        assertEquals(1L, fixtures.layer.getLatestSnapshot().version());
+    }
+
+    @Test
+    void unsafeProviderIsPushedOnSchedulerAndSkipsWhileInFlight() {
+        Fixtures fixtures = new Fixtures(true, false);
+        fixtures.layer.start(fixtures.integration, "DYNMAP");
+        fixtures.markers.add(marker("a", 0.0));
+
+        fixtures.layer.sampleAndPush();
+        fixtures.markers.set(0, marker("a", 50.0));
+        fixtures.layer.sampleAndPush();
+
+        // 1 repeating sample task + 1 one-shot push; the second sample is dropped while the push is pending
+        assertEquals(2, fixtures.scheduler.scheduled.size());
+        assertEquals(0, fixtures.executed.size());
+        fixtures.scheduler.scheduled.get(1).run();
+        assertEquals(1, fixtures.integration.batches.size());
+        assertEquals(2L, fixtures.layer.getLatestSnapshot().version());
+    }
+
+    @Test
+    void stopCancelsSamplingAndClearsMarkers() {
+        Fixtures fixtures = new Fixtures(true, true);
+        fixtures.layer.start(fixtures.integration, "BLUEMAP");
+
+        fixtures.layer.stop();
+
+        assertFalse(fixtures.layer.isRunning());
+        assertEquals(1, fixtures.scheduler.cancelCount);
+        assertEquals(1, fixtures.integration.clearCount);
+        assertEquals(0L, fixtures.layer.getLatestSnapshot().version());
+    }
+
+    private static LiveTrainMarker marker(String id, double x) {
+        return new LiveTrainMarker(id, "red", "Red", "world", x, 64.0, 0.0, MapLineColor.WHITE, false);
+    }
+
+    private static final class Fixtures {
+        private final List<LiveTrainMarker> markers = new ArrayList<>();
+        private final List<Runnable> executed = new ArrayList<>();
+        private final RecordingScheduler scheduler = new RecordingScheduler();
+        private final RecordingIntegration integration;
+        private final LiveTrainLayer layer;
+
+        private Fixtures(boolean liveEnabled, boolean threadSafe) {
+            Metro plugin = mock(Metro.class);
+            ConfigFacade configFacade = mock(ConfigFacade.class);
+            when(plugin.getConfigFacade()).thenReturn(configFacade);
+            when(plugin.getLogger()).thenReturn(Logger.getLogger("LiveTrainLayerTest"));
+            when(configFacade.isMapLiveTrainsEnabled()).thenReturn(liveEnabled);
+            when(configFacade.getMapLiveTrainsSampleIntervalTicks()).thenReturn(20L);
+            when(configFacade.getMapLiveTrainsMinUpdateIntervalTicks(anyString())).thenReturn(20L);
+            when(configFacade.getMapLiveTrainsMinMoveBlocks()).thenReturn(1.0);
+            when(configFacade.getMapLiveTrainsMaxMarkers()).thenReturn(64);
+            this.integration = new RecordingIntegration(threadSafe);
+            this.layer = new LiveTrainLayer(plugin, scheduler, executed::add, () -> List.copyOf(markers));
+        }
+    }
+
+    private static final class RecordingScheduler implements MapIntegrationLifecycle.RefreshScheduler {
+        private final List<Runnable> scheduled = new ArrayList<>();
+        private int cancelCount;
+
+        @Override
+        public Object schedule(Metro plugin, Runnable task, long delay, long period) {
+            scheduled.add(task);
+            return task;
+        }
+
+        @Override
+        public void cancel(Object taskId) {
+            cancelCount++;
+        }
+    }
+
+    private static final class RecordingIntegration implements MapIntegration {
+        private final boolean threadSafe;
+        private final List<LiveTrainBatch> batches = new ArrayList<>();
+        private int clearCount;
+
+        private RecordingIntegration(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public void enable() {
+        }
+
+        @Override
+        public void disable() {
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean supportsLiveTrains() {
+            return true;
+        }
+
+        @Override
+        public boolean isLiveTrainUpdateThreadSafe() {
+            return threadSafe;
+        }
+
+        @Override
+        public void applyLiveTrains(LiveTrainBatch batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void clearLiveTrains() {
+            clearCount++;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.cubexmc.metro.listener;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.config.ConfigFacade;
+import org.cubexmc.metro.manager.StopManager;
+import org.cubexmc.metro.model.Stop;
+import org.junit.jupiter.api.Test;
+
+class StopPresenceTrackerTest {
+
+    @Test
+    void shouldLookUpStopsOnlyWhenTheSampledPlayerChangedBlock() {
+        Fixtures fixtures = new Fixtures();
+
+        fixtures.moveTo(10.2);
+        fixtures.tracker.sample(fixtures.player);
+        fixtures.moveTo(10.8);
+        fixtures.tracker.sample(fixtures.player);
+        fixtures.tracker.sample(fixtures.player);
+        verify(fixtures.stopManager, times(1)).getStopContainingLocation(any(Location.class));
+
+        fixtures.moveTo(11.1);
+        fixtures.tracker.sample(fixtures.player);
+        verify(fixtures.stopManager, times(2)).getStopContainingLocation(any(Location.class));
+    }
+
+    @Test
+    void shouldCachePermissionUntilTheCommandTreeIsResent() {
+        Fixtures fixtures = new Fixtures();
+        when(fixtures.player.hasPermission("railway.use")).thenReturn(false);
+
+        fixtures.tracker.sample(fixtures.player);
+        fixtures.tracker.sample(fixtures.player);
+        verify(fixtures.player, times(1)).hasPermission("railway.use");
+        verify(fixtures.stopManager, never()).getStopContainingLocation(any(Location.class));
+
+        when(fixtures.player.hasPermission("railway.use")).thenReturn(true);
+        fixtures.tracker.onPlayerCommandSend(new PlayerCommandSendEvent(fixtures.player, new ArrayList<>()));
+        fixtures.tracker.sample(fixtures.player);
+
+        verify(fixtures.player, times(2)).hasPermission("railway.use");
+        verify(fixtures.stopManager).getStopContainingLocation(any(Location.class));
+    }
+
+    @Test
+    void shouldReenterTheStopWhenPermissionReturnsWithoutMoving() {
+        Fixtures fixtures = new Fixtures();
+        Stop stop = mock(Stop.class);
+        when(stop.getId()).thenReturn("central");
+        when(fixtures.stopManager.getStopContainingLocation(any(Location.class))).thenReturn(stop);
+        when(fixtures.player.spigot()).thenReturn(mock(Player.Spigot.class));
+
+        fixtures.tracker.sample(fixtures.player);
+        verify(fixtures.stopManager, times(1)).getStopContainingLocation(any(Location.class));
+
+        when(fixtures.player.hasPermission("railway.use")).thenReturn(false);
+        fixtures.tracker.onPlayerCommandSend(new PlayerCommandSendEvent(fixtures.player, new ArrayList<>()));
+        fixtures.tracker.sample(fixtures.player);
+        verify(fixtures.player).resetTitle();
+
+        when(fixtures.player.hasPermission("railway.use")).thenReturn(true);
+        fixtures.tracker.onPlayerCommandSend(new PlayerCommandSendEvent(fixtures.player, new ArrayList<>()));
+        fixtures.tracker.sample(fixtures.player);
+
+        // 同一方块上重新查询，玩家再次进入停靠区
+        verify(fixtures.stopManager, times(2)).getStopContainingLocation(any(Location.class));
+    }
+
+    private static final class Fixtures {
+        final Metro plugin = mock(Metro.class);
+        final ConfigFacade configFacade = mock(ConfigFacade.class);
+        final StopManager stopManager = mock(StopManager.class);
+        final Player player = mock(Player.class);
+        final World world = mock(World.class);
+        final StopPresenceTracker tracker;
+        private double x = 0.5;
+
+        Fixtures() {
+            when(plugin.getConfigFacade()).thenReturn(configFacade);
+            when(plugin.getStopManager()).thenReturn(stopManager);
+            when(configFacade.getStopPresenceSampleIntervalTicks()).thenReturn(5);
+            when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+            when(player.isOnline()).thenReturn(true);
+            when(player.hasPermission("railway.use")).thenReturn(true);
+            when(player.isInsideVehicle()).thenReturn(false);
+            when(player.getLocation()).thenAnswer(invocation -> location());
+            tracker = new StopPresenceTracker(plugin);
+        }
+
+        void moveTo(double x) {
+            this.x = x;
+        }
+
+        private Location location() {
+            Location location = mock(Location.class);
+            when(location.getWorld()).thenReturn(world);
+            when(location.getBlockX()).thenReturn((int) Math.floor(x));
+            when(location.getBlockY()).thenReturn(64);
+            when(location.getBlockZ()).thenReturn(0);
+            return location;
+        }
+    }
+}
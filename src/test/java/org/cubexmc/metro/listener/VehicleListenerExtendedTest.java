@@ -6,11 +6,13 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -83,6 +85,7 @@ class VehicleListenerExtendedTest {
 
     private Minecart metroMinecart() {
         Minecart minecart = mock(Minecart.class);
+        when(minecart.getUniqueId()).thenReturn(UUID.randomUUID());
         PersistentDataContainer pdc = mock(PersistentDataContainer.class);
         when(minecart.getPersistentDataContainer()).thenReturn(pdc);
         when(pdc.has(eq(MetroConstants.getMinecartKey()), eq(PersistentDataType.BYTE))).thenReturn(true);
@@ -91,6 +94,7 @@ class VehicleListenerExtendedTest {
 
     private Minecart nonMetroMinecart() {
         Minecart minecart = mock(Minecart.class);
+        when(minecart.getUniqueId()).thenReturn(UUID.randomUUID());
         PersistentDataContainer pdc = mock(PersistentDataContainer.class);
         when(minecart.getPersistentDataContainer()).thenReturn(pdc);
         when(pdc.has(any(NamespacedKey.class), eq(PersistentDataType.BYTE))).thenReturn(false);
@@ -173,6 +177,35 @@ class VehicleListenerExtendedTest {
         }
     }
 
+    @Test
+    void shouldSkipStopAndBlockLookupsWhileCartStaysInTheSameBlock() {
+        VehicleListener listener = createListener();
+        Minecart minecart = metroMinecart();
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+
+        Location from = railLocation(Material.RAIL, 64, world);
+        Location to = railLocation(Material.POWERED_RAIL, 64, world);
+        Block support = block(Material.GOLD_BLOCK);
+        when(to.getBlock().getRelative(BlockFace.DOWN)).thenReturn(support);
+        when(configFacade.getSpeedControlMode()).thenReturn("BLOCK_BASED");
+        when(configFacade.getBlockSpeedMap()).thenReturn(Map.of("world", Map.of("GOLD_BLOCK", 2.0)));
+        when(minecart.getMaxSpeed()).thenReturn(0.4);
+
+        VehicleMoveEvent event = mock(VehicleMoveEvent.class);
+        when(event.getVehicle()).thenReturn(minecart);
+        when(event.getFrom()).thenReturn(from);
+        when(event.getTo()).thenReturn(to);
+
+        listener.onVehicleMove(event);
+        listener.onVehicleMove(event);
+        listener.onVehicleMove(event);
+
+        verify(stopManager, times(1)).getStopContainingLocation(to);
+        verify(minecart, times(1)).setMaxSpeed(0.8);
+        verify(minecart.getPersistentDataContainer(), times(1)).has(any(NamespacedKey.class), any());
+    }
+
     // ---- VehicleMoveEvent: default speed fallback when no speed map ----
 
     @Test
@@ -1,5 +1,6 @@
 package org.cubexmc.metro.listener;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -9,6 +10,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -23,6 +25,7 @@ import org.bukkit.event.vehicle.VehicleDamageEvent;
 import org.bukkit.event.vehicle.VehicleDestroyEvent;
 import org.bukkit.event.vehicle.VehicleEntityCollisionEvent;
 import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 import org.cubexmc.metro.Metro;
@@ -135,6 +138,26 @@ class VehicleListenerTest {
         verify(minecart, never()).remove();
     }
 
+    @Test
+    void shouldHandleMinecartTaggedAfterItFirstMoved() {
+        VehicleListener listener = new VehicleListener(plugin(false, false));
+        Minecart minecart = nonMetroMinecart();
+        VehicleMoveEvent event = mock(VehicleMoveEvent.class);
+        Location from = derailedLocation();
+        Location to = derailedLocation();
+        when(event.getVehicle()).thenReturn(minecart);
+        when(event.getFrom()).thenReturn(from);
+        when(event.getTo()).thenReturn(to);
+
+        listener.onVehicleMove(event);
+        when(minecart.getPersistentDataContainer().has(eq(MetroConstants.getMinecartKey()), eq(PersistentDataType.BYTE)))
+                .thenReturn(true);
+        listener.onVehicleMove(event);
+
+        verify(minecart).eject();
+        verify(minecart).remove();
+    }
+
     @Test
     void shouldEjectAndRemoveMetroMinecartWhenItDerails() {
         VehicleListener listener = new VehicleListener(plugin(false, false));
@@ -263,6 +286,31 @@ class VehicleListenerTest {
         verify(plugin.getPortalManager(), never()).teleportMinecart(minecart, portal);
     }
 
+    @Test
+    void shouldDropCartStatesOnChunkUnloadAndAfterAnIdleSweep() {
+        VehicleListener listener = new VehicleListener(plugin(false, false));
+        Minecart minecart = metroMinecart();
+        World world = mock(World.class);
+        VehicleMoveEvent move = mock(VehicleMoveEvent.class);
+        when(move.getVehicle()).thenReturn(minecart);
+        when(move.getFrom()).thenReturn(railLocation(Material.RAIL, 64, world));
+        when(move.getTo()).thenReturn(railLocation(Material.RAIL, 64, world));
+        EntitiesUnloadEvent unload = mock(EntitiesUnloadEvent.class);
+        when(unload.getEntities()).thenReturn(List.of(minecart));
+
+        listener.onVehicleMove(move);
+        assertEquals(1, listener.getCachedCartCount());
+        listener.onEntitiesUnload(unload);
+        assertEquals(0, listener.getCachedCartCount());
+
+        listener.onVehicleMove(move);
+        listener.sweepIdleStates();
+        // 第一次清理之后没有再移动，第二次清理丢弃
+        assertEquals(1, listener.getCachedCartCount());
+        listener.sweepIdleStates();
+        assertEquals(0, listener.getCachedCartCount());
+    }
+
     @Test
     void shouldNotCancelDamageWhenDamageProtectionIsDisabled() {
         VehicleListener listener = new VehicleListener(plugin(false, false));
@@ -298,6 +346,7 @@ class VehicleListenerTest {
 
     private Minecart metroMinecart() {
         Minecart minecart = mock(Minecart.class);
+        when(minecart.getUniqueId()).thenReturn(UUID.randomUUID());
         PersistentDataContainer pdc = mock(PersistentDataContainer.class);
         when(minecart.getPersistentDataContainer()).thenReturn(pdc);
         when(pdc.has(eq(MetroConstants.getMinecartKey()), eq(PersistentDataType.BYTE))).thenReturn(true);
@@ -306,6 +355,7 @@ class VehicleListenerTest {
 
     private Minecart nonMetroMinecart() {
         Minecart minecart = mock(Minecart.class);
+        when(minecart.getUniqueId()).thenReturn(UUID.randomUUID());
         PersistentDataContainer pdc = mock(PersistentDataContainer.class);
         when(minecart.getPersistentDataContainer()).thenReturn(pdc);
         when(pdc.has(any(NamespacedKey.class), eq(PersistentDataType.BYTE))).thenReturn(false);
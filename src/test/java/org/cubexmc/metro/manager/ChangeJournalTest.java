@@ -0,0 +1,56 @@
+package org.cubexmc.metro.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ChangeJournalTest {
+
+    @Test
+    void shouldReportLatestChangePerIdSinceVersion() {
+        ChangeJournal journal = new ChangeJournal();
+        long start = journal.version();
+
+        journal.recordChanged("red");
+        journal.recordChanged("blue");
+        long middle = journal.recordRemoved("red");
+        journal.recordChanged("green");
+
+        ChangeJournal.Delta all = journal.since(start);
+        assertTrue(all.complete());
+        assertEquals(Set.of("blue", "green"), all.changedIds());
+        assertEquals(Set.of("red"), all.removedIds());
+
+        ChangeJournal.Delta recent = journal.since(middle);
+        assertEquals(Set.of("green"), recent.changedIds());
+        assertEquals(Set.of(), recent.removedIds());
+
+        ChangeJournal.Delta none = journal.since(journal.version());
+        assertTrue(none.complete());
+        assertTrue(none.changedIds().isEmpty());
+    }
+
+    @Test
+    void shouldRequireFullResyncAfterResetOrOverflow() {
+        ChangeJournal journal = new ChangeJournal(2);
+        assertFalse(journal.since(0L).complete());
+
+        long start = journal.version();
+        journal.recordChanged("a");
+        journal.recordChanged("b");
+        assertTrue(journal.since(start).complete());
+        journal.recordChanged("c");
+        assertFalse(journal.since(start).complete());
+        assertTrue(journal.since(start + 1).complete());
+
+        long beforeReset = journal.version();
+        journal.recordReset();
+        assertFalse(journal.since(beforeReset).complete());
+        assertTrue(journal.since(journal.version()).complete());
+        assertFalse(journal.since(journal.version() + 1).complete());
+    }
+}
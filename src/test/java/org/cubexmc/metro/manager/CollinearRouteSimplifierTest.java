@@ -0,0 +1,79 @@
+package org.cubexmc.metro.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.cubexmc.metro.model.RoutePoint;
+import org.junit.jupiter.api.Test;
+
+class CollinearRouteSimplifierTest {
+
+    @Test
+    void streamingShouldMatchSimplifyingTheWholeRoute() {
+        Random random = new Random(47L);
+        for (int run = 0; run < 200; run++) {
+            List<RoutePoint> route = randomWalk(random, 2 + random.nextInt(120));
+            double epsilon = random.nextInt(4) * 0.1;
+
+            CollinearRouteSimplifier streaming = new CollinearRouteSimplifier(epsilon);
+            for (RoutePoint point : route) {
+                streaming.add(point);
+            }
+
+            assertEquals(referenceSimplify(route, epsilon), streaming.finish(), "run " + run);
+        }
+    }
+
+    @Test
+    void shouldOnlyHoldSurvivingPointsWhileStreaming() {
+        CollinearRouteSimplifier simplifier = new CollinearRouteSimplifier(0.15);
+        for (int x = 0; x <= 1000; x++) {
+            simplifier.add(new RoutePoint("world", x + 0.5, 64.5, 0.5));
+        }
+
+        assertEquals(2, simplifier.size());
+        assertEquals(List.of(new RoutePoint("world", 0.5, 64.5, 0.5), new RoutePoint("world", 1000.5, 64.5, 0.5)),
+                simplifier.finish());
+    }
+
+    private static List<RoutePoint> randomWalk(Random random, int size) {
+        List<RoutePoint> route = new ArrayList<>(size);
+        double x = 0.5;
+        double y = 64.5;
+        double z = 0.5;
+        int direction = 0;
+        for (int i = 0; i < size; i++) {
+            route.add(new RoutePoint(i > size / 2 && random.nextInt(40) == 0 ? "nether" : "world", x, y, z));
+            if (random.nextInt(6) == 0) {
+                direction = random.nextInt(4);
+            }
+            x += direction == 0 ? 1 : direction == 1 ? -1 : 0;
+            z += direction == 2 ? 1 : direction == 3 ? -1 : 0;
+            if (random.nextInt(10) == 0) {
+                y += random.nextBoolean() ? 1 : -1;
+            }
+            x += random.nextInt(5) == 0 ? random.nextDouble() * 0.2 - 0.1 : 0;
+        }
+        return route;
+    }
+
+    /** 原先整段处理的算法，作为对照 */
+    private static List<RoutePoint> referenceSimplify(List<RoutePoint> points, double epsilon) {
+        if (epsilon <= 0 || points.size() < 3) {
+            return points;
+        }
+        List<RoutePoint> result = new ArrayList<>();
+        result.add(points.get(0));
+        for (int i = 1; i < points.size() - 1; i++) {
+            if (!CollinearRouteSimplifier.isRedundantCollinear(result.get(result.size() - 1), points.get(i), points.get(i + 1),
+                    epsilon * epsilon)) {
+                result.add(points.get(i));
+            }
+        }
+        result.add(points.get(points.size() - 1));
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package org.cubexmc.metro.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class PackedBlockMapTest {
+
+    @Test
+    void shouldPackDistinctKeysAcrossTheWorldBorderAndBuildHeight() {
+        Set<Long> keys = new HashSet<>();
+        int[] horizontal = {-30_000_000, -1, 0, 1, 29_999_999};
+        int[] vertical = {-64, -1, 0, 1, 319};
+        for (int x : horizontal) {
+            for (int z : horizontal) {
+                for (int y : vertical) {
+                    keys.add(PackedBlockMap.pack(x, y, z));
+                }
+            }
+        }
+
+        assertEquals(horizontal.length * horizontal.length * vertical.length, keys.size());
+        assertNotEquals(PackedBlockMap.pack(1, 0, 0), PackedBlockMap.pack(0, 0, 1));
+    }
+
+    @Test
+    void shouldStoreOverwriteAndGrowWithoutLosingEntries() {
+        PackedBlockMap map = new PackedBlockMap();
+        for (int x = -5_000; x < 5_000; x++) {
+            assertEquals(PackedBlockMap.MISSING, map.put(PackedBlockMap.pack(x, 64, x >> 3), x & 7));
+        }
+
+        assertEquals(10_000, map.size());
+        assertEquals(3, map.get(PackedBlockMap.pack(-5, 64, -1)));
+        assertEquals(3, map.put(PackedBlockMap.pack(-5, 64, -1), 42));
+        assertEquals(42, map.get(PackedBlockMap.pack(-5, 64, -1)));
+        assertEquals(10_000, map.size());
+        assertFalse(map.contains(PackedBlockMap.pack(-5, 65, -1)));
+        assertEquals(PackedBlockMap.MISSING, map.get(PackedBlockMap.pack(0, 0, 0)));
+    }
+
+    @Test
+    void shouldListEveryKeyOnce() {
+        PackedBlockMap map = new PackedBlockMap(4);
+        long[] expected = {
+                PackedBlockMap.pack(0, 0, 0),
+                PackedBlockMap.pack(-1, -1, -1),
+                PackedBlockMap.pack(100, 70, -200)
+        };
+        for (long key : expected) {
+            map.put(key, 0);
+        }
+
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        Arrays.sort(expected);
+        assertTrue(Arrays.equals(expected, keys));
+    }
+}
@@ -45,6 +45,8 @@ import org.cubexmc.metro.config.ConfigFacade;
 import org.cubexmc.metro.manager.LanguageManager;
 import org.cubexmc.metro.model.Portal;
 import org.cubexmc.metro.persistence.SaveCoordinator;
+import org.cubexmc.metro.service.ConsistPool;
+import org.cubexmc.metro.service.LineServiceManager;
 import org.cubexmc.metro.util.SchedulerUtil;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -83,6 +85,25 @@ class PortalManagerTest {
         assertNull(reloaded.getPortalAt(location("world", 11, 64, 20)));
     }
 
+    @Test
+    void shouldIndexPortalEntrancesWithVerticalToleranceAndDropDeletedOnes() {
+        PortalManager manager = new PortalManager(createPluginMock(tempDir));
+        Portal lower = manager.createPortal("a", location("world", 100, 64, -40), UUID.randomUUID());
+        Portal upper = manager.createPortal("b", location("world", 100, 65, -40), UUID.randomUUID());
+
+        assertEquals(lower, manager.getPortalAt(location("world", 100.5, 63.1, -39.5)));
+        assertEquals(lower, manager.getPortalAt(location("world", 100.5, 64.1, -39.5)));
+        // 精确高度优先于相邻传送门的 ±1 容差
+        assertEquals(upper, manager.getPortalAt(location("world", 100.5, 65.1, -39.5)));
+        assertEquals(upper, manager.getPortalAt(location("world", 100.5, 66.1, -39.5)));
+        assertNull(manager.getPortalAt(location("world", 100.5, 67.1, -39.5)));
+        assertNull(manager.getPortalAt(location("nether", 100.5, 64.1, -39.5)));
+
+        assertTrue(manager.deletePortal("b"));
+        assertEquals(lower, manager.getPortalAt(location("world", 100.5, 65.1, -39.5)));
+        assertNull(manager.getPortalAt(location("world", 100.5, 66.1, -39.5)));
+    }
+
     @Test
     void shouldSavePortalChangesThroughAsyncCoordinator() throws IOException {
         PortalManager manager = new PortalManager(createPluginMock(tempDir));
@@ -321,6 +342,37 @@ class PortalManagerTest {
         verify(destWorld, never()).spawn(any(Location.class), eq(Minecart.class));
     }
 
+    @Test
+    void teleportShouldReuseParkedMinecartInsteadOfSpawning() {
+        Metro plugin = createPluginMock(tempDir);
+        LineServiceManager services = mock(LineServiceManager.class);
+        ConsistPool pool = mock(ConsistPool.class);
+        when(plugin.getLineServiceManager()).thenReturn(services);
+        when(services.getConsistPool()).thenReturn(pool);
+        PortalManager manager = new PortalManager(plugin);
+        manager.createPortal("p1", location("world", 1, 64, 1), UUID.randomUUID());
+        manager.setDestination("p1", location("dest", 10, 70, 10));
+
+        World destWorld = world("dest");
+        when(destWorld.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        Minecart sourceCart = minecartWithoutPassenger(world("world"));
+        Minecart pooledCart = mock(Minecart.class);
+        when(pooledCart.getPersistentDataContainer()).thenReturn(mock(PersistentDataContainer.class));
+        when(pool.acquire(any(Location.class))).thenReturn(pooledCart);
+
+        try (MockedStatic<Bukkit> bukkit = org.mockito.Mockito.mockStatic(Bukkit.class);
+             MockedStatic<SchedulerUtil> scheduler = org.mockito.Mockito.mockStatic(SchedulerUtil.class)) {
+            bukkit.when(() -> Bukkit.getWorld("dest")).thenReturn(destWorld);
+            executeScheduledWork(scheduler);
+
+            manager.teleportMinecart(sourceCart, manager.getPortal("p1"));
+        }
+
+        verify(destWorld, never()).spawn(any(Location.class), eq(Minecart.class));
+        verify(pooledCart).setGravity(true);
+        verify(pooledCart).setVelocity(any());
+    }
+
     @Test
     void teleportShouldNotRestorePassengerWhenNewMinecartIsInvalid() {
         Metro plugin = createPluginMock(tempDir);
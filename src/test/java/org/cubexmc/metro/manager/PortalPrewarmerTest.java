@@ -0,0 +1,110 @@
+package org.cubexmc.metro.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.Vector;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.model.Line;
+import org.cubexmc.metro.model.Portal;
+import org.cubexmc.metro.model.RoutePoint;
+import org.junit.jupiter.api.Test;
+
+class PortalPrewarmerTest {
+
+    private static final Vector EAST = new Vector(1, 0, 0);
+    private static final Vector WEST = new Vector(-1, 0, 0);
+
+    @Test
+    void shouldWarmPortalsAheadAlongTheRouteOnly() {
+        List<RoutePoint> route = straightRoute(0, 200);
+        Portal portal = portalAt(100);
+
+        assertTrue(isAhead(route, "world", 40.5, 64.0, 0.5, EAST, portal));
+        assertFalse(isAhead(route, "world", 40.5, 64.0, 0.5, WEST, portal));
+        assertFalse(isAhead(route, "world", 150.5, 64.0, 0.5, EAST, portal));
+        assertFalse(isAhead(route, "nether", 40.5, 64.0, 0.5, EAST, portal));
+    }
+
+    @Test
+    void shouldMeasureLookaheadAlongTheRouteRatherThanTheChord() {
+        // 折返的线路：入口与矿车直线距离很近，但沿线路要绕行 200 格
+        List<RoutePoint> route = new ArrayList<>(straightRoute(0, 100));
+        for (int x = 100; x >= 0; x -= 10) {
+            route.add(new RoutePoint("world", x + 0.5, 64.0, 20.5));
+        }
+        Portal portal = portalAt(0, 20);
+
+        assertFalse(isAhead(route, "world", 10.5, 64.0, 0.5, EAST, portal));
+        assertTrue(isAhead(route, "world", 70.5, 64.0, 20.5, WEST, portal));
+    }
+
+    @Test
+    void shouldFallBackToHeadingWithoutRecordedRoute() {
+        Portal portal = portalAt(50);
+
+        assertTrue(isAhead(List.of(), "world", 0.5, 64.0, 0.5, EAST, portal));
+        assertFalse(isAhead(List.of(), "world", 0.5, 64.0, 0.5, WEST, portal));
+        assertFalse(isAhead(List.of(), "world", 0.5, 64.0, 0.5, null, portal));
+    }
+
+    @Test
+    void shouldReuseRouteTrackUntilRouteChanges() {
+        PortalPrewarmer prewarmer = new PortalPrewarmer(mock(Metro.class));
+        Line line = new Line("red", "Red");
+        line.setRoutePoints(straightRoute(0, 200));
+
+        PortalPrewarmer.RouteTrack track = prewarmer.trackFor(line);
+        assertSame(track, prewarmer.trackFor(line));
+
+        line.setRoutePoints(straightRoute(0, 100));
+        PortalPrewarmer.RouteTrack rebuilt = prewarmer.trackFor(line);
+        assertNotSame(track, rebuilt);
+        assertEquals(100.0, rebuilt.arcLength(10));
+
+        Line reloaded = new Line("red", "Red");
+        reloaded.setRoutePoints(straightRoute(0, 100));
+        assertNotSame(rebuilt, prewarmer.trackFor(reloaded));
+    }
+
+    private boolean isAhead(List<RoutePoint> route, String worldName, double x, double y, double z,
+                            Vector direction, Portal portal) {
+        PortalPrewarmer.RouteTrack track = PortalPrewarmer.RouteTrack.of(route);
+        return PortalPrewarmer.isAhead(track, track.locate(worldName, x, y, z, direction), portal);
+    }
+
+    private List<RoutePoint> straightRoute(int fromX, int toX) {
+        List<RoutePoint> route = new ArrayList<>();
+        for (int x = fromX; x <= toX; x += 10) {
+            route.add(new RoutePoint("world", x + 0.5, 64.0, 0.5));
+        }
+        return route;
+    }
+
+    private Portal portalAt(int x) {
+        return portalAt(x, 0);
+    }
+
+    private Portal portalAt(int x, int z) {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Location entrance = mock(Location.class);
+        when(entrance.getWorld()).thenReturn(world);
+        when(entrance.getBlockX()).thenReturn(x);
+        when(entrance.getBlockY()).thenReturn(64);
+        when(entrance.getBlockZ()).thenReturn(z);
+        Portal portal = new Portal("p-" + x + "-" + z);
+        portal.setEntrance(entrance);
+        return portal;
+    }
+}
@@ -9,6 +9,7 @@ import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -54,15 +55,15 @@ class RailProtectionManagerTest {
         try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
             bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(world);
 
-            RailProtectionManager manager = new RailProtectionManager(plugin);
-            manager.rebuildAll();
+            RailProtectionManager manager = directManager(plugin);
+            manager.rebuildAll().join();
 
             assertEquals(3, manager.getProtectedBlockCount("red"));
             assertEquals(new RailProtectionManager.ProtectionIndexStats(5, 3, 0, 0, 0),
                     manager.getProtectionIndexStats("red"));
 
             line.setRailProtected(false);
-            manager.rebuildLine("red");
+            manager.rebuildLine("red").join();
 
             assertEquals(0, manager.getProtectedBlockCount("red"));
             assertEquals(RailProtectionManager.ProtectionIndexStats.empty(),
@@ -80,8 +81,8 @@ class RailProtectionManagerTest {
         when(lineManager.getAllLines()).thenReturn(List.of(line));
 
         try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
-            RailProtectionManager manager = new RailProtectionManager(plugin);
-            manager.rebuildAll();
+            RailProtectionManager manager = directManager(plugin);
+            manager.rebuildAll().join();
 
             assertEquals(0, manager.getProtectedBlockCount("red"));
             assertEquals(new RailProtectionManager.ProtectionIndexStats(1, 0, 1, 0, 0),
@@ -117,8 +118,8 @@ class RailProtectionManagerTest {
         try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
             bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(world);
 
-            RailProtectionManager manager = new RailProtectionManager(plugin);
-            manager.rebuildAll();
+            RailProtectionManager manager = directManager(plugin);
+            manager.rebuildAll().join();
 
             BlockBreakEvent deniedEvent = new BlockBreakEvent(rail, player(java.util.UUID.randomUUID(), false));
             manager.onBlockBreak(deniedEvent);
@@ -130,6 +131,54 @@ class RailProtectionManagerTest {
         }
     }
 
+    @Test
+    void shouldKeepServingThePreviousIndexUntilTheRebuildCompletes() {
+        Metro plugin = mock(Metro.class);
+        LineManager lineManager = mock(LineManager.class);
+        when(plugin.getLineManager()).thenReturn(lineManager);
+
+        Line line = protectedLine("red", List.of(new RoutePoint("world", 0.5, 64.0, 0.5)));
+        when(lineManager.getAllLines()).thenReturn(List.of(line));
+        when(lineManager.getLine("red")).thenReturn(line);
+
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Block rail = block(world, 0, 64, 0, Material.RAIL);
+        when(world.getBlockAt(org.mockito.ArgumentMatchers.anyInt(), org.mockito.ArgumentMatchers.anyInt(),
+                org.mockito.ArgumentMatchers.anyInt())).thenReturn(rail);
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(world);
+
+            List<Runnable> queued = new java.util.ArrayList<>();
+            RailProtectionManager manager =
+                    new RailProtectionManager(plugin, queued::add, RailProtectionManagerTest::capture);
+            CompletableFuture<Void> first = manager.rebuildAll();
+            assertEquals(1, queued.size());
+            queued.remove(0).run();
+            assertTrue(first.isDone());
+            assertEquals(1, manager.getProtectedBlockCount("red"));
+
+            line.setRailProtected(false);
+            CompletableFuture<Void> second = manager.rebuildLine("red");
+
+            // 重建完成前仍使用旧索引
+            assertFalse(second.isDone());
+            assertEquals(1, manager.getProtectedBlockCount("red"));
+            queued.remove(0).run();
+            assertTrue(second.isDone());
+            assertEquals(0, manager.getProtectedBlockCount("red"));
+        }
+    }
+
+    private RailProtectionManager directManager(Metro plugin) {
+        return new RailProtectionManager(plugin, Runnable::run, RailProtectionManagerTest::capture);
+    }
+
+    private static CompletableFuture<RailProtectionManager.BlockTypes> capture(World world, int chunkX, int chunkZ) {
+        return CompletableFuture.completedFuture((x, y, z) -> world.getBlockAt(x, y, z).getType());
+    }
+
     private Line protectedLine(String id, List<RoutePoint> routePoints) {
         Line line = new Line(id, id);
         line.setWorldName("world");
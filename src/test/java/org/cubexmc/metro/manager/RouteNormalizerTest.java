@@ -7,7 +7,14 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -157,6 +164,125 @@ class RouteNormalizerTest {
         }
     }
 
+    @Test
+    void asyncSnapshotNormalizationShouldMatchLiveWorldNormalization() {
+        Random random = new Random(48L);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                Map<Long, Material> blocks = randomRails(random);
+                World world = worldOf(blocks);
+                RouteNormalizer async = new RouteNormalizer((w, chunkX, chunkZ) ->
+                        CompletableFuture.supplyAsync(() -> (x, y, z) -> {
+                            // 只允许读取被请求的区块
+                            assertEquals(chunkX, x >> 4);
+                            assertEquals(chunkZ, z >> 4);
+                            return blocks.getOrDefault(key(x, y, z), Material.AIR);
+                        }), pool);
+                List<RoutePoint> points = randomPoints(random);
+                double epsilon = round % 2 == 0 ? 0 : 0.15;
+
+                try (MockedStatic<Bukkit> bukkit = org.mockito.Mockito.mockStatic(Bukkit.class)) {
+                    bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(world);
+
+                    List<RoutePoint> expected = normalizer.normalize(points, epsilon);
+                    assertEquals(expected, async.normalizeAsync(points, epsilon).join(), "round " + round);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void asyncNormalizationShouldKeepPointsWhoseChunksAreUnavailable() {
+        Map<Long, Material> blocks = new HashMap<>();
+        blocks.put(key(4, 64, 4), Material.RAIL);
+        blocks.put(key(40, 64, 4), Material.RAIL);
+        RailProtectionManager.BlockTypes loaded = (x, y, z) -> blocks.getOrDefault(key(x, y, z), Material.AIR);
+        RouteNormalizer async = new RouteNormalizer((w, chunkX, chunkZ) ->
+                CompletableFuture.completedFuture(chunkX == 2 ? null : loaded), ForkJoinPool.commonPool());
+        RoutePoint unavailable = new RoutePoint("world", 40.7, 64.3, 4.6);
+
+        try (MockedStatic<Bukkit> bukkit = org.mockito.Mockito.mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(mock(World.class));
+
+            List<RoutePoint> result = async.normalizeAsync(
+                    List.of(new RoutePoint("world", 4.7, 64.3, 4.6), unavailable), 0).join();
+
+            assertEquals(List.of(new RoutePoint("world", 4.5, 64.5, 4.5), unavailable), result);
+        }
+    }
+
+    @Test
+    void asyncNormalizationShouldCaptureChunksInBoundedBatches() {
+        AtomicInteger requested = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        RouteNormalizer async = new RouteNormalizer((w, chunkX, chunkZ) -> {
+            requested.incrementAndGet();
+            return CompletableFuture.completedFuture((x, y, z) -> {
+                // 读取第 chunkX 个区块时，已请求但尚未用到的区块数
+                maxAhead.accumulateAndGet(requested.get() - chunkX, Math::max);
+                return Material.AIR;
+            });
+        }, Runnable::run);
+        List<RoutePoint> points = new ArrayList<>();
+        for (int chunk = 0; chunk < 1000; chunk++) {
+            points.add(new RoutePoint("world", chunk * 16 + 8.5, 64.0, 8.5));
+        }
+
+        try (MockedStatic<Bukkit> bukkit = org.mockito.Mockito.mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(mock(World.class));
+
+            assertEquals(points, async.normalizeAsync(points, 0).join());
+        }
+        assertEquals(1000, requested.get());
+        assertTrue(maxAhead.get() <= RouteNormalizer.MAX_BATCH_CHUNKS, "ahead " + maxAhead.get());
+    }
+
+    private static Map<Long, Material> randomRails(Random random) {
+        Map<Long, Material> blocks = new HashMap<>();
+        Material[] types = { Material.RAIL, Material.POWERED_RAIL, Material.DETECTOR_RAIL,
+                Material.ACTIVATOR_RAIL, Material.STONE };
+        for (int i = 0; i < 600; i++) {
+            blocks.put(key(random.nextInt(80) - 40, 62 + random.nextInt(5), random.nextInt(80) - 40),
+                    types[random.nextInt(types.length)]);
+        }
+        return blocks;
+    }
+
+    private static List<RoutePoint> randomPoints(Random random) {
+        List<RoutePoint> points = new ArrayList<>();
+        double x = random.nextInt(60) - 30;
+        double z = random.nextInt(60) - 30;
+        for (int i = 0; i < 150; i++) {
+            x = Math.max(-38, Math.min(38, x + random.nextDouble() * 4 - 2));
+            z = Math.max(-38, Math.min(38, z + random.nextDouble() * 4 - 2));
+            String worldName = random.nextInt(20) == 0 ? "world_missing" : "world";
+            points.add(new RoutePoint(worldName, x, 63 + random.nextDouble() * 3, z));
+            if (random.nextInt(10) == 0) {
+                // 重复点与直线段，让化简也参与比较
+                points.add(new RoutePoint(worldName, x, 64.0, z));
+            }
+        }
+        return points;
+    }
+
+    private World worldOf(Map<Long, Material> blocks) {
+        World world = mock(World.class);
+        Map<Material, Block> byType = new EnumMap<>(Material.class);
+        when(world.getBlockAt(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Material type = blocks.getOrDefault(key(invocation.<Integer>getArgument(0),
+                    invocation.<Integer>getArgument(1), invocation.<Integer>getArgument(2)), Material.AIR);
+            return byType.computeIfAbsent(type, this::block);
+        });
+        return world;
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0xFFFFF) << 40 | ((long) y & 0xFFFFF) << 20 | ((long) z & 0xFFFFF);
+    }
+
     private Block block(Material material) {
         Block block = mock(Block.class);
         when(block.getType()).thenReturn(material);
@@ -5,11 +5,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Logger;
@@ -20,8 +25,11 @@ import org.bukkit.entity.Minecart;
 import org.cubexmc.metro.Metro;
 import org.cubexmc.metro.config.ConfigFacade;
 import org.cubexmc.metro.manager.RouteRecorder.FinishResult;
+import org.cubexmc.metro.model.Line;
 import org.cubexmc.metro.model.RoutePoint;
+import org.cubexmc.metro.util.SchedulerUtil;
 import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
 
 class RouteRecorderTest {
 
@@ -175,4 +183,60 @@ class RouteRecorderTest {
                 new RoutePoint("world", 2.0, 64.0, 1.0)
         ))), anyLong(), any(), any());
     }
+
+    @Test
+    void shouldSaveRenormalizedRouteWhenUnchanged() {
+        List<RoutePoint> saved = List.of(new RoutePoint("world", 0.5, 64.5, 0.5),
+                new RoutePoint("world", 8.5, 64.5, 0.5));
+        LineManager lineManager = mock(LineManager.class);
+        Metro plugin = renormalizePlugin(lineManager, saved, 3, 3);
+        when(lineManager.setLineRoutePoints("red", saved)).thenReturn(true);
+        List<FinishResult> results = new ArrayList<>();
+
+        try (MockedStatic<SchedulerUtil> scheduler = runGlobalTasksInline()) {
+            new RouteRecorder(plugin, new RouteNormalizer()).renormalize("red", results::add);
+        }
+
+        assertEquals(FinishResult.Status.SAVED, results.get(0).status());
+        verify(lineManager).setLineRoutePoints("red", saved);
+    }
+
+    @Test
+    void shouldDiscardRenormalizedRouteWhenRouteChangedMeanwhile() {
+        List<RoutePoint> saved = List.of(new RoutePoint("world", 0.5, 64.5, 0.5),
+                new RoutePoint("world", 8.5, 64.5, 0.5));
+        LineManager lineManager = mock(LineManager.class);
+        // 规整开始后路线被重新录制
+        Metro plugin = renormalizePlugin(lineManager, saved, 3, 4);
+        List<FinishResult> results = new ArrayList<>();
+
+        try (MockedStatic<SchedulerUtil> scheduler = runGlobalTasksInline()) {
+            new RouteRecorder(plugin, new RouteNormalizer()).renormalize("red", results::add);
+        }
+
+        assertEquals(FinishResult.Status.FAILED, results.get(0).status());
+        verify(lineManager, never()).setLineRoutePoints(anyString(), anyList());
+    }
+
+    private static Metro renormalizePlugin(LineManager lineManager, List<RoutePoint> saved, int revisionAtStart,
+            int revisionAtSave) {
+        Line line = mock(Line.class);
+        when(line.getRoutePoints()).thenReturn(saved);
+        when(line.getRouteRevision()).thenReturn(revisionAtStart, revisionAtSave);
+        when(lineManager.getLine("red")).thenReturn(line);
+        Metro plugin = mock(Metro.class);
+        when(plugin.getLineManager()).thenReturn(lineManager);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("RouteRecorderTest"));
+        return plugin;
+    }
+
+    private static MockedStatic<SchedulerUtil> runGlobalTasksInline() {
+        MockedStatic<SchedulerUtil> scheduler = mockStatic(SchedulerUtil.class);
+        scheduler.when(() -> SchedulerUtil.globalRun(any(), any(Runnable.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(1).run();
+                    return null;
+                });
+        return scheduler;
+    }
 }
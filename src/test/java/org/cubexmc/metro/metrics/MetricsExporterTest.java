@@ -0,0 +1,86 @@
+package org.cubexmc.metro.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.cubexmc.metro.persistence.SaveCoordinator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MetricsExporterTest {
+
+    private static final Logger LOGGER = Logger.getLogger("MetricsExporterTest");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void exportShouldWriteLatestScrapeToFile() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry(true, LOGGER);
+        registry.counter("railway_test_total", "Test counter").increment();
+        RecordingScheduler scheduler = new RecordingScheduler();
+        MetricsExporter exporter = new MetricsExporter(LOGGER, registry,
+                new SaveCoordinator(LOGGER, Runnable::run), scheduler);
+        Path file = tempDir.resolve("metrics").resolve("railway.prom");
+
+        exporter.start(new MetricsExporter.Settings(300L, file, false, "127.0.0.1", 0));
+        assertTrue(exporter.isRunning());
+        assertEquals(300L, scheduler.periods.get(0).longValue());
+
+        scheduler.tasks.get(0).run();
+
+        assertTrue(Files.readString(file).contains("railway_test_total 1\n"));
+        assertEquals(Files.readString(file), exporter.getLatest());
+    }
+
+    @Test
+    void startShouldDoNothingWithoutAnyOutput() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        MetricsExporter exporter = new MetricsExporter(LOGGER, new MetricsRegistry(true, LOGGER),
+                new SaveCoordinator(LOGGER, Runnable::run), scheduler);
+
+        exporter.start(new MetricsExporter.Settings(300L, null, false, "127.0.0.1", 0));
+
+        assertFalse(exporter.isRunning());
+        assertTrue(scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    void stopShouldCancelScheduledTask() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        MetricsExporter exporter = new MetricsExporter(LOGGER, new MetricsRegistry(true, LOGGER),
+                new SaveCoordinator(LOGGER, Runnable::run), scheduler);
+        exporter.start(new MetricsExporter.Settings(300L, tempDir.resolve("railway.prom"), false, "127.0.0.1", 0));
+
+        exporter.stop();
+
+        assertFalse(exporter.isRunning());
+        assertEquals(1, scheduler.cancelled.size());
+    }
+
+    private static final class RecordingScheduler implements MetricsExporter.TaskScheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> periods = new ArrayList<>();
+        private final List<Object> cancelled = new ArrayList<>();
+
+        @Override
+        public Object schedule(Runnable task, long delay, long period) {
+            tasks.add(task);
+            periods.add(period);
+            return "task-" + tasks.size();
+        }
+
+        @Override
+        public void cancel(Object taskId) {
+            cancelled.add(taskId);
+        }
+    }
+}
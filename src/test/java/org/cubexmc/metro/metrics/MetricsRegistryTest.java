@@ -0,0 +1,101 @@
+package org.cubexmc.metro.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+    private static final Logger LOGGER = Logger.getLogger("MetricsRegistryTest");
+
+    @Test
+    void disabledRegistryShouldDropUpdates() {
+        MetricsRegistry registry = new MetricsRegistry(false, LOGGER);
+        CounterFamily counter = registry.counter("railway_test_total", "Test counter", "line");
+        DurationSummary summary = registry.summary("railway_test_seconds", "Test summary");
+
+        counter.increment("red");
+        summary.record(1_000L);
+
+        assertEquals(0L, counter.get("red"));
+        assertEquals(0L, summary.getCount());
+
+        registry.setEnabled(true);
+        counter.increment("red");
+        assertEquals(1L, counter.get("red"));
+    }
+
+    @Test
+    void scrapeShouldRenderLabeledCountersSortedByLabel() {
+        MetricsRegistry registry = new MetricsRegistry(true, LOGGER);
+        CounterFamily counter = registry.counter("railway_test_total", "Test counter", "line");
+        counter.increment("red");
+        counter.add("blue", 3L);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# HELP railway_test_total Test counter\n# TYPE railway_test_total counter\n"));
+        assertTrue(text.indexOf("railway_test_total{line=\"blue\"} 3\n")
+                < text.indexOf("railway_test_total{line=\"red\"} 1\n"));
+    }
+
+    @Test
+    void summaryShouldExportSecondsSumCountAndMax() {
+        MetricsRegistry registry = new MetricsRegistry(true, LOGGER);
+        DurationSummary summary = registry.summary("railway_save_duration_seconds", "Saves");
+        summary.record(500_000_000L);
+        summary.record(1_500_000_000L);
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE railway_save_duration_seconds summary\n"));
+        assertTrue(text.contains("railway_save_duration_seconds_sum 2\n"));
+        assertTrue(text.contains("railway_save_duration_seconds_count 2\n"));
+        assertTrue(text.contains("railway_save_duration_seconds_max 1.5\n"));
+    }
+
+    @Test
+    void failingCollectorShouldNotLeavePartialOutput() {
+        MetricsRegistry registry = new MetricsRegistry(true, LOGGER);
+        registry.registerCollector(writer -> {
+            writer.family("railway_broken", MetricType.GAUGE, "Broken");
+            throw new IllegalStateException("boom");
+        });
+        registry.registerCollector(writer -> writer.family("railway_ok", MetricType.GAUGE, "Ok").sample(1.25));
+
+        String text = registry.scrape();
+
+        assertFalse(text.contains("railway_broken"));
+        assertTrue(text.contains("railway_ok 1.25\n"));
+    }
+
+    @Test
+    void registeringSameNameShouldReuseOrRejectByType() {
+        MetricsRegistry registry = new MetricsRegistry(true, LOGGER);
+        CounterFamily counter = registry.counter("railway_test_total", "Test counter");
+
+        assertSame(counter, registry.counter("railway_test_total", "Test counter"));
+        assertThrows(IllegalArgumentException.class, () -> registry.summary("railway_test_total", "Other"));
+    }
+
+    @Test
+    void writerShouldEscapeLabelsAndFormatSpecialValues() {
+        PrometheusTextWriter writer = new PrometheusTextWriter()
+                .family("railway_value", MetricType.GAUGE, "Values")
+                .sample("line", "a\"b\\c", Double.NaN)
+                .sample("", 0.000125, "line", "x");
+
+        String text = writer.toString();
+
+        assertTrue(text.contains("railway_value{line=\"a\\\"b\\\\c\"} NaN\n"));
+        assertTrue(text.contains("railway_value{line=\"x\"} 0.000125\n"));
+        assertEquals("+Inf", PrometheusTextWriter.formatValue(Double.POSITIVE_INFINITY));
+        assertEquals("42", PrometheusTextWriter.formatValue(42.0));
+    }
+}
@@ -0,0 +1,88 @@
+package org.cubexmc.metro.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class KinematicTrailBufferTest {
+
+    private static final double EPSILON = 1.0e-9;
+
+    private final KinematicTrailBuffer.TrailSample sample = new KinematicTrailBuffer.TrailSample();
+
+    @Test
+    void shouldInterpolateByDistanceBehindTheHead() {
+        KinematicTrailBuffer trail = straightTrail(41, 0.5);
+
+        assertTrue(trail.sampleInto(3.25, null, sample));
+        assertEquals(20.0 - 3.25, sample.x, EPSILON);
+        assertEquals(0.4, sample.speed, EPSILON);
+        assertTrue(sample.tangentX > 0.0);
+        assertEquals(0.0, sample.tangentZ, EPSILON);
+    }
+
+    @Test
+    void shouldClampToTheEndsOfTheTrail() {
+        KinematicTrailBuffer trail = straightTrail(11, 0.5);
+
+        trail.sampleInto(-2.0, null, sample);
+        assertEquals(5.0, sample.x, EPSILON);
+        trail.sampleInto(100.0, null, sample);
+        assertEquals(0.0, sample.x, EPSILON);
+        assertFalse(new KinematicTrailBuffer().sampleInto(1.0, null, sample));
+    }
+
+    @Test
+    void shouldFollowTheTrailAroundACorner() {
+        KinematicTrailBuffer trail = new KinematicTrailBuffer();
+        for (int i = 0; i <= 10; i++) {
+            trail.addPoint(i * 0.5, 64.0, 0.0, 0.4, 0.0, 0.0);
+        }
+        for (int i = 1; i <= 10; i++) {
+            trail.addPoint(5.0, 64.0, i * 0.5, 0.0, 0.0, 0.4);
+        }
+
+        trail.sampleInto(1.0, null, sample);
+        assertEquals(5.0, sample.x, EPSILON);
+        assertEquals(4.0, sample.z, EPSILON);
+        trail.sampleInto(7.0, null, sample);
+        assertEquals(3.0, sample.x, EPSILON);
+        assertEquals(0.0, sample.z, EPSILON);
+    }
+
+    @Test
+    void shouldCoalesceDensePointsAndStayWithinCapacity() {
+        KinematicTrailBuffer trail = new KinematicTrailBuffer();
+        for (int i = 0; i < 20_000; i++) {
+            trail.addPoint(i * 0.01, 64.0, 0.0, 0.01, 0.0, 0.0);
+        }
+
+        assertTrue(trail.size() <= KinematicTrailBuffer.CAPACITY);
+        trail.sampleInto(0.0, null, sample);
+        assertEquals(199.99, sample.x, EPSILON);
+        trail.sampleInto(50.0, null, sample);
+        assertEquals(149.99, sample.x, 1.0e-6);
+    }
+
+    @Test
+    void shouldTrimPointsBeyondTheConsistLength() {
+        KinematicTrailBuffer trail = straightTrail(401, 0.5);
+
+        trail.maintain(3, 2.0);
+
+        // (3 + 3) × 2 + 12 = 24 格，0.5 格一个点
+        assertEquals(49, trail.size());
+        trail.sampleInto(1000.0, null, sample);
+        assertEquals(200.0 - 24.0, sample.x, EPSILON);
+    }
+
+    private static KinematicTrailBuffer straightTrail(int points, double spacing) {
+        KinematicTrailBuffer trail = new KinematicTrailBuffer();
+        for (int i = 0; i < points; i++) {
+            trail.addPoint(i * spacing, 64.0, 0.0, 0.4, 0.0, 0.0);
+        }
+        return trail;
+    }
+}
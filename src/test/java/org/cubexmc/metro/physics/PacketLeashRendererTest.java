@@ -0,0 +1,191 @@
+package org.cubexmc.metro.physics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiPredicate;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Minecart;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PacketLeashRendererTest {
+
+    private World world;
+    private List<Minecart> cars;
+    private FakeEntityRegistry registry;
+    private RecordingPackets packets;
+    private PacketLeashRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        world = mock(World.class);
+        registry = new FakeEntityRegistry();
+        cars = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cars.add(cart(100 + i, -i * 1.6));
+        }
+        packets = new RecordingPackets();
+        renderer = new PacketLeashRenderer(() -> cars, packets, registry, EntityType.ALLAY, 0.2, 32.0);
+    }
+
+    @Test
+    void shouldSpawnAndAttachFakeMobsForPlayersInRange() {
+        player(5.0);
+        player(100.0);
+
+        renderer.start();
+
+        assertEquals(2, renderer.getLeashCount());
+        assertEquals(1, renderer.getViewerCount());
+        assertEquals(List.of("spawn", "attach:100", "spawn", "attach:101"), packets.log);
+        assertTrue(packets.lastSpawnIds.stream().allMatch(id -> id < 0));
+    }
+
+    @Test
+    void shouldSendDriftFreeRelativeMoves() {
+        player(0.0);
+        renderer.start();
+        packets.log.clear();
+
+        double total = 0.0;
+        for (int tick = 0; tick < 50; tick++) {
+            for (int i = 0; i < cars.size(); i++) {
+                moveCart(cars.get(i), 0.37 * (tick + 1) - i * 1.6);
+            }
+            renderer.update();
+        }
+        for (double dx : packets.firstLeashMoves) {
+            total += dx;
+        }
+
+        assertEquals(50 * 0.37, total, 1.0 / 4096.0);
+        assertTrue(packets.log.stream().allMatch(entry -> entry.equals("move") || entry.equals("spawn")
+                || entry.startsWith("attach")));
+    }
+
+    @Test
+    void shouldDestroyForPlayersLeavingRangeAndOnCleanup() {
+        Player viewer = player(0.0);
+        renderer.start();
+
+        registry.updatePosition(viewer, new Location(world, 500.0, 64.0, 0.0));
+        for (int tick = 0; tick < FakeEntityGroup.VIEWER_REFRESH_TICKS; tick++) {
+            renderer.update();
+        }
+        assertEquals(0, renderer.getViewerCount());
+        assertEquals("destroy:2", packets.log.get(packets.log.size() - 1));
+
+        registry.updatePosition(viewer, new Location(world, 0.0, 64.0, 0.0));
+        for (int tick = 0; tick < FakeEntityGroup.VIEWER_REFRESH_TICKS; tick++) {
+            renderer.update();
+        }
+        assertEquals(1, renderer.getViewerCount());
+
+        renderer.cleanup();
+        assertEquals(0, renderer.getViewerCount());
+        assertEquals(0, renderer.getLeashCount());
+        assertEquals("destroy:2", packets.log.get(packets.log.size() - 1));
+    }
+
+    @Test
+    void shouldDropViewersThatLeftWithoutSendingPackets() {
+        Player viewer = player(0.0);
+        renderer.start();
+        packets.log.clear();
+
+        registry.forgetPlayer(viewer.getUniqueId());
+        for (int tick = 0; tick < FakeEntityGroup.VIEWER_REFRESH_TICKS; tick++) {
+            renderer.update();
+        }
+
+        assertEquals(0, renderer.getViewerCount());
+        assertTrue(packets.log.stream().noneMatch(entry -> entry.startsWith("destroy")));
+    }
+
+    @Test
+    void shouldRebuildWhenConsistShrinks() {
+        player(0.0);
+        renderer.start();
+        packets.log.clear();
+
+        cars.remove(2);
+        renderer.update();
+
+        assertEquals(1, renderer.getLeashCount());
+        assertEquals("destroy:2", packets.log.get(0));
+        assertTrue(packets.log.contains("spawn"));
+    }
+
+    private Minecart cart(int entityId, double x) {
+        Minecart cart = mock(Minecart.class);
+        when(cart.getEntityId()).thenReturn(entityId);
+        when(cart.getWorld()).thenReturn(world);
+        moveCart(cart, x);
+        return cart;
+    }
+
+    private void moveCart(Minecart cart, double x) {
+        when(cart.getLocation()).thenReturn(new Location(world, x, 64.0, 0.5));
+    }
+
+    private Player player(double x) {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        registry.updatePosition(player, new Location(world, x, 64.0, 0.0));
+        return player;
+    }
+
+    private static final class RecordingPackets implements FakeEntityPackets {
+        private final List<String> log = new ArrayList<>();
+        private final List<Integer> lastSpawnIds = new ArrayList<>();
+        private final List<Double> firstLeashMoves = new ArrayList<>();
+        private Integer firstLeashId;
+
+        @Override
+        public boolean isSupported() {
+            return true;
+        }
+
+        @Override
+        public void spawn(Player viewer, int entityId, UUID uniqueId, EntityType type, double x, double y, double z,
+                float yaw, boolean invisible) {
+            log.add("spawn");
+            lastSpawnIds.add(entityId);
+            if (firstLeashId == null) {
+                firstLeashId = entityId;
+            }
+        }
+
+        @Override
+        public void attach(Player viewer, int entityId, int holderEntityId) {
+            log.add("attach:" + holderEntityId);
+        }
+
+        @Override
+        public void move(Player viewer, int entityId, double dx, double dy, double dz, float yaw) {
+            log.add("move");
+            if (firstLeashId != null && entityId == firstLeashId) {
+                firstLeashMoves.add(dx);
+            }
+        }
+
+        @Override
+        public void destroy(Player viewer, int[] entityIds) {
+            log.add("destroy:" + entityIds.length);
+        }
+
+        @Override
+        public void setInteractHandler(BiPredicate<Player, Integer> handler) {
+        }
+    }
+}
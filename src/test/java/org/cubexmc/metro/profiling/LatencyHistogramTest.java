@@ -0,0 +1,60 @@
+package org.cubexmc.metro.profiling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketUpperBoundShouldCoverEveryValueInBucket() {
+        for (long value : new long[] {0L, 1L, 7L, 8L, 9L, 15L, 16L, 1_000L, 123_456L, 50_000_000L, 1L << 36}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value, "upper bound below " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value, "previous bucket covers " + value);
+            }
+        }
+    }
+
+    @Test
+    void bucketsShouldKeepRelativeErrorBelowOneEighth() {
+        for (long value = 8L; value < 10_000_000L; value = value * 3 + 1) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            assertTrue((upper - value) <= value / 8.0, "too coarse at " + value);
+        }
+    }
+
+    @Test
+    void hugeValuesShouldLandInLastBucket() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentilesShouldFollowRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000L);
+        }
+        histogram.record(5_000_000L);
+
+        long[] merged = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addTo(merged);
+        long total = histogram.getTotalCount();
+        long max = histogram.getMax();
+
+        assertEquals(100L, total);
+        assertEquals(5_000_000L, max);
+        long p50 = LatencyHistogram.percentile(merged, total, max, 50.0);
+        assertTrue(p50 >= 1_000L && p50 < 1_125L);
+        long p99 = LatencyHistogram.percentile(merged, total, max, 99.0);
+        assertTrue(p99 >= 1_000L && p99 < 1_125L);
+        assertEquals(5_000_000L, LatencyHistogram.percentile(merged, total, max, 100.0));
+    }
+
+    @Test
+    void emptyHistogramShouldReportZero() {
+        assertEquals(0L, LatencyHistogram.percentile(new long[LatencyHistogram.BUCKET_COUNT], 0L, 0L, 99.0));
+    }
+}
@@ -0,0 +1,83 @@
+package org.cubexmc.metro.profiling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LoadGovernorTest {
+
+    private final List<String> log = new ArrayList<>();
+
+    private LoadGovernor governor() {
+        return new LoadGovernor(List.of(
+                new LoadGovernor.Tier(55.0, 3, 4.0, 0.1, 100, true),
+                new LoadGovernor.Tier(40.0, 6, 2.0, 0.5, 20, false)), 5.0, 10_000L, log::add);
+    }
+
+    @Test
+    void shouldLeaveSettingsUntouchedBelowTheFirstTier() {
+        LoadGovernor governor = governor();
+        governor.update(30.0, 0L);
+
+        assertEquals(0, governor.getLevel());
+        assertEquals(12, governor.capSubSteps(12));
+        assertEquals(40, governor.scaleUiInterval(40));
+        assertEquals(600, governor.scaleVirtualIdleTicks(600));
+        assertEquals(0, governor.getPlaceholderCacheTicks());
+        assertFalse(governor.isMapLivePaused());
+    }
+
+    @Test
+    void shouldEscalateStraightToTheMatchingTier() {
+        LoadGovernor governor = governor();
+        governor.update(60.0, 0L);
+
+        assertEquals(2, governor.getLevel());
+        assertEquals(3, governor.capSubSteps(12));
+        assertEquals(160, governor.scaleUiInterval(40));
+        assertEquals(0, governor.scaleUiInterval(0));
+        assertEquals(60, governor.scaleVirtualIdleTicks(600));
+        assertTrue(governor.isMapLivePaused());
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    void shouldRecoverOneTierAtATimeAfterTheHoldTime() {
+        LoadGovernor governor = governor();
+        governor.update(60.0, 0L);
+
+        // 52 ms 仍在 55 - 5 的恢复线之上，不会开始计时
+        governor.update(52.0, 1_000L);
+        governor.update(52.0, 30_000L);
+        assertEquals(2, governor.getLevel());
+
+        governor.update(45.0, 31_000L);
+        governor.update(45.0, 40_000L);
+        assertEquals(2, governor.getLevel());
+        governor.update(45.0, 41_000L);
+        assertEquals(1, governor.getLevel());
+
+        governor.update(30.0, 42_000L);
+        governor.update(30.0, 52_000L);
+        assertEquals(0, governor.getLevel());
+        assertEquals(3L, governor.getTransitionCount());
+    }
+
+    @Test
+    void shouldRestartTheHoldTimeWhenLoadReturns() {
+        LoadGovernor governor = governor();
+        governor.update(45.0, 0L);
+        governor.update(20.0, 1_000L);
+        governor.update(38.0, 8_000L);
+        governor.update(20.0, 12_000L);
+
+        assertEquals(1, governor.getLevel());
+        governor.update(20.0, 22_000L);
+        assertEquals(0, governor.getLevel());
+    }
+}
@@ -0,0 +1,112 @@
+package org.cubexmc.metro.profiling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TickProfilerTest {
+
+    private static final long SLICE = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void disabledProfilerShouldNotReadClockOrRecord() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        AtomicLong reads = new AtomicLong();
+        TickProfiler profiler = new TickProfiler(false, SLICE, 6, () -> {
+            reads.incrementAndGet();
+            return clock.get();
+        });
+
+        long start = profiler.start();
+        profiler.stop(ProfilerSection.HEARTBEAT, start);
+
+        assertEquals(0L, start);
+        assertEquals(0L, reads.get());
+        assertTrue(profiler.summarizeSections(60).get(ProfilerSection.HEARTBEAT).isEmpty());
+    }
+
+    @Test
+    void stopShouldRecordElapsedTime() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        TickProfiler profiler = new TickProfiler(true, SLICE, 6, clock::get);
+
+        long start = profiler.start();
+        clock.addAndGet(2_000_000L);
+        profiler.stop(ProfilerSection.PHYSICS, start);
+
+        LatencySummary summary = profiler.summarizeSections(60).get(ProfilerSection.PHYSICS);
+        assertEquals(1L, summary.count());
+        assertEquals(2_000_000L, summary.maxNanos());
+        assertEquals(2_000_000L, summary.p99Nanos());
+    }
+
+    @Test
+    void stopLineShouldRecordSectionAndLine() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        TickProfiler profiler = new TickProfiler(true, SLICE, 6, clock::get);
+
+        long start = profiler.start();
+        clock.addAndGet(500_000L);
+        profiler.stopLine("red", start);
+        profiler.recordLine("blue", 100_000L);
+
+        assertEquals(1L, profiler.summarizeSections(60).get(ProfilerSection.LINE_SERVICE).count());
+        Map<String, LatencySummary> lines = profiler.summarizeLines(60);
+        assertEquals(2, lines.size());
+        assertEquals("blue", lines.keySet().iterator().next());
+        assertEquals(500_000L, lines.get("red").maxNanos());
+    }
+
+    @Test
+    void oldSlicesShouldFallOutOfShortWindows() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        TickProfiler profiler = new TickProfiler(true, SLICE, 6, clock::get);
+
+        profiler.record(ProfilerSection.HEARTBEAT, 9_000_000L);
+        clock.addAndGet(3 * SLICE);
+        profiler.record(ProfilerSection.HEARTBEAT, 1_000_000L);
+
+        LatencySummary recent = profiler.summarizeSections(10).get(ProfilerSection.HEARTBEAT);
+        assertEquals(1L, recent.count());
+        assertEquals(1_000_000L, recent.maxNanos());
+
+        LatencySummary full = profiler.summarizeSections(60).get(ProfilerSection.HEARTBEAT);
+        assertEquals(2L, full.count());
+        assertEquals(9_000_000L, full.maxNanos());
+    }
+
+    @Test
+    void slicesShouldBeReusedAfterRingWrapsAround() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        TickProfiler profiler = new TickProfiler(true, SLICE, 6, clock::get);
+
+        profiler.record(ProfilerSection.PERSISTENCE, 9_000_000L);
+        clock.addAndGet(6 * SLICE);
+        profiler.record(ProfilerSection.PERSISTENCE, 1_000_000L);
+
+        LatencySummary summary = profiler.summarizeSections(60).get(ProfilerSection.PERSISTENCE);
+        assertEquals(1L, summary.count());
+        assertEquals(1_000_000L, summary.maxNanos());
+    }
+
+    @Test
+    void resetShouldClearSectionsAndLines() {
+        AtomicLong clock = new AtomicLong(SLICE);
+        TickProfiler profiler = new TickProfiler(true, SLICE, 6, clock::get);
+        profiler.record(ProfilerSection.MAP_REFRESH, 1_000L);
+        profiler.recordLine("red", 1_000L);
+
+        profiler.reset();
+
+        assertTrue(profiler.summarizeSections(60).get(ProfilerSection.MAP_REFRESH).isEmpty());
+        assertTrue(profiler.summarizeLines(60).isEmpty());
+        assertFalse(profiler.summarizeSections(60).isEmpty());
+        assertEquals(60L, profiler.getMaxWindowSeconds());
+    }
+}
@@ -0,0 +1,39 @@
+package org.cubexmc.metro.profiling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TickTimeSamplerTest {
+
+    private LoadGovernor defaultGovernor() {
+        // config.yml 默认的两级阈值
+        return new LoadGovernor(List.of(
+                new LoadGovernor.Tier(40.0, 6, 2.0, 0.5, 20, false),
+                new LoadGovernor.Tier(55.0, 3, 4.0, 0.1, 100, true)), 5.0, 30_000L, message -> { });
+    }
+
+    @Test
+    void shouldMapTheNominalTickIntervalToTierZero() {
+        LoadGovernor governor = defaultGovernor();
+        governor.update(TickTimeSampler.estimateMsptFromInterval(50.0), 0L);
+
+        assertEquals(0, governor.getLevel());
+    }
+
+    @Test
+    void shouldTreatSmallLatenessAsJitter() {
+        assertEquals(0.0, TickTimeSampler.estimateMsptFromInterval(51.5));
+    }
+
+    @Test
+    void shouldReportLateTicksAsTheirInterval() {
+        LoadGovernor governor = defaultGovernor();
+        governor.update(TickTimeSampler.estimateMsptFromInterval(60.0), 0L);
+
+        assertEquals(60.0, TickTimeSampler.estimateMsptFromInterval(60.0));
+        assertEquals(2, governor.getLevel());
+    }
+}
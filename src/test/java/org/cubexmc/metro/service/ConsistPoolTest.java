@@ -0,0 +1,153 @@
+package org.cubexmc.metro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Minecart;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConsistPoolTest {
+
+    private final NamespacedKey trainKey = new NamespacedKey("railway", "train-id");
+    private World world;
+
+    @BeforeEach
+    void setUp() {
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getSpawnLocation()).thenReturn(new Location(world, 10, 64, -20));
+        when(world.getMaxHeight()).thenReturn(320);
+        when(world.getMinHeight()).thenReturn(-64);
+    }
+
+    @Test
+    void shouldParkReleasedCartAndHandItBack() {
+        ConsistPool pool = new ConsistPool(true, 4, 100, trainKey);
+        Minecart cart = cart();
+
+        assertTrue(pool.release(cart, 0L));
+        assertEquals(1, pool.getParkedCount(world.getUID()));
+        verify(cart).setPersistent(false);
+        verify(cart).setSilent(true);
+        verify(cart.getPersistentDataContainer()).set(trainKey, PersistentDataType.STRING, ConsistPool.POOLED_TAG);
+
+        Location target = new Location(world, 100, 70, 100);
+        assertSame(cart, pool.acquire(target));
+        verify(cart).teleport(target);
+        verify(cart).setPersistent(true);
+        verify(cart).setSilent(false);
+        assertEquals(0, pool.getParkedCount(world.getUID()));
+        assertEquals(1, pool.getHitCount());
+
+        assertNull(pool.acquire(target));
+        assertEquals(1, pool.getMissCount());
+    }
+
+    @Test
+    void shouldParkInWorldFloorBelowSpawnByDefault() {
+        Location first = ConsistPool.depotLocation(world, ConsistPool.Depot.DEFAULT, 0);
+        Location second = ConsistPool.depotLocation(world, ConsistPool.Depot.DEFAULT, 1);
+
+        assertEquals(10.5, first.getX());
+        assertEquals(-63.0, first.getY());
+        assertEquals(-19.5, first.getZ());
+        assertEquals(10.5 + ConsistPool.DEPOT_SPACING, second.getX());
+    }
+
+    @Test
+    void shouldParkAtConfiguredDepot() {
+        ConsistPool pool = new ConsistPool(true, 4, 100, trainKey, new ConsistPool.Depot(100, -50, 5));
+        Minecart cart = cart();
+
+        assertTrue(pool.release(cart, 0L));
+
+        verify(cart).teleport(new Location(world, 110.5, 5, -69.5));
+    }
+
+    @Test
+    void shouldRejectCartsBeyondWorldLimitOrWithPassengers() {
+        ConsistPool pool = new ConsistPool(true, 1, 100, trainKey);
+        assertTrue(pool.release(cart(), 0L));
+        assertFalse(pool.release(cart(), 0L));
+        assertEquals(1, pool.getRejectedCount());
+
+        Minecart occupied = cart();
+        when(occupied.getPassengers()).thenReturn(List.of(mock(Entity.class)));
+        assertFalse(pool.release(occupied, 0L));
+    }
+
+    @Test
+    void shouldEvictIdleAndInvalidCartsOldestFirst() {
+        ConsistPool pool = new ConsistPool(true, 4, 100, trainKey);
+        Minecart old = cart();
+        Minecart fresh = cart();
+        pool.release(old, 0L);
+        pool.release(fresh, 50L);
+
+        pool.evictIdle(120L);
+
+        verify(old).remove();
+        verify(fresh, never()).remove();
+        assertEquals(1, pool.getParkedCount(world.getUID()));
+
+        when(fresh.isValid()).thenReturn(false);
+        assertNull(pool.acquire(new Location(world, 0, 64, 0)));
+        assertEquals(2, pool.getEvictedCount());
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        ConsistPool pool = new ConsistPool(false, 4, 100, trainKey);
+        Minecart cart = cart();
+
+        assertFalse(pool.release(cart, 0L));
+        assertNull(pool.acquire(new Location(world, 0, 64, 0)));
+        assertEquals(0, pool.getMissCount());
+        verify(cart, never()).teleport(any(Location.class));
+    }
+
+    @Test
+    void shouldRemoveEverythingOnDrain() {
+        ConsistPool pool = new ConsistPool(true, 4, 100, trainKey);
+        Minecart first = cart();
+        Minecart second = cart();
+        pool.release(first, 0L);
+        pool.release(second, 0L);
+
+        pool.drain();
+
+        verify(first).remove();
+        verify(second).remove();
+        assertTrue(pool.getParkedCounts().isEmpty());
+    }
+
+    private Minecart cart() {
+        Minecart cart = mock(Minecart.class);
+        PersistentDataContainer pdc = mock(PersistentDataContainer.class);
+        when(cart.getPersistentDataContainer()).thenReturn(pdc);
+        when(cart.getWorld()).thenReturn(world);
+        when(cart.isValid()).thenReturn(true);
+        when(cart.getPassengers()).thenReturn(List.of());
+        when(cart.teleport(any(Location.class))).thenReturn(true);
+        return cart;
+    }
+}
@@ -0,0 +1,94 @@
+package org.cubexmc.metro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.manager.LineManager;
+import org.cubexmc.metro.model.Line;
+import org.junit.jupiter.api.Test;
+
+class LineServiceRestoreTest {
+
+    private static final List<String> STOPS = List.of("a", "b", "c");
+    private static final int HEADWAY_SECONDS = 30;
+    private static final int DWELL_TICKS = 100;
+
+    @Test
+    void restoredDepartureAgeCarriesAcrossATickCounterReset() {
+        LineService service = newService();
+        // 重启后 tick 计数从 0 开始，上次发车时刻落在负数上
+        assertTrue(service.restoreFrom(lineState(300L, List.of())));
+
+        service.tickDispatch(100L);
+
+        assertFalse(service.isDepartureWindow(399L));
+        assertTrue(service.isDepartureWindow(400L));
+        assertEquals(15, service.estimateNextEtaSeconds(100L));
+        assertEquals(300L, service.captureCheckpoint(100L).departureAgeTicks());
+    }
+
+    @Test
+    void lineThatNeverDepartedStaysUndeparted() {
+        LineService service = newService();
+        assertTrue(service.restoreFrom(lineState(-1L, List.of())));
+
+        service.tickDispatch(5L);
+
+        assertTrue(service.isDepartureWindow(5L));
+        assertEquals(-1L, service.captureCheckpoint(5L).departureAgeTicks());
+    }
+
+    @Test
+    void physicalTrainsAreRedispatchedFromTheirStopOnTheRestoreTick() {
+        LineService service = spy(newService());
+        doNothing().when(service).requestTrainForVirtual(anyLong(), anyInt(), anyInt(), anyDouble(), any(),
+                anyString(), any());
+        ServiceCheckpoint.TrainPosition waiting = new ServiceCheckpoint.TrainPosition(true, 1, -1, 40L, 60L, 0.0);
+        ServiceCheckpoint.TrainPosition moving = new ServiceCheckpoint.TrainPosition(false, 0, 1, 120L, 80L, 10.0);
+        ServiceCheckpoint.TrainPosition terminating =
+                new ServiceCheckpoint.TrainPosition(false, 1, 2, 10L, 190L, 10.0);
+        assertTrue(service.restoreFrom(lineState(300L, List.of(waiting, moving, terminating))));
+
+        service.tickDispatch(100L);
+
+        verify(service, times(2)).requestTrainForVirtual(eq(100L), eq(1), eq(1), eq(0.0), isNull(), eq("b"),
+                any());
+        verify(service, never()).requestTrainForVirtual(anyLong(), eq(2), anyInt(), anyDouble(), any(),
+                anyString(), any());
+    }
+
+    private static ServiceCheckpoint.LineState lineState(long departureAgeTicks,
+            List<ServiceCheckpoint.TrainPosition> physicalTrains) {
+        return new ServiceCheckpoint.LineState(STOPS, HEADWAY_SECONDS, DWELL_TICKS, departureAgeTicks, List.of(),
+                physicalTrains);
+    }
+
+    private static LineService newService() {
+        Metro plugin = mock(Metro.class);
+        LineManager lineManager = mock(LineManager.class);
+        Line line = mock(Line.class);
+        when(plugin.getLineManager()).thenReturn(lineManager);
+        when(lineManager.getLine("red")).thenReturn(line);
+        when(line.getOrderedStopIds()).thenReturn(STOPS);
+        return new LineService(plugin, mock(LineServiceManager.class), "red", HEADWAY_SECONDS, DWELL_TICKS, 1,
+                null);
+    }
+}
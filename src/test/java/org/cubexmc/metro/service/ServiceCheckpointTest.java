@@ -0,0 +1,64 @@
+package org.cubexmc.metro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.jupiter.api.Test;
+
+class ServiceCheckpointTest {
+
+    private static final List<String> STOPS = List.of("a", "b", "c");
+
+    @Test
+    void roundTripsEveryLineThroughYaml() throws Exception {
+        ServiceCheckpoint.TrainPosition waiting = new ServiceCheckpoint.TrainPosition(true, 1, -1, 40L, 60L, 0.0);
+        ServiceCheckpoint.TrainPosition moving = new ServiceCheckpoint.TrainPosition(false, 0, 1, 120L, 80L, 10.0);
+        Map<String, ServiceCheckpoint.LineState> lines = new LinkedHashMap<>();
+        lines.put("red", new ServiceCheckpoint.LineState(STOPS, 90, 100, 300L, List.of(waiting, moving), List.of()));
+        lines.put("blue", new ServiceCheckpoint.LineState(STOPS, 60, 80, -1L, List.of(), List.of(moving)));
+
+        ServiceCheckpoint restored = ServiceCheckpoint.fromYaml(new ServiceCheckpoint(1234L, lines).toYaml());
+
+        assertEquals(1234L, restored.getSavedAtMillis());
+        assertEquals(lines, restored.getLines());
+    }
+
+    @Test
+    void missingLineIsNull() throws Exception {
+        ServiceCheckpoint restored = ServiceCheckpoint.fromYaml(new ServiceCheckpoint(0L, Map.of()).toYaml());
+
+        assertNull(restored.getLine("red"));
+    }
+
+    @Test
+    void rejectsUnsupportedVersion() {
+        assertThrows(InvalidConfigurationException.class,
+                () -> ServiceCheckpoint.fromYaml("version: 99\nsaved-at: 0\n"));
+    }
+
+    @Test
+    void rejectsMalformedTrainPosition() {
+        String yaml = "version: " + ServiceCheckpoint.FORMAT_VERSION + "\n"
+                + "lines:\n  red:\n    stops: [a, b]\n    virtual: ['M,0,1,x,5,1.00']\n";
+
+        assertThrows(InvalidConfigurationException.class, () -> ServiceCheckpoint.fromYaml(yaml));
+    }
+
+    @Test
+    void matchesOnlySameStopsAndTimetable() {
+        ServiceCheckpoint.LineState state = new ServiceCheckpoint.LineState(STOPS, 90, 100, 0L, List.of(), List.of());
+
+        assertTrue(state.matches(List.of("a", "b", "c"), 90, 100));
+        assertFalse(state.matches(List.of("a", "c", "b"), 90, 100));
+        assertFalse(state.matches(STOPS, 120, 100));
+        assertFalse(state.matches(STOPS, 90, 60));
+    }
+}
@@ -108,7 +108,7 @@ class StopCommandServiceTest {
         assertEquals(WriteStatus.NOT_FOUND,
                 service.removeCustomTitleType(stop, "departure"));
 
-        verify(stopManager, org.mockito.Mockito.times(2)).saveConfig();
+        verify(stopManager, org.mockito.Mockito.times(2)).saveConfig("central");
     }
 
     @Test
@@ -0,0 +1,79 @@
+package org.cubexmc.metro.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TickBudgetSchedulerTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    void shouldAlwaysRunCriticalWorkAndCountDeadlineMisses() {
+        TickBudgetScheduler scheduler = new TickBudgetScheduler(2 * MILLI, 20, clock::get);
+
+        scheduler.run(1L, List.of(work("critical", 3 * MILLI)), List.of(task("a", 0L)));
+
+        assertEquals(List.of("critical", "a"), ran);
+        assertEquals(1L, scheduler.getDeadlineMisses());
+    }
+
+    @Test
+    void shouldRoundRobinBackgroundWorkWithinBudget() {
+        TickBudgetScheduler scheduler = new TickBudgetScheduler(2 * MILLI, 20, clock::get);
+        List<TickBudgetScheduler.Task> background = List.of(
+                task("a", MILLI), task("b", MILLI), task("c", MILLI), task("d", MILLI));
+        scheduler.run(1L, List.of(), background);
+        ran.clear();
+
+        scheduler.run(2L, List.of(), background);
+        assertEquals(List.of("a", "b"), ran);
+        assertEquals(2, scheduler.getLastBacklog());
+
+        ran.clear();
+        scheduler.run(3L, List.of(), background);
+        assertEquals(List.of("c", "d"), ran);
+        assertEquals(4L, scheduler.getDeferredRuns());
+    }
+
+    @Test
+    void shouldForceStarvedTasksPastTheBudget() {
+        TickBudgetScheduler scheduler = new TickBudgetScheduler(MILLI, 3, clock::get);
+        List<TickBudgetScheduler.Task> background = List.of(task("hog", 5 * MILLI), task("starved", 0L));
+        scheduler.run(1L, List.of(), background);
+
+        for (long tick = 2L; tick <= 4L; tick++) {
+            ran.clear();
+            scheduler.run(tick, List.of(work("critical", 2 * MILLI)), background);
+        }
+
+        assertTrue(ran.contains("starved"));
+        assertTrue(scheduler.getForcedRuns() >= 2L);
+    }
+
+    @Test
+    void shouldBeDisabledWithZeroBudget() {
+        assertFalse(new TickBudgetScheduler(0L, 20).isEnabled());
+        assertTrue(new TickBudgetScheduler(MILLI, 20).isEnabled());
+    }
+
+    private Runnable work(String name, long costNanos) {
+        return () -> {
+            ran.add(name);
+            clock.addAndGet(costNanos);
+        };
+    }
+
+    private TickBudgetScheduler.Task task(String name, long costNanos) {
+        return new TickBudgetScheduler.Task(name, "test", work(name, costNanos));
+    }
+}
@@ -0,0 +1,86 @@
+package org.cubexmc.metro.service.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.cubexmc.metro.estimation.TravelTimeEstimator;
+import org.cubexmc.metro.service.LineService;
+import org.cubexmc.metro.service.ServiceCheckpoint;
+import org.cubexmc.metro.service.virtual.VirtualTrain;
+import org.cubexmc.metro.service.virtual.VirtualTrainPool;
+import org.junit.jupiter.api.Test;
+
+class LocalDispatchStrategyRestoreTest {
+
+    private static final List<String> STOPS = List.of("a", "b", "c");
+    private static final int DWELL_TICKS = 100;
+    private static final long RESTORE_TICK = 100L;
+
+    @Test
+    void restoredTrainsKeepTheirCheckpointTiming() {
+        LineService service = service();
+        TravelTimeEstimator estimator = estimator();
+
+        VirtualTrain waiting = LocalDispatchStrategy.toVirtualTrain(service, STOPS,
+                new ServiceCheckpoint.TrainPosition(true, 1, -1, 40L, 60L, 0.0), RESTORE_TICK);
+        VirtualTrain moving = LocalDispatchStrategy.toVirtualTrain(service, STOPS,
+                new ServiceCheckpoint.TrainPosition(false, 0, 1, 120L, 80L, 10.0), RESTORE_TICK);
+
+        assertEquals(60L, waiting.getLastEventTick());
+        assertEquals(160L, waiting.getNextEventTick());
+        // 行驶段开始于本次启动的 tick 0 之前，保持为负数
+        assertEquals(-20L, moving.getLastEventTick());
+        assertEquals(180L, moving.getNextEventTick());
+
+        assertEquals(0.0, waiting.estimateEtaToStop(1, estimator, RESTORE_TICK), 1.0e-9);
+        // 剩余停站 3 秒，再加 b 站停站 5 秒与 b→c 行驶 10 秒
+        assertEquals(18.0, waiting.estimateEtaToStop(2, estimator, RESTORE_TICK), 1.0e-9);
+        assertEquals(4.0, moving.estimateEtaToStop(1, estimator, RESTORE_TICK), 1.0e-9);
+        assertEquals(19.0, moving.estimateEtaToStop(2, estimator, RESTORE_TICK), 1.0e-9);
+    }
+
+    @Test
+    void restoredPoolFiresTheRemainingDwellAndSegment() {
+        LineService service = service();
+        TravelTimeEstimator estimator = estimator();
+        VirtualTrain waiting = LocalDispatchStrategy.toVirtualTrain(service, STOPS,
+                new ServiceCheckpoint.TrainPosition(true, 1, -1, 40L, 60L, 0.0), RESTORE_TICK);
+        VirtualTrain moving = LocalDispatchStrategy.toVirtualTrain(service, STOPS,
+                new ServiceCheckpoint.TrainPosition(false, 0, 1, 120L, 80L, 10.0), RESTORE_TICK);
+        VirtualTrainPool pool = new VirtualTrainPool("red", DWELL_TICKS);
+
+        pool.restore(STOPS, List.of(waiting, moving), RESTORE_TICK);
+
+        pool.tick(159L, estimator);
+        assertEquals(VirtualTrain.State.WAITING, waiting.getState());
+        pool.tick(160L, estimator);
+        assertEquals(VirtualTrain.State.MOVING, waiting.getState());
+        assertEquals(160L, waiting.getLastEventTick());
+        assertEquals(360L, waiting.getNextEventTick());
+
+        pool.tick(179L, estimator);
+        assertEquals(VirtualTrain.State.MOVING, moving.getState());
+        pool.tick(180L, estimator);
+        assertEquals(VirtualTrain.State.WAITING, moving.getState());
+        assertEquals(180L, moving.getLastEventTick());
+        assertEquals(280L, moving.getNextEventTick());
+    }
+
+    private static LineService service() {
+        LineService service = mock(LineService.class);
+        when(service.getLineId()).thenReturn("red");
+        when(service.getDwellTicks()).thenReturn(DWELL_TICKS);
+        return service;
+    }
+
+    private static TravelTimeEstimator estimator() {
+        TravelTimeEstimator estimator = mock(TravelTimeEstimator.class);
+        when(estimator.estimateSeconds(eq("red"), anyString(), anyString())).thenReturn(10.0);
+        return estimator;
+    }
+}
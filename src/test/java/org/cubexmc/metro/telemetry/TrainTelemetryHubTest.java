@@ -0,0 +1,95 @@
+package org.cubexmc.metro.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+
+class TrainTelemetryHubTest {
+
+    private final UUID train = UUID.randomUUID();
+    private final AtomicInteger collections = new AtomicInteger();
+    private final List<TrainTelemetrySnapshot> events = new ArrayList<>();
+    private boolean eventListeners;
+
+    private final TrainTelemetryHub hub = new TrainTelemetryHub(Logger.getLogger("test"), builder -> {
+        collections.incrementAndGet();
+        builder.add(train, TrainTelemetrySnapshot.Source.SERVICE, "red", TrainTelemetryState.MOVING,
+                "world", 1.5, 64.0, -3.5, "a", "b");
+    }, () -> eventListeners, events::add);
+
+    @Test
+    void shouldNotCollectOrRecordWhileNobodyListens() {
+        hub.recordTransition(train, "red", "a", TrainTelemetrySnapshot.StopTransition.DEPARTED);
+        hub.publish(20L);
+
+        assertFalse(hub.isActive());
+        assertEquals(0, collections.get());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldDeliverOneSnapshotPerPublishWithTransitionsSinceThePrevious() {
+        List<TrainTelemetrySnapshot> received = new ArrayList<>();
+        hub.subscribe(received::add);
+
+        hub.recordTransition(train, "red", "a", TrainTelemetrySnapshot.StopTransition.DEPARTED);
+        hub.publish(20L);
+        hub.publish(40L);
+
+        assertEquals(2, received.size());
+        TrainTelemetrySnapshot first = received.get(0);
+        assertEquals(1L, first.sequence());
+        assertEquals(20L, first.tick());
+        assertEquals(1, first.size());
+        assertEquals(train, first.trainId(0));
+        assertEquals("red", first.lineId(0));
+        assertEquals(TrainTelemetryState.MOVING, first.state(0));
+        assertEquals(-3.5, first.z(0));
+        assertEquals("b", first.toStopId(0));
+        assertEquals(1, first.transitionCount());
+        assertEquals(TrainTelemetrySnapshot.StopTransition.DEPARTED, first.transitionType(0));
+        assertEquals("a", first.transitionStopId(0));
+
+        TrainTelemetrySnapshot second = received.get(1);
+        assertNotSame(first, second);
+        assertEquals(2L, second.sequence());
+        assertEquals(0, second.transitionCount());
+        // 复用的构建缓冲区不能影响已发布的快照
+        assertEquals(1, first.size());
+        assertEquals(1, first.transitionCount());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldFireEventOnlyWhileListenersAreRegistered() {
+        eventListeners = true;
+        hub.publish(20L);
+        eventListeners = false;
+        hub.publish(40L);
+
+        assertEquals(1, events.size());
+        assertEquals(1, collections.get());
+    }
+
+    @Test
+    void shouldStopDeliveringAfterClose() {
+        List<TrainTelemetrySnapshot> received = new ArrayList<>();
+        TrainTelemetryHub.Subscription subscription = hub.subscribe(received::add);
+        hub.publish(20L);
+        subscription.close();
+        hub.publish(40L);
+        hub.recordTransition(train, "red", "a", TrainTelemetrySnapshot.StopTransition.ENTER);
+
+        assertEquals(1, received.size());
+        assertFalse(hub.isActive());
+    }
+}
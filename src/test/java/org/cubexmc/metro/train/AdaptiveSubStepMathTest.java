@@ -0,0 +1,108 @@
+package org.cubexmc.metro.train;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveSubStepMathTest {
+
+    private static final double RAIL_Y = 0.0625;
+
+    @Test
+    void shouldUseOneStepOnStraightTrack() {
+        Track track = new Track(0, 64, 0).straightEast(20);
+
+        assertEquals(1, AdaptiveSubStepMath.adaptiveSubSteps(2.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, -1.0, 12, track::at));
+        assertEquals(6, AdaptiveSubStepMath.fixedSubSteps(2.0, 12));
+    }
+
+    @Test
+    void shouldRefineAheadOfCurvesSlopesAndMissingRail() {
+        Track track = new Track(0, 64, 0).straightEast(4).curveEastToSouth().straightSouth(4);
+        assertEquals(6, AdaptiveSubStepMath.adaptiveSubSteps(1.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, -1.0, 12, track::at));
+
+        Track hill = new Track(0, 64, 0).straightEast(4).slopeEast(2);
+        assertEquals(6, AdaptiveSubStepMath.adaptiveSubSteps(1.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, -1.0, 12, hill::at));
+
+        Track deadEnd = new Track(0, 64, 0).straightEast(3);
+        assertEquals(6, AdaptiveSubStepMath.adaptiveSubSteps(1.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, -1.0, 12, deadEnd::at));
+    }
+
+    @Test
+    void shouldRefineNearTheTargetStop() {
+        Track track = new Track(0, 64, 0).straightEast(40);
+
+        assertEquals(6, AdaptiveSubStepMath.adaptiveSubSteps(2.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, 6.0, 12, track::at));
+        assertEquals(1, AdaptiveSubStepMath.adaptiveSubSteps(2.5, 64 + RAIL_Y, 0.5, 1, 0, 0,
+                2.0, 30.0, 12, track::at));
+    }
+
+    /**
+     * Synthetic rail line described by the geometry of each block it occupies.
+     */
+    private static final class Track {
+        private final Map<Long, AdaptiveSubStepMath.Geometry> cells = new HashMap<>();
+        private int x;
+        private int y;
+        private int z;
+
+        Track(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        Track straightEast(int blocks) {
+            for (int i = 0; i < blocks; i++) {
+                cells.put(key(x, y, z), AdaptiveSubStepMath.Geometry.STRAIGHT);
+                x++;
+            }
+            return this;
+        }
+
+        Track slopeEast(int blocks) {
+            for (int i = 0; i < blocks; i++) {
+                cells.put(key(x, y, z), AdaptiveSubStepMath.Geometry.SLOPE);
+                x++;
+                y++;
+            }
+            return this;
+        }
+
+        Track curveEastToSouth() {
+            cells.put(key(x, y, z), AdaptiveSubStepMath.Geometry.CURVE);
+            z++;
+            return this;
+        }
+
+        Track straightSouth(int blocks) {
+            for (int i = 0; i < blocks; i++) {
+                cells.put(key(x, y, z), AdaptiveSubStepMath.Geometry.STRAIGHT);
+                z++;
+            }
+            return this;
+        }
+
+        AdaptiveSubStepMath.Geometry at(int bx, int by, int bz) {
+            for (int dy : new int[] {0, -1, 1}) {
+                AdaptiveSubStepMath.Geometry geometry = cells.get(key(bx, by + dy, bz));
+                if (geometry != null) {
+                    return geometry;
+                }
+            }
+            return AdaptiveSubStepMath.Geometry.NONE;
+        }
+
+        private static long key(int bx, int by, int bz) {
+            return ((long) bx & 0x3FFFFFFL) << 38 | ((long) bz & 0x3FFFFFFL) << 12 | ((long) by & 0xFFFL);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.cubexmc.metro.train;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Rail;
+import org.bukkit.entity.Minecart;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.util.Vector;
+import org.cubexmc.metro.Metro;
+import org.cubexmc.metro.physics.ReactiveRailPhysics;
+import org.cubexmc.metro.physics.TrainPhysicsEngine;
+import org.cubexmc.metro.service.LineService;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+/**
+ * Replays a multi-car consist through the real reactive engine with fixed and with adaptive
+ * sub-steps and compares every car, tick by tick.
+ */
+class AdaptiveSubStepReplayTest {
+
+    private static final double RAIL_Y = 0.0625;
+    private static final double TOLERANCE_BLOCKS = 1.0e-9;
+    private static final int CARS = 3;
+    private static final int TICKS = 60;
+
+    @Test
+    void shouldReplayTheFixedStepConsistWithFewerSteps() {
+        for (boolean safeMode : new boolean[] {false, true}) {
+            for (double speed : new double[] {1.0, 1.6}) {
+                Replay fixed = replay(speed, safeMode, false);
+                Replay adaptive = replay(speed, safeMode, true);
+                String label = "speed " + speed + (safeMode ? " safe" : "") + " ";
+
+                for (int tick = 0; tick < TICKS; tick++) {
+                    for (int car = 0; car < CARS; car++) {
+                        double drift = fixed.positions[tick][car].distance(adaptive.positions[tick][car]);
+                        assertTrue(drift <= TOLERANCE_BLOCKS,
+                                label + "tick " + tick + " car " + car + " drifted " + drift + " blocks");
+                    }
+                    for (int car = 1; car < CARS; car++) {
+                        assertEquals(fixed.gap(tick, car), adaptive.gap(tick, car), TOLERANCE_BLOCKS,
+                                label + "tick " + tick + " gap " + car);
+                    }
+                }
+                // 弯道前后及跟随车仍在弯道上时细分，其余直线每 tick 一步
+                assertTrue(adaptive.steps * 3 < fixed.steps * 2,
+                        label + "adaptive " + adaptive.steps + " vs fixed " + fixed.steps);
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepFixedStepsWhileFollowersCloseUp() {
+        RailWorld world = new RailWorld();
+        List<Minecart> cars = world.consist(1.0, 0.4);
+        TrainInstance train = world.train(cars, 1.0, false);
+        ReactiveRailPhysics engine = new ReactiveRailPhysics();
+        int fixed = AdaptiveSubStepMath.fixedSubSteps(1.0, AdaptiveSubStepMath.MAX_SUB_STEPS);
+
+        try (MockedStatic<Bukkit> bukkit = mockBukkit()) {
+            engine.init(train);
+            engine.tick(train, 1.0 / fixed, -1L);
+
+            assertEquals(fixed, TrainInstance.adaptiveSubSteps(engine, train, 1.0, -1.0,
+                    AdaptiveSubStepMath.MAX_SUB_STEPS));
+        }
+    }
+
+    private static Replay replay(double speed, boolean safeMode, boolean adaptive) {
+        RailWorld world = new RailWorld();
+        List<Minecart> cars = world.consist(speed, 0.5 + speed * 0.3);
+        TrainInstance train = world.train(cars, speed, safeMode);
+        TrainPhysicsEngine engine = new ReactiveRailPhysics();
+        Replay replay = new Replay();
+
+        try (MockedStatic<Bukkit> bukkit = mockBukkit()) {
+            engine.init(train);
+            for (int tick = 0; tick < TICKS; tick++) {
+                // 与 TrainInstance 的 MOVING 分支一致：按本 tick 开始时的车头速度决定子步数
+                double leadSpeed = cars.get(0).getVelocity().length();
+                int subSteps = adaptive
+                        ? TrainInstance.adaptiveSubSteps(engine, train, leadSpeed, -1.0,
+                                AdaptiveSubStepMath.MAX_SUB_STEPS)
+                        : AdaptiveSubStepMath.fixedSubSteps(leadSpeed, AdaptiveSubStepMath.MAX_SUB_STEPS);
+                double stepFraction = subSteps <= 1 ? 1.0 : 1.0 / subSteps;
+                for (int i = 0; i < subSteps; i++) {
+                    engine.tick(train, stepFraction, -1L);
+                }
+                replay.steps += subSteps;
+                for (int car = 0; car < CARS; car++) {
+                    replay.positions[tick][car] = cars.get(car).getLocation().toVector();
+                }
+            }
+        }
+        return replay;
+    }
+
+    private static MockedStatic<Bukkit> mockBukkit() {
+        MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class);
+        BukkitScheduler scheduler = mock(BukkitScheduler.class);
+        bukkit.when(Bukkit::getScheduler).thenReturn(scheduler);
+        bukkit.when(Bukkit::getLogger).thenReturn(Logger.getLogger("Metro"));
+        return bukkit;
+    }
+
+    private static final class Replay {
+        final Vector[][] positions = new Vector[TICKS][CARS];
+        int steps;
+
+        double gap(int tick, int car) {
+            return positions[tick][car - 1].distance(positions[tick][car]);
+        }
+    }
+
+    /**
+     * 40 blocks of straight rail heading east, a curve to the south and 80 blocks heading south.
+     * The starting offset keeps cars off exact block edges, where both runs would otherwise differ
+     * only by rounding in which block the safe-speed lookahead samples.
+     */
+    private static final class RailWorld {
+        private static final int RAIL_LEVEL = 64;
+        private static final int CURVE_X = 40;
+
+        private final World world = mock(World.class);
+        private final Map<Long, Rail.Shape> shapes = new HashMap<>();
+        private final Map<Long, Block> blocks = new HashMap<>();
+        private final Map<Rail.Shape, Rail> railData = new EnumMap<>(Rail.Shape.class);
+        private final BlockData air = mock(BlockData.class);
+
+        RailWorld() {
+            for (int x = 0; x < CURVE_X; x++) {
+                shapes.put(key(x, RAIL_LEVEL, 0), Rail.Shape.EAST_WEST);
+            }
+            shapes.put(key(CURVE_X, RAIL_LEVEL, 0), Rail.Shape.SOUTH_WEST);
+            for (int z = 1; z <= 80; z++) {
+                shapes.put(key(CURVE_X, RAIL_LEVEL, z), Rail.Shape.NORTH_SOUTH);
+            }
+            when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+            when(world.getBlockAt(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> block(
+                    invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+            when(world.getBlockAt(any(Location.class))).thenAnswer(invocation -> {
+                Location location = invocation.getArgument(0);
+                return block(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+            });
+        }
+
+        List<Minecart> consist(double speed, double spacing) {
+            List<Minecart> cars = new ArrayList<>();
+            for (int i = 0; i < CARS; i++) {
+                cars.add(cart(i, new Location(world, 4.537 - i * spacing, RAIL_LEVEL + RAIL_Y, 0.5),
+                        new Vector(speed, 0, 0)));
+            }
+            return cars;
+        }
+
+        TrainInstance train(List<Minecart> cars, double speed, boolean safeMode) {
+            Metro plugin = mock(Metro.class);
+            when(plugin.isSafeSpeedMode()).thenReturn(safeMode);
+            when(plugin.getPhysicsLookaheadBlocks()).thenReturn(4);
+            LineService service = mock(LineService.class);
+            when(service.getPlugin()).thenReturn(plugin);
+            when(service.getCartSpeed()).thenReturn(speed);
+            TrainConsist consist = mock(TrainConsist.class);
+            when(consist.getCars()).thenReturn(cars);
+            TrainInstance train = mock(TrainInstance.class);
+            when(train.getService()).thenReturn(service);
+            when(train.getConsist()).thenReturn(consist);
+            when(train.getTravelDirection()).thenReturn(new Vector(1, 0, 0));
+            return train;
+        }
+
+        private Minecart cart(int index, Location start, Vector velocity) {
+            Location[] location = {start};
+            Vector[] motion = {velocity};
+            Minecart cart = mock(Minecart.class);
+            when(cart.getUniqueId()).thenReturn(new UUID(0L, index));
+            when(cart.getWorld()).thenReturn(world);
+            when(cart.getLocation()).thenAnswer(invocation -> location[0].clone());
+            when(cart.getVelocity()).thenAnswer(invocation -> motion[0].clone());
+            when(cart.teleport(any(Location.class))).thenAnswer(invocation -> {
+                location[0] = invocation.<Location>getArgument(0).clone();
+                return true;
+            });
+            doAnswer(invocation -> {
+                motion[0] = invocation.<Vector>getArgument(0).clone();
+                return null;
+            }).when(cart).setVelocity(any(Vector.class));
+            return cart;
+        }
+
+        private Block block(int x, int y, int z) {
+            long key = key(x, y, z);
+            Block cached = blocks.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            Rail.Shape shape = shapes.get(key);
+            BlockData data = shape == null ? air : rail(shape);
+            Block block = mock(Block.class);
+            when(block.getType()).thenReturn(shape == null ? Material.AIR : Material.RAIL);
+            when(block.getBlockData()).thenReturn(data);
+            when(block.getX()).thenReturn(x);
+            when(block.getY()).thenReturn(y);
+            when(block.getZ()).thenReturn(z);
+            when(block.getWorld()).thenReturn(world);
+            when(block.getRelative(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> block(
+                    x + invocation.<Integer>getArgument(0),
+                    y + invocation.<Integer>getArgument(1),
+                    z + invocation.<Integer>getArgument(2)));
+            blocks.put(key, block);
+            return block;
+        }
+
+        private Rail rail(Rail.Shape shape) {
+            return railData.computeIfAbsent(shape, ignored -> {
+                Rail rail = mock(Rail.class);
+                when(rail.getShape()).thenReturn(shape);
+                return rail;
+            });
+        }
+
+        private static long key(int x, int y, int z) {
+            return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+        }
+    }
+}
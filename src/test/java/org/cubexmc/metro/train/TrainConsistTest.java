@@ -0,0 +1,76 @@
+package org.cubexmc.metro.train;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Minecart;
+import org.junit.jupiter.api.Test;
+
+class TrainConsistTest {
+
+    private final World world = mock(World.class);
+
+    @Test
+    void shouldTrackRealAndVirtualSlotsInOrder() {
+        TrainConsist consist = new TrainConsist();
+        Minecart lead = cart(0.0);
+        consist.addCar(lead);
+        consist.addVirtualCar(new Location(world, -1.6, 64, 0));
+        consist.addVirtualCar(new Location(world, -3.2, 64, 0));
+
+        assertEquals(3, consist.getSlotCount());
+        assertEquals(1, consist.getCars().size());
+        assertTrue(consist.hasVirtualCars());
+        List<Location> locations = consist.getSlotLocations();
+        assertEquals(3, locations.size());
+        assertEquals(-3.2, locations.get(2).getX(), 1.0e-9);
+    }
+
+    @Test
+    void shouldPromoteVirtualSlotKeepingSlotOrder() {
+        TrainConsist consist = new TrainConsist();
+        Minecart lead = cart(0.0);
+        consist.addCar(lead);
+        consist.addVirtualCar(new Location(world, -1.6, 64, 0));
+        consist.addVirtualCar(new Location(world, -3.2, 64, 0));
+
+        Minecart third = cart(-3.2);
+        assertTrue(consist.promote(2, third));
+        Minecart second = cart(-1.6);
+        assertTrue(consist.promote(1, second));
+
+        assertEquals(List.of(lead, second, third), consist.getCars());
+        assertEquals(1, consist.getSlotOf(1));
+        assertEquals(2, consist.getSlotOf(2));
+        assertFalse(consist.hasVirtualCars());
+        assertFalse(consist.promote(1, cart(0.0)));
+        assertSame(lead, consist.getLeadCar());
+    }
+
+    @Test
+    void shouldResetSlotsOnClear() {
+        TrainConsist consist = new TrainConsist();
+        consist.addCar(cart(0.0));
+        consist.addVirtualCar(new Location(world, -1.6, 64, 0));
+
+        consist.clear();
+
+        assertEquals(0, consist.getSlotCount());
+        assertFalse(consist.hasVirtualCars());
+        assertTrue(consist.getCars().isEmpty());
+    }
+
+    private Minecart cart(double x) {
+        Minecart cart = mock(Minecart.class);
+        when(cart.getLocation()).thenReturn(new Location(world, x, 64, 0));
+        return cart;
+    }
+}
@@ -0,0 +1,49 @@
+package org.cubexmc.metro.train;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Minecart;
+import org.bukkit.util.Vector;
+import org.cubexmc.metro.model.Stop;
+import org.cubexmc.metro.service.BlockSectionManager;
+import org.junit.jupiter.api.Test;
+
+class TrainNavigatorTest {
+
+    @Test
+    void shouldLeaveSectionWhenArrivingByDistance() {
+        BlockSectionManager sections = new BlockSectionManager();
+        TrainInstance train = mock(TrainInstance.class, RETURNS_DEEP_STUBS);
+        Stop target = mock(Stop.class, RETURNS_DEEP_STUBS);
+        Minecart lead = mock(Minecart.class);
+        Location leadLocation = mock(Location.class);
+        when(train.getService().getBlockSectionManager()).thenReturn(sections);
+        when(train.getService().getStopManager().getStop("b")).thenReturn(target);
+        when(train.getService().getPlugin()).thenReturn(null);
+        when(train.getConsist().getLeadCar()).thenReturn(lead);
+        when(target.getId()).thenReturn("b");
+        when(lead.getLocation()).thenReturn(leadLocation);
+        when(lead.getVelocity()).thenReturn(new Vector());
+        when(leadLocation.distanceSquared(target.getStopPointLocation())).thenReturn(0.5);
+
+        TrainNavigator navigator = new TrainNavigator(train, List.of("a", "b", "c"));
+        navigator.setTargetIndex(1);
+        sections.tryEnter("red:a:b");
+        navigator.setSectionKey("red:a:b");
+
+        navigator.checkArrival(100L);
+
+        assertEquals(1, navigator.getCurrentIndex());
+        assertNull(navigator.getSectionKey());
+        assertFalse(sections.isOccupied("red:a:b"));
+        assertEquals(0, sections.getOccupiedCount());
+    }
+}
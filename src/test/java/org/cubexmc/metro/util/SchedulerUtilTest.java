@@ -0,0 +1,27 @@
+package org.cubexmc.metro.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class SchedulerUtilTest {
+
+    @Test
+    void tickSourceShouldReplaceServerTickUntilCleared() {
+        long serverTick = SchedulerUtil.getCurrentTick();
+        AtomicLong simulated = new AtomicLong(1_000L);
+        try {
+            SchedulerUtil.setTickSource(simulated::get);
+            assertEquals(1_000L, SchedulerUtil.getCurrentTick());
+
+            simulated.addAndGet(40L);
+            assertEquals(1_040L, SchedulerUtil.getCurrentTick());
+        } finally {
+            SchedulerUtil.setTickSource(null);
+        }
+
+        assertEquals(serverTick, SchedulerUtil.getCurrentTick());
+    }
+}